@@ -2,6 +2,9 @@ package com.kunzisoft.remembirthday;
 
 import android.app.Application;
 
+import com.kunzisoft.remembirthday.service.BirthdayContentObserver;
+import com.kunzisoft.remembirthday.service.TimeChangedReceiver;
+
 import net.danlew.android.joda.JodaTimeAndroid;
 
 /**
@@ -14,5 +17,9 @@ public class RememBirthday extends Application{
         super.onCreate();
         // Initialize Date library
         JodaTimeAndroid.init(this);
+        // Caches of dates of each process
+        TimeChangedReceiver.register(this);
+        // Synchronize birthdays modified outside the application, only from the main process
+        BirthdayContentObserver.register(this);
     }
 }
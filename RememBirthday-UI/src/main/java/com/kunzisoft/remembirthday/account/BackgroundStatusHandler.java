@@ -23,12 +23,15 @@ package com.kunzisoft.remembirthday.account;
 import android.os.Handler;
 import android.os.Message;
 
+import com.kunzisoft.remembirthday.provider.SyncStats;
+
 import java.lang.ref.WeakReference;
 
 public class BackgroundStatusHandler extends Handler {
 
     public static final int BACKGROUND_STATUS_HANDLER_DISABLE = 0;
     public static final int BACKGROUND_STATUS_HANDLER_ENABLE = 1;
+    public static final int BACKGROUND_STATUS_HANDLER_SYNC_PHASE = 2;
 
     private WeakReference<StatusChangeListener> mListener;
 
@@ -64,6 +67,13 @@ public class BackgroundStatusHandler extends Handler {
 
                 break;
 
+            case BACKGROUND_STATUS_HANDLER_SYNC_PHASE:
+                SyncStats.PhaseRecord phaseRecord = SyncStats.PhaseRecord.fromBundle(msg.getData());
+                if (listener != null && phaseRecord != null) {
+                    listener.onSyncPhase(phaseRecord);
+                }
+                break;
+
             default:
                 break;
         }
@@ -71,5 +81,10 @@ public class BackgroundStatusHandler extends Handler {
 
     public interface StatusChangeListener {
         void onStatusChange(boolean progress);
+
+        /**
+         * Called after each phase of a synchronization
+         */
+        void onSyncPhase(SyncStats.PhaseRecord phaseRecord);
     }
 }
@@ -13,7 +13,6 @@ import android.view.ViewGroup;
 
 import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.adapter.ContactAdapter;
-import com.kunzisoft.remembirthday.factory.ContactSort;
 import com.kunzisoft.remembirthday.provider.ContactLoader;
 
 /**
@@ -59,16 +58,15 @@ public abstract class AbstractListContactsFragment extends Fragment implements C
         // Initializes the loader
         contactLoader = initializeLoader();
         contactLoader.setLoaderContactCallback(this);
+        // Only the keys of the rows are loaded, the rows displayed are read by pages
+        contactLoader.setPagedLoading(true);
         getLoaderManager().initLoader(0, null, contactLoader);
     }
 
     @Override
     public void onContactLoadFinished(Loader<Cursor> loader, android.database.Cursor cursor) {
-        contactAdapter.swapCursor(cursor);
-        ContactSort contactSort = contactLoader.getContactSort();
-        if(contactSort != null && contactSort.getContactComparator() != null)
-            contactAdapter.sortElements(contactSort.getContactComparator());
-        contactAdapter.notifyDataSetChanged();
+        // Rows indexed and sorted in background, then only the changes are displayed
+        contactAdapter.updateContacts(cursor, contactLoader);
     }
 
     @Override
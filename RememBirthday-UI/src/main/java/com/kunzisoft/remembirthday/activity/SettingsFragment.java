@@ -6,6 +6,7 @@ import android.app.Activity;
 import android.content.DialogInterface;
 import android.content.SharedPreferences;
 import android.content.res.Configuration;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
@@ -22,14 +23,19 @@ import com.kunzisoft.androidclearchroma.ChromaPreferenceFragmentCompat;
 import com.kunzisoft.remembirthday.BuildConfig;
 import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.account.AccountResolver;
+import com.kunzisoft.remembirthday.account.BackgroundStatusHandler;
 import com.kunzisoft.remembirthday.account.CalendarAccount;
+import com.kunzisoft.remembirthday.database.SyncStatsDbHelper;
 import com.kunzisoft.remembirthday.preference.PreferencesManager;
 import com.kunzisoft.remembirthday.preference.TimePreference;
 import com.kunzisoft.remembirthday.preference.TimePreferenceDialogFragmentCompat;
+import com.kunzisoft.remembirthday.provider.SyncStats;
 import com.kunzisoft.remembirthday.service.MainIntentService;
 import com.kunzisoft.remembirthday.utility.IntentCall;
 
+import java.text.DateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,13 +53,14 @@ import permissions.dispatcher.RuntimePermissions;
  */
 @RuntimePermissions
 public class SettingsFragment extends ChromaPreferenceFragmentCompat implements
-        SharedPreferences.OnSharedPreferenceChangeListener {
+        SharedPreferences.OnSharedPreferenceChangeListener, BackgroundStatusHandler.StatusChangeListener {
 
     private static final String TAG_FRAGMENT_DIALOG = "com.kunzisoft.remembirthday.TAG_FRAGMENT_DIALOG";
 
     public static final int SETTING_RESULT_CODE = 1647;
 
     private EditTextPreference remindersDaysEditTextPreference;
+    private Preference syncHistory;
 
     private Preference.OnPreferenceClickListener onPreferenceProFeatureClick = new Preference.OnPreferenceClickListener() {
         @Override
@@ -101,7 +108,17 @@ public class SettingsFragment extends ChromaPreferenceFragmentCompat implements
             }
         });
 
-        accountResolver = CalendarAccount.getAccount(getContext());
+        syncHistory = findPreference(getString(R.string.pref_sync_history_key));
+        syncHistory.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+            @Override
+            public boolean onPreferenceClick(Preference preference) {
+                showSyncHistory();
+                return true;
+            }
+        });
+
+        // Progress of the synchronizations started here shown in the history
+        accountResolver = CalendarAccount.getAccount(getContext(), new BackgroundStatusHandler(this));
         preferenceCreateCalendar = (TwoStatePreference) findPreference(getString(R.string.pref_create_calendar_key));
         preferenceCreateCalendar.setDefaultValue(false);
         preferenceCreateCalendar.setOnPreferenceClickListener(onPreferenceCalendarClick);
@@ -121,6 +138,65 @@ public class SettingsFragment extends ChromaPreferenceFragmentCompat implements
         }
     }
 
+    @Override
+    public void onStatusChange(boolean progress) {
+        if (syncHistory != null && isAdded())
+            syncHistory.setSummary(progress ? R.string.sync_in_progress : R.string.pref_sync_history_summary);
+    }
+
+    @Override
+    public void onSyncPhase(SyncStats.PhaseRecord phaseRecord) {
+        if (syncHistory != null && isAdded())
+            syncHistory.setSummary(getString(R.string.sync_phase_done, phaseRecord.toString()));
+    }
+
+    /**
+     * Show the statistics of the last synchronizations in a dialog, the history is read in background
+     */
+    private void showSyncHistory() {
+        final SyncStatsDbHelper syncStatsDbHelper = SyncStatsDbHelper.getDbHelper(getContext());
+        new AsyncTask<Void, Void, List<SyncStats>>() {
+            @Override
+            protected List<SyncStats> doInBackground(Void... voids) {
+                return syncStatsDbHelper.getSyncStatsHistory();
+            }
+
+            @Override
+            protected void onPostExecute(List<SyncStats> syncStatsHistory) {
+                // Fragment closed during the read
+                if (isAdded())
+                    showSyncHistory(syncStatsHistory);
+            }
+        }.execute();
+    }
+
+    /**
+     * Show the statistics of synchronizations in a dialog
+     * @param syncStatsHistory Statistics of the last synchronizations
+     */
+    private void showSyncHistory(List<SyncStats> syncStatsHistory) {
+        StringBuilder history = new StringBuilder();
+        DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+        for (SyncStats syncStats : syncStatsHistory) {
+            history.append(dateFormat.format(new Date(syncStats.getStartTime())))
+                    .append(" - ").append(syncStats.getType())
+                    .append(" - ").append(syncStats.getDurationMillis()).append("ms")
+                    .append(syncStats.isSuccessful() ? "" : " - ERROR")
+                    .append('\n');
+            for (SyncStats.PhaseRecord phaseRecord : syncStats.getPhaseTotals()) {
+                history.append("  ").append(phaseRecord).append('\n');
+            }
+            history.append('\n');
+        }
+        if (syncStatsHistory.isEmpty())
+            history.append(getString(R.string.sync_history_empty));
+        new AlertDialog.Builder(getContext())
+                .setTitle(R.string.pref_sync_history_title)
+                .setMessage(history.toString().trim())
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
+    }
+
     @NeedsPermission(Manifest.permission.WRITE_CALENDAR)
     public void onPreferenceCalendarPermissionClick() {
         if (!preferenceCreateCalendar.isChecked()) {
@@ -12,6 +12,7 @@ import android.widget.Toast;
 
 import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.notifications.ContactsProviderIntentService;
+import com.kunzisoft.remembirthday.service.BirthdayContentObserver;
 import com.kunzisoft.remembirthday.utility.Utility;
 
 import permissions.dispatcher.NeedsPermission;
@@ -47,6 +48,9 @@ public class SplashActivity extends AppCompatActivity {
 
     @NeedsPermission(Manifest.permission.READ_CONTACTS)
     public void showRationalForContacts() {
+        // Not registered at the start of the application if the permission was not yet granted
+        BirthdayContentObserver.register(this);
+
         Intent intentService = new Intent(this, ContactsProviderIntentService.class);
         startService(intentService);
 
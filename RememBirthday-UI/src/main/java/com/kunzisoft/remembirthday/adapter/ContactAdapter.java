@@ -2,17 +2,24 @@ package com.kunzisoft.remembirthday.adapter;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.database.StaleDataException;
 import android.graphics.Bitmap;
 import android.graphics.PorterDuff;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.ContactsContract;
+import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
 import android.support.v4.graphics.drawable.RoundedBitmapDrawable;
 import android.support.v4.graphics.drawable.RoundedBitmapDrawableFactory;
 import android.support.v7.app.AppCompatDelegate;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
+import android.util.Log;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -21,14 +28,17 @@ import android.widget.ImageView;
 
 import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
+import com.kunzisoft.remembirthday.factory.ContactSort;
+import com.kunzisoft.remembirthday.provider.ContactLoader;
 import com.kunzisoft.remembirthday.utility.Utility;
 import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Adapter linked to contacts with birthday for data feeding
@@ -42,11 +52,24 @@ public class ContactAdapter<T extends ContactViewHolder> extends RecyclerView.Ad
     private Context context;
     private OnClickItemContactListener onClickItemContactListener;
 
+    // Cursor of the keys of the rows, from the loader in paged loading
     protected Cursor cursor;
-    protected int contactIdColIdx, contactLookupColIdx, contactNameColIdx, contactThumbnailImageUriColIdx, contactImageUriColIdx;
-
-    // Only used for specific sort of contacts
-    protected List<Contact> listContacts;
+    // Day of the birthdays computed in the list, taken with the cursor
+    protected TodaySnapshot today;
+
+    private ContactsUpdateTask contactsUpdateTask;
+    // Keys of the rows displayed, the rows are read by pages with the loader
+    private ContactRowIndex rowIndex;
+    private ContactLoader pagedLoader;
+    // Positions of the contacts displayed, null if not yet built
+    private ContactPositionIndex contactPositionIndex;
+    // Contacts built from the pages of rows, by position
+    private ContactCache contactCache = new ContactCache(ContactCache.DEFAULT_MAX_SIZE);
+    // Rows around the last position bound are read before displaying an update
+    private int lastPositionBound = 0;
+    // First positions of the pages loaded for rows bound without contact, only used in the main thread
+    private final Set<Integer> pagesLoading = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private int positionContactChecked = POSITION_UNDEFINED;
     private Drawable circleBackground;
@@ -78,41 +101,93 @@ public class ContactAdapter<T extends ContactViewHolder> extends RecyclerView.Ad
     }
 
     /**
-     * Change cursor implementation for retrieving data
-     * @param cursor New cursor
-     * @return The old cursor
+     * Retrieve the index of columns used by {@link #getItemFromCursor(Cursor, ColumnIndexes)},
+     * {@link #getPackedBirthdayFromCursor(Cursor, ColumnIndexes)} and {@link #getContentHashFromCursor(Cursor, ColumnIndexes)}.
+     * Retrieved for each cursor, a cursor can be read in background
+     * @param cursor Cursor of contacts or of the keys of contacts
+     * @return New indexes of the columns
+     */
+    protected ColumnIndexes getColumnIndexes(Cursor cursor) {
+        return new ColumnIndexes(cursor);
+    }
+
+    /**
+     * @return Snapshot of today used for the birthdays of the list, the same for the sort and the rows
      */
-    public void swapCursor(Cursor cursor) {
-        this.cursor = cursor;
-        this.contactIdColIdx = cursor.getColumnIndex(ContactsContract.Contacts._ID);
-        this.contactLookupColIdx = cursor.getColumnIndex(ContactsContract.Contacts.LOOKUP_KEY);
-        this.contactNameColIdx = cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME_PRIMARY);
-        this.contactThumbnailImageUriColIdx = cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_THUMBNAIL_URI);
-        this.contactImageUriColIdx = cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI);
+    public TodaySnapshot getToday() {
+        return today;
     }
 
     /**
-     * Sort the elements according to a comparator by constructing an intermediate list from the cursor. <br />
-     * The cursor must be initialized, so you must call {@link #swapCursor(Cursor)} before using {@link #sortElements(Comparator)} <br />
-     * WARNING, may take long time if the list contains many elements
-     * @param comparator The comparator to sort the list
+     * Build the contacts of rows of an index with one query, the rows are read by their ids
+     * @param contactLoader Loader of the rows
+     * @param rows Index of the rows
+     * @param start First position, included
+     * @param end Last position, excluded
+     * @return Contacts of the positions, with only their keys for the rows deleted since the index was built
      */
-    public void sortElements(Comparator<Contact> comparator) {
-        // TODO make sort
-        listContacts = new LinkedList<>();
-        cursor.moveToFirst();
-        while (!cursor.isAfterLast()) {
-            listContacts.add(getItemFromCursor(cursor));
-            cursor.moveToNext();
+    private Contact[] getItemsFromRows(ContactLoader contactLoader, ContactRowIndex rows, int start, int end) {
+        Contact[] contacts = new Contact[end - start];
+        if(contacts.length == 0)
+            return contacts;
+        Map<Long, Integer> positionByRowId = new HashMap<>(contacts.length * 4 / 3 + 1);
+        for(int position = start; position < end; position++) {
+            positionByRowId.put(rows.getRowId(position), position);
         }
-        Collections.sort(listContacts, comparator);
+        Cursor pageCursor = contactLoader.queryRows(rows.getRowIds(start, end));
+        if(pageCursor != null) {
+            try {
+                ColumnIndexes columnIndexes = getColumnIndexes(pageCursor);
+                while (pageCursor.moveToNext()) {
+                    Contact contact = getItemFromCursor(pageCursor, columnIndexes);
+                    // Rows in any order, the id of the contact is the id of the row
+                    Integer position = positionByRowId.get(contact.getId());
+                    if(position != null)
+                        contacts[position - start] = contact;
+                }
+            } finally {
+                pageCursor.close();
+            }
+        }
+        // Rows deleted, displayed with their keys until the next update
+        for(int i = 0; i < contacts.length; i++) {
+            if(contacts[i] == null)
+                contacts[i] = rows.getKeyContact(start + i);
+        }
+        return contacts;
     }
 
     /**
-     * Reset the cursor add with {@link #swapCursor(Cursor)}
+     * Update the contacts with a new cursor of keys in background : the index of the rows is built from the keys
+     * and sorted, then only the items changed since the rows displayed are notified. <br />
+     * The contacts are read by pages with the loader when they are displayed, the rows around the last position
+     * bound are read before the notification. An update in progress is cancelled and its result is never displayed
+     * @param keyCursor New cursor of the loader in paged loading, not read in the main thread
+     * @param contactLoader Loader of the cursor, to read the rows and get the sort
+     */
+    public void updateContacts(Cursor keyCursor, ContactLoader contactLoader) {
+        cancelUpdate();
+        contactsUpdateTask = new ContactsUpdateTask(keyCursor, contactLoader, rowIndex, today, lastPositionBound);
+        contactsUpdateTask.execute();
+    }
+
+    /**
+     * Cancel the update of contacts in progress, if any
+     */
+    public void cancelUpdate() {
+        if(contactsUpdateTask != null) {
+            contactsUpdateTask.cancel(false);
+            contactsUpdateTask = null;
+        }
+    }
+
+    /**
+     * Reset the cursor add with {@link #updateContacts(Cursor, ContactLoader)}
      */
     public void resetCursor() {
-        cursor.close();
+        cancelUpdate();
+        if(cursor != null)
+            cursor.close();
     }
 
     @Override
@@ -124,47 +199,125 @@ public class ContactAdapter<T extends ContactViewHolder> extends RecyclerView.Ad
 
     @Override
     public void onBindViewHolder(T holder, int position) {
-        Contact currentContact;
-        if(listContacts != null) {
-            // Get contact from list if specific sort is defined
-            currentContact = listContacts.get(position);
-        } else {
-            // Else getAutoSmsById contact directly from cursor
-            cursor.moveToPosition(position);
-            currentContact = getItemFromCursor(cursor);
-        }
+        lastPositionBound = position;
+        // Get contact from the pages of rows, never read here, and the rows around in background
+        Contact currentContact = contactCache.get(position);
+        boolean contactLoaded = currentContact != null;
+        if(!contactLoaded)
+            currentContact = getKeyContactAndLoadPage(position);
+        contactCache.prefetchAround(position, getItemCount(), getContactBuilder());
 
         assignDataToView(holder, currentContact, position);
 
         if(onClickItemContactListener != null) {
-            holder.container.setOnClickListener(new BufferContactClickListener(currentContact, position));
+            // Click only on a contact read, the row is bound again when its page is loaded
+            holder.container.setOnClickListener(contactLoaded ?
+                    new BufferContactClickListener(currentContact, position) : null);
         }
     }
 
+    /**
+     * Get the builder of the contacts of the rows displayed, by pages of the loader
+     */
+    private ContactCache.ContactBuilder getContactBuilder() {
+        final ContactLoader builderLoader = pagedLoader;
+        final ContactRowIndex builderRows = rowIndex;
+        return new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                return getItemsFromRows(builderLoader, builderRows, start, end);
+            }
+        };
+    }
+
+    /**
+     * Get the contact of a row from the cache, never read in the main thread
+     * @param position Position of the row
+     * @return Contact, or contact with only its keys if the row is not yet read
+     */
+    private Contact getContactAtPosition(int position) {
+        Contact contact = contactCache.get(position);
+        if(contact == null)
+            contact = getKeyContactAndLoadPage(position);
+        return contact;
+    }
+
+    /**
+     * Get a contact with only the keys of a row who is not yet read, and load in background the page of the row
+     * if not already in loading. The rows of the page are displayed again when loaded
+     * @param position Position of the row
+     * @return Contact with only its keys, displayed until the page is loaded
+     */
+    private Contact getKeyContactAndLoadPage(int position) {
+        final int start = position - position % ContactCache.PREFETCH_SIZE;
+        if(!pagesLoading.add(start))
+            return rowIndex.getKeyContact(position);
+        final int end = Math.min(start + ContactCache.PREFETCH_SIZE, rowIndex.size());
+        contactCache.load(start, end, getContactBuilder(), new ContactCache.OnContactsLoadedListener() {
+            @Override
+            public void onContactsLoaded(final int generation) {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Rows of a previous data
+                        if(generation != contactCache.getGeneration())
+                            return;
+                        pagesLoading.remove(start);
+                        notifyItemRangeChanged(start, end - start);
+                    }
+                });
+            }
+        });
+        return rowIndex.getKeyContact(position);
+    }
+
     /**
      * MUST BE REDEFINED
      * Must return a new item based on cursor data
      * @param cursor The cursor at the correct position
+     * @param columnIndexes Indexes of the columns of the cursor
      * @return The new item created
      */
-    protected Contact getItemFromCursor(Cursor cursor) {
+    protected Contact getItemFromCursor(Cursor cursor, ColumnIndexes columnIndexes) {
         //TODO getAutoSmsById rawcontact id when click
         Contact contact = new Contact(
-                cursor.getLong(contactIdColIdx),
-                cursor.getString(contactLookupColIdx),
-                cursor.getString(contactNameColIdx));
+                cursor.getLong(columnIndexes.contactIdColIdx),
+                cursor.getString(columnIndexes.contactLookupColIdx),
+                cursor.getString(columnIndexes.contactNameColIdx));
         // Thumbnail
-        String uriThumbnailString = cursor.getString(contactThumbnailImageUriColIdx);
+        String uriThumbnailString = cursor.getString(columnIndexes.contactThumbnailImageUriColIdx);
         if(uriThumbnailString!=null && !uriThumbnailString.isEmpty()) {
             contact.setImageThumbnailUri(Uri.parse(uriThumbnailString));
         }
         // Photo
-        String uriString = cursor.getString(contactImageUriColIdx);
+        String uriString = cursor.getString(columnIndexes.contactImageUriColIdx);
         if(uriString!=null && !uriString.isEmpty())
             contact.setImageUri(Uri.parse(uriString));
         return contact;
     }
 
+    /**
+     * Must return the packed date of the birthday of the row, to sort the rows without building the contacts
+     * @param keyCursor The cursor of keys at the correct position
+     * @param columnIndexes Indexes of the columns of the cursor of keys
+     * @return Packed date, see {@link com.kunzisoft.remembirthday.element.PackedDate}, 0 if the row has no birthday
+     */
+    protected int getPackedBirthdayFromCursor(Cursor keyCursor, ColumnIndexes columnIndexes) {
+        return 0;
+    }
+
+    /**
+     * Must return the hash of the columns of keys displayed, a row is displayed again if its hash changes
+     * @param keyCursor The cursor of keys at the correct position
+     * @param columnIndexes Indexes of the columns of the cursor of keys
+     * @return Hash of the columns
+     */
+    protected long getContentHashFromCursor(Cursor keyCursor, ColumnIndexes columnIndexes) {
+        return ContactRowIndex.hashColumns(
+                keyCursor.getString(columnIndexes.contactNameColIdx),
+                keyCursor.getString(columnIndexes.contactThumbnailImageUriColIdx));
+    }
+
     /**
      * MUST BE REDEFINED <br />
      * Method used to link the ViewHolder to the item data
@@ -251,39 +404,55 @@ public class ContactAdapter<T extends ContactViewHolder> extends RecyclerView.Ad
 
     /**
      * Get the first element in adapter
-     * @return First contact
+     * @return First contact, with only its keys if its row is not yet read
      */
     public Contact getFirst() {
-        if(listContacts!= null && !listContacts.isEmpty())
-            return listContacts.get(0);
-        else if(cursor != null) {
-            cursor.moveToFirst();
-            if (!cursor.isAfterLast())
-                return getItemFromCursor(cursor);
-        }
+        if(getItemCount() > 0)
+            return getContactAtPosition(0);
         return null;
     }
 
+    /**
+     * Get the index of positions of the contacts displayed, built once for each data
+     * @return Index, or null if there is no data
+     */
+    private ContactPositionIndex getContactPositionIndex() {
+        if(contactPositionIndex == null && rowIndex != null)
+            contactPositionIndex = rowIndex.toPositionIndex();
+        return contactPositionIndex;
+    }
+
     /**
      * Get position of contact
      * @param contact Contact to search
      * @return Contact found, if not found return POSITION_UNDEFINED
      */
     public int getPosition(Contact contact) {
-        if(listContacts!= null && !listContacts.isEmpty())
-            return listContacts.indexOf(contact);
-        else if(cursor != null) {
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                Contact contactCursor = getItemFromCursor(cursor);
-                if (contact.equals(contactCursor))
-                    return cursor.getPosition();
-                cursor.moveToNext();
-            }
-        }
+        ContactPositionIndex positionIndex = getContactPositionIndex();
+        if(positionIndex == null)
+            return POSITION_UNDEFINED;
+        int position = positionIndex.getPositionById(contact.getId());
+        if(position == POSITION_UNDEFINED)
+            return POSITION_UNDEFINED;
+        // Same id, check the lookup key like Contact.equals
+        String lookupKey = rowIndex.getLookupKey(position);
+        if(contact.getLookUpKey() == null ? lookupKey == null : contact.getLookUpKey().equals(lookupKey))
+            return position;
         return POSITION_UNDEFINED;
     }
 
+    /**
+     * Get position of contact by its lookup key, to jump to a contact
+     * @param lookupKey Lookup key of contact
+     * @return First position of the contact, if not found return POSITION_UNDEFINED
+     */
+    public int getPositionByLookupKey(String lookupKey) {
+        ContactPositionIndex positionIndex = getContactPositionIndex();
+        if(positionIndex == null)
+            return POSITION_UNDEFINED;
+        return positionIndex.getPositionByLookupKey(lookupKey);
+    }
+
     /**
      * Select the contact defined in parameter
      * @param contact Contact to setItemCheckedByPosition
@@ -294,12 +463,131 @@ public class ContactAdapter<T extends ContactViewHolder> extends RecyclerView.Ad
 
     @Override
     public int getItemCount() {
-        if(cursor!=null)
-            return cursor.getCount();
+        if(rowIndex != null)
+            return rowIndex.size();
         else
             return 0;
     }
 
+    /**
+     * Build and sort the index of the rows of a new cursor of keys, read the rows displayed,
+     * then compute the changes from the rows displayed
+     */
+    private class ContactsUpdateTask extends AsyncTask<Void, Void, DiffUtil.DiffResult> {
+
+        private Cursor keyCursor;
+        private ContactLoader contactLoader;
+        private ContactRowIndex oldRows;
+        private TodaySnapshot oldToday;
+        private TodaySnapshot newToday;
+        private int positionBound;
+        private ContactRowIndex newRows;
+        private ContactPositionIndex newPositionIndex;
+        private int firstContactsStart;
+        private Contact[] firstContacts;
+
+        ContactsUpdateTask(Cursor keyCursor, ContactLoader contactLoader,
+                           @Nullable ContactRowIndex oldRows, @Nullable TodaySnapshot oldToday, int positionBound) {
+            this.keyCursor = keyCursor;
+            this.contactLoader = contactLoader;
+            this.oldRows = oldRows;
+            this.oldToday = oldToday;
+            this.newToday = TodaySnapshot.now();
+            this.positionBound = positionBound;
+        }
+
+        @Override
+        protected DiffUtil.DiffResult doInBackground(Void... voids) {
+            ContactSort contactSort = contactLoader.getContactSort();
+            int[] packedBirthdays = null;
+            ContactRowIndex rows;
+            try {
+                ColumnIndexes columnIndexes = getColumnIndexes(keyCursor);
+                int count = keyCursor.getCount();
+                long[] rowIds = new long[count];
+                String[] lookupKeys = new String[count];
+                long[] contentHashes = new long[count];
+                // Birthdays of the rows, to sort the rows
+                if(contactSort != null && contactSort.isSortedInMemory())
+                    packedBirthdays = new int[count];
+                keyCursor.moveToPosition(-1);
+                while (keyCursor.moveToNext()) {
+                    if(isCancelled())
+                        return null;
+                    int position = keyCursor.getPosition();
+                    rowIds[position] = keyCursor.getLong(columnIndexes.contactIdColIdx);
+                    lookupKeys[position] = keyCursor.getString(columnIndexes.contactLookupColIdx);
+                    contentHashes[position] = getContentHashFromCursor(keyCursor, columnIndexes);
+                    if(packedBirthdays != null)
+                        packedBirthdays[position] = getPackedBirthdayFromCursor(keyCursor, columnIndexes);
+                }
+                rows = new ContactRowIndex(rowIds, lookupKeys, contentHashes);
+            } catch (IllegalStateException | StaleDataException e) {
+                // Cursor closed by the loader when a newer cursor is loaded
+                Log.w(TAG, "Keys of the cursor not read : " + e.getMessage());
+                return null;
+            }
+            if(packedBirthdays != null) {
+                int[] positions = contactSort.sortPositions(packedBirthdays, newToday);
+                if(positions != null)
+                    rows = rows.reorder(positions);
+            }
+            newPositionIndex = rows.toPositionIndex();
+            // Rows displayed read before the notification
+            firstContactsStart = Math.max(Math.min(positionBound, rows.size() - 1) - ContactCache.PREFETCH_SIZE, 0);
+            firstContacts = getItemsFromRows(contactLoader, rows,
+                    firstContactsStart, Math.min(positionBound + 1 + ContactCache.PREFETCH_SIZE, rows.size()));
+            newRows = rows;
+            if(oldRows == null || isCancelled())
+                return null;
+            boolean sameDay = oldToday != null && oldToday.getPackedDate() == newToday.getPackedDate();
+            return DiffUtil.calculateDiff(new ContactDiffCallback(oldRows, newRows, sameDay));
+        }
+
+        @Override
+        protected void onPostExecute(DiffUtil.DiffResult diffResult) {
+            // Result of an update cancelled or failed
+            if(contactsUpdateTask != this || newRows == null)
+                return;
+            contactsUpdateTask = null;
+            Contact contactChecked = null;
+            if(positionContactChecked != POSITION_UNDEFINED && positionContactChecked < getItemCount())
+                contactChecked = rowIndex.getKeyContact(positionContactChecked);
+            contactCache.invalidate();
+            pagesLoading.clear();
+            cursor = keyCursor;
+            today = newToday;
+            rowIndex = newRows;
+            pagedLoader = contactLoader;
+            contactPositionIndex = newPositionIndex;
+            contactCache.putAll(contactCache.getGeneration(), firstContactsStart, firstContacts);
+            if(diffResult != null)
+                diffResult.dispatchUpdatesTo(ContactAdapter.this);
+            else
+                notifyDataSetChanged();
+            // The contact checked may have moved
+            if(contactChecked != null)
+                setItemCheckedByPosition(getPosition(contactChecked));
+        }
+    }
+
+    /**
+     * Index of the columns of a cursor of contacts, -1 for a column who is not in the cursor
+     */
+    protected static class ColumnIndexes {
+
+        protected final int contactIdColIdx, contactLookupColIdx, contactNameColIdx,
+                contactThumbnailImageUriColIdx, contactImageUriColIdx;
+
+        protected ColumnIndexes(Cursor cursor) {
+            this.contactIdColIdx = cursor.getColumnIndex(ContactsContract.Contacts._ID);
+            this.contactLookupColIdx = cursor.getColumnIndex(ContactsContract.Contacts.LOOKUP_KEY);
+            this.contactNameColIdx = cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME_PRIMARY);
+            this.contactThumbnailImageUriColIdx = cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_THUMBNAIL_URI);
+            this.contactImageUriColIdx = cursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI);
+        }
+    }
+
     /**
      * Class manager for add contact and view in listener
      */
@@ -12,6 +12,7 @@ import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.utility.Utility;
 import com.kunzisoft.remembirthday.element.Contact;
 import com.kunzisoft.remembirthday.element.DateUnknownYear;
+import com.kunzisoft.remembirthday.element.StartDateCache;
 
 /**
  * Adapter linked to contacts with birthday for data feeding
@@ -20,20 +21,13 @@ public class ContactBirthdayAdapter extends ContactAdapter<ContactBirthdayViewHo
 
     private static final String TAG = "ContactBirthdayAdapter";
 
-    private int contactDataColIdx;
-    private int contactStartDateColIdx;
-    private int contactTypeColIdx;
-
     public ContactBirthdayAdapter(Context context) {
         super(context);
     }
 
     @Override
-    public void swapCursor(Cursor cursor) {
-        super.swapCursor(cursor);
-        this.contactDataColIdx = cursor.getColumnIndex(ContactsContract.Contacts.Data._ID);
-        this.contactStartDateColIdx = cursor.getColumnIndex(ContactsContract.CommonDataKinds.Event.START_DATE);
-        this.contactTypeColIdx = cursor.getColumnIndex(ContactsContract.CommonDataKinds.Event.TYPE);
+    protected ColumnIndexes getColumnIndexes(Cursor cursor) {
+        return new BirthdayColumnIndexes(cursor);
     }
 
     @Override
@@ -43,14 +37,16 @@ public class ContactBirthdayAdapter extends ContactAdapter<ContactBirthdayViewHo
     }
 
     @Override
-    protected Contact getItemFromCursor(Cursor cursor) {
-        Contact contact = super.getItemFromCursor(cursor);
+    protected Contact getItemFromCursor(Cursor cursor, ColumnIndexes columnIndexes) {
+        Contact contact = super.getItemFromCursor(cursor, columnIndexes);
+        BirthdayColumnIndexes birthdayColumnIndexes = (BirthdayColumnIndexes) columnIndexes;
         DateUnknownYear dateUnknownYear = null;
         try {
-            contact.setDataAnniversaryId(cursor.getLong(contactDataColIdx));
-            switch(cursor.getInt(contactTypeColIdx)) {
+            contact.setDataAnniversaryId(cursor.getLong(birthdayColumnIndexes.contactDataColIdx));
+            switch(cursor.getInt(birthdayColumnIndexes.contactTypeColIdx)) {
                 case ContactsContract.CommonDataKinds.Event.TYPE_BIRTHDAY:
-                    dateUnknownYear = DateUnknownYear.stringToDate(cursor.getString(contactStartDateColIdx));
+                    dateUnknownYear = DateUnknownYear.stringToDate(
+                            cursor.getString(birthdayColumnIndexes.contactStartDateColIdx));
                     break;
                 case ContactsContract.CommonDataKinds.Event.TYPE_ANNIVERSARY:
                     //TODO Anniversary
@@ -66,6 +62,21 @@ public class ContactBirthdayAdapter extends ContactAdapter<ContactBirthdayViewHo
         return contact;
     }
 
+    @Override
+    protected int getPackedBirthdayFromCursor(Cursor keyCursor, ColumnIndexes columnIndexes) {
+        // Only birthdays are loaded
+        String startDate = keyCursor.getString(((BirthdayColumnIndexes) columnIndexes).contactStartDateColIdx);
+        if(startDate == null)
+            return 0;
+        return StartDateCache.getInstance().getParsedDate(startDate).getPackedDate();
+    }
+
+    @Override
+    protected long getContentHashFromCursor(Cursor keyCursor, ColumnIndexes columnIndexes) {
+        return ContactRowIndex.hashColumns(super.getContentHashFromCursor(keyCursor, columnIndexes),
+                keyCursor.getString(((BirthdayColumnIndexes) columnIndexes).contactStartDateColIdx));
+    }
+
     @Override
     protected void assignDataToView(ContactBirthdayViewHolder holder, Contact contact, int position) {
         super.assignDataToView(holder, contact, position);
@@ -73,13 +84,13 @@ public class ContactBirthdayAdapter extends ContactAdapter<ContactBirthdayViewHo
         if(contact.hasBirthday()) {
             if (contact.getBirthday().containsYear()) {
                 holder.age.setVisibility(View.VISIBLE);
-                holder.age.setText(String.valueOf(contact.getAge()));
+                holder.age.setText(String.valueOf(contact.getAge(today)));
             } else {
                 holder.age.setVisibility(View.INVISIBLE);
                 holder.age.setText("");
             }
             holder.birthday.setText(contact.getBirthday().toString());
-            Utility.assignDaysRemainingInTextView(holder.daysLeft, contact.getBirthdayDaysRemaining());
+            Utility.assignDaysRemainingInTextView(holder.daysLeft, contact.getBirthdayDaysRemaining(today));
         } else {
             holder.age.setVisibility(View.INVISIBLE);
             holder.age.setText("");
@@ -87,4 +98,19 @@ public class ContactBirthdayAdapter extends ContactAdapter<ContactBirthdayViewHo
             holder.daysLeft.setText("");
         }
     }
+
+    /**
+     * Index of the columns of a cursor of contacts with the columns of birthday
+     */
+    protected static class BirthdayColumnIndexes extends ColumnIndexes {
+
+        protected final int contactDataColIdx, contactStartDateColIdx, contactTypeColIdx;
+
+        protected BirthdayColumnIndexes(Cursor cursor) {
+            super(cursor);
+            this.contactDataColIdx = cursor.getColumnIndex(ContactsContract.Contacts.Data._ID);
+            this.contactStartDateColIdx = cursor.getColumnIndex(ContactsContract.CommonDataKinds.Event.START_DATE);
+            this.contactTypeColIdx = cursor.getColumnIndex(ContactsContract.CommonDataKinds.Event.TYPE);
+        }
+    }
 }
@@ -0,0 +1,204 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import android.database.StaleDataException;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache of the contacts built for the rows of a list, by position, with a prefetch of the rows
+ * around the rows bound and a load of the rows missing in background. <br />
+ * The least recently used contacts are evicted. Each data of the list is a new generation,
+ * the contacts of a previous generation are never returned, even if their prefetch ends after the change.
+ */
+class ContactCache {
+
+    private static final String TAG = "ContactCache";
+
+    // Some screens of rows, a contact with its images and birthday is about 300 bytes
+    static final int DEFAULT_MAX_SIZE = 256;
+    // About a screen of rows, prefetched on each side of a row bound, also the size of a page of rows
+    static final int PREFETCH_SIZE = 20;
+
+    // One thread for all lists, the prefetches are done in order
+    private static final Executor PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final LruCache<Integer, Contact> contacts;
+    private volatile int generation = 0;
+    // Positions prefetched or in prefetch for the generation, only used in the main thread
+    private int prefetchFrom = 0;
+    private int prefetchUntil = 0;
+
+    ContactCache(int maxSize) {
+        this.contacts = new LruCache<>(maxSize);
+    }
+
+    /**
+     * @return Generation of the data, to give to {@link #put(int, int, Contact)}
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param position Position in the list
+     * @return Contact kept or null if not in the cache
+     */
+    @Nullable Contact get(int position) {
+        return contacts.get(position);
+    }
+
+    /**
+     * Keep the contact of a position, only if the data has not changed since the contact was built
+     * @param generation Generation of the data of the contact
+     * @param position Position in the list
+     * @param contact Contact built
+     */
+    synchronized void put(int generation, int position, Contact contact) {
+        if(generation == this.generation)
+            contacts.put(position, contact);
+    }
+
+    /**
+     * Forget all contacts, the data of the list has changed
+     */
+    synchronized void invalidate() {
+        generation++;
+        contacts.evictAll();
+        prefetchFrom = 0;
+        prefetchUntil = 0;
+    }
+
+    /**
+     * Build in background the contacts of the rows around a position bound, if they are not yet prefetched.
+     * Each run of rows not in the cache is built at once. Must be called in the main thread
+     * @param position Position bound
+     * @param itemCount Number of rows of the list
+     * @param contactBuilder Builder of the contacts of the current data
+     */
+    void prefetchAround(int position, int itemCount, final ContactBuilder contactBuilder) {
+        // Still at least half a screen prefetched on each side
+        if(position - PREFETCH_SIZE / 2 >= prefetchFrom && position + PREFETCH_SIZE / 2 < prefetchUntil)
+            return;
+        final int start = Math.max(position - PREFETCH_SIZE, 0);
+        final int end = Math.min(position + 1 + PREFETCH_SIZE, itemCount);
+        if(start >= end)
+            return;
+        prefetchFrom = start;
+        prefetchUntil = end;
+        final int prefetchGeneration = generation;
+        PREFETCH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buildMissingContacts(prefetchGeneration, start, end, contactBuilder);
+                } catch (IllegalStateException | StaleDataException e) {
+                    // Data closed after a change, the contacts are no longer needed
+                    Log.w(TAG, "Contacts not prefetched : " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Build in background the contacts of consecutive rows who are not in the cache, after the prefetches
+     * in progress, then call the listener in the background thread. Must be called in the main thread
+     * @param start First position, included
+     * @param end Last position, excluded
+     * @param contactBuilder Builder of the contacts of the current data
+     * @param onContactsLoadedListener Listener called if the contacts are kept, not called if the data changes
+     */
+    void load(final int start, final int end, final ContactBuilder contactBuilder,
+              final OnContactsLoadedListener onContactsLoadedListener) {
+        final int loadGeneration = generation;
+        PREFETCH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if(buildMissingContacts(loadGeneration, start, end, contactBuilder))
+                        onContactsLoadedListener.onContactsLoaded(loadGeneration);
+                } catch (IllegalStateException | StaleDataException e) {
+                    // Data closed after a change, the contacts are no longer needed
+                    Log.w(TAG, "Contacts not loaded : " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Build and keep the contacts of the rows not in the cache, each run of rows at once
+     * @param buildGeneration Generation of the data of the builder
+     * @param start First position, included
+     * @param end Last position, excluded
+     * @param contactBuilder Builder of the contacts
+     * @return true if all the contacts are built for the current generation
+     */
+    private boolean buildMissingContacts(int buildGeneration, int start, int end, ContactBuilder contactBuilder) {
+        int runStart = start;
+        while (runStart < end) {
+            if(buildGeneration != generation)
+                return false;
+            // Next run of rows not in the cache
+            while (runStart < end && contacts.get(runStart) != null)
+                runStart++;
+            int runEnd = runStart;
+            while (runEnd < end && contacts.get(runEnd) == null)
+                runEnd++;
+            if(runStart < runEnd)
+                putAll(buildGeneration, runStart, contactBuilder.buildContacts(runStart, runEnd));
+            runStart = runEnd;
+        }
+        return buildGeneration == generation;
+    }
+
+    /**
+     * Keep the contacts of consecutive positions, only if the data has not changed since they were built
+     * @param generation Generation of the data of the contacts
+     * @param start Position of the first contact
+     * @param contacts Contacts built, null for the rows who don't exist
+     */
+    synchronized void putAll(int generation, int start, Contact[] contacts) {
+        for(int i = 0; i < contacts.length; i++) {
+            if(contacts[i] != null)
+                put(generation, start + i, contacts[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ContactCache{" +
+                "generation=" + generation +
+                ", size=" + contacts.size() +
+                ", hits=" + contacts.hitCount() +
+                ", misses=" + contacts.missCount() +
+                '}';
+    }
+
+    /**
+     * Build the contacts of consecutive positions at once, may be called in background
+     */
+    interface ContactBuilder {
+        /**
+         * @param start First position, included
+         * @param end Last position, excluded
+         * @return Contacts of the positions, null for the rows who don't exist
+         */
+        Contact[] buildContacts(int start, int end);
+    }
+
+    /**
+     * Called in background when the contacts asked with {@link #load(int, int, ContactBuilder, OnContactsLoadedListener)}
+     * are in the cache
+     */
+    interface OnContactsLoadedListener {
+        /**
+         * @param generation Generation of the data of the contacts
+         */
+        void onContactsLoaded(int generation);
+    }
+}
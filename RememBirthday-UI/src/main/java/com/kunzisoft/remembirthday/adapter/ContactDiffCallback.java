@@ -0,0 +1,52 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import android.support.v7.util.DiffUtil;
+
+/**
+ * Differences between two indexes of rows of contacts, to update only the items changed. <br />
+ * Items are the same row if they have the same row id and lookup key, contents are the same if the columns
+ * displayed have the same hash of 64 bits and the days left are computed the same day.
+ */
+class ContactDiffCallback extends DiffUtil.Callback {
+
+    private ContactRowIndex oldRows;
+    private ContactRowIndex newRows;
+    private boolean sameDay;
+
+    /**
+     * @param oldRows Rows displayed
+     * @param newRows Rows to display
+     * @param sameDay true if the days left of the two lists are computed the same day
+     */
+    ContactDiffCallback(ContactRowIndex oldRows, ContactRowIndex newRows, boolean sameDay) {
+        this.oldRows = oldRows;
+        this.newRows = newRows;
+        this.sameDay = sameDay;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldRows.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newRows.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        if(oldRows.getRowId(oldItemPosition) != newRows.getRowId(newItemPosition))
+            return false;
+        String oldLookupKey = oldRows.getLookupKey(oldItemPosition);
+        return oldLookupKey == null ?
+                newRows.getLookupKey(newItemPosition) == null :
+                oldLookupKey.equals(newRows.getLookupKey(newItemPosition));
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        return sameDay
+                && oldRows.getContentHash(oldItemPosition) == newRows.getContentHash(newItemPosition);
+    }
+}
@@ -0,0 +1,67 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the positions of contacts in a list, by contact id and by lookup key. <br />
+ * A contact with many rows (many birthdays) is at its first position, like {@link List#indexOf(Object)}.
+ */
+class ContactPositionIndex {
+
+    private Map<Long, Integer> positionById;
+    private Map<String, Integer> positionByLookupKey;
+
+    ContactPositionIndex(int size) {
+        positionById = new HashMap<>(size * 4 / 3 + 1);
+        positionByLookupKey = new HashMap<>(size * 4 / 3 + 1);
+    }
+
+    /**
+     * Build the index of a list of contacts
+     * @param contacts Contacts in the order of the list
+     * @return New index
+     */
+    static ContactPositionIndex fromContacts(List<Contact> contacts) {
+        ContactPositionIndex contactPositionIndex = new ContactPositionIndex(contacts.size());
+        for (int position = 0; position < contacts.size(); position++) {
+            Contact contact = contacts.get(position);
+            contactPositionIndex.put(contact.getId(), contact.getLookUpKey(), position);
+        }
+        return contactPositionIndex;
+    }
+
+    /**
+     * Add the position of a contact, the first position of a contact is kept
+     * @param id Id of contact
+     * @param lookupKey Lookup key of contact, or null
+     * @param position Position in the list
+     */
+    void put(long id, String lookupKey, int position) {
+        if(id != Contact.ID_UNDEFINED && !positionById.containsKey(id))
+            positionById.put(id, position);
+        if(lookupKey != null && !positionByLookupKey.containsKey(lookupKey))
+            positionByLookupKey.put(lookupKey, position);
+    }
+
+    /**
+     * @param id Id of contact
+     * @return First position of the contact, or {@link ContactAdapter#POSITION_UNDEFINED}
+     */
+    int getPositionById(long id) {
+        Integer position = positionById.get(id);
+        return position == null ? ContactAdapter.POSITION_UNDEFINED : position;
+    }
+
+    /**
+     * @param lookupKey Lookup key of contact
+     * @return First position of the contact, or {@link ContactAdapter#POSITION_UNDEFINED}
+     */
+    int getPositionByLookupKey(String lookupKey) {
+        Integer position = positionByLookupKey.get(lookupKey);
+        return position == null ? ContactAdapter.POSITION_UNDEFINED : position;
+    }
+}
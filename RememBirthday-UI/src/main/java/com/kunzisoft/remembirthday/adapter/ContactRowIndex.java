@@ -0,0 +1,127 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import java.util.Arrays;
+
+/**
+ * Compact index of the rows of a list of contacts, in the order of the list. <br />
+ * Only the keys of each row are kept in arrays (row id, lookup key and hash of the columns displayed),
+ * the contacts are built by pages of rows when they are displayed.
+ */
+class ContactRowIndex {
+
+    // FNV-1a of 64 bits
+    private static final long HASH_OFFSET = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+    // Out of the range of chars, to separate the columns
+    private static final int HASH_NULL_COLUMN = 0x10000;
+    private static final int HASH_END_COLUMN = 0x10001;
+
+    private final long[] rowIds;
+    private final String[] lookupKeys;
+    private final long[] contentHashes;
+
+    /**
+     * @param rowIds Ids of the rows, also the ids of the contacts built from the rows
+     * @param lookupKeys Lookup keys of the contacts
+     * @param contentHashes Hashes of the columns displayed
+     */
+    ContactRowIndex(long[] rowIds, String[] lookupKeys, long[] contentHashes) {
+        this.rowIds = rowIds;
+        this.lookupKeys = lookupKeys;
+        this.contentHashes = contentHashes;
+    }
+
+    /**
+     * Hash of the columns displayed of a row, to know if a row changed without keeping its columns. <br />
+     * The hash has 64 bits, two rows of a list with different columns and the same hash are very unlikely
+     * @param columns Values of the columns, may be null
+     * @return Hash
+     */
+    static long hashColumns(String... columns) {
+        return hashColumns(HASH_OFFSET, columns);
+    }
+
+    /**
+     * Hash of more columns of a row
+     * @param hash Hash of the first columns
+     * @param columns Values of the next columns, may be null
+     * @return Hash of all the columns
+     */
+    static long hashColumns(long hash, String... columns) {
+        for(String column : columns) {
+            if(column == null) {
+                hash = (hash ^ HASH_NULL_COLUMN) * HASH_PRIME;
+                continue;
+            }
+            for(int i = 0; i < column.length(); i++) {
+                hash = (hash ^ column.charAt(i)) * HASH_PRIME;
+            }
+            hash = (hash ^ HASH_END_COLUMN) * HASH_PRIME;
+        }
+        return hash;
+    }
+
+    int size() {
+        return rowIds.length;
+    }
+
+    long getRowId(int position) {
+        return rowIds[position];
+    }
+
+    String getLookupKey(int position) {
+        return lookupKeys[position];
+    }
+
+    long getContentHash(int position) {
+        return contentHashes[position];
+    }
+
+    /**
+     * @param start First position, included
+     * @param end Last position, excluded
+     * @return Ids of the rows between the positions
+     */
+    long[] getRowIds(int start, int end) {
+        return Arrays.copyOfRange(rowIds, start, end);
+    }
+
+    /**
+     * Build the index of the same rows in another order
+     * @param positions Positions of the rows in the new order
+     * @return New index
+     */
+    ContactRowIndex reorder(int[] positions) {
+        long[] sortedRowIds = new long[positions.length];
+        String[] sortedLookupKeys = new String[positions.length];
+        long[] sortedContentHashes = new long[positions.length];
+        for(int i = 0; i < positions.length; i++) {
+            sortedRowIds[i] = rowIds[positions[i]];
+            sortedLookupKeys[i] = lookupKeys[positions[i]];
+            sortedContentHashes[i] = contentHashes[positions[i]];
+        }
+        return new ContactRowIndex(sortedRowIds, sortedLookupKeys, sortedContentHashes);
+    }
+
+    /**
+     * Contact with only the keys of a row, displayed until the row is read or if the row is deleted before being read
+     * @param position Position of the row
+     * @return New contact
+     */
+    Contact getKeyContact(int position) {
+        return new Contact(rowIds[position], lookupKeys[position], null);
+    }
+
+    /**
+     * @return Index of the positions of the contacts of the rows
+     */
+    ContactPositionIndex toPositionIndex() {
+        ContactPositionIndex contactPositionIndex = new ContactPositionIndex(rowIds.length);
+        for(int position = 0; position < rowIds.length; position++) {
+            contactPositionIndex.put(rowIds[position], lookupKeys[position], position);
+        }
+        return contactPositionIndex;
+    }
+}
@@ -1,11 +1,7 @@
 package com.kunzisoft.remembirthday.adapter.observer;
 
-import android.content.ContentProviderOperation;
-import android.content.ContentProviderResult;
-import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.Context;
-import android.content.OperationApplicationException;
-import android.os.RemoteException;
 import android.provider.CalendarContract;
 import android.util.Log;
 
@@ -13,6 +9,7 @@ import com.kunzisoft.remembirthday.adapter.AbstractReminderAdapter;
 import com.kunzisoft.remembirthday.element.CalendarEvent;
 import com.kunzisoft.remembirthday.element.Contact;
 import com.kunzisoft.remembirthday.element.Reminder;
+import com.kunzisoft.remembirthday.provider.BatchExecutor;
 import com.kunzisoft.remembirthday.provider.EventLoader;
 import com.kunzisoft.remembirthday.provider.ReminderProvider;
 
@@ -28,8 +25,7 @@ public class ReminderCalendarProviderObserver implements AbstractReminderAdapter
     private Context context;
     private CalendarEvent baseEvent;
     private List<CalendarEvent> afterEvents;
-    private ContentResolver contentResolver;
-    private ArrayList<ContentProviderOperation> ops;
+    private BatchExecutor batchExecutor;
     
     public ReminderCalendarProviderObserver(Context context, Contact contact, CalendarEvent baseEvent) {
         this.context = context;
@@ -40,32 +36,46 @@ public class ReminderCalendarProviderObserver implements AbstractReminderAdapter
             this.afterEvents = new ArrayList<>();
         }
         this.baseEvent = baseEvent;
-        this.contentResolver = context.getContentResolver();
-        this.ops = new ArrayList<>();
+        this.batchExecutor = new BatchExecutor(context.getContentResolver(), CalendarContract.AUTHORITY);
     }
     
     @Override
     public void onReminderAdded(Reminder reminder) {
-        ops.add(ReminderProvider.insert(context, baseEvent.getId(), reminder));
-        //TODO Add id to reminder
+        BatchExecutor.OperationGroup operationGroup =
+                batchExecutor.add(ReminderProvider.newInsert(context, baseEvent.getId(), reminder));
         applyBatch();
+        assignIdToReminder(reminder, operationGroup);
     }
 
     @Override
     public void onRemindersAdded(List<Reminder> reminders) {
-        //TODO Add id to reminder
+        List<BatchExecutor.OperationGroup> operationGroups = new ArrayList<>();
         for(Reminder reminder : reminders) {
-            ops.add(ReminderProvider.insert(context, baseEvent.getId(), reminder));
+            operationGroups.add(batchExecutor.add(ReminderProvider.newInsert(context, baseEvent.getId(), reminder)));
         }
         applyBatch();
+        for(int i = 0; i < reminders.size(); i++) {
+            assignIdToReminder(reminders.get(i), operationGroups.get(i));
+        }
+    }
+
+    /**
+     * Assign the id of the reminder inserted in calendar
+     */
+    private void assignIdToReminder(Reminder reminder, BatchExecutor.OperationGroup operationGroup) {
+        if(operationGroup.isApplied()
+                && operationGroup.size() > 0
+                && operationGroup.getResults()[0].uri != null) {
+            reminder.setId(ContentUris.parseId(operationGroup.getResults()[0].uri));
+        }
     }
 
     @Override
     public void onReminderUpdated(Reminder reminder) {
         // TODO with link
-        ops.add(ReminderProvider.update(context, baseEvent.getId(), reminder));
+        batchExecutor.add(ReminderProvider.newUpdate(context, baseEvent.getId(), reminder));
         for(CalendarEvent afterEvent : afterEvents) {
-            //ops.add(ReminderProvider.updateWithUnknownId(context, afterEvent.getId(), reminder, newMinutes));
+            //batchExecutor.add(ReminderProvider.updateWithUnknownId(context, afterEvent.getId(), reminder, newMinutes));
         }
         applyBatch();
     }
@@ -73,10 +83,10 @@ public class ReminderCalendarProviderObserver implements AbstractReminderAdapter
     @Override
     public void onRemindersUpdated(List<Reminder> reminders) {
         for(Reminder reminder : reminders) {
-            ops.add(ReminderProvider.update(context, baseEvent.getId(), reminder));
+            batchExecutor.add(ReminderProvider.newUpdate(context, baseEvent.getId(), reminder));
             for(CalendarEvent afterEvent : afterEvents) {
                 // TODO with links
-                //ops.add(ReminderProvider.update(context, afterEvent.getId(), reminder));
+                //batchExecutor.add(ReminderProvider.newUpdate(context, afterEvent.getId(), reminder));
             }
         }
         applyBatch();
@@ -84,9 +94,9 @@ public class ReminderCalendarProviderObserver implements AbstractReminderAdapter
 
     @Override
     public void onReminderDeleted(Reminder reminder) {
-        ops.add(ReminderProvider.delete(context, baseEvent.getId(), reminder));
+        batchExecutor.add(ReminderProvider.newDelete(context, baseEvent.getId(), reminder));
         for(CalendarEvent afterEvent : afterEvents) {
-            ops.add(ReminderProvider.deleteWithUnknownId(context, afterEvent.getId(), reminder));
+            batchExecutor.add(ReminderProvider.newDeleteWithUnknownId(context, afterEvent.getId(), reminder));
         }
         applyBatch();
     }
@@ -95,9 +105,9 @@ public class ReminderCalendarProviderObserver implements AbstractReminderAdapter
     public void onRemindersDeleted(List<Reminder> reminders) {
         // TODO deleteById
         for(Reminder reminder : reminders) {
-            ops.add(ReminderProvider.delete(context, baseEvent.getId(), reminder));
+            batchExecutor.add(ReminderProvider.newDelete(context, baseEvent.getId(), reminder));
             for(CalendarEvent afterEvent : afterEvents) {
-                ops.add(ReminderProvider.deleteWithUnknownId(context, afterEvent.getId(), reminder));
+                batchExecutor.add(ReminderProvider.newDeleteWithUnknownId(context, afterEvent.getId(), reminder));
             }
         }
         applyBatch();
@@ -107,17 +117,9 @@ public class ReminderCalendarProviderObserver implements AbstractReminderAdapter
      * Apply operations
      */
     private void applyBatch() {
-        try {
-            ContentProviderResult[] contentProviderResults =
-                    contentResolver.applyBatch(CalendarContract.AUTHORITY, ops);
-            for(ContentProviderResult result : contentProviderResults)
-                if(result.uri != null)
-                    Log.d(this.getClass().getSimpleName(), result.uri.toString());
-        } catch (RemoteException|OperationApplicationException e) {
-            Log.e(this.getClass().getSimpleName(), e.getMessage());
-        } finally {
-            ops.clear();
-        }
+        BatchExecutor.Report report = batchExecutor.execute();
+        if(!report.isSuccessful())
+            Log.e(this.getClass().getSimpleName(), "Unable to apply reminders operations : " + report);
     }
 
 }
@@ -0,0 +1,400 @@
+package com.kunzisoft.remembirthday.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.kunzisoft.remembirthday.provider.EventLinkStore;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local index of links between contacts and events of the birthday calendar. <br />
+ * An event is identified by the lookup key of the contact and the year.
+ * Reminders are not linked: they are always read again from the calendar by the id of their event,
+ * which is indexed by the calendar provider, and they are deleted with their event.
+ * The synchronization never updates a reminder alone, and the reminders of an event can be modified
+ * by the user in any calendar application, so a local copy of their ids would only go stale. <br />
+ * The state of the synchronizations is saved in the same database,
+ * it is shared by the processes of the application (ex: sync adapter), unlike the preferences.
+ */
+public class EventLinkDbHelper extends SQLiteOpenHelper implements EventLinkStore {
+
+    private static final String TAG = "EventLinkDbHelper";
+
+    private static EventLinkDbHelper eventLinkDbHelper;
+
+    private static final String DATABASE_NAME = "EventLink.db";
+    private static final int DATABASE_VERSION = 1;
+
+    public static final String TABLE_EVENT_LINK = "eventLink";
+
+    public static final String COLUMN_LOOKUP_KEY = "lookupKey";
+    public static final String COLUMN_YEAR = "year";
+    public static final String COLUMN_EVENT_ID = "eventId";
+
+    public static final String TABLE_SYNC_STATE = "syncState";
+
+    public static final String COLUMN_NAME = "name";
+    public static final String COLUMN_VALUE = "value";
+
+    private static final String SYNC_STATE_TOKEN = "syncToken";
+    private static final String SYNC_STATE_EVENT_WINDOWS_TIME = "eventWindowsTime";
+    private static final String SYNC_STATE_CHECKPOINT_TIME = "checkpointTime";
+    private static final String SYNC_STATE_CHECKPOINT = "checkpoint";
+
+    public EventLinkDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    static public synchronized EventLinkDbHelper getDbHelper(Context context) {
+        if (null == eventLinkDbHelper) {
+            eventLinkDbHelper = new EventLinkDbHelper(context.getApplicationContext());
+        }
+        return eventLinkDbHelper;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EVENT_LINK +
+                "(" +
+                COLUMN_LOOKUP_KEY + " TEXT NOT NULL," +
+                COLUMN_YEAR + " INTEGER NOT NULL," +
+                COLUMN_EVENT_ID + " INTEGER NOT NULL," +
+                "PRIMARY KEY (" + COLUMN_LOOKUP_KEY + ", " + COLUMN_YEAR + ")" +
+                ")"
+        );
+        db.execSQL("CREATE INDEX " + TABLE_EVENT_LINK + "_" + COLUMN_EVENT_ID +
+                " ON " + TABLE_EVENT_LINK + "(" + COLUMN_EVENT_ID + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE +
+                "(" +
+                COLUMN_NAME + " TEXT PRIMARY KEY," +
+                COLUMN_VALUE + " NOT NULL" +
+                ")"
+        );
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (newVersion <= oldVersion) {
+            Log.i(getClass().getName(), "newVersion <= oldVersion");
+        }
+    }
+
+    /**
+     * Determines whether at least one event is linked to the contact
+     * @param lookupKey Lookup key of contact
+     * @return true if links exist
+     */
+    public boolean hasEventLinks(String lookupKey) {
+        Cursor cursor = getReadableDatabase().query(
+                TABLE_EVENT_LINK,
+                new String[]{COLUMN_EVENT_ID},
+                COLUMN_LOOKUP_KEY + "=?",
+                new String[]{lookupKey},
+                null, null, null, "1");
+        boolean hasLinks = cursor.moveToFirst();
+        cursor.close();
+        return hasLinks;
+    }
+
+    /**
+     * @return Lookup keys of all contacts with links
+     */
+    public Set<String> getLookupKeys() {
+        Set<String> lookupKeys = new HashSet<>();
+        Cursor cursor = getReadableDatabase().query(true,
+                TABLE_EVENT_LINK,
+                new String[]{COLUMN_LOOKUP_KEY},
+                null, null, null, null, null, null);
+        while (cursor.moveToNext()) {
+            lookupKeys.add(cursor.getString(0));
+        }
+        cursor.close();
+        return lookupKeys;
+    }
+
+    /**
+     * Get all links, the years linked to a contact are the years materialized in the calendar
+     * @return Map of lookup key, year and event id
+     */
+    public Map<String, Map<Integer, Long>> getEventLinks() {
+        Map<String, Map<Integer, Long>> eventIdsByContact = new HashMap<>();
+        Cursor cursor = getReadableDatabase().query(
+                TABLE_EVENT_LINK,
+                new String[]{COLUMN_LOOKUP_KEY, COLUMN_YEAR, COLUMN_EVENT_ID},
+                null, null, null, null, null);
+        while (cursor.moveToNext()) {
+            String lookupKey = cursor.getString(0);
+            Map<Integer, Long> eventIdsByYear = eventIdsByContact.get(lookupKey);
+            if (eventIdsByYear == null) {
+                eventIdsByYear = new HashMap<>();
+                eventIdsByContact.put(lookupKey, eventIdsByYear);
+            }
+            eventIdsByYear.put(cursor.getInt(1), cursor.getLong(2));
+        }
+        cursor.close();
+        return eventIdsByContact;
+    }
+
+    /**
+     * Get ids of events linked to the contact for specific years
+     * @param lookupKey Lookup key of contact
+     * @param years Years of events
+     * @return Map of year and event id, only for years linked
+     */
+    public Map<Integer, Long> getEventIds(String lookupKey, List<Integer> years) {
+        Map<Integer, Long> eventIds = new HashMap<>();
+        if (years.isEmpty())
+            return eventIds;
+        StringBuilder selection = new StringBuilder(COLUMN_LOOKUP_KEY + "=? AND " + COLUMN_YEAR + " IN (");
+        String[] selectionArgs = new String[years.size() + 1];
+        selectionArgs[0] = lookupKey;
+        for (int i = 0; i < years.size(); i++) {
+            selection.append(i == 0 ? "?" : ",?");
+            selectionArgs[i + 1] = String.valueOf(years.get(i));
+        }
+        selection.append(")");
+        Cursor cursor = getReadableDatabase().query(
+                TABLE_EVENT_LINK,
+                new String[]{COLUMN_YEAR, COLUMN_EVENT_ID},
+                selection.toString(),
+                selectionArgs,
+                null, null, null);
+        while (cursor.moveToNext()) {
+            eventIds.put(cursor.getInt(0), cursor.getLong(1));
+        }
+        cursor.close();
+        return eventIds;
+    }
+
+    private static void insertEventLink(SQLiteDatabase db, String lookupKey, int year, long eventId) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_LOOKUP_KEY, lookupKey);
+        values.put(COLUMN_YEAR, year);
+        values.put(COLUMN_EVENT_ID, eventId);
+        db.insertWithOnConflict(TABLE_EVENT_LINK, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Remove the links of an event
+     */
+    public void deleteEventLink(long eventId) {
+        getWritableDatabase().delete(TABLE_EVENT_LINK,
+                COLUMN_EVENT_ID + "=?",
+                new String[]{String.valueOf(eventId)});
+    }
+
+    /**
+     * Replace the event links of a contact by the links read in the calendar
+     * @param lookupKey Lookup key of contact
+     * @param eventIdsByYear Map of year and event id
+     */
+    public void replaceEventLinksOfContact(String lookupKey, Map<Integer, Long> eventIdsByYear) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            replaceEventLinksOfContact(db, lookupKey, eventIdsByYear);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Replace the event links of some contacts in one transaction, links of other contacts are kept
+     * @param eventIdsByContact Map of lookup key, year and event id
+     */
+    @Override
+    public void replaceEventLinksOfContacts(Map<String, Map<Integer, Long>> eventIdsByContact) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Map<Integer, Long>> contactEntry : eventIdsByContact.entrySet()) {
+                replaceEventLinksOfContact(db, contactEntry.getKey(), contactEntry.getValue());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Replace the event links of some contacts and save the checkpoint of the synchronization in one transaction,
+     * links of other contacts are kept
+     * @param eventIdsByContact Map of lookup key, year and event id
+     * @param checkpointTime Start time of the synchronization in milliseconds
+     * @param lookupKeyOfCheckpoint Lookup key of the last contact synchronized, or null to keep the checkpoint
+     */
+    @Override
+    public void replaceEventLinksOfContacts(Map<String, Map<Integer, Long>> eventIdsByContact,
+                                            long checkpointTime, @Nullable String lookupKeyOfCheckpoint) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Map<Integer, Long>> contactEntry : eventIdsByContact.entrySet()) {
+                replaceEventLinksOfContact(db, contactEntry.getKey(), contactEntry.getValue());
+            }
+            if (lookupKeyOfCheckpoint != null) {
+                putSyncState(db, SYNC_STATE_CHECKPOINT_TIME, checkpointTime);
+                putSyncState(db, SYNC_STATE_CHECKPOINT, lookupKeyOfCheckpoint);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void replaceEventLinksOfContact(SQLiteDatabase db, String lookupKey,
+                                                   Map<Integer, Long> eventIdsByYear) {
+        db.delete(TABLE_EVENT_LINK, COLUMN_LOOKUP_KEY + "=?", new String[]{lookupKey});
+        for (Map.Entry<Integer, Long> yearEntry : eventIdsByYear.entrySet()) {
+            insertEventLink(db, lookupKey, yearEntry.getKey(), yearEntry.getValue());
+        }
+    }
+
+    /**
+     * Remove the event links of contacts not in the list
+     * @param lookupKeys Lookup keys of contacts to keep
+     */
+    @Override
+    public void retainEventLinksOfContacts(Set<String> lookupKeys) {
+        Set<String> lookupKeysToRemove = getLookupKeys();
+        lookupKeysToRemove.removeAll(lookupKeys);
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String lookupKey : lookupKeysToRemove) {
+                db.delete(TABLE_EVENT_LINK, COLUMN_LOOKUP_KEY + "=?", new String[]{lookupKey});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "Event links removed for " + lookupKeysToRemove.size() + " contacts");
+    }
+
+    private long getSyncStateLong(String name) {
+        Cursor cursor = getReadableDatabase().query(
+                TABLE_SYNC_STATE,
+                new String[]{COLUMN_VALUE},
+                COLUMN_NAME + "=?",
+                new String[]{name},
+                null, null, null);
+        long value = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        cursor.close();
+        return value;
+    }
+
+    private String getSyncStateString(String name) {
+        Cursor cursor = getReadableDatabase().query(
+                TABLE_SYNC_STATE,
+                new String[]{COLUMN_VALUE},
+                COLUMN_NAME + "=?",
+                new String[]{name},
+                null, null, null);
+        String value = cursor.moveToFirst() ? cursor.getString(0) : null;
+        cursor.close();
+        return value;
+    }
+
+    private static void putSyncState(SQLiteDatabase db, String name, long value) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME, name);
+        values.put(COLUMN_VALUE, value);
+        db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static void putSyncState(SQLiteDatabase db, String name, String value) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME, name);
+        values.put(COLUMN_VALUE, value);
+        db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static void deleteSyncCheckpoint(SQLiteDatabase db) {
+        db.delete(TABLE_SYNC_STATE, COLUMN_NAME + " IN (?, ?)",
+                new String[]{SYNC_STATE_CHECKPOINT_TIME, SYNC_STATE_CHECKPOINT});
+    }
+
+    /**
+     * Get the time of the last synchronization of contacts, used as starting point of the next delta synchronization
+     * @return Time in milliseconds or 0 if no synchronization
+     */
+    public long getSyncToken() {
+        return getSyncStateLong(SYNC_STATE_TOKEN);
+    }
+
+    /**
+     * Save the time of the last synchronization of contacts, 0 to force a full synchronization
+     * @param syncToken Time in milliseconds
+     */
+    public void setSyncToken(long syncToken) {
+        putSyncState(getWritableDatabase(), SYNC_STATE_TOKEN, syncToken);
+    }
+
+    /**
+     * Get the time of the last move of the windows of years of events
+     * @return Time in milliseconds or 0 if never moved
+     */
+    public long getEventWindowsTime() {
+        return getSyncStateLong(SYNC_STATE_EVENT_WINDOWS_TIME);
+    }
+
+    /**
+     * Save the time of the last move of the windows of years of events
+     * @param time Time in milliseconds
+     */
+    public void setEventWindowsTime(long time) {
+        putSyncState(getWritableDatabase(), SYNC_STATE_EVENT_WINDOWS_TIME, time);
+    }
+
+    /**
+     * Get the start time of the synchronization interrupted after the checkpoint
+     * @return Time in milliseconds or 0 if no checkpoint
+     */
+    public long getSyncCheckpointTime() {
+        return getSyncStateLong(SYNC_STATE_CHECKPOINT_TIME);
+    }
+
+    /**
+     * Get the lookup key of the last contact synchronized by an interrupted synchronization
+     * @return Lookup key or null if no checkpoint
+     */
+    public String getSyncCheckpoint() {
+        return getSyncStateString(SYNC_STATE_CHECKPOINT);
+    }
+
+    /**
+     * Remove the checkpoint of the interrupted synchronization, the next one starts from the first contact
+     */
+    public void removeSyncCheckpoint() {
+        deleteSyncCheckpoint(getWritableDatabase());
+    }
+
+    /**
+     * Save the end of a full synchronization successful in one transaction,
+     * the token and the time of windows are the start time of the synchronization, the checkpoint is removed
+     * @param syncToken Start time of the synchronization in milliseconds
+     */
+    public void setFullSyncFinished(long syncToken) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            putSyncState(db, SYNC_STATE_TOKEN, syncToken);
+            putSyncState(db, SYNC_STATE_EVENT_WINDOWS_TIME, syncToken);
+            deleteSyncCheckpoint(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.kunzisoft.remembirthday.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.kunzisoft.remembirthday.provider.SyncStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling history of the statistics of synchronizations,
+ * only the last {@link #HISTORY_SIZE} synchronizations are kept. <br />
+ * The records of a phase are summed before saving.
+ */
+public class SyncStatsDbHelper extends SQLiteOpenHelper {
+
+    private static final String TAG = "SyncStatsDbHelper";
+
+    private static SyncStatsDbHelper syncStatsDbHelper;
+
+    private static final String DATABASE_NAME = "SyncStats.db";
+    private static final int DATABASE_VERSION = 1;
+
+    public static final int HISTORY_SIZE = 20;
+
+    public static final String TABLE_SYNC = "sync";
+    public static final String TABLE_SYNC_PHASE = "syncPhase";
+
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_START_TIME = "startTime";
+    public static final String COLUMN_DURATION = "durationMillis";
+    public static final String COLUMN_SUCCESSFUL = "successful";
+    public static final String COLUMN_SYNC_ID = "syncId";
+    public static final String COLUMN_PHASE = "phase";
+    public static final String COLUMN_COUNT = "count";
+    public static final String COLUMN_BYTES = "bytes";
+
+    public SyncStatsDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    static public synchronized SyncStatsDbHelper getDbHelper(Context context) {
+        if (null == syncStatsDbHelper) {
+            syncStatsDbHelper = new SyncStatsDbHelper(context.getApplicationContext());
+        }
+        return syncStatsDbHelper;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_SYNC +
+                "(" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_TYPE + " TEXT NOT NULL," +
+                COLUMN_START_TIME + " INTEGER NOT NULL," +
+                COLUMN_DURATION + " INTEGER NOT NULL," +
+                COLUMN_SUCCESSFUL + " INTEGER NOT NULL" +
+                ")"
+        );
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_PHASE +
+                "(" +
+                COLUMN_SYNC_ID + " INTEGER NOT NULL," +
+                COLUMN_PHASE + " TEXT NOT NULL," +
+                COLUMN_DURATION + " INTEGER NOT NULL," +
+                COLUMN_COUNT + " INTEGER NOT NULL," +
+                COLUMN_BYTES + " INTEGER NOT NULL," +
+                "PRIMARY KEY (" + COLUMN_SYNC_ID + ", " + COLUMN_PHASE + ")" +
+                ")"
+        );
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (newVersion <= oldVersion) {
+            Log.i(getClass().getName(), "newVersion <= oldVersion");
+        }
+    }
+
+    /**
+     * Save the statistics of a synchronization and remove the oldest ones
+     * @param syncStats Statistics of a synchronization finished
+     */
+    public void insertSyncStats(SyncStats syncStats) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_TYPE, syncStats.getType());
+            values.put(COLUMN_START_TIME, syncStats.getStartTime());
+            values.put(COLUMN_DURATION, syncStats.getDurationMillis());
+            values.put(COLUMN_SUCCESSFUL, syncStats.isSuccessful() ? 1 : 0);
+            long syncId = db.insert(TABLE_SYNC, null, values);
+            for (SyncStats.PhaseRecord phaseRecord : syncStats.getPhaseTotals()) {
+                ContentValues phaseValues = new ContentValues();
+                phaseValues.put(COLUMN_SYNC_ID, syncId);
+                phaseValues.put(COLUMN_PHASE, phaseRecord.getPhase().name());
+                phaseValues.put(COLUMN_DURATION, phaseRecord.getDurationMillis());
+                phaseValues.put(COLUMN_COUNT, phaseRecord.getCount());
+                phaseValues.put(COLUMN_BYTES, phaseRecord.getBytes());
+                db.insert(TABLE_SYNC_PHASE, null, phaseValues);
+            }
+            // Rolling history
+            String selectionOld = " NOT IN (SELECT " + COLUMN_ID + " FROM " + TABLE_SYNC +
+                    " ORDER BY " + COLUMN_ID + " DESC LIMIT " + HISTORY_SIZE + ")";
+            db.delete(TABLE_SYNC_PHASE, COLUMN_SYNC_ID + selectionOld, null);
+            db.delete(TABLE_SYNC, COLUMN_ID + selectionOld, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * @return Statistics of the last synchronizations, the most recent first
+     */
+    public List<SyncStats> getSyncStatsHistory() {
+        Map<Long, SyncStats> syncStatsById = new LinkedHashMap<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_SYNC,
+                new String[]{COLUMN_ID, COLUMN_TYPE, COLUMN_START_TIME, COLUMN_DURATION, COLUMN_SUCCESSFUL},
+                null, null, null, null,
+                COLUMN_ID + " DESC");
+        while (cursor.moveToNext()) {
+            SyncStats syncStats = new SyncStats(cursor.getLong(0), cursor.getString(1), cursor.getLong(2));
+            syncStats.setDurationMillis(cursor.getLong(3));
+            syncStats.setSuccessful(cursor.getInt(4) > 0);
+            syncStatsById.put(syncStats.getId(), syncStats);
+        }
+        cursor.close();
+
+        cursor = db.query(TABLE_SYNC_PHASE,
+                new String[]{COLUMN_SYNC_ID, COLUMN_PHASE, COLUMN_DURATION, COLUMN_COUNT, COLUMN_BYTES},
+                null, null, null, null, null);
+        while (cursor.moveToNext()) {
+            SyncStats syncStats = syncStatsById.get(cursor.getLong(0));
+            if (syncStats == null)
+                continue;
+            try {
+                // Durations are saved in milliseconds
+                syncStats.addPhaseRecord(new SyncStats.PhaseRecord(
+                        SyncStats.Phase.valueOf(cursor.getString(1)),
+                        TimeUnit.MILLISECONDS.toNanos(cursor.getLong(2)),
+                        cursor.getLong(3),
+                        cursor.getLong(4)));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Unknown phase " + cursor.getString(1));
+            }
+        }
+        cursor.close();
+        return new ArrayList<>(syncStatsById.values());
+    }
+}
@@ -0,0 +1,158 @@
+package com.kunzisoft.remembirthday.element;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of contacts by day of birthday, to find the next birthdays without scanning all the contacts. <br />
+ * Each day of a leap year has a bucket, contacts are identified by their id, a contact without id is not indexed.
+ * The birthday of February 29 is on February 28 in common years, like {@link PackedDate}.
+ */
+public class BirthdayIndex {
+
+    public static final int NUMBER_OF_BUCKETS = 366;
+
+    private static final int FEBRUARY_29 = 59;
+    // Days before each month in a leap year
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 60, 91, 121, 152, 182, 213, 244, 274, 305, 335};
+
+    private final List<List<Contact>> buckets;
+    private final Map<Long, Integer> bucketById;
+
+    public BirthdayIndex() {
+        this.buckets = new ArrayList<>(NUMBER_OF_BUCKETS);
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            buckets.add(new ArrayList<Contact>());
+        }
+        this.bucketById = new HashMap<>();
+    }
+
+    /**
+     * Build the index from a snapshot of contacts, contacts without birthday are ignored
+     * @param contacts Contacts
+     */
+    public BirthdayIndex(Collection<Contact> contacts) {
+        this();
+        for (Contact contact : contacts) {
+            put(contact);
+        }
+    }
+
+    /**
+     * @param packedDate Packed date
+     * @return Day of the date in a leap year, from 0 to 365
+     */
+    public static int getBucket(int packedDate) {
+        return DAYS_BEFORE_MONTH[PackedDate.getMonth(packedDate) - 1] + PackedDate.getDay(packedDate) - 1;
+    }
+
+    /**
+     * Add a contact or update its birthday, a contact without birthday is removed
+     * @param contact Contact to index, ignored if its id is undefined
+     */
+    public synchronized void put(Contact contact) {
+        if (contact.getId() == Contact.ID_UNDEFINED)
+            return;
+        remove(contact.getId());
+        if (!contact.hasBirthday())
+            return;
+        int bucket = getBucket(contact.getBirthday().getPackedDate());
+        buckets.get(bucket).add(contact);
+        bucketById.put(contact.getId(), bucket);
+    }
+
+    /**
+     * Remove a contact from the index
+     * @param contactId Id of the contact
+     * @return true if the contact was in the index
+     */
+    public synchronized boolean remove(long contactId) {
+        Integer bucket = bucketById.remove(contactId);
+        if (bucket == null)
+            return false;
+        Iterator<Contact> iterator = buckets.get(bucket).iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getId() == contactId) {
+                iterator.remove();
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of contacts in the index
+     */
+    public synchronized int size() {
+        return bucketById.size();
+    }
+
+    /**
+     * Get the contacts with a birthday in the next days, today included
+     * @param numberOfDays Number of days from today
+     * @return Contacts in order of the next birthday
+     */
+    public List<Contact> getUpcomingContacts(int numberOfDays) {
+        return getUpcomingContacts(PackedDate.today(), numberOfDays);
+    }
+
+    /**
+     * Get the contacts with a birthday in [today, today + numberOfDays), the period can pass the end of the year
+     * but each contact is returned only once
+     * @param packedToday Packed date of today
+     * @param numberOfDays Number of days from today
+     * @return Contacts in order of the next birthday
+     */
+    public synchronized List<Contact> getUpcomingContacts(int packedToday, int numberOfDays) {
+        return getUpcomingContacts(packedToday, numberOfDays, false);
+    }
+
+    /**
+     * Get the contacts of the next day with birthday, today included
+     * @param packedToday Packed date of today
+     * @return Contacts with the next birthday, empty if there is no contact in the index
+     */
+    public synchronized List<Contact> getNextContacts(int packedToday) {
+        return getUpcomingContacts(packedToday, NUMBER_OF_BUCKETS, true);
+    }
+
+    private List<Contact> getUpcomingContacts(int packedToday, int numberOfDays, boolean firstDayOnly) {
+        List<Contact> contacts = new ArrayList<>();
+        int year = PackedDate.getYear(packedToday);
+        int month = PackedDate.getMonth(packedToday);
+        int day = PackedDate.getDay(packedToday);
+        // A bucket can be reached again after one year, or by February 28 of a common year
+        boolean[] bucketsVisited = new boolean[NUMBER_OF_BUCKETS];
+        for (int i = 0; i < numberOfDays && i < NUMBER_OF_BUCKETS; i++) {
+            if (firstDayOnly && !contacts.isEmpty())
+                break;
+            addBucket(contacts, DAYS_BEFORE_MONTH[month - 1] + day - 1, bucketsVisited);
+            if (month == 2 && day == 28 && !PackedDate.isLeapYear(year))
+                addBucket(contacts, FEBRUARY_29, bucketsVisited);
+            // Next day
+            if (day < PackedDate.getDaysInMonth(year, month)) {
+                day++;
+            } else {
+                day = 1;
+                if (month < 12) {
+                    month++;
+                } else {
+                    month = 1;
+                    year++;
+                }
+            }
+        }
+        return contacts;
+    }
+
+    private void addBucket(List<Contact> contacts, int bucket, boolean[] bucketsVisited) {
+        if (bucketsVisited[bucket])
+            return;
+        bucketsVisited[bucket] = true;
+        contacts.addAll(buckets.get(bucket));
+    }
+}
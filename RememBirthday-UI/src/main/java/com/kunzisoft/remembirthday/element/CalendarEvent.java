@@ -34,18 +34,32 @@ public class CalendarEvent implements Parcelable {
     private List<Reminder> reminders;
 
     public static String getEventTitleFromContact(Context context, Contact contact) {
+        return getEventTitleFromContact(context, contact, TodaySnapshot.now());
+    }
+
+    /**
+     * Get the title of event with the age of contact at the next birthday after a snapshot of today
+     */
+    public static String getEventTitleFromContact(Context context, Contact contact, TodaySnapshot today) {
         if (contact.hasBirthday()) {
             if(!contact.getBirthday().containsYear())
                 return context.getString(R.string.event_title_without_year, contact.getName());
             else
-                return context.getString(R.string.event_title, contact.getName(), contact.getAgeToNextBirthday());
+                return context.getString(R.string.event_title, contact.getName(), contact.getAgeToNextBirthday(today));
         }
         return "";
     }
 
     public static CalendarEvent buildDefaultEventFromContactToSave(Context context, Contact contact) {
-        CalendarEvent event = new CalendarEvent(getEventTitleFromContact(context, contact),
-                contact.getNextBirthday(), true);
+        return buildDefaultEventFromContactToSave(context, contact, TodaySnapshot.now());
+    }
+
+    /**
+     * Build the event of the next birthday after a snapshot of today, with the default reminder
+     */
+    public static CalendarEvent buildDefaultEventFromContactToSave(Context context, Contact contact, TodaySnapshot today) {
+        CalendarEvent event = new CalendarEvent(getEventTitleFromContact(context, contact, today),
+                contact.getNextBirthday(today), true);
         int[] defaultTime = PreferencesManager.getDefaultTime(context);
         event.addReminder(
                 new Reminder(event.getDate(), defaultTime[0], defaultTime[1]));
@@ -200,16 +200,38 @@ public class Contact implements Parcelable{
             return -1;
     }
 
+    /**
+     * Get number of years always > 0 between the birthday and a snapshot of today <br />
+     * WARNING : if the year is unknown, return -1
+     * @param today Snapshot of today
+     * @return Age of contact
+     */
+    public int getAge(TodaySnapshot today) {
+        if(birthday.containsYear())
+            return Math.abs(birthday.getDeltaYears(today));
+        else
+            return -1;
+    }
+
     /**
      * Get years old of contact to next birthday
      * @return Next years old of contact
      */
     public int getAgeToNextBirthday() {
+        return getAgeToNextBirthday(TodaySnapshot.now());
+    }
+
+    /**
+     * Get years old of contact to next birthday after a snapshot of today
+     * @param today Snapshot of today
+     * @return Next years old of contact
+     */
+    public int getAgeToNextBirthday(TodaySnapshot today) {
         if(birthday.containsYear())
-            if(birthday.nextAnniversaryIsToday())
-                return getAge();
+            if(birthday.nextAnniversaryIsToday(today))
+                return getAge(today);
             else
-                return getAge() +1;
+                return getAge(today) +1;
         else
             return -1;
     }
@@ -222,6 +244,15 @@ public class Contact implements Parcelable{
         return birthday.getDeltaDaysInAYear();
     }
 
+    /**
+     * Return number of days between a snapshot of today and the birthday
+     * @param today Snapshot of today
+     * @return Number of days left
+     */
+    public int getBirthdayDaysRemaining(TodaySnapshot today) {
+        return birthday.getDeltaDaysInAYear(today);
+    }
+
     /**
      * Gets the birthday not yet passed
      * @return Next birthday in the year
@@ -230,6 +261,15 @@ public class Contact implements Parcelable{
         return birthday.getNextAnniversary();
     }
 
+    /**
+     * Gets the birthday not yet passed at the day of a snapshot
+     * @param today Snapshot of today
+     * @return Next birthday in the year
+     */
+    public Date getNextBirthday(TodaySnapshot today) {
+        return birthday.getNextAnniversary(today);
+    }
+
     /**
      * Gets the birthday not yet passed without hour, minute, second and millisecond
      * @return Next birthday in the year
@@ -0,0 +1,137 @@
+package com.kunzisoft.remembirthday.element;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Formatters of dates kept by locale and by pattern. <br />
+ * A formatter is not thread-safe, so each thread has its own formatters, they must not be shared.
+ * The formatters are built again when the default locale changes, or when the default time zone changes.
+ * The time zone is not read at each call ({@link TimeZone#getDefault()} returns a copy), its id is kept
+ * and must be refreshed by {@link #refreshTimeZone()} when the time zone changes.
+ * The patterns of month and day are kept by locale and by style.
+ */
+public final class DateFormatterPool {
+
+    // Year with its separators in a localized pattern
+    private static final String YEAR_IN_PATTERN_REGEX =
+            "([^\\p{Alpha}']|('[\\p{Alpha}]+'))*y+([^\\p{Alpha}']|('[\\p{Alpha}]+'))*";
+
+    private static final String KEY_DATE_INSTANCE = "#date";
+    private static final String KEY_MONTH_AND_DAY_INSTANCE = "#monthAndDay";
+
+    // Patterns of month and day by locale and style
+    private static final Map<String, String> monthAndDayPatterns = new ConcurrentHashMap<>();
+    // Id of the default time zone, refreshed when the time zone changes
+    private static volatile String timeZoneId = TimeZone.getDefault().getID();
+
+    private static final ThreadLocal<Formatters> formatters = new ThreadLocal<Formatters>() {
+        @Override
+        protected Formatters initialValue() {
+            return new Formatters();
+        }
+    };
+
+    private DateFormatterPool() {}
+
+    /**
+     * Read again the default time zone, the formatters of each thread are built again at their next call.
+     * Must be called when the time zone changes ({@link android.content.Intent#ACTION_TIMEZONE_CHANGED})
+     */
+    public static void refreshTimeZone() {
+        timeZoneId = TimeZone.getDefault().getID();
+    }
+
+    /**
+     * @param pattern Pattern of {@link SimpleDateFormat}
+     * @return Formatter of the current thread for the default locale
+     */
+    public static DateFormat getDateFormat(String pattern) {
+        Formatters currentFormatters = getFormatters();
+        DateFormat dateFormat = currentFormatters.dateFormats.get(pattern);
+        if (dateFormat == null) {
+            dateFormat = new SimpleDateFormat(pattern, currentFormatters.locale);
+            currentFormatters.dateFormats.put(pattern, dateFormat);
+        }
+        return dateFormat;
+    }
+
+    /**
+     * @param style can be {@link DateFormat#SHORT}, {@link DateFormat#MEDIUM} or {@link DateFormat#LONG}
+     * @return Formatter of the current thread for the date in the default locale
+     */
+    public static DateFormat getDateInstance(int style) {
+        Formatters currentFormatters = getFormatters();
+        String key = KEY_DATE_INSTANCE + style;
+        DateFormat dateFormat = currentFormatters.dateFormats.get(key);
+        if (dateFormat == null) {
+            dateFormat = DateFormat.getDateInstance(style, currentFormatters.locale);
+            currentFormatters.dateFormats.put(key, dateFormat);
+        }
+        return dateFormat;
+    }
+
+    /**
+     * @param style can be {@link DateFormat#SHORT}, {@link DateFormat#MEDIUM} or {@link DateFormat#LONG}
+     * @return Formatter of the current thread for the month and the day in the default locale
+     */
+    public static DateFormat getMonthAndDayInstance(int style) {
+        Formatters currentFormatters = getFormatters();
+        String key = KEY_MONTH_AND_DAY_INSTANCE + style;
+        DateFormat dateFormat = currentFormatters.dateFormats.get(key);
+        if (dateFormat == null) {
+            dateFormat = new SimpleDateFormat(getMonthAndDayPattern(currentFormatters.locale, style),
+                    currentFormatters.locale);
+            currentFormatters.dateFormats.put(key, dateFormat);
+        }
+        return dateFormat;
+    }
+
+    /**
+     * Get the localized pattern of a date without the year, computed once by locale
+     * @param locale Locale of the pattern
+     * @param style Style of {@link DateFormat}
+     * @return Pattern of month and day
+     */
+    static String getMonthAndDayPattern(Locale locale, int style) {
+        String key = locale.toString() + "#" + style;
+        String pattern = monthAndDayPatterns.get(key);
+        if (pattern == null) {
+            SimpleDateFormat dateFormat = (SimpleDateFormat) DateFormat.getDateInstance(style, locale);
+            pattern = dateFormat.toPattern().replaceAll(YEAR_IN_PATTERN_REGEX, "");
+            // The same pattern is computed by the threads in concurrence
+            monthAndDayPatterns.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * @return Formatters of the current thread, emptied if the default locale or time zone has changed
+     */
+    private static Formatters getFormatters() {
+        Formatters currentFormatters = formatters.get();
+        Locale locale = Locale.getDefault();
+        // A formatter keeps the time zone of its creation
+        String timeZoneId = DateFormatterPool.timeZoneId;
+        if (!locale.equals(currentFormatters.locale) || !timeZoneId.equals(currentFormatters.timeZoneId)) {
+            currentFormatters.dateFormats.clear();
+            currentFormatters.locale = locale;
+            currentFormatters.timeZoneId = timeZoneId;
+        }
+        return currentFormatters;
+    }
+
+    /**
+     * Formatters of a thread for a locale and a time zone
+     */
+    private static final class Formatters {
+        private Locale locale;
+        private String timeZoneId;
+        private final Map<String, DateFormat> dateFormats = new HashMap<>();
+    }
+}
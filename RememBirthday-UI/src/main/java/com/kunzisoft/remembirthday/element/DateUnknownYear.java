@@ -5,21 +5,15 @@ import android.os.Parcelable;
 import android.util.Log;
 
 import org.joda.time.DateTime;
-import org.joda.time.Days;
-import org.joda.time.MonthDay;
-import org.joda.time.Years;
 
 import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.Locale;
-import java.util.TimeZone;
 
 /**
- * Class for manage a date who can contains a year or not
+ * Class for manage a date who can contains a year or not. <br />
+ * Days and years until today are computed with the packed date, without allocation.
  */
 public class DateUnknownYear implements Parcelable {
 
@@ -31,6 +25,8 @@ public class DateUnknownYear implements Parcelable {
 
     private boolean containsYear;
     private Date date;
+    // Day, month and year of the date, see PackedDate
+    private int packedDate;
 
     /**
      * Construct date with unknown year indication, contains year by default
@@ -51,6 +47,14 @@ public class DateUnknownYear implements Parcelable {
         setDate(date);
     }
 
+    /**
+     * Construct date with its packed date already computed
+     */
+    DateUnknownYear(Date date, boolean containsYear, int packedDate) {
+        this.containsYear = containsYear;
+        setDate(date, packedDate);
+    }
+
     private DateUnknownYear(Parcel in) {
         this.containsYear = in.readByte() != 0;
         setDate((Date) in.readSerializable());
@@ -111,12 +115,27 @@ public class DateUnknownYear implements Parcelable {
      * @param date The new date
      */
     public void setDate(Date date) {
+        setDate(date, toPackedDate(date));
+    }
+
+    private void setDate(Date date, int packedDate) {
         this.date = date;
+        this.packedDate = packedDate;
+        if(PackedDate.getYear(packedDate) == YEAR_UNKNOWN_DEFAULT)
+            setContainsYear(false);
+    }
+
+    /**
+     * @return Day, month and year of the date packed with {@link PackedDate}
+     */
+    public int getPackedDate() {
+        return packedDate;
+    }
+
+    private static int toPackedDate(Date date) {
         Calendar calendar = GregorianCalendar.getInstance();
         calendar.setTime(date);
-        int year = calendar.get(Calendar.YEAR);
-        if(year == YEAR_UNKNOWN_DEFAULT)
-            setContainsYear(false);
+        return PackedDate.fromCalendar(calendar);
     }
 
     /**
@@ -125,17 +144,7 @@ public class DateUnknownYear implements Parcelable {
      * @return Number of days always >= 0
      */
     public static int daysBetweenTodayAnd(Date date) {
-        MonthDay monthDayNow = MonthDay.now();
-        MonthDay monthDayOfNextDate = MonthDay.fromDateFields(date);
-        if(monthDayNow.isEqual(monthDayOfNextDate))
-            return 0;
-        if(monthDayNow.isBefore(monthDayOfNextDate))
-            return Days.daysBetween(monthDayNow, monthDayOfNextDate).getDays();
-        else {
-            DateTime dateTimeNow = DateTime.now();
-            DateTime dateTimeOfNextDate = new DateTime(date).withYear(dateTimeNow.getYear()).plusYears(1);
-            return Days.daysBetween(DateTime.now(), dateTimeOfNextDate).getDays();
-        }
+        return PackedDate.getDaysUntilNextAnniversary(toPackedDate(date), PackedDate.today());
     }
 
     /**
@@ -143,7 +152,16 @@ public class DateUnknownYear implements Parcelable {
      * @return Number of days always >= 0
      */
     public int getDeltaDaysInAYear() {
-        return daysBetweenTodayAnd(this.date);
+        return PackedDate.getDaysUntilNextAnniversary(packedDate, PackedDate.today());
+    }
+
+    /**
+     * Return number of days between a snapshot of today and the date (this) in a year
+     * @param today Snapshot of today
+     * @return Number of days always >= 0
+     */
+    public int getDeltaDaysInAYear(TodaySnapshot today) {
+        return today.getDaysUntilNextAnniversary(packedDate);
     }
 
     /**
@@ -154,27 +172,55 @@ public class DateUnknownYear implements Parcelable {
         return getDeltaDaysInAYear() == 0;
     }
 
+    /**
+     * If next Anniversary of date is the day of the snapshot
+     * @param today Snapshot of today
+     * @return True if it's the anniversary
+     */
+    public boolean nextAnniversaryIsToday(TodaySnapshot today) {
+        return getDeltaDaysInAYear(today) == 0;
+    }
+
     /**
      * Gets the anniversary not yet passed
      * @return Next anniversary in the year
      */
-    // TODO TEST
     public Date getNextAnniversary() {
-        return getNextAnniversary(this.date);
+        return getNextAnniversary(this.date, this.packedDate, PackedDate.today());
+    }
+
+    /**
+     * Gets the anniversary not yet passed at the day of the snapshot
+     * @param today Snapshot of today
+     * @return Next anniversary in the year
+     */
+    public Date getNextAnniversary(TodaySnapshot today) {
+        return getNextAnniversary(this.date, this.packedDate, today.getPackedDate());
     }
 
     /**
      * Gets the anniversary not yet passed without hour, minute, second and millisecond
      * @return Next anniversary in the year
      */
-    // TODO TEST
     public Date getNextAnniversaryWithoutHour() {
-        DateTime dateWithoutHour = new DateTime(getNextAnniversary(this.date));
-        dateWithoutHour = dateWithoutHour.withHourOfDay(0)
-                .withMinuteOfHour(0)
-                .withSecondOfMinute(0)
-                .withMillisOfSecond(0);
-        return dateWithoutHour.toDate();
+        return getNextAnniversaryWithoutHour(PackedDate.today());
+    }
+
+    /**
+     * Gets the anniversary not yet passed at the day of the snapshot, without hour
+     * @param today Snapshot of today
+     * @return Next anniversary in the year
+     */
+    public Date getNextAnniversaryWithoutHour(TodaySnapshot today) {
+        return getNextAnniversaryWithoutHour(today.getPackedDate());
+    }
+
+    private Date getNextAnniversaryWithoutHour(int packedToday) {
+        int nextAnniversary = PackedDate.getNextAnniversary(packedDate, packedToday);
+        Calendar calendar = new GregorianCalendar(PackedDate.getYear(nextAnniversary),
+                PackedDate.getMonth(nextAnniversary) - 1,
+                PackedDate.getDay(nextAnniversary));
+        return calendar.getTime();
     }
 
     /**
@@ -183,48 +229,52 @@ public class DateUnknownYear implements Parcelable {
      * @return Next anniversary in the year
      */
     public static Date getNextAnniversary(DateUnknownYear date) {
-        return getNextAnniversary(date.getDate());
+        return date.getNextAnniversary();
     }
 
     /**
-     * Gets the anniversary date not yet passed (with delta of 1 day)
+     * Gets the anniversary date not yet passed, with the time of the date
      * @param date Date
      * @return Next anniversary in the year
      */
     public static Date getNextAnniversary(Date date) {
-        DateTime dateTimeNow = DateTime.now();
-        MonthDay monthDayNow = MonthDay.now();
-        MonthDay monthDayOfNextDate = MonthDay.fromDateFields(date);
-        if(monthDayNow.isEqual(monthDayOfNextDate)) {
-            DateTime inputDate = new DateTime(date);
-            return dateTimeNow
-                    .withHourOfDay(inputDate.getHourOfDay())
-                    .withMinuteOfHour(inputDate.getMinuteOfHour())
-                    .withSecondOfMinute(inputDate.getSecondOfMinute())
-                    .withMillisOfSecond(inputDate.getMillisOfSecond()).toDate();
-        } if(monthDayNow.isBefore(monthDayOfNextDate))
-            return new DateTime(date).withYear(dateTimeNow.getYear()).toDate();
-        else {
-            DateTime dateTimeOfNextDate = new DateTime(date).withYear(dateTimeNow.getYear()).plusYears(1);
-            return dateTimeOfNextDate.toDate();
-        }
+        return getNextAnniversary(date, toPackedDate(date), PackedDate.today());
+    }
+
+    private static Date getNextAnniversary(Date date, int packedDate, int packedToday) {
+        int nextAnniversary = PackedDate.getNextAnniversary(packedDate, packedToday);
+        Calendar calendar = GregorianCalendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(PackedDate.getYear(nextAnniversary),
+                PackedDate.getMonth(nextAnniversary) - 1,
+                PackedDate.getDay(nextAnniversary));
+        return calendar.getTime();
     }
 
     /**
      * Number of years between a date and today
      * @param date Date: Year for calculate number
-     * @return int: Number of days
+     * @return int: Number of years, negative if the date is passed
      */
     public static int yearsBetweenTodayAnd(Date date) {
-        return Years.yearsBetween(DateTime.now(), new DateTime(date)).getYears();
+        return PackedDate.getYearsBetween(PackedDate.today(), toPackedDate(date));
     }
 
     /**
      * Number of years between the date (this) and today
-     * @return int: Number of days
+     * @return int: Number of years, negative if the date is passed
      */
     public int getDeltaYears() {
-        return yearsBetweenTodayAnd(this.date);
+        return PackedDate.getYearsBetween(PackedDate.today(), packedDate);
+    }
+
+    /**
+     * Number of years between the date (this) and a snapshot of today
+     * @param today Snapshot of today
+     * @return int: Number of years, negative if the date is passed
+     */
+    public int getDeltaYears(TodaySnapshot today) {
+        return today.getYearsUntil(packedDate);
     }
 
     /**
@@ -233,11 +283,9 @@ public class DateUnknownYear implements Parcelable {
      */
     public String toBackupString() {
         if (!containsYear()){
-            SimpleDateFormat datePattern = new SimpleDateFormat(WITHOUT_YEAR_FORMAT_DEFAULT, Locale.getDefault());
-            return datePattern.format(date);
+            return DateFormatterPool.getDateFormat(WITHOUT_YEAR_FORMAT_DEFAULT).format(date);
         } else {
-            SimpleDateFormat datePattern = new SimpleDateFormat(WITH_YEAR_FORMAT_DEFAULT, Locale.getDefault());
-            return datePattern.format(date);
+            return DateFormatterPool.getDateFormat(WITH_YEAR_FORMAT_DEFAULT).format(date);
         }
     }
 
@@ -245,8 +293,7 @@ public class DateUnknownYear implements Parcelable {
     public String toString() {
         int dateFormat = DateFormat.MEDIUM;
         if(containsYear()) {
-            DateFormat df = DateFormat.getDateInstance(dateFormat, Locale.getDefault());
-            return df.format(date);
+            return DateFormatterPool.getDateInstance(dateFormat).format(date);
         } else {
             return toStringMonthAndDay(dateFormat);
         }
@@ -257,8 +304,7 @@ public class DateUnknownYear implements Parcelable {
      * WARNING : If the date does not contain a year, returns a random number.
      */
     public String toStringYear() {
-        SimpleDateFormat yearSimpleDateFormat = new SimpleDateFormat("yyyy", Locale.getDefault());
-        return yearSimpleDateFormat.format(date);
+        return DateFormatterPool.getDateFormat("yyyy").format(date);
     }
 
     /**
@@ -267,104 +313,24 @@ public class DateUnknownYear implements Parcelable {
      * @return Formatted string
      */
     public String toStringMonthAndDay(int dateFormat) {
-        SimpleDateFormat sdf = (SimpleDateFormat) DateFormat.getDateInstance(dateFormat);
-        sdf.applyPattern(sdf.toPattern().replaceAll(
-                "([^\\p{Alpha}']|('[\\p{Alpha}]+'))*y+([^\\p{Alpha}']|('[\\p{Alpha}]+'))*",
-                ""));
-        return sdf.format(date);
-    }
-
-    /**
-     * Try to parse input with SimpleDateFormat
-     *
-     * @param format SimpleDateFormat
-     * @param withYear When true the age will be not displayed in brackets
-     * @return Date object if successful, otherwise null
-     */
-    private static DateUnknownYear parseStringWithSimpleDateFormat(String input, String format,
-                                                        boolean withYear) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat(format, Locale.getDefault());
-        dateFormat.setTimeZone(TimeZone.getDefault());
-        try {
-            DateUnknownYear dateUnknownYear = DateUnknownYear.getDefault();
-            Date parsedDate = dateFormat.parse(input);
-            dateUnknownYear.setContainsYear(withYear);
-            dateUnknownYear.setDate(parsedDate);
-            return dateUnknownYear;
-        } catch (ParseException e) {
-            return null;
-        }
+        return DateFormatterPool.getMonthAndDayInstance(dateFormat).format(date);
     }
 
     /**
      * The date format in the contact events is not standardized! This method will try to parse it
-     * trying different date formats.
+     * with the different date formats of {@link StartDateParser}.
+     * A date already parsed is taken from the {@link StartDateCache}.
      * <p/>
      * See also: http://dmfs.org/carddav/?date_format
      *
      * @return eventDate as Date object
      */
     public static DateUnknownYear stringToDate(String eventDateString) {
-        DateUnknownYear date;
-        if (eventDateString != null) {
-            // yyyy-MM-dd, Most used format!
-            date = parseStringWithSimpleDateFormat(eventDateString, "yy-MM-dd", true);
-            if (date == null) {
-                date = parseStringWithSimpleDateFormat(eventDateString, "yyyy-MM-dd", false);
-            }
-            // --MM-dd, Most used format without year!
-            if (date == null) {
-                date = parseStringWithSimpleDateFormat(eventDateString, "--MM-dd", false);
-            }
-            if (date == null) {
-                date = parseStringWithSimpleDateFormat(eventDateString, "MM-dd", false);
-            }
-            // yyyyMMdd, HTC Desire
-            if (date == null) {
-                if (eventDateString.length() == 8) {
-                    date = parseStringWithSimpleDateFormat(eventDateString, "yyyyMMdd", true);
-                }
-            }
-            // Unix timestamp, Some Motorola devices
-            if (date == null) {
-                Log.d(TAG, "Trying to parse Event Date String " + eventDateString
-                        + " as a unix timestamp!");
-                try {
-                    Date rawDate = new Date(Long.parseLong(eventDateString));
-                } catch (NumberFormatException e) {
-                    Log.d(TAG, "Parsing failed!");
-                }
-            }
-            // dd.MM.yyyy
-            if (date == null) {
-                date = parseStringWithSimpleDateFormat(eventDateString, "dd.MM.yyyy", true);
-            }
-            // yyyy.MM.dd
-            if (date == null) {
-                date = parseStringWithSimpleDateFormat(eventDateString, "yyyy.MM.dd", true);
-            }
-            // MM/dd/yyyy, Used by Facebook
-            if (date == null) {
-                date = parseStringWithSimpleDateFormat(eventDateString, "MM/dd/yyyy", true);
-            }
-            //MM/dd, Used by Facebook
-            if (date == null) {
-                date = parseStringWithSimpleDateFormat(eventDateString, "MM/dd", false);
-            }
-            /* Return */
-            if (date != null) {
-                Log.d(TAG, "Event Date String " + eventDateString + " was parsed as "
-                        + date.toString());
-                return date;
-            } else {
-                Log.e(TAG, "Event Date String " + eventDateString
-                        + " could NOT be parsed! returning null!");
-                return null;
-            }
-        } else {
+        if (eventDateString == null) {
             Log.d(TAG, "Event Date String is null!");
             return null;
         }
+        return StartDateCache.getInstance().getDate(eventDateString);
     }
 
     @Override
@@ -43,18 +43,27 @@ public class EventWithoutYear {
     public List<CalendarEvent> getEventsAroundAndForThisYear() {
         List<CalendarEvent> calendarEvents = new ArrayList<>();
         for (int year : listYears) {
-            CalendarEvent calendarEvent = new CalendarEvent(baseEvent);
-            calendarEvent.setYear(year);
-            calendarEvent.setAllDay(true);
-            for(Reminder reminder : calendarEvent.getReminders()) {
-                reminder.setDateEvent(calendarEvent.getDate());
-            }
-            calendarEvents.add(calendarEvent);
+            calendarEvents.add(getEventForYear(year));
         }
         Log.d(getClass().getSimpleName(), "Events around years : " + calendarEvents);
         return calendarEvents;
     }
 
+    /**
+     * Get the base event moved to a year, with its reminders
+     * @param year Year of event, in or out of the window of years
+     * @return New event
+     */
+    public CalendarEvent getEventForYear(int year) {
+        CalendarEvent calendarEvent = new CalendarEvent(baseEvent);
+        calendarEvent.setYear(year);
+        calendarEvent.setAllDay(true);
+        for(Reminder reminder : calendarEvent.getReminders()) {
+            reminder.setDateEvent(calendarEvent.getDate());
+        }
+        return calendarEvent;
+    }
+
     /**
      * Get events for the next Y years
      */
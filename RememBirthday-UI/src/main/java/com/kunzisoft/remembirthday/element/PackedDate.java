@@ -0,0 +1,192 @@
+package com.kunzisoft.remembirthday.element;
+
+import java.util.Calendar;
+
+/**
+ * Day, month and year packed in an int, computed with epoch days and without allocation. <br />
+ * Packed dates are in chronological order when compared as int.
+ * The anniversary of February 29 is February 28 in common years, like Joda time.
+ * Only the years from 1 are packed, the arithmetic is wrong before.
+ */
+public final class PackedDate {
+
+    private static final int DAYS_0000_TO_1970 = 719528;
+
+    // Today is computed again at midnight, or when the time or the time zone changes
+    private static volatile Today today;
+
+    private PackedDate() {}
+
+    /**
+     * @param year Year from 1
+     * @param month Month from 1 to 12
+     * @param day Day of month from 1 to 31
+     * @return Packed date
+     * @throws IllegalArgumentException If the year is not positive
+     */
+    public static int pack(int year, int month, int day) {
+        if (year < 1)
+            throw new IllegalArgumentException("Year " + year + " can't be packed");
+        return (year << 9) | (month << 5) | day;
+    }
+
+    /**
+     * @param calendar Calendar with the date
+     * @return Packed date, the time is ignored. The year is the year of era, always positive
+     */
+    public static int fromCalendar(Calendar calendar) {
+        return pack(calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    public static int getYear(int packedDate) {
+        return packedDate >> 9;
+    }
+
+    public static int getMonth(int packedDate) {
+        return (packedDate >> 5) & 0xF;
+    }
+
+    public static int getDay(int packedDate) {
+        return packedDate & 0x1F;
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * @param year Year
+     * @param month Month from 1 to 12
+     * @return Number of days in the month
+     */
+    public static int getDaysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return Number of days since 1970-01-01, negative before
+     */
+    public static long toEpochDay(int packedDate) {
+        long year = getYear(packedDate);
+        int month = getMonth(packedDate);
+        long total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += getDay(packedDate) - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear((int) year))
+                total--;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Get the current day in the default time zone, the clock is read at each call
+     * but the day is only computed again after midnight, or after {@link #clearToday()}
+     * @return Packed date of today
+     */
+    public static int today() {
+        long now = System.currentTimeMillis();
+        Today currentToday = today;
+        if (currentToday == null || now < currentToday.startMillis || now >= currentToday.endMillis) {
+            currentToday = new Today(now);
+            today = currentToday;
+        }
+        return currentToday.packedDate;
+    }
+
+    /**
+     * Compute again the current day at the next call of {@link #today()}. Must be called when the time zone
+     * changes ({@link android.content.Intent#ACTION_TIMEZONE_CHANGED}) or when the clock is set
+     * ({@link android.content.Intent#ACTION_TIME_CHANGED})
+     */
+    public static void clearToday() {
+        today = null;
+    }
+
+    /**
+     * Get the anniversary of a date in a year, February 29 becomes February 28 in common years
+     * @param packedDate Packed date
+     * @param year Year of anniversary
+     * @return Packed anniversary
+     */
+    public static int getAnniversary(int packedDate, int year) {
+        int month = getMonth(packedDate);
+        int day = getDay(packedDate);
+        if (month == 2 && day == 29 && !isLeapYear(year))
+            day = 28;
+        return pack(year, month, day);
+    }
+
+    /**
+     * @param packedDate Packed date
+     * @param packedToday Packed date of today
+     * @return Anniversary not yet passed, today included
+     */
+    public static int getNextAnniversary(int packedDate, int packedToday) {
+        int year = getYear(packedToday);
+        int anniversary = getAnniversary(packedDate, year);
+        if (anniversary < packedToday)
+            anniversary = getAnniversary(packedDate, year + 1);
+        return anniversary;
+    }
+
+    /**
+     * @param packedDate Packed date
+     * @param packedToday Packed date of today
+     * @return Number of days before the next anniversary, 0 if it's today
+     */
+    public static int getDaysUntilNextAnniversary(int packedDate, int packedToday) {
+        return (int) (toEpochDay(getNextAnniversary(packedDate, packedToday)) - toEpochDay(packedToday));
+    }
+
+    /**
+     * Number of full years between two dates, negative if the end is before the start
+     * @param packedStart Packed date of start
+     * @param packedEnd Packed date of end
+     * @return Number of years
+     */
+    public static int getYearsBetween(int packedStart, int packedEnd) {
+        if (packedEnd < packedStart)
+            return -getYearsBetween(packedEnd, packedStart);
+        int years = getYear(packedEnd) - getYear(packedStart);
+        if (getAnniversary(packedStart, getYear(packedEnd)) > packedEnd)
+            years--;
+        return years;
+    }
+
+    /**
+     * Current day with its bounds
+     */
+    private static final class Today {
+
+        private final int packedDate;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Today(long now) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(now);
+            packedDate = fromCalendar(calendar);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            startMillis = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            endMillis = calendar.getTimeInMillis();
+        }
+    }
+}
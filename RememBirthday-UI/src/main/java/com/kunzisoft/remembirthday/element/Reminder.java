@@ -5,12 +5,15 @@ import android.os.Parcelable;
 
 import org.joda.time.DateTime;
 import org.joda.time.Days;
-import org.joda.time.Minutes;
 
+import java.util.Calendar;
 import java.util.Date;
+import java.util.TimeZone;
 
 /**
- * Created by joker on 01/07/17.
+ * Created by joker on 01/07/17. <br />
+ * The time of reminder and the minutes before the event are computed only after a change of
+ * the date of event, the hour, the minute or the days before, or of the default time zone.
  */
 public class Reminder implements Parcelable{
     public static final long ID_UNDEFINED = -1;
@@ -21,18 +24,18 @@ public class Reminder implements Parcelable{
     protected int minuteOfHour;
     protected int daysBefore;
 
+    // Time of reminder and offset from the event, valid only if timingComputed in the time zone kept
+    private boolean timingComputed;
+    private String timingTimeZoneId;
+    private long timeInMillis;
+    private int minutesBeforeEvent;
+
     /**
      * Create default auto message
      */
     public Reminder(Date dateEvent, int hourOfDay, int minuteOfHour, int deltaDay) {
         this.id = ID_UNDEFINED;
-        this.dateEvent = dateEvent;
-        this.dateEvent = new DateTime(this.dateEvent)
-                .withHourOfDay(0)
-                .withMinuteOfHour(0)
-                .withSecondOfMinute(0)
-                .withMillisOfSecond(0)
-                .toDate();
+        this.dateEvent = getStartOfDay(dateEvent);
         this.hourOfDay = hourOfDay;
         this.minuteOfHour = minuteOfHour;
         this.daysBefore = deltaDay;
@@ -50,13 +53,7 @@ public class Reminder implements Parcelable{
      */
     public Reminder(Date dateEvent, int minuteBeforeEvent) {
         this.id = ID_UNDEFINED;
-        this.dateEvent = dateEvent;
-        this.dateEvent = new DateTime(this.dateEvent)
-                .withHourOfDay(0)
-                .withMinuteOfHour(0)
-                .withSecondOfMinute(0)
-                .withMillisOfSecond(0)
-                .toDate();
+        this.dateEvent = getStartOfDay(dateEvent);
         DateTime dateReminder = new DateTime(dateEvent).minusMinutes(minuteBeforeEvent);
         this.hourOfDay = dateReminder.getHourOfDay();
         this.minuteOfHour = dateReminder.getMinuteOfHour();
@@ -75,6 +72,10 @@ public class Reminder implements Parcelable{
         this.hourOfDay = another.hourOfDay;
         this.minuteOfHour = another.minuteOfHour;
         this.daysBefore = another.daysBefore;
+        this.timingComputed = another.timingComputed;
+        this.timingTimeZoneId = another.timingTimeZoneId;
+        this.timeInMillis = another.timeInMillis;
+        this.minutesBeforeEvent = another.minutesBeforeEvent;
     }
 
     public Reminder(Parcel in) {
@@ -97,20 +98,61 @@ public class Reminder implements Parcelable{
         this.id = id;
     }
 
+    /**
+     * @param date Date
+     * @return New date at midnight of the same day
+     */
+    private static Date getStartOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    /**
+     * Compute the time of reminder and the minutes before the event if a field has changed
+     */
+    private void computeTiming() {
+        // The hour of reminder is in the default time zone
+        String timeZoneId = TimeZone.getDefault().getID();
+        if (timingComputed && timeZoneId.equals(timingTimeZoneId))
+            return;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(dateEvent);
+        calendar.set(Calendar.HOUR_OF_DAY, hourOfDay);
+        calendar.set(Calendar.MINUTE, minuteOfHour);
+        calendar.add(Calendar.DAY_OF_MONTH, -daysBefore);
+        timeInMillis = calendar.getTimeInMillis();
+        // Full minutes, like Joda Minutes
+        minutesBeforeEvent = (int) ((dateEvent.getTime() - timeInMillis) / (60 * 1000));
+        timingComputed = true;
+        timingTimeZoneId = timeZoneId;
+    }
+
     public Date getDate() {
-        return new DateTime(dateEvent)
-                .withMinuteOfHour(minuteOfHour)
-                .withHourOfDay(hourOfDay)
-                .minusDays(daysBefore)
-                .toDate();
+        computeTiming();
+        return new Date(timeInMillis);
+    }
+
+    /**
+     * @return Time of reminder in milliseconds
+     */
+    public long getTimeInMillis() {
+        computeTiming();
+        return timeInMillis;
     }
 
     public void setDateEvent(Date dateEvent) {
         this.dateEvent = dateEvent;
+        this.timingComputed = false;
     }
 
     public int getMinutesBeforeEvent() {
-        return Minutes.minutesBetween(new DateTime(getDate()), new DateTime(dateEvent)).getMinutes();
+        computeTiming();
+        return minutesBeforeEvent;
     }
 
     public int getDeltaDay() {
@@ -119,6 +161,7 @@ public class Reminder implements Parcelable{
 
     public void setDeltaDay(int deltaDay) {
         this.daysBefore = deltaDay;
+        this.timingComputed = false;
     }
 
     public int getHourOfDay() {
@@ -127,6 +170,7 @@ public class Reminder implements Parcelable{
 
     public void setHourOfDay(int hour) {
         this.hourOfDay = hour;
+        this.timingComputed = false;
     }
 
     public int getMinuteOfHour() {
@@ -135,6 +179,7 @@ public class Reminder implements Parcelable{
 
     public void setMinuteOfHour(int minute) {
         this.minuteOfHour = minute;
+        this.timingComputed = false;
     }
 
     @Override
@@ -0,0 +1,142 @@
+package com.kunzisoft.remembirthday.element;
+
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+/**
+ * Cache of the start dates already parsed, shared by the list, the loaders, the sync and the notifications. <br />
+ * The same raw START_DATE is parsed only once while it stays in the cache, the least recently used
+ * dates are evicted. Each call returns a new {@link DateUnknownYear} because it can be modified,
+ * its date is built at midnight of the day in the current time zone.
+ */
+public final class StartDateCache {
+
+    private static final String TAG = "StartDateCache";
+
+    // A contact list rarely contains more birthdays, an entry is about 100 bytes
+    public static final int DEFAULT_MAX_SIZE = 2048;
+
+    private static StartDateCache instance;
+
+    private final LruCache<String, ParsedDate> parsedDates;
+
+    /**
+     * @param maxSize Max number of start dates kept
+     */
+    StartDateCache(int maxSize) {
+        this.parsedDates = new LruCache<String, ParsedDate>(maxSize) {
+            @Override
+            protected ParsedDate create(String startDate) {
+                DateUnknownYear date = StartDateParser.parse(startDate);
+                if (date == null)
+                    Log.e(TAG, "Event Date String " + startDate + " could NOT be parsed! returning null!");
+                return new ParsedDate(date);
+            }
+        };
+    }
+
+    public static synchronized StartDateCache getInstance() {
+        if (instance == null)
+            instance = new StartDateCache(DEFAULT_MAX_SIZE);
+        return instance;
+    }
+
+    /**
+     * Get the parsed value of a start date, parse it only if not already in the cache
+     * @param startDate Raw START_DATE
+     * @return Parsed value, invalid if the date can't be parsed
+     */
+    public ParsedDate getParsedDate(String startDate) {
+        return parsedDates.get(startDate);
+    }
+
+    /**
+     * @param startDate Raw START_DATE
+     * @return New date or null if the date can't be parsed
+     */
+    public @Nullable DateUnknownYear getDate(String startDate) {
+        return getParsedDate(startDate).toDateUnknownYear();
+    }
+
+    public int getHitCount() {
+        return parsedDates.hitCount();
+    }
+
+    public int getMissCount() {
+        return parsedDates.missCount();
+    }
+
+    public int getEvictionCount() {
+        return parsedDates.evictionCount();
+    }
+
+    public int size() {
+        return parsedDates.size();
+    }
+
+    public void clear() {
+        parsedDates.evictAll();
+    }
+
+    @Override
+    public String toString() {
+        return "StartDateCache{" +
+                "size=" + size() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                '}';
+    }
+
+    /**
+     * Immutable result of a start date parsing, kept also when the parsing failed. <br />
+     * Only the day is kept, not an instant who depends of the time zone of the parsing
+     */
+    public static final class ParsedDate {
+
+        private final boolean valid;
+        private final boolean containsYear;
+        private final int packedDate;
+
+        private ParsedDate(@Nullable DateUnknownYear date) {
+            this.valid = date != null;
+            this.containsYear = valid && date.containsYear();
+            this.packedDate = valid ? date.getPackedDate() : 0;
+        }
+
+        /**
+         * @return true if the start date was parsed
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        public boolean containsYear() {
+            return containsYear;
+        }
+
+        /**
+         * @return Packed date, see {@link PackedDate}, 0 if not valid
+         */
+        public int getPackedDate() {
+            return packedDate;
+        }
+
+        /**
+         * @return New date or null if not valid
+         */
+        public @Nullable DateUnknownYear toDateUnknownYear() {
+            if (!valid)
+                return null;
+            Calendar calendar = new GregorianCalendar();
+            calendar.clear();
+            calendar.set(PackedDate.getYear(packedDate), PackedDate.getMonth(packedDate) - 1,
+                    PackedDate.getDay(packedDate));
+            return new DateUnknownYear(calendar.getTime(), containsYear, packedDate);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.kunzisoft.remembirthday.element;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * Parser of the start date of contact events, in one pass and without exception. <br />
+ * The date format in the contact events is not standardized, the forms are recognized in this order:
+ * <ol>
+ *     <li>yyyy-MM-dd (or yy-MM-dd), most used format</li>
+ *     <li>--MM-dd, most used format without year</li>
+ *     <li>MM-dd</li>
+ *     <li>yyyyMMdd, HTC Desire</li>
+ *     <li>dd.MM.yyyy</li>
+ *     <li>MM/dd/yyyy, used by Facebook</li>
+ *     <li>MM/dd, used by Facebook</li>
+ * </ol>
+ * Numbers are read like the lenient SimpleDateFormat of the previous parser: spaces before a number are skipped,
+ * a number can be negative, text after the date is ignored and out of range values roll over.
+ * Unix timestamps of some Motorola devices are not recognized, the previous parser dropped them too.
+ * See also: http://dmfs.org/carddav/?date_format
+ */
+public final class StartDateParser {
+
+    // Year of SimpleDateFormat when the pattern has no year
+    private static final int YEAR_DEFAULT = 1970;
+    private static final long FAILED = Long.MIN_VALUE;
+
+    private StartDateParser() {}
+
+    /**
+     * Parse the start date of a contact event
+     * @param text Start date
+     * @return Date or null if no form is recognized
+     */
+    public static DateUnknownYear parse(String text) {
+        if (text == null)
+            return null;
+        int length = text.length();
+
+        long first = parseNumber(text, 0, length);
+        if (first == FAILED) {
+            // --MM-dd
+            if (length > 2 && text.charAt(0) == '-' && text.charAt(1) == '-') {
+                long month = parseNumber(text, 2, length);
+                if (month != FAILED && isSeparator(text, end(month), '-')) {
+                    long day = parseNumber(text, end(month) + 1, length);
+                    if (day != FAILED)
+                        return buildDate(YEAR_DEFAULT, value(month), value(day), false);
+                }
+            }
+            return null;
+        }
+
+        int firstEnd = end(first);
+        if (isSeparator(text, firstEnd, '-')) {
+            long second = parseNumber(text, firstEnd + 1, length);
+            if (second != FAILED) {
+                int secondEnd = end(second);
+                if (isSeparator(text, secondEnd, '-')) {
+                    long third = parseNumber(text, secondEnd + 1, length);
+                    // yy-MM-dd
+                    if (third != FAILED)
+                        return buildDateWithShortYear(text, first, value(second), value(third));
+                }
+                // MM-dd
+                return buildDate(YEAR_DEFAULT, value(first), value(second), false);
+            }
+        }
+
+        // yyyyMMdd
+        if (length == 8) {
+            DateUnknownYear date = parseWithoutSeparator(text);
+            if (date != null)
+                return date;
+        }
+
+        if (isSeparator(text, firstEnd, '.')) {
+            long second = parseNumber(text, firstEnd + 1, length);
+            if (second != FAILED && isSeparator(text, end(second), '.')) {
+                long third = parseNumber(text, end(second) + 1, length);
+                // dd.MM.yyyy
+                if (third != FAILED)
+                    return buildDate(value(third), value(second), value(first), true);
+            }
+        } else if (isSeparator(text, firstEnd, '/')) {
+            long second = parseNumber(text, firstEnd + 1, length);
+            if (second != FAILED) {
+                if (isSeparator(text, end(second), '/')) {
+                    long third = parseNumber(text, end(second) + 1, length);
+                    // MM/dd/yyyy
+                    if (third != FAILED)
+                        return buildDate(value(third), value(first), value(second), true);
+                }
+                // MM/dd
+                return buildDate(YEAR_DEFAULT, value(first), value(second), false);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSeparator(String text, int index, char separator) {
+        return index < text.length() && text.charAt(index) == separator;
+    }
+
+    private static int value(long number) {
+        return (int) (number >> 32);
+    }
+
+    private static int end(long number) {
+        return (int) number;
+    }
+
+    /**
+     * Read a number like DecimalFormat in a date pattern: spaces and tabs are skipped,
+     * an optional minus sign is followed by digits, an overflow is clamped
+     * @param text Text to parse
+     * @param start Index of the first character
+     * @param limit Index after the last character readable
+     * @return Value in the high int and index after the number in the low int, or {@link #FAILED}
+     */
+    private static long parseNumber(String text, int start, int limit) {
+        int index = start;
+        while (true) {
+            // Spaces are skipped until the end of text, not the limit
+            if (index >= text.length())
+                return FAILED;
+            char character = text.charAt(index);
+            if (character != ' ' && character != '\t')
+                break;
+            index++;
+        }
+        boolean negative = false;
+        if (index < limit && text.charAt(index) == '-') {
+            negative = true;
+            index++;
+        }
+        int digitsStart = index;
+        long value = 0;
+        boolean overflow = false;
+        while (index < limit) {
+            int digit = Character.digit(text.charAt(index), 10);
+            if (digit < 0)
+                break;
+            if (!overflow) {
+                if (value > (Long.MAX_VALUE - digit) / 10)
+                    overflow = true;
+                else
+                    value = value * 10 + digit;
+            }
+            index++;
+        }
+        if (index == digitsStart)
+            return FAILED;
+        int intValue;
+        if (overflow)
+            intValue = negative ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        else
+            intValue = (int) (negative ? -value : value);
+        return ((long) intValue << 32) | index;
+    }
+
+    /**
+     * yyyyMMdd, the year and the month are read with their number of digits
+     */
+    private static DateUnknownYear parseWithoutSeparator(String text) {
+        long year = parseNumber(text, 0, 4);
+        if (year == FAILED)
+            return null;
+        int yearEnd = end(year);
+        if (yearEnd + 2 > text.length())
+            return null;
+        long month = parseNumber(text, yearEnd, yearEnd + 2);
+        if (month == FAILED)
+            return null;
+        long day = parseNumber(text, end(month), text.length());
+        if (day == FAILED)
+            return null;
+        return buildDate(value(year), value(month), value(day), true);
+    }
+
+    /**
+     * Build the date of yy-MM-dd, a year of two digits is in the century who starts 80 years ago
+     */
+    private static DateUnknownYear buildDateWithShortYear(String text, long year, int month, int day) {
+        int yearStart = 0;
+        while (text.charAt(yearStart) == ' ' || text.charAt(yearStart) == '\t')
+            yearStart++;
+        if (end(year) - yearStart != 2
+                || !Character.isDigit(text.charAt(yearStart))
+                || !Character.isDigit(text.charAt(yearStart + 1)))
+            return buildDate(value(year), month, day, true);
+
+        Calendar centuryStart = new GregorianCalendar();
+        centuryStart.add(Calendar.YEAR, -80);
+        int centuryStartYear = centuryStart.get(Calendar.YEAR);
+        int shortYear = value(year);
+        int fullYear = (centuryStartYear / 100) * 100 + shortYear
+                + (shortYear < centuryStartYear % 100 ? 100 : 0);
+        GregorianCalendar calendar = getCalendar(fullYear, month, day);
+        if (shortYear == centuryStartYear % 100 && calendar.getTime().before(centuryStart.getTime()))
+            calendar = getCalendar(fullYear + 100, month, day);
+        return buildDate(calendar, true);
+    }
+
+    private static GregorianCalendar getCalendar(int year, int month, int day) {
+        GregorianCalendar calendar = new GregorianCalendar();
+        calendar.clear();
+        calendar.set(Calendar.YEAR, year);
+        calendar.set(Calendar.MONTH, month - 1);
+        calendar.set(Calendar.DAY_OF_MONTH, day);
+        return calendar;
+    }
+
+    private static DateUnknownYear buildDate(int year, int month, int day, boolean containsYear) {
+        return buildDate(getCalendar(year, month, day), containsYear);
+    }
+
+    private static DateUnknownYear buildDate(GregorianCalendar calendar, boolean containsYear) {
+        // Out of range values roll over when the time is computed
+        Date date = calendar.getTime();
+        return new DateUnknownYear(date, containsYear, PackedDate.fromCalendar(calendar));
+    }
+}
@@ -0,0 +1,117 @@
+package com.kunzisoft.remembirthday.element;
+
+/**
+ * Day of today read once, to compute the birthdays of a whole list against the same day. <br />
+ * A sort or a list who passes midnight stays coherent, and a fixed day gives the same results in tests.
+ * Days and years follow {@link PackedDate}, February 29 is on February 28 in common years.
+ */
+public final class TodaySnapshot {
+
+    // Days before each month in a common year
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+    private final int packedDate;
+    private final int year;
+    private final boolean leapYear;
+    private final boolean nextYearLeap;
+    // From 0 for January 1
+    private final int dayOfYear;
+
+    private TodaySnapshot(int packedDate) {
+        this.packedDate = packedDate;
+        this.year = PackedDate.getYear(packedDate);
+        this.leapYear = PackedDate.isLeapYear(year);
+        this.nextYearLeap = PackedDate.isLeapYear(year + 1);
+        this.dayOfYear = getDayOfYear(PackedDate.getMonth(packedDate), PackedDate.getDay(packedDate), leapYear);
+    }
+
+    /**
+     * @return Snapshot of the current day in the default time zone
+     */
+    public static TodaySnapshot now() {
+        return new TodaySnapshot(PackedDate.today());
+    }
+
+    /**
+     * @param packedDate Packed date of the day to use as today
+     * @return Snapshot of the day
+     */
+    public static TodaySnapshot of(int packedDate) {
+        return new TodaySnapshot(packedDate);
+    }
+
+    private static int getDayOfYear(int month, int day, boolean leapYear) {
+        int dayOfYear = DAYS_BEFORE_MONTH[month - 1] + day - 1;
+        if (leapYear && month > 2)
+            dayOfYear++;
+        return dayOfYear;
+    }
+
+    /**
+     * Day of the anniversary of a month and a day in a year, February 29 becomes February 28 in common years
+     */
+    private static int getDayOfAnniversary(int month, int day, boolean leapYear) {
+        if (month == 2 && day == 29 && !leapYear)
+            day = 28;
+        return getDayOfYear(month, day, leapYear);
+    }
+
+    public int getPackedDate() {
+        return packedDate;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public boolean isLeapYear() {
+        return leapYear;
+    }
+
+    /**
+     * @return Day of today in the year, 0 for January 1
+     */
+    public int getDayOfYear() {
+        return dayOfYear;
+    }
+
+    /**
+     * @param packedDate Packed date
+     * @return Number of days before the next anniversary, 0 if it's today
+     */
+    public int getDaysUntilNextAnniversary(int packedDate) {
+        int month = PackedDate.getMonth(packedDate);
+        int day = PackedDate.getDay(packedDate);
+        int dayOfAnniversary = getDayOfAnniversary(month, day, leapYear);
+        if (dayOfAnniversary >= dayOfYear)
+            return dayOfAnniversary - dayOfYear;
+        return (leapYear ? 366 : 365) - dayOfYear + getDayOfAnniversary(month, day, nextYearLeap);
+    }
+
+    /**
+     * @param packedDate Packed date
+     * @return Packed date of the anniversary not yet passed, today included
+     */
+    public int getNextAnniversary(int packedDate) {
+        return PackedDate.getNextAnniversary(packedDate, this.packedDate);
+    }
+
+    /**
+     * @param packedDate Packed date
+     * @return Number of full years between today and the date, negative if the date is passed
+     */
+    public int getYearsUntil(int packedDate) {
+        return PackedDate.getYearsBetween(this.packedDate, packedDate);
+    }
+
+    @Override
+    public String toString() {
+        return "TodaySnapshot{" +
+                "year=" + year +
+                ", month=" + PackedDate.getMonth(packedDate) +
+                ", day=" + PackedDate.getDay(packedDate) +
+                ", dayOfYear=" + dayOfYear +
+                ", leapYear=" + leapYear +
+                '}';
+    }
+}
@@ -5,8 +5,13 @@ import android.provider.ContactsContract;
 
 import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Class to manage the sort of contacts in the lists. <br />
@@ -34,36 +39,27 @@ public enum ContactSort {
     CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT(
             R.string.pref_contacts_sort_list_value_days_left,
             R.string.pref_contacts_order_list_value_asc,
-            new Comparator<Contact>() {
+            new ContactSortKey() {
         @Override
-        public int compare(Contact contactA, Contact contactB) {
-            if(contactA.getBirthdayDaysRemaining() < contactB.getBirthdayDaysRemaining())
-                return -1;
-            else if(contactA.getBirthdayDaysRemaining() == contactB.getBirthdayDaysRemaining())
-                return 0;
-            else
-                return 1;
+        public int getSortKey(int packedDate, TodaySnapshot today) {
+            return today.getDaysUntilNextAnniversary(packedDate);
         }
     }),
     CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT_DESC(
             R.string.pref_contacts_sort_list_value_days_left,
             R.string.pref_contacts_order_list_value_desc,
-            new Comparator<Contact>() {
+            new ContactSortKey() {
         @Override
-        public int compare(Contact contactA, Contact contactB) {
-            if(contactA.getBirthdayDaysRemaining() > contactB.getBirthdayDaysRemaining())
-                return -1;
-            else if(contactA.getBirthdayDaysRemaining() == contactB.getBirthdayDaysRemaining())
-                return 0;
-            else
-                return 1;
+        public int getSortKey(int packedDate, TodaySnapshot today) {
+            return -today.getDaysUntilNextAnniversary(packedDate);
         }
     });
 
     private int resourceValueSortString = -1;
     private int resourceValueOrderString = -1;
     private String sortOrder = null;
-    private Comparator<Contact> contactComparator = null;
+    private ContactComparatorFactory contactComparatorFactory = null;
+    private ContactSortKey contactSortKey = null;
 
     /**
      * Define the last parameter 'sortOrder' of CursorLoader @see <a href="https://developer.android.com/reference/android/content/CursorLoader.html">CursorLoader Doc</a>
@@ -75,17 +71,52 @@ public enum ContactSort {
         this.sortOrder = sortOrder;
     }
 
-    ContactSort(int resourceValueSortString, int resourceValueOrderString, Comparator<Contact> contactComparator) {
+    ContactSort(int resourceValueSortString, int resourceValueOrderString, ContactComparatorFactory contactComparatorFactory) {
         this.resourceValueSortString = resourceValueSortString;
         this.resourceValueOrderString = resourceValueOrderString;
-        this.contactComparator = contactComparator;
+        this.contactComparatorFactory = contactComparatorFactory;
     }
 
-    ContactSort(int resourceValueSortString, int resourceValueOrderString, String sortOrder, Comparator<Contact> contactComparator) {
+    ContactSort(int resourceValueSortString, int resourceValueOrderString, String sortOrder, ContactComparatorFactory contactComparatorFactory) {
         this.resourceValueSortString = resourceValueSortString;
         this.resourceValueOrderString = resourceValueOrderString;
         this.sortOrder = sortOrder;
-        this.contactComparator = contactComparator;
+        this.contactComparatorFactory = contactComparatorFactory;
+    }
+
+    /**
+     * Sort with a key computed once by birthday, the comparator compares the keys
+     */
+    ContactSort(int resourceValueSortString, int resourceValueOrderString, final ContactSortKey contactSortKey) {
+        this.resourceValueSortString = resourceValueSortString;
+        this.resourceValueOrderString = resourceValueOrderString;
+        this.contactSortKey = contactSortKey;
+        this.contactComparatorFactory = new ContactComparatorFactory() {
+            @Override
+            public Comparator<Contact> getComparator(final TodaySnapshot today) {
+                return new Comparator<Contact>() {
+                    @Override
+                    public int compare(Contact contactA, Contact contactB) {
+                        int keyA = getSortKey(getPackedBirthday(contactA), today);
+                        int keyB = getSortKey(getPackedBirthday(contactB), today);
+                        return keyA < keyB ? -1 : (keyA == keyB ? 0 : 1);
+                    }
+                };
+            }
+        };
+    }
+
+    private static int getPackedBirthday(Contact contact) {
+        return contact.hasBirthday() ? contact.getBirthday().getPackedDate() : 0;
+    }
+
+    /**
+     * Key of a birthday, the contacts without birthday are after the others
+     */
+    private int getSortKey(int packedDate, TodaySnapshot today) {
+        if(packedDate == 0)
+            return Integer.MAX_VALUE;
+        return contactSortKey.getSortKey(packedDate, today);
     }
 
     public int getResourceValueString() {
@@ -97,7 +128,85 @@ public enum ContactSort {
     }
 
     public Comparator<Contact> getContactComparator() {
-        return contactComparator;
+        return getContactComparator(TodaySnapshot.now());
+    }
+
+    /**
+     * Get the comparator of contacts who computes the birthdays against a snapshot of today
+     * @param today Snapshot of today, the same for the whole list
+     * @return Comparator or null if the sort is done in the query
+     */
+    public Comparator<Contact> getContactComparator(TodaySnapshot today) {
+        if(contactComparatorFactory == null)
+            return null;
+        return contactComparatorFactory.getComparator(today);
+    }
+
+    /**
+     * @return true if the contacts are sorted after having retrieved the list, false if the sort is done in the query
+     */
+    public boolean isSortedInMemory() {
+        return contactComparatorFactory != null;
+    }
+
+    /**
+     * Get the order of contacts, in the same order as the comparator with a stable sort. <br />
+     * If the sort has a key, the birthdays of the contacts are sorted with {@link #sortPositions(int[], TodaySnapshot)}
+     * @param contacts Contacts to sort, not modified, must have a fast access by position
+     * @param today Snapshot of today, the same for the whole list
+     * @return Positions of the contacts in the sorted order, or null if the sort is done in the query
+     */
+    public int[] sortPositions(final List<Contact> contacts, TodaySnapshot today) {
+        int[] positions = new int[contacts.size()];
+        if(contactSortKey != null) {
+            for(int i = 0; i < positions.length; i++) {
+                positions[i] = getPackedBirthday(contacts.get(i));
+            }
+            return sortPositions(positions, today);
+        }
+        final Comparator<Contact> contactComparator = getContactComparator(today);
+        if(contactComparator == null)
+            return null;
+        List<Integer> sortedPositions = new ArrayList<>(positions.length);
+        for(int i = 0; i < positions.length; i++) {
+            sortedPositions.add(i);
+        }
+        Collections.sort(sortedPositions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer positionA, Integer positionB) {
+                return contactComparator.compare(contacts.get(positionA), contacts.get(positionB));
+            }
+        });
+        for(int i = 0; i < positions.length; i++) {
+            positions[i] = sortedPositions.get(i);
+        }
+        return positions;
+    }
+
+    /**
+     * Get the order of birthdays read without building the contacts, in the same order as the comparator
+     * with a stable sort. <br />
+     * Each key is computed once by birthday and the keys are sorted as primitives,
+     * with the position of the birthday to keep the order of the same keys
+     * @param packedBirthdays Packed dates of the birthdays, see {@link com.kunzisoft.remembirthday.element.PackedDate},
+     *                        0 for a contact without birthday
+     * @param today Snapshot of today, the same for the whole list
+     * @return Positions of the birthdays in the sorted order, or null if the sort has no key
+     */
+    public int[] sortPositions(int[] packedBirthdays, TodaySnapshot today) {
+        if(contactSortKey == null)
+            return null;
+        // Key in the high bits, position in the low bits
+        long[] keys = new long[packedBirthdays.length];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) getSortKey(packedBirthdays[i], today) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] positions = new int[keys.length];
+        for(int i = 0; i < keys.length; i++) {
+            positions[i] = (int) keys[i];
+        }
+        return positions;
     }
 
     /**
@@ -118,4 +227,18 @@ public enum ContactSort {
         }
         return null;
     }
+
+    /**
+     * Build a comparator of contacts for a day
+     */
+    public interface ContactComparatorFactory {
+        Comparator<Contact> getComparator(TodaySnapshot today);
+    }
+
+    /**
+     * Key of a birthday for a day, the contacts are sorted by ascending keys
+     */
+    public interface ContactSortKey {
+        int getSortKey(int packedDate, TodaySnapshot today);
+    }
 }
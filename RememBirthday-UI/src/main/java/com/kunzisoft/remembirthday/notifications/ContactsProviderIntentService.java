@@ -9,8 +9,10 @@ import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.util.Log;
 
+import com.kunzisoft.remembirthday.element.BirthdayIndex;
 import com.kunzisoft.remembirthday.element.Contact;
 import com.kunzisoft.remembirthday.element.DateUnknownYear;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
 
 /**
  * Created by joker on 20/04/17.
@@ -63,6 +65,9 @@ public class ContactsProviderIntentService extends IntentService implements Load
 
     @Override
     public void onLoadComplete(Loader<Cursor> loader, Cursor cursor) {
+        // Same day for the alarms of all the contacts
+        TodaySnapshot today = TodaySnapshot.now();
+        BirthdayIndex birthdayIndex = new BirthdayIndex();
 
         cursor.moveToFirst();
         while (!cursor.isAfterLast()) {
@@ -90,10 +95,8 @@ public class ContactsProviderIntentService extends IntentService implements Load
 
             Log.d(getClass().getSimpleName(), contact.toString());
 
-            // Create alarm for birthday of this contact
             // TODO define anniversary
-            if(contact.hasBirthday())
-                NotificationEventReceiver.setupAlarm(this, contact);
+            birthdayIndex.put(contact);
 
             // Go to next contact
             cursor.moveToNext();
@@ -101,6 +104,9 @@ public class ContactsProviderIntentService extends IntentService implements Load
         }
         cursor.close();
 
+        // Create alarm for the next birthday
+        NotificationEventReceiver.setupNextAlarm(this, birthdayIndex, today);
+
         // Stop the cursor loader
         if (mCursorLoader != null) {
             mCursorLoader.unregisterListener(this);
@@ -7,10 +7,14 @@ import android.content.Intent;
 import android.support.v4.content.WakefulBroadcastReceiver;
 import android.util.Log;
 
+import com.kunzisoft.remembirthday.element.BirthdayIndex;
 import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.PackedDate;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Created by joker on 17/04/17.
@@ -19,18 +23,33 @@ public class NotificationEventReceiver extends WakefulBroadcastReceiver {
 
     private static final String ACTION_START_NOTIFICATION_SERVICE = "com.kunzisoft.remembirthday.ACTION_START_NOTIFICATION_SERVICE";
     private static final String ACTION_DELETE_NOTIFICATION = "com.kunzisoft.remembirthday.ACTION_DELETE_NOTIFICATION";
-    private static final String EXTRA_CONTACT_NOTIFICATION = "EXTRA_CONTACT_NOTIFICATION_RECEIVER";
+    private static final String EXTRA_DAY_NOTIFICATION = "EXTRA_DAY_NOTIFICATION_RECEIVER";
 
-    public static void setupAlarm(Context context, Contact contact) {
+    /**
+     * Set the alarm of the next day with birthdays in the index, without scanning all the contacts. <br />
+     * Only one alarm is set for all the contacts of the day, it replaces the previous one,
+     * the contacts are read again from the index when the alarm fires
+     * @param context Context to call
+     * @param birthdayIndex Index of contacts by day of birthday
+     * @param today Snapshot of today, the birthdays of today are included
+     */
+    public static void setupNextAlarm(Context context, BirthdayIndex birthdayIndex, TodaySnapshot today) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        List<Contact> nextContacts = birthdayIndex.getNextContacts(today.getPackedDate());
+        if (nextContacts.isEmpty()) {
+            alarmManager.cancel(getStartPendingIntent(context, today.getPackedDate()));
+            return;
+        }
+        // All the contacts have their birthday the same day
+        Contact contact = nextContacts.get(0);
+        Date nextAnniversary = contact.getBirthday().getNextAnniversary(today);
+        int packedDay = PackedDate.getNextAnniversary(contact.getBirthday().getPackedDate(), today.getPackedDate());
 
-        Log.e("NotificationEvtReceiver", contact.getBirthday().getNextAnniversary().toString());
+        Log.d("NotificationEvtReceiver", nextAnniversary.toString() + " for " + nextContacts.size() + " contacts");
 
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent alarmIntent = getStartPendingIntent(context, contact);
-        //TODO Get Anniversary bug just last is called
         alarmManager.set(AlarmManager.RTC_WAKEUP,
-                getTriggerAt(contact.getBirthday().getNextAnniversary()),
-                alarmIntent);
+                getTriggerAt(nextAnniversary),
+                getStartPendingIntent(context, packedDay));
     }
 
     @Override
@@ -38,9 +57,9 @@ public class NotificationEventReceiver extends WakefulBroadcastReceiver {
         String action = intent.getAction();
         Intent serviceIntent = null;
         if (ACTION_START_NOTIFICATION_SERVICE.equals(action)) {
-            Contact contact = intent.getParcelableExtra(EXTRA_CONTACT_NOTIFICATION);
+            int packedDay = intent.getIntExtra(EXTRA_DAY_NOTIFICATION, PackedDate.today());
             Log.i(getClass().getSimpleName(), "onReceive from alarm, starting notification service");
-            serviceIntent = NotificationIntentService.createIntentStartNotificationService(context, contact);
+            serviceIntent = NotificationIntentService.createIntentStartNotificationService(context, packedDay);
         } else if (ACTION_DELETE_NOTIFICATION.equals(action)) {
             Log.i(getClass().getSimpleName(), "onReceive deleteById notification action, starting notification service to handle deleteById");
             serviceIntent = NotificationIntentService.createIntentDeleteNotification(context);
@@ -58,10 +77,13 @@ public class NotificationEventReceiver extends WakefulBroadcastReceiver {
         return calendar.getTimeInMillis();
     }
 
-    private static PendingIntent getStartPendingIntent(Context context, Contact contact) {
+    /**
+     * Intent of the alarm, the same for all the days so a new alarm replaces the previous one
+     */
+    private static PendingIntent getStartPendingIntent(Context context, int packedDay) {
         Intent intent = new Intent(context, NotificationEventReceiver.class);
         intent.setAction(ACTION_START_NOTIFICATION_SERVICE);
-        intent.putExtra(EXTRA_CONTACT_NOTIFICATION, contact);
+        intent.putExtra(EXTRA_DAY_NOTIFICATION, packedDay);
         return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
     }
 
@@ -13,7 +13,14 @@ import android.util.TypedValue;
 
 import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.activity.NotificationActivity;
+import com.kunzisoft.remembirthday.element.BirthdayIndex;
 import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.PackedDate;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
+import com.kunzisoft.remembirthday.provider.ContactLoader;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
 
 /**
  * Service for send notifications of each anniversary
@@ -24,16 +31,21 @@ public class NotificationIntentService extends IntentService {
     private static final String ACTION_START = "ACTION_START";
     private static final String ACTION_DELETE = "ACTION_DELETE";
 
-    private static final String EXTRA_CONTACT_NOTIFICATION = "EXTRA_CONTACT_NOTIFICATION_SERVICE";
+    private static final String EXTRA_DAY_NOTIFICATION = "EXTRA_DAY_NOTIFICATION_SERVICE";
 
 
     public NotificationIntentService() {
         super(NotificationIntentService.class.getSimpleName());
     }
 
-    public static Intent createIntentStartNotificationService(Context context, Contact contact) {
+    /**
+     * @param context Context to call
+     * @param packedDay Packed date of the day of the alarm, its contacts are read from the index
+     * @return Intent of the notifications of the day
+     */
+    public static Intent createIntentStartNotificationService(Context context, int packedDay) {
         Intent intent = new Intent(context, NotificationIntentService.class);
-        intent.putExtra(EXTRA_CONTACT_NOTIFICATION, contact);
+        intent.putExtra(EXTRA_DAY_NOTIFICATION, packedDay);
         intent.setAction(ACTION_START);
         return intent;
     }
@@ -50,8 +62,7 @@ public class NotificationIntentService extends IntentService {
         try {
             String action = intent.getAction();
             if (ACTION_START.equals(action)) {
-                Contact contact = intent.getParcelableExtra(EXTRA_CONTACT_NOTIFICATION);
-                //TODO processStartNotification(contact);
+                processStartNotifications(intent.getIntExtra(EXTRA_DAY_NOTIFICATION, PackedDate.today()));
             }
             if (ACTION_DELETE.equals(action)) {
                 processDeleteNotification(intent);
@@ -91,6 +102,31 @@ public class NotificationIntentService extends IntentService {
         manager.notify((int) (contact.getRawId()), builder.build());
     }
 
+    /**
+     * Resolve the contacts with a birthday the day of the alarm from the index of contacts by day of birthday,
+     * then set the alarm of the next day with birthdays
+     * @param packedDay Packed date of the day of the alarm
+     */
+    private void processStartNotifications(int packedDay) {
+        BirthdayIndex birthdayIndex;
+        try {
+            birthdayIndex = ContactLoader.getBirthdayIndex(this);
+        } catch (SecurityException e) {
+            Log.e(getClass().getSimpleName(), "Contacts of the alarm not read : " + e.getMessage());
+            return;
+        }
+        for (Contact contact : birthdayIndex.getUpcomingContacts(packedDay, 1)) {
+            Log.d(getClass().getSimpleName(), "Birthday of " + contact);
+            //TODO processStartNotification(contact);
+        }
+        Calendar nextDay = new GregorianCalendar(PackedDate.getYear(packedDay),
+                PackedDate.getMonth(packedDay) - 1,
+                PackedDate.getDay(packedDay));
+        nextDay.add(Calendar.DAY_OF_MONTH, 1);
+        NotificationEventReceiver.setupNextAlarm(this, birthdayIndex,
+                TodaySnapshot.of(PackedDate.fromCalendar(nextDay)));
+    }
+
     private void processDeleteNotification(Intent intent) {
         // Log something?
     }
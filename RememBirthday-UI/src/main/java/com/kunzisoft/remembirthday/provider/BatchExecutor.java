@@ -0,0 +1,393 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.OperationApplicationException;
+import android.os.Parcel;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apply a large list of operations with multiple batches of bounded size. <br />
+ * Operations are added by groups, a group is never split between two batches,
+ * so back references inside a group (ex: reminders of an event) are always valid. <br />
+ * Back references are declared relative to the group and rebased when each batch is built.
+ */
+public class BatchExecutor {
+
+    private static final String TAG = "BatchExecutor";
+
+    /**
+     * Maximum number of operations in a batch,
+     * the binder transaction fails past about 200 operations
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+
+    private ContentResolver contentResolver;
+    private String authority;
+    private int chunkSize;
+    private List<OperationGroup> operationGroups;
+    private OnChunkAppliedListener onChunkAppliedListener;
+    private boolean bytesMeasured;
+
+    public BatchExecutor(ContentResolver contentResolver, String authority) {
+        this(contentResolver, authority, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BatchExecutor(ContentResolver contentResolver, String authority, int chunkSize) {
+        this.contentResolver = contentResolver;
+        this.authority = authority;
+        this.chunkSize = chunkSize;
+        this.operationGroups = new ArrayList<>();
+        this.onChunkAppliedListener = null;
+        this.bytesMeasured = false;
+    }
+
+    /**
+     * Assign a listener called after each batch, in the thread of {@link #execute()}
+     */
+    public void setOnChunkAppliedListener(OnChunkAppliedListener onChunkAppliedListener) {
+        this.onChunkAppliedListener = onChunkAppliedListener;
+    }
+
+    /**
+     * Measure the size of each batch in the binder transaction, only to debug:
+     * the operations are written in a parcel before being applied
+     * @param bytesMeasured true to measure the bytes, false by default
+     */
+    public void setBytesMeasured(boolean bytesMeasured) {
+        this.bytesMeasured = bytesMeasured;
+    }
+
+    /**
+     * Create a new group of operations applied in the same batch
+     * @return The group to fill
+     */
+    public OperationGroup newGroup() {
+        OperationGroup operationGroup = new OperationGroup();
+        operationGroups.add(operationGroup);
+        return operationGroup;
+    }
+
+    /**
+     * Add an operation in its own group
+     * @param builder Builder of operation, ignored if null
+     * @return The group created
+     */
+    public OperationGroup add(ContentProviderOperation.Builder builder) {
+        OperationGroup operationGroup = newGroup();
+        operationGroup.add(builder);
+        return operationGroup;
+    }
+
+    /**
+     * @return Number of operations waiting
+     */
+    public int size() {
+        int size = 0;
+        for(OperationGroup operationGroup : operationGroups)
+            size += operationGroup.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Apply all groups of operations in batches of {@link #chunkSize} operations maximum.
+     * A failed batch does not stop the next ones. The executor is empty after the call.
+     * @return Report of each batch
+     */
+    public Report execute() {
+        Report report = new Report();
+        int chunkIndex = 0;
+        int groupIndex = 0;
+        while (groupIndex < operationGroups.size()) {
+            // Fill the chunk with whole groups
+            List<OperationGroup> groupsOfChunk = new ArrayList<>();
+            ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+            while (groupIndex < operationGroups.size()) {
+                OperationGroup operationGroup = operationGroups.get(groupIndex);
+                if(!operations.isEmpty() && operations.size() + operationGroup.size() > chunkSize)
+                    break;
+                operationGroup.buildInto(operations, !operations.isEmpty());
+                groupsOfChunk.add(operationGroup);
+                groupIndex++;
+            }
+            if(operations.isEmpty()) {
+                // Groups without operation (ex: builders ignored) have nothing to apply
+                for(OperationGroup operationGroup : groupsOfChunk)
+                    operationGroup.results = new ContentProviderResult[0];
+                continue;
+            }
+            ChunkReport chunkReport = applyChunk(chunkIndex, operations, groupsOfChunk);
+            report.addChunkReport(chunkReport);
+            if(onChunkAppliedListener != null)
+                onChunkAppliedListener.onChunkApplied(chunkReport);
+            chunkIndex++;
+        }
+        operationGroups.clear();
+        Log.d(TAG, report.toString());
+        return report;
+    }
+
+    /**
+     * Apply one batch and dispatch results in each group
+     */
+    private ChunkReport applyChunk(int chunkIndex,
+                                   ArrayList<ContentProviderOperation> operations,
+                                   List<OperationGroup> groupsOfChunk) {
+        ChunkReport chunkReport = new ChunkReport(chunkIndex, operations.size());
+        // Size of the binder transaction, only measured on request
+        if(bytesMeasured)
+            chunkReport.numberOfBytes = getParcelSize(operations);
+        long startTime = System.nanoTime();
+        try {
+            ContentProviderResult[] contentProviderResults = contentResolver.applyBatch(authority, operations);
+            int resultIndex = 0;
+            // A group without operation receives an empty array of results
+            for(OperationGroup operationGroup : groupsOfChunk) {
+                ContentProviderResult[] groupResults = new ContentProviderResult[operationGroup.size()];
+                System.arraycopy(contentProviderResults, resultIndex, groupResults, 0, groupResults.length);
+                operationGroup.results = groupResults;
+                resultIndex += groupResults.length;
+            }
+        } catch (RemoteException|OperationApplicationException|IllegalArgumentException e) {
+            Log.e(TAG, "Applying batch " + chunkIndex + " error!", e);
+            chunkReport.exception = e;
+        }
+        chunkReport.durationNanos = System.nanoTime() - startTime;
+        Log.d(TAG, chunkReport.toString());
+        return chunkReport;
+    }
+
+    /**
+     * @return Number of bytes of operations written in a parcel
+     */
+    private static int getParcelSize(List<ContentProviderOperation> operations) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(operations);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Listener of each batch applied
+     */
+    public interface OnChunkAppliedListener {
+        void onChunkApplied(ChunkReport chunkReport);
+    }
+
+    /**
+     * Operations always applied in the same batch
+     */
+    public static class OperationGroup {
+
+        private List<ContentProviderOperation.Builder> builders;
+        // For each builder, key and index in group of the back reference, or null
+        private List<String> backReferenceKeys;
+        private List<Integer> backReferenceIndexes;
+        private ContentProviderResult[] results;
+
+        private OperationGroup() {
+            this.builders = new ArrayList<>();
+            this.backReferenceKeys = new ArrayList<>();
+            this.backReferenceIndexes = new ArrayList<>();
+            this.results = null;
+        }
+
+        /**
+         * Add an operation in the group
+         * @param builder Builder of operation, ignored if null
+         * @return Index of the operation in the group, -1 if ignored
+         */
+        public int add(ContentProviderOperation.Builder builder) {
+            return addWithBackReference(builder, null, -1);
+        }
+
+        /**
+         * Add an operation who uses the result of a previous operation of the group
+         * @param builder Builder of operation, ignored if null
+         * @param key Column who receives the id of the previous result
+         * @param index Index in the group of the previous operation
+         * @return Index of the operation in the group, -1 if ignored
+         */
+        public int addWithBackReference(ContentProviderOperation.Builder builder, String key, int index) {
+            if(builder == null) {
+                Log.w(TAG, "Operation ignored, builder is null");
+                return -1;
+            }
+            if(key != null && (index < 0 || index >= builders.size()))
+                throw new IllegalArgumentException("Back reference " + index + " is not in the group");
+            builders.add(builder);
+            backReferenceKeys.add(key);
+            backReferenceIndexes.add(index);
+            return builders.size() - 1;
+        }
+
+        public int size() {
+            return builders.size();
+        }
+
+        /**
+         * Build operations of group at the end of the list of batch
+         * @param operations Operations of batch
+         * @param yieldAllowed Allow the provider to commit before this group
+         */
+        private void buildInto(List<ContentProviderOperation> operations, boolean yieldAllowed) {
+            int offset = operations.size();
+            for(int i = 0; i < builders.size(); i++) {
+                ContentProviderOperation.Builder builder = builders.get(i);
+                String backReferenceKey = backReferenceKeys.get(i);
+                if(backReferenceKey != null)
+                    builder.withValueBackReference(backReferenceKey, offset + backReferenceIndexes.get(i));
+                if(i == 0)
+                    builder.withYieldAllowed(yieldAllowed);
+                operations.add(builder.build());
+            }
+        }
+
+        /**
+         * @return true if the batch who contains the group is applied, always true after the execution
+         * for a group without operation
+         */
+        public boolean isApplied() {
+            return results != null;
+        }
+
+        /**
+         * @return Results of each operation of the group or null if not applied
+         */
+        public ContentProviderResult[] getResults() {
+            return results;
+        }
+    }
+
+    /**
+     * Information about a batch applied
+     */
+    public static class ChunkReport {
+
+        private int index;
+        private int numberOfOperations;
+        private int numberOfBytes;
+        private long durationNanos;
+        private Exception exception;
+
+        private ChunkReport(int index, int numberOfOperations) {
+            this.index = index;
+            this.numberOfOperations = numberOfOperations;
+            this.numberOfBytes = -1;
+            this.durationNanos = 0;
+            this.exception = null;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getNumberOfOperations() {
+            return numberOfOperations;
+        }
+
+        /**
+         * @return Size of the batch in the binder transaction, -1 if not measured
+         */
+        public int getNumberOfBytes() {
+            return numberOfBytes;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public long getDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        }
+
+        public boolean isSuccessful() {
+            return exception == null;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            return "ChunkReport{" +
+                    "index=" + index +
+                    ", numberOfOperations=" + numberOfOperations +
+                    ", numberOfBytes=" + numberOfBytes +
+                    ", durationMillis=" + getDurationMillis() +
+                    ", exception=" + exception +
+                    '}';
+        }
+    }
+
+    /**
+     * Information about all batches applied
+     */
+    public static class Report {
+
+        private List<ChunkReport> chunkReports;
+
+        private Report() {
+            this.chunkReports = new ArrayList<>();
+        }
+
+        private void addChunkReport(ChunkReport chunkReport) {
+            chunkReports.add(chunkReport);
+        }
+
+        public List<ChunkReport> getChunkReports() {
+            return chunkReports;
+        }
+
+        public int getNumberOfOperationsApplied() {
+            int number = 0;
+            for(ChunkReport chunkReport : chunkReports)
+                if(chunkReport.isSuccessful())
+                    number += chunkReport.numberOfOperations;
+            return number;
+        }
+
+        public int getNumberOfOperationsFailed() {
+            int number = 0;
+            for(ChunkReport chunkReport : chunkReports)
+                if(!chunkReport.isSuccessful())
+                    number += chunkReport.numberOfOperations;
+            return number;
+        }
+
+        public long getDurationMillis() {
+            long durationNanos = 0;
+            for(ChunkReport chunkReport : chunkReports)
+                durationNanos += chunkReport.durationNanos;
+            return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        }
+
+        public boolean isSuccessful() {
+            return getNumberOfOperationsFailed() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "chunks=" + chunkReports.size() +
+                    ", operationsApplied=" + getNumberOfOperationsApplied() +
+                    ", operationsFailed=" + getNumberOfOperationsFailed() +
+                    ", durationMillis=" + getDurationMillis() +
+                    '}';
+        }
+    }
+}
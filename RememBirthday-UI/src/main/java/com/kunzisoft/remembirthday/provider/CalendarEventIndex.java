@@ -0,0 +1,127 @@
+package com.kunzisoft.remembirthday.provider;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of the events of the birthday calendar, by contact lookup key and by year. <br />
+ * Built in one pass over the calendar for compute the difference with the contacts
+ * without querying the calendar for each contact.
+ */
+public class CalendarEventIndex {
+
+    // Lookup key -> Year -> Event
+    private Map<String, Map<Integer, CalendarEvent>> eventsByContact;
+    // Events not linked to a contact (created without lookup key)
+    private Set<CalendarEvent> unlinkedEvents;
+    // Events already indexed for the same contact and the same year
+    private List<CalendarEvent> duplicateEvents;
+    private int size;
+
+    public CalendarEventIndex() {
+        this.eventsByContact = new HashMap<>();
+        this.unlinkedEvents = new HashSet<>();
+        this.duplicateEvents = new ArrayList<>();
+        this.size = 0;
+    }
+
+    /**
+     * Add an event saved in calendar to the index
+     * @param lookupKey Lookup key of the contact linked to event or null if unknown
+     * @param event Event with id
+     */
+    public void put(String lookupKey, CalendarEvent event) {
+        size++;
+        if(lookupKey == null || lookupKey.isEmpty()) {
+            unlinkedEvents.add(event);
+            return;
+        }
+        Map<Integer, CalendarEvent> eventsByYear = eventsByContact.get(lookupKey);
+        if(eventsByYear == null) {
+            eventsByYear = new HashMap<>();
+            eventsByContact.put(lookupKey, eventsByYear);
+        }
+        int year = event.getYear();
+        if(eventsByYear.containsKey(year))
+            duplicateEvents.add(event);
+        else
+            eventsByYear.put(year, event);
+    }
+
+    /**
+     * Get the event saved for a contact in a specific year
+     * @param lookupKey Lookup key of the contact
+     * @param year Year of event
+     * @return Event saved or null if not found
+     */
+    public CalendarEvent get(String lookupKey, int year) {
+        Map<Integer, CalendarEvent> eventsByYear = eventsByContact.get(lookupKey);
+        if(eventsByYear == null)
+            return null;
+        return eventsByYear.get(year);
+    }
+
+    /**
+     * Get all events saved for a contact
+     * @param lookupKey Lookup key of the contact
+     * @return Events of contact, empty if not found
+     */
+    public Collection<CalendarEvent> getEventsOfContact(String lookupKey) {
+        Map<Integer, CalendarEvent> eventsByYear = eventsByContact.get(lookupKey);
+        if(eventsByYear == null)
+            return new ArrayList<>();
+        return eventsByYear.values();
+    }
+
+    /**
+     * Get ids of events saved for a contact
+     * @param lookupKey Lookup key of the contact
+     * @return Map of year and event id, empty if not found
+     */
+    public Map<Integer, Long> getEventIdsOfContact(String lookupKey) {
+        Map<Integer, Long> eventIds = new HashMap<>();
+        Map<Integer, CalendarEvent> eventsByYear = eventsByContact.get(lookupKey);
+        if(eventsByYear != null) {
+            for(Map.Entry<Integer, CalendarEvent> entry : eventsByYear.entrySet())
+                eventIds.put(entry.getKey(), entry.getValue().getId());
+        }
+        return eventIds;
+    }
+
+    /**
+     * Determines whether an identical event exists without link to a contact
+     * @param event Event to search
+     * @return true if an unlinked event is equal
+     */
+    public boolean containsUnlinked(CalendarEvent event) {
+        return unlinkedEvents.contains(event);
+    }
+
+    /**
+     * @return Lookup keys of each contact with at least one event
+     */
+    public Set<String> getLookupKeys() {
+        return eventsByContact.keySet();
+    }
+
+    /**
+     * @return Events saved twice or more for the same contact and the same year
+     */
+    public List<CalendarEvent> getDuplicateEvents() {
+        return duplicateEvents;
+    }
+
+    /**
+     * @return Number of events indexed
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -15,10 +15,9 @@ import android.util.Log;
 
 import com.kunzisoft.remembirthday.R;
 import com.kunzisoft.remembirthday.account.CalendarAccount;
+import com.kunzisoft.remembirthday.database.EventLinkDbHelper;
 import com.kunzisoft.remembirthday.preference.PreferencesManager;
 
-import java.util.ArrayList;
-
 /**
  * Created by joker on 27/07/17.
  */
@@ -90,8 +89,6 @@ public class CalendarLoader {
             if (cursor != null && cursor.moveToNext()) {
                 return cursor.getLong(0);
             } else {
-                ArrayList<ContentProviderOperation> operationList = new ArrayList<>();
-
                 ContentProviderOperation.Builder builder = ContentProviderOperation
                         .newInsert(calenderUri);
                 builder.withValue(CalendarContract.Calendars.ACCOUNT_NAME, CalendarAccount.getAccountName(context));
@@ -108,13 +105,17 @@ public class CalendarLoader {
                 builder.withValue(CalendarContract.Calendars.OWNER_ACCOUNT, CalendarAccount.getAccountName(context));
                 builder.withValue(CalendarContract.Calendars.SYNC_EVENTS, 1);
                 builder.withValue(CalendarContract.Calendars.VISIBLE, 1);
-                operationList.add(builder.build());
-                try {
-                    contentResolver.applyBatch(CalendarContract.AUTHORITY, operationList);
-                } catch (Exception e) {
-                    Log.e(TAG, "getCalendar() failed", e);
+                BatchExecutor batchExecutor = new BatchExecutor(contentResolver, CalendarContract.AUTHORITY);
+                batchExecutor.add(builder);
+                BatchExecutor.Report report = batchExecutor.execute();
+                if (!report.isSuccessful()) {
+                    Log.e(TAG, "getCalendar() failed " + report);
                     return -1;
                 }
+                // New calendar without events, the next synchronization must be complete
+                EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+                eventLinkDbHelper.setSyncToken(0);
+                eventLinkDbHelper.removeSyncCheckpoint();
                 return getCalendar(context);
             }
         } finally {
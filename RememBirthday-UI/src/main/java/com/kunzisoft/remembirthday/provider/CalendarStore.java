@@ -0,0 +1,75 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.support.annotation.Nullable;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.Reminder;
+
+import org.joda.time.LocalDate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Storage of the events and reminders of the birthday calendar. <br />
+ * The synchronization only uses this interface, so it can run with the calendar provider
+ * ({@link ContentResolverCalendarStore}) or in memory ({@link InMemoryCalendarStore}).
+ */
+public interface CalendarStore {
+
+    /**
+     * Get the id of the birthday calendar, the calendar is created if not exists
+     * @return Id of calendar or -1 if it can't be created
+     */
+    long getOrCreateCalendar();
+
+    /**
+     * Get all events of the calendar, indexed by contact and by year
+     * @param calendarId Id of calendar
+     * @return Index of events
+     */
+    CalendarEventIndex queryEvents(long calendarId);
+
+    /**
+     * Get the events of one contact
+     * @param calendarId Id of calendar
+     * @param contact Contact linked to events
+     * @return Index of events of contact
+     */
+    CalendarEventIndex queryEventsOfContact(long calendarId, Contact contact);
+
+    /**
+     * Get the lookup keys of contacts with an event between two days, to find the birthdays passed
+     * @param calendarId Id of calendar
+     * @param firstDay First day, included
+     * @param lastDay Last day, included
+     * @return Lookup keys of contacts linked to the events, empty if the events are not linked
+     */
+    Set<String> queryLookupKeysOfEventsBetween(long calendarId, LocalDate firstDay, LocalDate lastDay);
+
+    /**
+     * Get events by id, ids not found are ignored
+     * @param eventIds Ids of events
+     * @return Events found
+     */
+    List<CalendarEvent> queryEventsById(Collection<Long> eventIds);
+
+    /**
+     * Get the reminders of an event
+     * @param event Event with id
+     * @return Reminders with id
+     */
+    List<Reminder> queryReminders(CalendarEvent event);
+
+    /**
+     * Apply operations on events and their reminders,
+     * the result of each operation is assigned in the operation
+     * @param calendarId Id of calendar
+     * @param eventOperations Operations to apply
+     * @param syncStats Statistics who receive a {@link SyncStats.Phase#APPLY_BATCH} record for each batch, or null
+     * @return true if all operations are applied
+     */
+    boolean applyBatch(long calendarId, List<EventOperation> eventOperations, @Nullable SyncStats syncStats);
+}
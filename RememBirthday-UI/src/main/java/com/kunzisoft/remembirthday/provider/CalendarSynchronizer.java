@@ -0,0 +1,770 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.support.annotation.Nullable;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.EventWithoutYear;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Synchronize the events of the birthday calendar with the birthdays of contacts. <br />
+ * Sync flow:
+ * <ol>
+ *     <li>Get the events of calendar with one query, indexed by contact and year</li>
+ *     <li>Compute missing, stale, expired and orphaned events in one pass</li>
+ *     <li>Create, update and delete events and reminders by chunks of one batch of the provider</li>
+ * </ol>
+ * The cancellation is checked between contacts and between chunks. After each chunk applied,
+ * the checkpoint listener receives the links of the chunk and the last contact synchronized,
+ * so an interrupted synchronization can resume after it.
+ * With an {@link EventLock}, each chunk is applied with the contacts of the chunk locked,
+ * a contact modified by another thread since the start is read again and synchronized
+ * with its events of the calendar instead of the snapshot.
+ * Once all contacts are synchronized, {@link #synchronizeEventWindows(long, List, Map)}
+ * only moves the window of years of each contact, without reading the calendar.
+ * The synchronizer only depends on a {@link CalendarStore},
+ * the links between contacts and events are returned in the result. <br />
+ * Not thread-safe, use one synchronizer by synchronization.
+ */
+public class CalendarSynchronizer {
+
+    private static final Comparator<Contact> LOOKUP_KEY_COMPARATOR = new Comparator<Contact>() {
+        @Override
+        public int compare(Contact contact1, Contact contact2) {
+            String lookupKey1 = contact1.getLookUpKey();
+            String lookupKey2 = contact2.getLookUpKey();
+            if(lookupKey1 == null)
+                return lookupKey2 == null ? 0 : -1;
+            if(lookupKey2 == null)
+                return 1;
+            return lookupKey1.compareTo(lookupKey2);
+        }
+    };
+
+    private CalendarStore calendarStore;
+    private EventFactory eventFactory;
+    private int chunkSize;
+
+    private SyncStats syncStats;
+    private SyncCancellation cancellation;
+    private CheckpointListener checkpointListener;
+    private EventLock eventLock;
+    private ContactReader contactReader;
+    // Time spent in each phase by the current synchronization
+    private long diffNanos;
+    private long buildNanos;
+    private int numberOfEventsCompared;
+
+    public CalendarSynchronizer(CalendarStore calendarStore, EventFactory eventFactory) {
+        this.calendarStore = calendarStore;
+        this.eventFactory = eventFactory;
+        this.chunkSize = BatchExecutor.DEFAULT_CHUNK_SIZE;
+        this.syncStats = null;
+        this.cancellation = null;
+        this.checkpointListener = null;
+        this.eventLock = null;
+        this.contactReader = null;
+    }
+
+    /**
+     * @param chunkSize Maximum number of operations of the provider applied in one chunk,
+     *                  a contact is never split between two chunks
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Record the phases of next synchronizations
+     * @param syncStats Statistics to fill, or null to disable
+     */
+    public void setSyncStats(@Nullable SyncStats syncStats) {
+        this.syncStats = syncStats;
+    }
+
+    /**
+     * Stop the next synchronizations when the cancellation is requested
+     * @param cancellation Cancellation checked between contacts and chunks, or null
+     */
+    public void setCancellation(@Nullable SyncCancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @param checkpointListener Listener called after each chunk applied, or null
+     */
+    public void setCheckpointListener(@Nullable CheckpointListener checkpointListener) {
+        this.checkpointListener = checkpointListener;
+    }
+
+    /**
+     * Lock the contacts of each chunk during its operations and the call of the checkpoint listener,
+     * must be used with a full synchronization held by the current thread
+     * @param eventLock Lock of events, or null to disable
+     * @param contactReader Reader of the contacts modified during the synchronization
+     */
+    public void setEventLock(@Nullable EventLock eventLock, ContactReader contactReader) {
+        this.eventLock = eventLock;
+        this.contactReader = contactReader;
+    }
+
+    /**
+     * Compare events needed for a contact with events saved in the calendar
+     * @param calendarEventIndex Index of events saved
+     * @param contact Contact linked to events
+     * @param eventsNeeded Events who must be in the calendar
+     * @param eventsMissing Events to insert, filled by the method
+     * @param eventsStale Events to update (with id of saved event), filled by the method
+     */
+    static void diffEventsOfContact(CalendarEventIndex calendarEventIndex,
+                                    Contact contact,
+                                    List<CalendarEvent> eventsNeeded,
+                                    List<CalendarEvent> eventsMissing,
+                                    List<CalendarEvent> eventsStale) {
+        for (CalendarEvent eventNeeded : eventsNeeded) {
+            CalendarEvent eventSaved = null;
+            if(contact.getLookUpKey() != null)
+                eventSaved = calendarEventIndex.get(contact.getLookUpKey(), eventNeeded.getYear());
+            if(eventSaved == null) {
+                // Events created without link are retrieved by equality
+                if(!calendarEventIndex.containsUnlinked(eventNeeded))
+                    eventsMissing.add(eventNeeded);
+            } else if(!eventSaved.equals(eventNeeded)) {
+                eventNeeded.setId(eventSaved.getId());
+                eventsStale.add(eventNeeded);
+            }
+        }
+    }
+
+    /**
+     * Build the operations to create and update the events and default reminders of a contact,
+     * events of years out of the window are removed
+     */
+    private void addOperationsOfContact(CalendarEventIndex calendarEventIndex,
+                                        Contact contact,
+                                        List<EventOperation> eventOperations) {
+        long startTime = System.nanoTime();
+        CalendarEvent eventToAdd = eventFactory.buildDefaultEvent(contact);
+        EventWithoutYear eventWithoutYear = new EventWithoutYear(eventToAdd);
+
+        List<CalendarEvent> eventsNeeded = eventWithoutYear.getEventsAroundAndForThisYear();
+        List<CalendarEvent> eventsMissing = new ArrayList<>();
+        List<CalendarEvent> eventsStale = new ArrayList<>();
+        diffEventsOfContact(calendarEventIndex, contact, eventsNeeded, eventsMissing, eventsStale);
+        List<CalendarEvent> eventsExpired = new ArrayList<>();
+        if(contact.getLookUpKey() != null) {
+            List<Integer> yearsNeeded = eventWithoutYear.getListOfYearsForEachEvent();
+            for (CalendarEvent eventSaved : calendarEventIndex.getEventsOfContact(contact.getLookUpKey())) {
+                if(!yearsNeeded.contains(eventSaved.getYear()))
+                    eventsExpired.add(eventSaved);
+            }
+        }
+        long diffTime = System.nanoTime();
+        diffNanos += diffTime - startTime;
+        numberOfEventsCompared += eventsNeeded.size();
+
+        for (CalendarEvent event : eventsMissing) {
+            eventOperations.add(EventOperation.newInsert(event, contact.getLookUpKey()));
+        }
+        for (CalendarEvent event : eventsStale) {
+            eventOperations.add(EventOperation.newUpdate(event));
+        }
+        for (CalendarEvent event : eventsExpired) {
+            eventOperations.add(EventOperation.newDelete(event));
+        }
+        buildNanos += System.nanoTime() - diffTime;
+    }
+
+    /**
+     * Build the operations of a contact with the events of the contact only,
+     * events saved twice are removed, and all events if the contact has no birthday
+     */
+    private void addAllOperationsOfContact(CalendarEventIndex calendarEventIndex,
+                                           Contact contact,
+                                           List<EventOperation> eventOperations) {
+        List<CalendarEvent> eventsOrphaned = new ArrayList<>(calendarEventIndex.getDuplicateEvents());
+        if(contact.hasBirthday()) {
+            addOperationsOfContact(calendarEventIndex, contact, eventOperations);
+        } else if(contact.getLookUpKey() != null) {
+            eventsOrphaned.addAll(calendarEventIndex.getEventsOfContact(contact.getLookUpKey()));
+        }
+        for (CalendarEvent event : eventsOrphaned) {
+            eventOperations.add(EventOperation.newDelete(event));
+        }
+    }
+
+    /**
+     * Query the events with the store and record the time
+     */
+    private CalendarEventIndex queryEvents(long calendarId, @Nullable Contact contact) {
+        diffNanos = 0;
+        buildNanos = 0;
+        numberOfEventsCompared = 0;
+        long startTime = System.nanoTime();
+        CalendarEventIndex calendarEventIndex;
+        if(contact == null)
+            calendarEventIndex = calendarStore.queryEvents(calendarId);
+        else
+            calendarEventIndex = calendarStore.queryEventsOfContact(calendarId, contact);
+        if(syncStats != null)
+            syncStats.record(SyncStats.Phase.EVENT_QUERY, System.nanoTime() - startTime,
+                    calendarEventIndex.size(), SyncStats.UNKNOWN);
+        return calendarEventIndex;
+    }
+
+    /**
+     * Record the diff and the operations built by the current synchronization
+     */
+    private void recordOperations(Result result) {
+        if(syncStats == null)
+            return;
+        syncStats.record(SyncStats.Phase.EVENT_DIFF, diffNanos, numberOfEventsCompared, SyncStats.UNKNOWN);
+        syncStats.record(SyncStats.Phase.OPERATION_BUILD, buildNanos, result.numberOfOperations, SyncStats.UNKNOWN);
+    }
+
+    private boolean isCanceled() {
+        return cancellation != null && cancellation.isCanceled();
+    }
+
+    /**
+     * Determines whether a contact was already synchronized by an interrupted synchronization,
+     * contacts without lookup key are synchronized first
+     */
+    private static boolean isBeforeCheckpoint(@Nullable String lookupKey, @Nullable String lookupKeyOfCheckpoint) {
+        return lookupKeyOfCheckpoint != null
+                && (lookupKey == null || lookupKey.compareTo(lookupKeyOfCheckpoint) <= 0);
+    }
+
+    /**
+     * Synchronize all contacts, events of contacts without birthday and events saved twice are removed
+     * @param calendarId Id of the birthday calendar
+     * @param contacts All contacts with birthday
+     * @return Result of synchronization
+     */
+    public Result synchronizeAllContacts(long calendarId, List<Contact> contacts) {
+        return synchronizeAllContacts(calendarId, contacts, null);
+    }
+
+    /**
+     * Synchronize all contacts in the order of lookup keys, then remove the events of contacts without birthday
+     * and events saved twice. Operations are applied by chunks, the checkpoint listener is called after each one.
+     * With an empty list of contacts, the events linked to contacts are kept.
+     * @param calendarId Id of the birthday calendar
+     * @param contacts All contacts with birthday
+     * @param lookupKeyOfCheckpoint Checkpoint of an interrupted synchronization,
+     *                              contacts up to this lookup key are skipped, or null to synchronize all contacts
+     * @return Result of synchronization
+     */
+    public Result synchronizeAllContacts(long calendarId, List<Contact> contacts,
+                                         @Nullable String lookupKeyOfCheckpoint) {
+        CalendarEventIndex calendarEventIndex = queryEvents(calendarId, null);
+        // Same order for each synchronization, so a checkpoint is a lookup key
+        List<Contact> contactsSorted = new ArrayList<>(contacts);
+        Collections.sort(contactsSorted, LOOKUP_KEY_COMPARATOR);
+
+        Result result = new Result(calendarEventIndex.size());
+        ChunkWriter chunkWriter = new ChunkWriter(calendarId, result, lookupKeyOfCheckpoint);
+        for (Contact contact : contactsSorted) {
+            if(!contact.hasBirthday())
+                continue;
+            String lookupKey = contact.getLookUpKey();
+            // Only the first birthday of each contact is managed
+            if(lookupKey != null && !result.lookupKeysWithBirthday.add(lookupKey))
+                continue;
+            if(isBeforeCheckpoint(lookupKey, lookupKeyOfCheckpoint)) {
+                result.numberOfContactsSkipped++;
+                continue;
+            }
+            if(isCanceled())
+                break;
+            List<EventOperation> eventOperations = new ArrayList<>();
+            addOperationsOfContact(calendarEventIndex, contact, eventOperations);
+            // Links of events kept
+            chunkWriter.add(contact, lookupKey,
+                    lookupKey == null ? null : calendarEventIndex.getEventIdsOfContact(lookupKey),
+                    eventOperations);
+        }
+
+        // Events of contacts without birthday and events saved twice
+        if(!isCanceled()) {
+            for (CalendarEvent event : calendarEventIndex.getDuplicateEvents()) {
+                chunkWriter.add(null, null, null, Collections.singletonList(EventOperation.newDelete(event)));
+            }
+            // No contact with events linked is more likely a contacts provider unavailable,
+            // the events are kept instead of emptying the calendar
+            Set<String> lookupKeysLinked = contacts.isEmpty() ?
+                    Collections.<String>emptySet() : calendarEventIndex.getLookupKeys();
+            for (String lookupKey : lookupKeysLinked) {
+                if(result.lookupKeysWithBirthday.contains(lookupKey))
+                    continue;
+                List<EventOperation> eventOperations = new ArrayList<>();
+                for (CalendarEvent event : calendarEventIndex.getEventsOfContact(lookupKey)) {
+                    eventOperations.add(EventOperation.newDelete(event));
+                }
+                // Contact locked with its events, in case it gets a birthday during the synchronization
+                chunkWriter.add(null, lookupKey, null, eventOperations);
+            }
+        }
+        chunkWriter.flush();
+        recordOperations(result);
+        return result;
+    }
+
+    /**
+     * Synchronize one contact, events missing are created, events modified are repaired,
+     * events saved twice are removed. If the contact has no birthday, all its events are removed.
+     * @param calendarId Id of the birthday calendar
+     * @param contact Contact to synchronize
+     * @return Result of synchronization
+     */
+    public Result synchronizeContact(long calendarId, Contact contact) {
+        CalendarEventIndex calendarEventIndex = queryEvents(calendarId, contact);
+
+        Result result = new Result(calendarEventIndex.size());
+        ChunkWriter chunkWriter = new ChunkWriter(calendarId, result, null);
+        List<EventOperation> eventOperations = new ArrayList<>();
+        addAllOperationsOfContact(calendarEventIndex, contact, eventOperations);
+
+        Map<Integer, Long> eventIdsByYear = null;
+        if(contact.hasBirthday() && contact.getLookUpKey() != null)
+            eventIdsByYear = calendarEventIndex.getEventIdsOfContact(contact.getLookUpKey());
+        chunkWriter.add(contact, contact.getLookUpKey(), eventIdsByYear, eventOperations);
+        chunkWriter.flush();
+        recordOperations(result);
+        return result;
+    }
+
+    /**
+     * Move the window of years of contacts already synchronized, with the links of events saved
+     * and without reading the calendar. <br />
+     * For each contact whose next birthday has passed, the new year is added and the expired year is removed,
+     * the title of other years is updated if it contains the age. Contacts whose window is up to date
+     * cost no operation. Contacts without link, without birthday or deleted are not managed,
+     * they must be synchronized with {@link #synchronizeContact(long, Contact)}.
+     * @param calendarId Id of the birthday calendar
+     * @param contacts Contacts with birthday whose window may move, ex: birthday passed since the last move
+     * @param eventIdsByContact Links of events saved, by lookup key and year
+     * @return Result of synchronization, the links are only given for the contacts modified
+     */
+    public Result synchronizeEventWindows(long calendarId, List<Contact> contacts,
+                                          Map<String, Map<Integer, Long>> eventIdsByContact) {
+        diffNanos = 0;
+        buildNanos = 0;
+        numberOfEventsCompared = 0;
+        Result result = new Result(0);
+        ChunkWriter chunkWriter = new ChunkWriter(calendarId, result, null);
+        Set<String> lookupKeysWithBirthday = new HashSet<>();
+        for (Contact contact : contacts) {
+            if(!contact.hasBirthday() || contact.getLookUpKey() == null)
+                continue;
+            // Only the first birthday of each contact is managed
+            if(!lookupKeysWithBirthday.add(contact.getLookUpKey()))
+                continue;
+            Map<Integer, Long> eventIdsByYear = eventIdsByContact.get(contact.getLookUpKey());
+            if(eventIdsByYear == null || eventIdsByYear.isEmpty())
+                continue;
+            if(isCanceled())
+                break;
+
+            long startTime = System.nanoTime();
+            EventWithoutYear eventWithoutYear = new EventWithoutYear(eventFactory.buildDefaultEvent(contact));
+            List<Integer> yearsNeeded = eventWithoutYear.getListOfYearsForEachEvent();
+            numberOfEventsCompared += yearsNeeded.size();
+            if(eventIdsByYear.keySet().equals(new HashSet<>(yearsNeeded))) {
+                diffNanos += System.nanoTime() - startTime;
+                continue;
+            }
+            long diffTime = System.nanoTime();
+            diffNanos += diffTime - startTime;
+
+            List<EventOperation> eventOperations = new ArrayList<>();
+            for (int year : yearsNeeded) {
+                Long eventId = eventIdsByYear.get(year);
+                if(eventId == null) {
+                    eventOperations.add(EventOperation.newInsert(
+                            eventWithoutYear.getEventForYear(year), contact.getLookUpKey()));
+                } else if(contact.getBirthday().containsYear()) {
+                    // Age in title
+                    CalendarEvent eventToUpdate = eventWithoutYear.getEventForYear(year);
+                    eventToUpdate.setId(eventId);
+                    eventOperations.add(EventOperation.newUpdate(eventToUpdate));
+                }
+            }
+            for (Map.Entry<Integer, Long> yearEntry : eventIdsByYear.entrySet()) {
+                if(!yearsNeeded.contains(yearEntry.getKey())) {
+                    CalendarEvent eventExpired = eventWithoutYear.getEventForYear(yearEntry.getKey());
+                    eventExpired.setId(yearEntry.getValue());
+                    eventOperations.add(EventOperation.newDelete(eventExpired));
+                }
+            }
+            buildNanos += System.nanoTime() - diffTime;
+            chunkWriter.add(contact, contact.getLookUpKey(), eventIdsByYear, eventOperations);
+        }
+        chunkWriter.flush();
+        recordOperations(result);
+        return result;
+    }
+
+    /**
+     * Build the default event of a contact, with its reminders
+     */
+    public interface EventFactory {
+        CalendarEvent buildDefaultEvent(Contact contact);
+    }
+
+    /**
+     * Read a contact again during a synchronization
+     */
+    public interface ContactReader {
+        /**
+         * @param lookupKey Lookup key of contact
+         * @return Contact with its first birthday, or null if the contact is deleted or has no birthday
+         */
+        @Nullable
+        Contact readContact(String lookupKey);
+    }
+
+    /**
+     * Listener called in the thread of synchronization after each chunk applied,
+     * with the contacts of the chunk locked if the synchronizer has an {@link EventLock}
+     */
+    public interface CheckpointListener {
+        /**
+         * @param chunkResult Result of the chunk, with the links of the contacts of the chunk
+         * @param lookupKeyOfCheckpoint Lookup key of the last contact whose operations are all applied,
+         *                              contacts being synchronized in the order of lookup keys.
+         *                              null if no contact is applied or if a previous chunk failed
+         */
+        void onChunkApplied(Result chunkResult, @Nullable String lookupKeyOfCheckpoint);
+    }
+
+    /**
+     * Operations of a contact waiting in a chunk
+     */
+    private static class ContactOperations {
+
+        // Contact of the snapshot, or null for events of a contact without birthday
+        private Contact contact;
+        private String lookupKey;
+        private Map<Integer, Long> eventIdsByYear;
+        private List<EventOperation> eventOperations;
+
+        private ContactOperations(@Nullable Contact contact, @Nullable String lookupKey,
+                                  @Nullable Map<Integer, Long> eventIdsByYear,
+                                  List<EventOperation> eventOperations) {
+            this.contact = contact;
+            this.lookupKey = lookupKey;
+            this.eventIdsByYear = eventIdsByYear;
+            this.eventOperations = eventOperations;
+        }
+    }
+
+    /**
+     * Apply the operations of contacts by chunks of {@link #chunkSize} operations of the provider,
+     * and add the result of each chunk to the result of synchronization
+     */
+    private class ChunkWriter {
+
+        private long calendarId;
+        private Result result;
+        private Result chunkResult;
+        private List<ContactOperations> contactsOfChunk;
+        private int numberOfProviderOperations;
+        private String lookupKeyOfChunk;
+        private String lookupKeyOfCheckpoint;
+        private boolean checkpointValid;
+
+        private ChunkWriter(long calendarId, Result result, @Nullable String lookupKeyOfCheckpoint) {
+            this.calendarId = calendarId;
+            this.result = result;
+            this.lookupKeyOfCheckpoint = lookupKeyOfCheckpoint;
+            this.checkpointValid = true;
+            clear();
+        }
+
+        private void clear() {
+            this.chunkResult = new Result(0);
+            this.contactsOfChunk = new ArrayList<>();
+            this.numberOfProviderOperations = 0;
+            this.lookupKeyOfChunk = null;
+        }
+
+        /**
+         * Add the operations of a contact, the chunk pending is applied before if they don't fit in
+         * @param contact Contact synchronized, or null for events to remove only
+         * @param lookupKey Lookup key of contact, or null
+         * @param eventIdsByYear Links of the contact before the operations, or null to not return them
+         * @param operationsOfContact Operations of the contact
+         */
+        private void add(@Nullable Contact contact, @Nullable String lookupKey,
+                         @Nullable Map<Integer, Long> eventIdsByYear,
+                         List<EventOperation> operationsOfContact) {
+            int size = 0;
+            for (EventOperation eventOperation : operationsOfContact) {
+                size += eventOperation.getNumberOfProviderOperations();
+            }
+            if(!contactsOfChunk.isEmpty() && numberOfProviderOperations + size > chunkSize)
+                flush();
+            contactsOfChunk.add(new ContactOperations(contact, lookupKey, eventIdsByYear, operationsOfContact));
+            numberOfProviderOperations += size;
+            if(contact != null && lookupKey != null)
+                lookupKeyOfChunk = lookupKey;
+        }
+
+        /**
+         * Build again the operations of contacts modified by another thread since the start,
+         * with the contact read again and its events of the calendar. The contacts must be locked
+         */
+        private void readChangedContacts() {
+            for (ContactOperations contactOperations : contactsOfChunk) {
+                String lookupKey = contactOperations.lookupKey;
+                if(!eventLock.isContactChangedDuringFullSync(lookupKey))
+                    continue;
+                Contact contact = contactReader.readContact(lookupKey);
+                if(contact == null)
+                    contact = new Contact(Contact.ID_UNDEFINED, lookupKey, "");
+                CalendarEventIndex calendarEventIndex = calendarStore.queryEventsOfContact(calendarId, contact);
+                contactOperations.eventOperations = new ArrayList<>();
+                addAllOperationsOfContact(calendarEventIndex, contact, contactOperations.eventOperations);
+                if(contact.hasBirthday()) {
+                    contactOperations.eventIdsByYear = calendarEventIndex.getEventIdsOfContact(lookupKey);
+                    result.lookupKeysWithBirthday.add(lookupKey);
+                } else {
+                    // Links removed
+                    contactOperations.eventIdsByYear = new HashMap<>();
+                    result.lookupKeysWithBirthday.remove(lookupKey);
+                }
+            }
+        }
+
+        /**
+         * Apply the chunk pending, once the synchronization is canceled the operations are skipped
+         */
+        private void flush() {
+            if(contactsOfChunk.isEmpty())
+                return;
+            if(isCanceled()) {
+                int numberOfOperationsSkipped = 0;
+                for (ContactOperations contactOperations : contactsOfChunk) {
+                    numberOfOperationsSkipped += contactOperations.eventOperations.size();
+                }
+                result.canceled = true;
+                result.successful = false;
+                result.numberOfOperations += numberOfOperationsSkipped;
+                if(syncStats != null)
+                    syncStats.addOperations(0, 0, 0, numberOfOperationsSkipped);
+                clear();
+                return;
+            }
+            List<String> lookupKeys = new ArrayList<>();
+            for (ContactOperations contactOperations : contactsOfChunk) {
+                if(contactOperations.lookupKey != null)
+                    lookupKeys.add(contactOperations.lookupKey);
+            }
+            if(eventLock != null)
+                eventLock.lockContacts(lookupKeys);
+            try {
+                if(eventLock != null)
+                    readChangedContacts();
+                applyChunk();
+            } finally {
+                if(eventLock != null)
+                    eventLock.unlockContacts(lookupKeys);
+            }
+            clear();
+        }
+
+        private void applyChunk() {
+            List<EventOperation> eventOperations = new ArrayList<>();
+            for (ContactOperations contactOperations : contactsOfChunk) {
+                eventOperations.addAll(contactOperations.eventOperations);
+                if(contactOperations.lookupKey != null && contactOperations.eventIdsByYear != null)
+                    chunkResult.eventIdsByContact.put(contactOperations.lookupKey,
+                            new HashMap<>(contactOperations.eventIdsByYear));
+            }
+            if(eventOperations.isEmpty() && chunkResult.eventIdsByContact.isEmpty())
+                return;
+            chunkResult.apply(calendarStore, calendarId, eventOperations, syncStats);
+            result.add(chunkResult);
+            if(!chunkResult.successful)
+                checkpointValid = false;
+            else if(checkpointValid && lookupKeyOfChunk != null)
+                lookupKeyOfCheckpoint = lookupKeyOfChunk;
+            if(checkpointListener != null)
+                checkpointListener.onChunkApplied(chunkResult, checkpointValid ? lookupKeyOfCheckpoint : null);
+        }
+    }
+
+    /**
+     * Result of a synchronization or of a chunk
+     */
+    public static class Result {
+
+        private int numberOfEventsRead;
+        private int numberOfOperations;
+        // Number of operations applied by type
+        private int[] numberOfOperationsApplied;
+        private int numberOfContactsSkipped;
+        private boolean successful;
+        private boolean canceled;
+        private Set<String> lookupKeysWithBirthday;
+        // Lookup key -> Year -> Id of event, after the synchronization
+        private Map<String, Map<Integer, Long>> eventIdsByContact;
+
+        private Result(int numberOfEventsRead) {
+            this.numberOfEventsRead = numberOfEventsRead;
+            this.numberOfOperations = 0;
+            this.numberOfOperationsApplied = new int[EventOperation.Type.values().length];
+            this.numberOfContactsSkipped = 0;
+            this.successful = true;
+            this.canceled = false;
+            this.lookupKeysWithBirthday = new HashSet<>();
+            this.eventIdsByContact = new HashMap<>();
+        }
+
+        /**
+         * Apply the operations and update the links with their results
+         */
+        private void apply(CalendarStore calendarStore, long calendarId, List<EventOperation> eventOperations,
+                           @Nullable SyncStats syncStats) {
+            this.numberOfOperations = eventOperations.size();
+            this.successful = eventOperations.isEmpty()
+                    || calendarStore.applyBatch(calendarId, eventOperations, syncStats);
+            Set<Long> eventIdsDeleted = new HashSet<>();
+            int numberOfOperationsNotApplied = 0;
+            for (EventOperation eventOperation : eventOperations) {
+                if(!eventOperation.isApplied()) {
+                    numberOfOperationsNotApplied++;
+                    continue;
+                }
+                numberOfOperationsApplied[eventOperation.getType().ordinal()]++;
+                if(eventOperation.getType() == EventOperation.Type.DELETE) {
+                    eventIdsDeleted.add(eventOperation.getEventId());
+                } else if(eventOperation.getType() == EventOperation.Type.INSERT
+                        && eventOperation.getLookupKey() != null) {
+                    Map<Integer, Long> eventIdsByYear = eventIdsByContact.get(eventOperation.getLookupKey());
+                    if(eventIdsByYear == null) {
+                        eventIdsByYear = new HashMap<>();
+                        eventIdsByContact.put(eventOperation.getLookupKey(), eventIdsByYear);
+                    }
+                    eventIdsByYear.put(eventOperation.getEvent().getYear(), eventOperation.getEventId());
+                }
+            }
+            // Links of events deleted
+            if(!eventIdsDeleted.isEmpty()) {
+                for (Map<Integer, Long> eventIdsByYear : eventIdsByContact.values()) {
+                    eventIdsByYear.values().removeAll(eventIdsDeleted);
+                }
+            }
+            if(syncStats != null)
+                syncStats.addOperations(
+                        getNumberOfOperationsApplied(EventOperation.Type.INSERT),
+                        getNumberOfOperationsApplied(EventOperation.Type.UPDATE),
+                        getNumberOfOperationsApplied(EventOperation.Type.DELETE),
+                        numberOfOperationsNotApplied);
+        }
+
+        /**
+         * Add the result of a chunk, links of contacts without event are not kept
+         */
+        private void add(Result chunkResult) {
+            numberOfOperations += chunkResult.numberOfOperations;
+            for (int i = 0; i < numberOfOperationsApplied.length; i++) {
+                numberOfOperationsApplied[i] += chunkResult.numberOfOperationsApplied[i];
+            }
+            successful &= chunkResult.successful;
+            for (Map.Entry<String, Map<Integer, Long>> contactEntry : chunkResult.eventIdsByContact.entrySet()) {
+                if(!contactEntry.getValue().isEmpty())
+                    eventIdsByContact.put(contactEntry.getKey(), contactEntry.getValue());
+            }
+        }
+
+        /**
+         * @return true if all operations are applied
+         */
+        public boolean isSuccessful() {
+            return successful;
+        }
+
+        /**
+         * @return true if the synchronization was stopped before the end
+         */
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        public int getNumberOfEventsRead() {
+            return numberOfEventsRead;
+        }
+
+        /**
+         * @return Number of operations built, applied or not
+         */
+        public int getNumberOfOperations() {
+            return numberOfOperations;
+        }
+
+        /**
+         * @param type Type of operation
+         * @return Number of operations of this type applied
+         */
+        public int getNumberOfOperationsApplied(EventOperation.Type type) {
+            return numberOfOperationsApplied[type.ordinal()];
+        }
+
+        /**
+         * @return Number of contacts already synchronized by an interrupted synchronization
+         */
+        public int getNumberOfContactsSkipped() {
+            return numberOfContactsSkipped;
+        }
+
+        /**
+         * @return Lookup keys of all contacts with birthday, only given by a synchronization of all contacts
+         */
+        public Set<String> getLookupKeysWithBirthday() {
+            return lookupKeysWithBirthday;
+        }
+
+        /**
+         * @return Links between contacts and events after the synchronization, by lookup key and year.
+         * For a chunk, contacts without event are given with an empty map
+         */
+        public Map<String, Map<Integer, Long>> getEventIdsByContact() {
+            return eventIdsByContact;
+        }
+
+        /**
+         * @param lookupKey Lookup key of contact
+         * @return Links of the contact after the synchronization, empty if no event
+         */
+        public Map<Integer, Long> getEventIdsOfContact(String lookupKey) {
+            Map<Integer, Long> eventIdsByYear = eventIdsByContact.get(lookupKey);
+            if(eventIdsByYear == null)
+                return new HashMap<>();
+            return eventIdsByYear;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "eventsRead=" + numberOfEventsRead +
+                    ", inserted=" + getNumberOfOperationsApplied(EventOperation.Type.INSERT) +
+                    ", updated=" + getNumberOfOperationsApplied(EventOperation.Type.UPDATE) +
+                    ", deleted=" + getNumberOfOperationsApplied(EventOperation.Type.DELETE) +
+                    ", contactsSkipped=" + numberOfContactsSkipped +
+                    ", successful=" + successful +
+                    ", canceled=" + canceled +
+                    '}';
+        }
+    }
+}
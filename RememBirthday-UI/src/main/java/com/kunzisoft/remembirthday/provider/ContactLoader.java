@@ -1,21 +1,31 @@
 package com.kunzisoft.remembirthday.provider;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.provider.BaseColumns;
 import android.provider.ContactsContract;
+import android.support.annotation.Nullable;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
+import android.util.Log;
 
+import com.kunzisoft.remembirthday.element.BirthdayIndex;
 import com.kunzisoft.remembirthday.element.Contact;
 import com.kunzisoft.remembirthday.element.DateUnknownYear;
 import com.kunzisoft.remembirthday.factory.ContactSort;
 import com.kunzisoft.remembirthday.preference.PreferencesManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by joker on 05/08/17.
@@ -24,10 +34,16 @@ import java.util.List;
 public abstract class ContactLoader extends AbstractLoader {
 
     private static final String TAG = "ContactLoader";
+    // Below the limit of arguments of SQLite
+    private static final int MAX_SELECTION_ARGS = 500;
 
     protected ContactSort contactSort;
     private LoaderContactCallbacks loaderContactCallback;
 
+    // Columns of the rows needed to order and compare them, loaded for all rows in paged loading
+    protected String[] keyProjection;
+    private boolean pagedLoading = false;
+
     public ContactLoader(Context context) {
         super(context);
     }
@@ -112,7 +128,27 @@ public abstract class ContactLoader extends AbstractLoader {
         loaderManager.initLoader(0, null, contactBirthdayLoader);
     }
 
+    /**
+     * Get all contacts with birthday
+     * @param context Context to call
+     * @return Contacts with birthday, empty if the contacts can't be read
+     */
     public static List<Contact> getAllContacts(Context context) {
+        List<Contact> contacts = getAllContacts(context, null);
+        if(contacts == null)
+            return new ArrayList<>();
+        return contacts;
+    }
+
+    /**
+     * Get all contacts with birthday and record the time of query and date parsing
+     * @param context Context to call
+     * @param syncStats Statistics to fill, or null
+     * @return Contacts with birthday, or null if the contacts provider is unavailable
+     */
+    @Nullable
+    public static List<Contact> getAllContacts(Context context, @Nullable SyncStats syncStats) {
+        long startTime = System.nanoTime();
         ContactBirthdayLoader contactBirthdayLoader = new ContactBirthdayLoader(context);
         Cursor cursor = context.getContentResolver().query(
                 contactBirthdayLoader.uri,
@@ -120,25 +156,231 @@ public abstract class ContactLoader extends AbstractLoader {
                 contactBirthdayLoader.selection,
                 contactBirthdayLoader.selectionArgs,
                 contactBirthdayLoader.sortOrder);
-        return getContactsFromCursor(cursor);
+        // Not the same as no contact, the events of contacts would be removed
+        if(cursor == null) {
+            Log.e(TAG, "Unable to query the contacts with birthday");
+            return null;
+        }
+        return getContactsFromCursor(cursor, syncStats, startTime);
+    }
+
+    /**
+     * Get one contact with its first birthday
+     * @param context Context to call
+     * @param lookupKey Lookup key of contact
+     * @return Contact or null if the contact is deleted or has no birthday
+     */
+    @Nullable
+    public static Contact getContactWithBirthday(Context context, String lookupKey) {
+        ContactBirthdayLoader contactBirthdayLoader = new ContactBirthdayLoader(context);
+        String[] selectionArgs = Arrays.copyOf(contactBirthdayLoader.selectionArgs,
+                contactBirthdayLoader.selectionArgs.length + 1);
+        selectionArgs[selectionArgs.length - 1] = lookupKey;
+        List<Contact> contacts = getContactsFromCursor(context.getContentResolver().query(
+                contactBirthdayLoader.uri,
+                contactBirthdayLoader.projection,
+                contactBirthdayLoader.selection + " AND " + ContactsContract.Data.LOOKUP_KEY + " = ?",
+                selectionArgs,
+                null));
+        return contacts.isEmpty() ? null : contacts.get(0);
+    }
+
+    /**
+     * Get the contacts with birthday of a list of lookup keys and record the time of query and date parsing
+     * @param context Context to call
+     * @param lookupKeys Lookup keys of contacts
+     * @param syncStats Statistics to fill, or null
+     * @return Contacts with birthday, contacts deleted or without birthday are not returned
+     */
+    public static List<Contact> getContactsWithBirthday(Context context, Collection<String> lookupKeys,
+                                                        @Nullable SyncStats syncStats) {
+        List<Contact> contacts = new ArrayList<>();
+        List<String> lookupKeyList = new ArrayList<>(lookupKeys);
+        ContactBirthdayLoader contactBirthdayLoader = new ContactBirthdayLoader(context);
+        for (int start = 0; start < lookupKeyList.size(); start += MAX_SELECTION_ARGS) {
+            long startTime = System.nanoTime();
+            List<String> lookupKeysOfQuery = lookupKeyList.subList(start,
+                    Math.min(start + MAX_SELECTION_ARGS, lookupKeyList.size()));
+            List<String> selectionArgs = new ArrayList<>(Arrays.asList(contactBirthdayLoader.selectionArgs));
+            selectionArgs.addAll(lookupKeysOfQuery);
+            StringBuilder selection = new StringBuilder(contactBirthdayLoader.selection)
+                    .append(" AND ").append(ContactsContract.Data.LOOKUP_KEY).append(" IN (");
+            for (int i = 0; i < lookupKeysOfQuery.size(); i++) {
+                selection.append(i == 0 ? "?" : ",?");
+            }
+            selection.append(")");
+            contacts.addAll(getContactsFromCursor(context.getContentResolver().query(
+                    contactBirthdayLoader.uri,
+                    contactBirthdayLoader.projection,
+                    selection.toString(),
+                    selectionArgs.toArray(new String[selectionArgs.size()]),
+                    null), syncStats, startTime));
+        }
+        return contacts;
+    }
+
+    /**
+     * Get an index of all contacts by day of birthday, to find the next birthdays,
+     * the contacts are indexed by their {@link ContactsContract.Data#CONTACT_ID}
+     * @param context Context to call
+     * @return Index of contacts with birthday
+     */
+    public static BirthdayIndex getBirthdayIndex(Context context) {
+        return new BirthdayIndex(getAllContacts(context));
+    }
+
+    /**
+     * Get contacts with birthday modified after a time
+     * @param context Context to call
+     * @param timestamp Time in milliseconds
+     * @return Contacts modified
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static List<Contact> getContactsWithBirthdayChangedSince(Context context, long timestamp) {
+        return getContactsWithBirthdayChangedSince(context, timestamp, null);
+    }
+
+    /**
+     * Get contacts with birthday modified after a time and record the time of query and date parsing
+     * @param context Context to call
+     * @param timestamp Time in milliseconds
+     * @param syncStats Statistics to fill, or null
+     * @return Contacts modified
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static List<Contact> getContactsWithBirthdayChangedSince(Context context, long timestamp,
+                                                                   @Nullable SyncStats syncStats) {
+        long startTime = System.nanoTime();
+        ContactBirthdayLoader contactBirthdayLoader = new ContactBirthdayLoader(context);
+        String[] selectionArgs = Arrays.copyOf(contactBirthdayLoader.selectionArgs,
+                contactBirthdayLoader.selectionArgs.length + 1);
+        selectionArgs[selectionArgs.length - 1] = String.valueOf(timestamp);
+        Cursor cursor = context.getContentResolver().query(
+                contactBirthdayLoader.uri,
+                contactBirthdayLoader.projection,
+                contactBirthdayLoader.selection
+                        + " AND " + ContactsContract.Data.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?",
+                selectionArgs,
+                null);
+        return getContactsFromCursor(cursor, syncStats, startTime);
+    }
+
+    /**
+     * Get lookup keys of all contacts modified after a time, with or without birthday
+     * @param context Context to call
+     * @param timestamp Time in milliseconds
+     * @return Lookup keys of contacts modified
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static Set<String> getLookupKeysChangedSince(Context context, long timestamp) {
+        return getLookupKeys(context.getContentResolver().query(
+                ContactsContract.Contacts.CONTENT_URI,
+                new String[]{ContactsContract.Contacts.LOOKUP_KEY},
+                ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?",
+                new String[]{String.valueOf(timestamp)},
+                null));
+    }
+
+    /**
+     * Get lookup keys of all contacts with birthday
+     * @param context Context to call
+     * @return Lookup keys, or null if the contacts provider is unavailable
+     */
+    @Nullable
+    public static Set<String> getLookupKeysWithBirthday(Context context) {
+        ContactBirthdayLoader contactBirthdayLoader = new ContactBirthdayLoader(context);
+        Cursor cursor = context.getContentResolver().query(
+                contactBirthdayLoader.uri,
+                new String[]{ContactsContract.Data.LOOKUP_KEY},
+                contactBirthdayLoader.selection,
+                contactBirthdayLoader.selectionArgs,
+                null);
+        if(cursor == null) {
+            Log.e(TAG, "Unable to query the lookup keys of contacts with birthday");
+            return null;
+        }
+        return getLookupKeys(cursor);
+    }
+
+    private static Set<String> getLookupKeys(Cursor cursor) {
+        Set<String> lookupKeys = new HashSet<>();
+        if(cursor != null) {
+            while (cursor.moveToNext()) {
+                String lookupKey = cursor.getString(0);
+                if(lookupKey != null)
+                    lookupKeys.add(lookupKey);
+            }
+            cursor.close();
+        }
+        return lookupKeys;
+    }
+
+    /**
+     * Determines whether contacts have been deleted after a time
+     * @param context Context to call
+     * @param timestamp Time in milliseconds
+     * @return true if at least one contact is deleted
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static boolean hasContactsDeletedSince(Context context, long timestamp) {
+        boolean deleted = false;
+        Cursor cursor = context.getContentResolver().query(
+                ContactsContract.DeletedContacts.CONTENT_URI,
+                new String[]{ContactsContract.DeletedContacts.CONTACT_ID},
+                ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + " > ?",
+                new String[]{String.valueOf(timestamp)},
+                null);
+        if(cursor != null) {
+            deleted = cursor.moveToFirst();
+            cursor.close();
+        }
+        return deleted;
     }
 
     public static List<Contact> getContactsFromCursor(Cursor cursor) {
+        return getContactsFromCursor(cursor, null, System.nanoTime());
+    }
+
+    /**
+     * Build contacts from the cursor, the time of date parsing is recorded apart from the query
+     * @param cursor Cursor of contacts with birthday
+     * @param syncStats Statistics to fill, or null
+     * @param startTime Time of the query, from {@link System#nanoTime()}
+     * @return Contacts
+     */
+    private static List<Contact> getContactsFromCursor(Cursor cursor, @Nullable SyncStats syncStats, long startTime) {
         List<Contact> contactList = new ArrayList<>();
+        long parsingNanos = 0;
+        long numberOfChars = 0;
         if(cursor != null) {
             // TODO getAutoSmsById only first for each contact
             while (cursor.moveToNext()) {
+                int contactIdColumn = cursor.getColumnIndex(ContactsContract.Data.CONTACT_ID);
                 int eventLookupKeyColumn = cursor.getColumnIndex(ContactsContract.CommonDataKinds.Event.LOOKUP_KEY);
                 int displayNameColumn = cursor.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME);
                 int eventDateColumn = cursor.getColumnIndex(ContactsContract.CommonDataKinds.Event.START_DATE);
 
                 Contact contact = new Contact(cursor.getString(displayNameColumn));
-                contact.setBirthday(DateUnknownYear.stringToDate(cursor.getString(eventDateColumn)));
+                // Id of the contact, the column _ID of the data uri is the id of the row of the birthday
+                if(contactIdColumn != -1)
+                    contact.setId(cursor.getLong(contactIdColumn));
+                String eventDate = cursor.getString(eventDateColumn);
+                long parsingStartTime = System.nanoTime();
+                contact.setBirthday(DateUnknownYear.stringToDate(eventDate));
+                parsingNanos += System.nanoTime() - parsingStartTime;
+                if(eventDate != null)
+                    numberOfChars += eventDate.length();
                 contact.setLookUpKey(cursor.getString(eventLookupKeyColumn));
                 contactList.add(contact);
             }
             cursor.close();
         }
+        if(syncStats != null) {
+            syncStats.record(SyncStats.Phase.CONTACT_QUERY, System.nanoTime() - startTime - parsingNanos,
+                    contactList.size(), SyncStats.UNKNOWN);
+            // Dates are ASCII, one byte by char
+            syncStats.record(SyncStats.Phase.DATE_PARSING, parsingNanos, contactList.size(), numberOfChars);
+        }
         return contactList;
     }
 
@@ -147,11 +389,11 @@ public abstract class ContactLoader extends AbstractLoader {
         if(contactSort != null && contactSort.getOrderByQuery() != null) {
             sortOrder = contactSort.getOrderByQuery();
         }
-        // Starts the query
+        // Starts the query, only with the keys of the rows in paged loading
         return new CursorLoader(
                 context,
                 uri,
-                projection,
+                pagedLoading ? keyProjection : projection,
                 selection,
                 selectionArgs,
                 sortOrder
@@ -178,6 +420,44 @@ public abstract class ContactLoader extends AbstractLoader {
         this.loaderContactCallback = loaderContactCallback;
     }
 
+    /**
+     * Load only the keys of the rows, the rows are read by pages with {@link #queryRows(long[])}. <br />
+     * Must be called before the creation of the loader
+     * @param pagedLoading true to load the keys only
+     */
+    public void setPagedLoading(boolean pagedLoading) {
+        this.pagedLoading = pagedLoading;
+    }
+
+    public boolean isPagedLoading() {
+        return pagedLoading;
+    }
+
+    /**
+     * Query the rows of ids in parameter with all the columns of the loader, may be called in background
+     * @param rowIds Ids of rows (column _ID of the uri of the loader)
+     * @return Cursor of rows, in any order and without the rows deleted, or null
+     */
+    public Cursor queryRows(long[] rowIds) {
+        // Ids are numbers, written in the selection to not be limited by the number of arguments
+        StringBuilder rowSelection = new StringBuilder();
+        if(selection != null)
+            rowSelection.append("(").append(selection).append(") AND ");
+        rowSelection.append(BaseColumns._ID).append(" IN (");
+        for(int i = 0; i < rowIds.length; i++) {
+            if(i > 0)
+                rowSelection.append(",");
+            rowSelection.append(rowIds[i]);
+        }
+        rowSelection.append(")");
+        return context.getContentResolver().query(
+                uri,
+                projection,
+                rowSelection.toString(),
+                selectionArgs,
+                null);
+    }
+
     /**
      * Get sort of contact (combined ASC, DESC and list sort)
      * @return ContactSort
@@ -202,6 +482,12 @@ public abstract class ContactLoader extends AbstractLoader {
                     ContactsContract.Contacts.PHOTO_THUMBNAIL_URI,
                     ContactsContract.Contacts.PHOTO_URI
             };
+            keyProjection = new String[]{
+                    ContactsContract.Contacts._ID,
+                    ContactsContract.Contacts.LOOKUP_KEY,
+                    ContactsContract.Contacts.DISPLAY_NAME_PRIMARY,
+                    ContactsContract.Contacts.PHOTO_THUMBNAIL_URI
+            };
             selection = null;
             selectionArgs = null;
             sortOrder = null;
@@ -226,9 +512,17 @@ public abstract class ContactLoader extends AbstractLoader {
                     ContactsContract.Contacts.PHOTO_THUMBNAIL_URI,
                     ContactsContract.Contacts.PHOTO_URI,
                     ContactsContract.Contacts.Data._ID,
+                    ContactsContract.Data.CONTACT_ID,
                     ContactsContract.CommonDataKinds.Event.START_DATE,
                     ContactsContract.CommonDataKinds.Event.TYPE
             };
+            keyProjection = new String[]{
+                    ContactsContract.Contacts._ID,
+                    ContactsContract.Contacts.LOOKUP_KEY,
+                    ContactsContract.Contacts.DISPLAY_NAME_PRIMARY,
+                    ContactsContract.Contacts.PHOTO_THUMBNAIL_URI,
+                    ContactsContract.CommonDataKinds.Event.START_DATE
+            };
             selection =
                     ContactsContract.Data.MIMETYPE + "= ? AND (" +
                             ContactsContract.CommonDataKinds.Event.TYPE + "=" +
@@ -0,0 +1,338 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.CalendarContract;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.EventWithoutYear;
+import com.kunzisoft.remembirthday.element.Reminder;
+import com.kunzisoft.remembirthday.utility.QueryTool;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Store of the birthday calendar in the calendar provider of Android
+ */
+public class ContentResolverCalendarStore implements CalendarStore {
+
+    private static final String TAG = "CalendarStore";
+
+    private final static String[] EVENT_PROJECTION = new String[] {
+            CalendarContract.Events._ID,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.EVENT_TIMEZONE,
+            CalendarContract.Events.ALL_DAY};
+
+    private Context context;
+
+    public ContentResolverCalendarStore(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Build an event from the current row of cursor, the cursor must contains columns of {@link #EVENT_PROJECTION}
+     * @param cursor Cursor at the correct position
+     * @return Event with id
+     */
+    private static CalendarEvent getEventFromCursor(Cursor cursor) {
+        CalendarEvent calendarEvent;
+        long id = cursor.getLong(cursor.getColumnIndex(CalendarContract.Events._ID));
+        String title = cursor.getString(cursor.getColumnIndex(CalendarContract.Events.TITLE));
+        String description = cursor.getString(cursor.getColumnIndex(CalendarContract.Events.DESCRIPTION));
+        boolean allDay = cursor.getInt(cursor.getColumnIndex(CalendarContract.Events.ALL_DAY)) > 0;
+        DateTimeZone eventTimeZone = DateTimeZone.forID(
+                cursor.getString(cursor.getColumnIndex(CalendarContract.Events.EVENT_TIMEZONE)));
+        DateTime dateTimeStart = new DateTime(
+                cursor.getLong(cursor.getColumnIndex(CalendarContract.Events.DTSTART)),
+                eventTimeZone);
+        if(allDay) {
+            // ALL_DAY events are saved in UTC, retrieve the same day in local time zone
+            Date dateStart = dateTimeStart.withZoneRetainFields(DateTimeZone.getDefault()).toDate();
+            calendarEvent = new CalendarEvent(title, dateStart, true);
+        } else {
+            Date dateStart = dateTimeStart.withZone(DateTimeZone.getDefault()).toDate();
+            Date dateEnd = new DateTime(
+                    cursor.getLong(cursor.getColumnIndex(CalendarContract.Events.DTEND)),
+                    eventTimeZone)
+                    .withZone(DateTimeZone.getDefault())
+                    .toDate();
+            calendarEvent = new CalendarEvent(title, dateStart, dateEnd);
+        }
+        calendarEvent.setDescription(description);
+        calendarEvent.setId(id);
+        return calendarEvent;
+    }
+
+    /**
+     * Get events with a selection
+     */
+    private List<CalendarEvent> queryEvents(String selection, String[] selectionArgs) {
+        List<CalendarEvent> calendarEvents = new ArrayList<>();
+        Cursor cursor = context.getContentResolver().query(
+                CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Events.CONTENT_URI),
+                EVENT_PROJECTION,
+                selection,
+                selectionArgs,
+                null);
+        if(cursor != null) {
+            while (cursor.moveToNext()) {
+                calendarEvents.add(getEventFromCursor(cursor));
+            }
+            cursor.close();
+        }
+        return calendarEvents;
+    }
+
+    @Override
+    public long getOrCreateCalendar() {
+        return CalendarLoader.getCalendar(context);
+    }
+
+    /**
+     * Get all events of the birthday calendar with only one query. <br />
+     * Events are linked to contacts with the lookup key stored in {@link CalendarContract.Events#CUSTOM_APP_URI}
+     */
+    @Override
+    public CalendarEventIndex queryEvents(long calendarId) {
+        CalendarEventIndex calendarEventIndex = new CalendarEventIndex();
+
+        boolean customAppUriAvailable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+        String[] projection;
+        if(customAppUriAvailable) {
+            projection = Arrays.copyOf(EVENT_PROJECTION, EVENT_PROJECTION.length + 1);
+            projection[EVENT_PROJECTION.length] = CalendarContract.Events.CUSTOM_APP_URI;
+        } else {
+            projection = EVENT_PROJECTION;
+        }
+
+        Cursor cursor = context.getContentResolver().query(
+                CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Events.CONTENT_URI),
+                projection,
+                CalendarContract.Events.CALENDAR_ID + "=?",
+                new String[]{String.valueOf(calendarId)},
+                null);
+        if(cursor != null) {
+            int customAppUriColumn = customAppUriAvailable ?
+                    cursor.getColumnIndex(CalendarContract.Events.CUSTOM_APP_URI) : -1;
+            while (cursor.moveToNext()) {
+                String lookupKey = null;
+                if(customAppUriColumn != -1) {
+                    String customAppUri = cursor.getString(customAppUriColumn);
+                    if(customAppUri != null)
+                        lookupKey = Uri.parse(customAppUri).getLastPathSegment();
+                }
+                calendarEventIndex.put(lookupKey, getEventFromCursor(cursor));
+            }
+            cursor.close();
+        }
+        Log.d(TAG, "Get all events (" + calendarEventIndex.size() + ") from calendar " + calendarId);
+        return calendarEventIndex;
+    }
+
+    /**
+     * Get the events of one contact with the lookup key stored in {@link CalendarContract.Events#CUSTOM_APP_URI},
+     * or with the title for the old versions of Android
+     */
+    @Override
+    public CalendarEventIndex queryEventsOfContact(long calendarId, Contact contact) {
+        CalendarEventIndex calendarEventIndex = new CalendarEventIndex();
+        List<CalendarEvent> calendarEvents;
+        if(contact.getLookUpKey() != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            calendarEvents = queryEvents(
+                    CalendarContract.Events.CALENDAR_ID + "=? AND "
+                            + CalendarContract.Events.CUSTOM_APP_URI + "=?",
+                    new String[]{String.valueOf(calendarId),
+                            EventProvider.getCustomAppUri(contact.getLookUpKey())});
+        } else if(contact.hasBirthday()) {
+            CalendarEvent nextEvent = new CalendarEvent(
+                    CalendarEvent.getEventTitleFromContact(context, contact), contact.getNextBirthday(), true);
+            calendarEvents = queryEventsOfContactWithYears(contact,
+                    new EventWithoutYear(nextEvent).getListOfYearsForEachEvent());
+        } else {
+            calendarEvents = new ArrayList<>();
+        }
+        for(CalendarEvent calendarEvent : calendarEvents) {
+            calendarEventIndex.put(contact.getLookUpKey(), calendarEvent);
+        }
+        Log.d(TAG, "Get events (" + calendarEventIndex.size() + ") of contact " + contact);
+        return calendarEventIndex;
+    }
+
+    /**
+     * Get the events of a contact by day of anniversary and name of contact in title,
+     * only used if events are not linked to contact
+     * @param contact Contact with birthday
+     * @param years Years of events
+     * @return List of events
+     */
+    public List<CalendarEvent> queryEventsOfContactWithYears(Contact contact, List<Integer> years) {
+        if(!contact.hasBirthday())
+            return new ArrayList<>();
+        Long[] eventTimes = new Long[years.size()];
+        for(int i = 0; i < years.size(); i++) {
+            int year = years.get(i);
+            eventTimes[i] = new DateTime(contact.getBirthday().getDateWithYear(year))
+                    .withHourOfDay(0)
+                    .withMinuteOfHour(0)
+                    .withSecondOfMinute(0)
+                    .withMillisOfSecond(0)
+                    .withZoneRetainFields(DateTimeZone.UTC)
+                    .toDateTime().toDate().getTime();
+        }
+        /*
+         * Get events who have an all day in the day of the event with name of contact in title
+         */
+        return queryEvents(
+                CalendarContract.Events.DTSTART + " IN " + String.valueOf(QueryTool.getString(eventTimes)) +
+                        " AND " + CalendarContract.Events.TITLE + " LIKE ?",
+                new String[]{"%" + contact.getName() + "%"});
+    }
+
+    /**
+     * Get the lookup keys stored in {@link CalendarContract.Events#CUSTOM_APP_URI}
+     * of the events all day between two days
+     */
+    @Override
+    public Set<String> queryLookupKeysOfEventsBetween(long calendarId, LocalDate firstDay, LocalDate lastDay) {
+        Set<String> lookupKeys = new HashSet<>();
+        if(Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN)
+            return lookupKeys;
+        // ALL_DAY events are saved in UTC
+        Cursor cursor = context.getContentResolver().query(
+                CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Events.CONTENT_URI),
+                new String[]{CalendarContract.Events.CUSTOM_APP_URI},
+                CalendarContract.Events.CALENDAR_ID + "=? AND "
+                        + CalendarContract.Events.DTSTART + ">=? AND "
+                        + CalendarContract.Events.DTSTART + "<?",
+                new String[]{String.valueOf(calendarId),
+                        String.valueOf(firstDay.toDateTimeAtStartOfDay(DateTimeZone.UTC).getMillis()),
+                        String.valueOf(lastDay.plusDays(1).toDateTimeAtStartOfDay(DateTimeZone.UTC).getMillis())},
+                null);
+        if(cursor != null) {
+            while (cursor.moveToNext()) {
+                String customAppUri = cursor.getString(0);
+                if(customAppUri != null)
+                    lookupKeys.add(Uri.parse(customAppUri).getLastPathSegment());
+            }
+            cursor.close();
+        }
+        Log.d(TAG, "Get contacts (" + lookupKeys.size() + ") with events between "
+                + firstDay + " and " + lastDay);
+        return lookupKeys;
+    }
+
+    @Override
+    public List<CalendarEvent> queryEventsById(Collection<Long> eventIds) {
+        if(eventIds.isEmpty())
+            return new ArrayList<>();
+        return queryEvents(
+                CalendarContract.Events._ID + " IN " + QueryTool.getString(eventIds.toArray()),
+                null);
+    }
+
+    @Override
+    public List<Reminder> queryReminders(CalendarEvent event) {
+        List<Reminder> reminders = new ArrayList<>();
+        Cursor cursor = context.getContentResolver().query(
+                CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI),
+                new String[]{CalendarContract.Reminders._ID, CalendarContract.Reminders.MINUTES},
+                CalendarContract.Reminders.EVENT_ID + "=?",
+                new String[]{String.valueOf(event.getId())},
+                null);
+        if(cursor != null) {
+            while (cursor.moveToNext()) {
+                Reminder reminder = new Reminder(event.getDate(), cursor.getInt(1));
+                reminder.setId(cursor.getLong(0));
+                reminders.add(reminder);
+            }
+            cursor.close();
+        }
+        return reminders;
+    }
+
+    /**
+     * Apply operations with a {@link BatchExecutor}, an event and its reminders are always in the same batch
+     */
+    @Override
+    public boolean applyBatch(long calendarId, List<EventOperation> eventOperations,
+                              @Nullable final SyncStats syncStats) {
+        BatchExecutor batchExecutor = new BatchExecutor(context.getContentResolver(), CalendarContract.AUTHORITY);
+        if(syncStats != null) {
+            batchExecutor.setBytesMeasured(syncStats.isBytesMeasured());
+            batchExecutor.setOnChunkAppliedListener(new BatchExecutor.OnChunkAppliedListener() {
+                @Override
+                public void onChunkApplied(BatchExecutor.ChunkReport chunkReport) {
+                    syncStats.record(SyncStats.Phase.APPLY_BATCH, chunkReport.getDurationNanos(),
+                            chunkReport.getNumberOfOperations(), chunkReport.getNumberOfBytes());
+                }
+            });
+        }
+        List<BatchExecutor.OperationGroup> operationGroups = new ArrayList<>(eventOperations.size());
+        for(EventOperation eventOperation : eventOperations) {
+            CalendarEvent event = eventOperation.getEvent();
+            BatchExecutor.OperationGroup operationGroup = batchExecutor.newGroup();
+            switch (eventOperation.getType()) {
+                case INSERT:
+                    int eventIndex = operationGroup.add(EventProvider.newInsert(
+                            context, calendarId, event, eventOperation.getLookupKey()));
+                    for (Reminder reminder : event.getReminders()) {
+                        operationGroup.addWithBackReference(ReminderProvider.newInsert(context, reminder),
+                                CalendarContract.Reminders.EVENT_ID, eventIndex);
+                    }
+                    break;
+                case UPDATE:
+                    operationGroup.add(EventProvider.newUpdate(event));
+                    break;
+                case DELETE:
+                    operationGroup.add(ReminderProvider.newDeleteAll(context, event.getId()));
+                    operationGroup.add(EventProvider.newDelete(event));
+                    break;
+            }
+            operationGroups.add(operationGroup);
+        }
+        BatchExecutor.Report report = batchExecutor.execute();
+
+        for(int i = 0; i < eventOperations.size(); i++) {
+            EventOperation eventOperation = eventOperations.get(i);
+            BatchExecutor.OperationGroup operationGroup = operationGroups.get(i);
+            if(!operationGroup.isApplied())
+                continue;
+            if(eventOperation.getType() == EventOperation.Type.INSERT) {
+                // The first result is the event, next ones the reminders
+                ContentProviderResult[] results = operationGroup.getResults();
+                if(results.length == 0 || results[0].uri == null)
+                    continue;
+                List<Long> reminderIds = new ArrayList<>();
+                for (int j = 1; j < results.length; j++) {
+                    if(results[j].uri != null)
+                        reminderIds.add(ContentUris.parseId(results[j].uri));
+                }
+                eventOperation.setApplied(ContentUris.parseId(results[0].uri), reminderIds);
+            } else {
+                eventOperation.setApplied(eventOperation.getEvent().getId(), new ArrayList<Long>());
+            }
+        }
+        return report.isSuccessful();
+    }
+}
@@ -0,0 +1,35 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.support.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage of the links between contacts and events of the birthday calendar,
+ * written by the synchronizations ({@link com.kunzisoft.remembirthday.database.EventLinkDbHelper}).
+ */
+public interface EventLinkStore {
+
+    /**
+     * Replace the event links of some contacts, links of other contacts are kept
+     * @param eventIdsByContact Map of lookup key, year and event id
+     */
+    void replaceEventLinksOfContacts(Map<String, Map<Integer, Long>> eventIdsByContact);
+
+    /**
+     * Replace the event links of some contacts and save the checkpoint of the synchronization in the same transaction,
+     * the contacts skipped when the synchronization is resumed after the checkpoint are always linked
+     * @param eventIdsByContact Map of lookup key, year and event id
+     * @param checkpointTime Start time of the synchronization in milliseconds
+     * @param lookupKeyOfCheckpoint Lookup key of the last contact synchronized, or null to keep the checkpoint
+     */
+    void replaceEventLinksOfContacts(Map<String, Map<Integer, Long>> eventIdsByContact,
+                                     long checkpointTime, @Nullable String lookupKeyOfCheckpoint);
+
+    /**
+     * Remove the event links of contacts not in the list
+     * @param lookupKeys Lookup keys of contacts to keep
+     */
+    void retainEventLinksOfContacts(Set<String> lookupKeys);
+}
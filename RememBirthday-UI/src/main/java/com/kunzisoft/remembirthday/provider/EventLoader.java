@@ -1,28 +1,35 @@
 package com.kunzisoft.remembirthday.provider;
 
-import android.content.ContentProviderOperation;
-import android.content.ContentProviderResult;
-import android.content.ContentResolver;
+import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.OperationApplicationException;
-import android.database.Cursor;
-import android.os.RemoteException;
-import android.provider.CalendarContract;
+import android.os.Build;
+import android.provider.ContactsContract;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
+import com.kunzisoft.remembirthday.BuildConfig;
+import com.kunzisoft.remembirthday.database.EventLinkDbHelper;
+import com.kunzisoft.remembirthday.database.SyncStatsDbHelper;
 import com.kunzisoft.remembirthday.element.CalendarEvent;
 import com.kunzisoft.remembirthday.element.Contact;
 import com.kunzisoft.remembirthday.element.DateUnknownYear;
 import com.kunzisoft.remembirthday.element.EventWithoutYear;
-import com.kunzisoft.remembirthday.element.Reminder;
-import com.kunzisoft.remembirthday.utility.QueryTool;
+import com.kunzisoft.remembirthday.element.StartDateCache;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
 
 import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by joker on 08/08/17.
@@ -32,22 +39,61 @@ public class EventLoader {
 
     private final static String TAG = "EventLoader";
 
+    private final static String LOCK_FILE_NAME = "calendar.lock";
+
+    // Contacts are locked by stripes, a full synchronization does not block the contacts
+    private static EventLock eventLock;
+
+    /**
+     * Get the lock of events, shared with the other processes of the application by a lock file
+     * @param context Context to call
+     * @return Lock of events of the process
+     */
+    private static synchronized EventLock getEventLock(Context context) {
+        if (eventLock == null) {
+            File lockFile = new File(context.getApplicationContext().getFilesDir(), LOCK_FILE_NAME);
+            eventLock = new EventLock(EventLock.DEFAULT_NUMBER_OF_STRIPES, new ProcessLock(lockFile));
+        }
+        return eventLock;
+    }
+
     /**
-     * Return new event from contact or null if not found
+     * Get the store of the birthday calendar
+     * @param context Context to call
+     * @return Store of calendar provider
+     */
+    private static ContentResolverCalendarStore getCalendarStore(Context context) {
+        return new ContentResolverCalendarStore(context);
+    }
+
+    /**
+     * Get a synchronizer who builds the default events of contacts with the preferences,
+     * for the day of the call
+     * @param context Context to call
+     * @param calendarStore Store of calendar
+     * @return Synchronizer
+     */
+    private static CalendarSynchronizer getCalendarSynchronizer(final Context context, CalendarStore calendarStore) {
+        // Same day for all the contacts, even if the synchronization passes midnight
+        final TodaySnapshot today = TodaySnapshot.now();
+        return new CalendarSynchronizer(calendarStore, new CalendarSynchronizer.EventFactory() {
+            @Override
+            public CalendarEvent buildDefaultEvent(Contact contact) {
+                return CalendarEvent.buildDefaultEventFromContactToSave(context, contact, today);
+            }
+        });
+    }
+
+    /**
+     * Return new event from contact or null if not found, the contact must be locked
      * @param context Context to call
      * @param contact Contact associated with event
      * @return Next event in the year or null if not fund
      */
-    private synchronized static CalendarEvent getNextEventFromContact(Context context, Contact contact) throws EventException {
-        Long[] eventTimes = new Long[1];
-        eventTimes[0] = new DateTime(contact.getNextBirthday())
-                .withHourOfDay(0)
-                .withMinuteOfHour(0)
-                .withSecondOfMinute(0)
-                .withMillisOfSecond(0)
-                .withZoneRetainFields(DateTimeZone.UTC)
-                .toDateTime().toDate().getTime();
-        List<CalendarEvent> calendarEvents = getEventsFromContact(context, contact, eventTimes);
+    private static CalendarEvent getNextEventFromContact(Context context, Contact contact) throws EventException {
+        int yearOfNextBirthday = new DateTime(contact.getNextBirthday()).getYear();
+        List<CalendarEvent> calendarEvents = getEventsFromContactWithYears(
+                context, contact, Collections.singletonList(yearOfNextBirthday));
         if(calendarEvents.isEmpty())
             throw new EventException("Unable to getAutoSmsById next event from contact : " + contact.toString());
         else {
@@ -64,97 +110,38 @@ public class EventLoader {
      * @param years List of event's years
      * @return Events for each year
      */
-    private synchronized static List<CalendarEvent> getEventsFromContactWithYears(Context context, Contact contact, List<Integer> years) {
-        Long[] eventTimes = new Long[years.size()];
-        for(int i = 0; i < years.size(); i++) {
-            int year = years.get(i);
-            long eventTime = new DateTime(contact.getBirthday().getDateWithYear(year))
-                    .withHourOfDay(0)
-                    .withMinuteOfHour(0)
-                    .withSecondOfMinute(0)
-                    .withMillisOfSecond(0)
-                    .withZoneRetainFields(DateTimeZone.UTC)
-                    .toDateTime().toDate().getTime();
-            eventTimes[i] = eventTime;
+    private static List<CalendarEvent> getEventsFromContactWithYears(Context context, Contact contact, List<Integer> years) {
+        List<CalendarEvent> events;
+        EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+        if(contact.getLookUpKey() != null && eventLinkDbHelper.hasEventLinks(contact.getLookUpKey())) {
+            // Indexed retrieve with links
+            Map<Integer, Long> eventIds = eventLinkDbHelper.getEventIds(contact.getLookUpKey(), years);
+            events = getEventsFromIds(context, eventIds.values());
+        } else {
+            // No link before the first synchronization
+            events = getCalendarStore(context).queryEventsOfContactWithYears(contact, years);
         }
-        List<CalendarEvent> events = getEventsFromContact(context, contact, eventTimes);
         Log.d(TAG, "Get events (" + events.size() + ") from contact " + contact + " with year " + years);
         return events;
     }
 
     /**
-     * Utility class for getAutoSmsById all events from contact with list of StartTime
+     * Get events by primary key, links of events no longer in calendar are removed
      * @param context Context to call
-     * @param contact Contact link
-     * @param eventTimes List of events' StartTime
-     * @return List of events
+     * @param eventIds Ids of events
+     * @return List of events found
      */
-    private synchronized static List<CalendarEvent> getEventsFromContact(Context context, Contact contact, Long[] eventTimes) {
-        /* Two ways
-            - Get events days of anniversary and filter with name (use for the first time)
-            - Create links Event-Contact in custom table (may have bugs if event remove manually from calendar)
-        */
-        List<CalendarEvent> calendarEvents = new ArrayList<>();
-
-        if(contact.hasBirthday()) {
-            String[] projection = new String[] {
-                    CalendarContract.Events._ID,
-                    CalendarContract.Events.TITLE,
-                    CalendarContract.Events.DESCRIPTION,
-                    CalendarContract.Events.DTSTART,
-                    CalendarContract.Events.DTEND,
-                    CalendarContract.Events.EVENT_TIMEZONE,
-                    CalendarContract.Events.ALL_DAY};
-            /*
-             * Get newt event who have an all day in the day of the event with name of contact in title
-             */
-            String where = CalendarContract.Events.DTSTART + " IN " + String.valueOf(QueryTool.getString(eventTimes)) +
-                    " AND " + CalendarContract.Events.TITLE + " LIKE ?";
-            String[] whereParam = {"%" + contact.getName() + "%"};
-            // TODO better retrieve
-
-            ContentResolver contentResolver = context.getContentResolver();
-            Cursor cursor = contentResolver.query(
-                    CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Events.CONTENT_URI),
-                    projection,
-                    where,
-                    whereParam,
-                    null);
-            if(cursor != null) {
-                cursor.moveToFirst();
-                while (!cursor.isAfterLast()) {
-                    CalendarEvent calendarEvent;
-                    long id = cursor.getLong(cursor.getColumnIndex(CalendarContract.Events._ID));
-                    String title = cursor.getString(cursor.getColumnIndex(CalendarContract.Events.TITLE));
-                    String description = cursor.getString(cursor.getColumnIndex(CalendarContract.Events.DESCRIPTION));
-                    boolean allDay = cursor.getInt(cursor.getColumnIndex(CalendarContract.Events.ALL_DAY)) > 0;
-                    if(allDay) {
-                        Date dateStart = new DateTime(
-                                cursor.getLong(cursor.getColumnIndex(CalendarContract.Events.DTSTART)),
-                                DateTimeZone.forID(cursor.getString(cursor.getColumnIndex(CalendarContract.Events.EVENT_TIMEZONE))))
-                                .withZone(DateTimeZone.getDefault())
-                                .toDate();
-                        calendarEvent = new CalendarEvent(title, dateStart, true);
-                    } else {
-                        Date dateStart = new DateTime(
-                                cursor.getLong(cursor.getColumnIndex(CalendarContract.Events.DTSTART)),
-                                DateTimeZone.forID(cursor.getString(cursor.getColumnIndex(CalendarContract.Events.EVENT_TIMEZONE))))
-                                .withZone(DateTimeZone.getDefault())
-                                .toDate();
-                        Date dateEnd = new DateTime(
-                                cursor.getLong(cursor.getColumnIndex(CalendarContract.Events.DTEND)),
-                                DateTimeZone.forID(cursor.getString(cursor.getColumnIndex(CalendarContract.Events.EVENT_TIMEZONE))))
-                                .withZone(DateTimeZone.getDefault())
-                                .toDate();
-                        calendarEvent = new CalendarEvent(title, dateStart, dateEnd);
-                    }
-                    calendarEvent.setDescription(description);
-                    calendarEvent.setId(id);
-                    calendarEvents.add(calendarEvent);
-                    cursor.moveToNext();
-                }
-                cursor.close();
-            }
+    private static List<CalendarEvent> getEventsFromIds(Context context, Collection<Long> eventIds) {
+        List<CalendarEvent> calendarEvents = getCalendarStore(context).queryEventsById(eventIds);
+        Set<Long> eventIdsNotFound = new HashSet<>(eventIds);
+        for (CalendarEvent calendarEvent : calendarEvents) {
+            eventIdsNotFound.remove(calendarEvent.getId());
+        }
+        // Event removed manually from calendar
+        EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+        for(long eventIdNotFound : eventIdsNotFound) {
+            Log.w(TAG, "Event " + eventIdNotFound + " no longer exists, remove link");
+            eventLinkDbHelper.deleteEventLink(eventIdNotFound);
         }
         return calendarEvents;
     }
@@ -166,26 +153,45 @@ public class EventLoader {
      * @return The next event
      * @throws EventException If event can't be getAutoSmsById after creation
      */
-    public synchronized static CalendarEvent getNextEventOrCreateNewFromContact(Context context, Contact contact) throws EventException {
+    public static CalendarEvent getNextEventOrCreateNewFromContact(Context context, Contact contact) throws EventException {
+        getEventLock(context).lockContact(contact.getLookUpKey());
+        try {
+            return getNextEventOrCreateNew(context, contact);
+        } finally {
+            getEventLock(context).unlockContact(contact.getLookUpKey());
+        }
+    }
+
+    /**
+     * Get the next event, if not exists create the events missing of contact, the contact must be locked
+     */
+    private static CalendarEvent getNextEventOrCreateNew(Context context, Contact contact) throws EventException {
         try {
             return getNextEventFromContact(context, contact);
         } catch (EventException e) {
-            // If next event do not exists, create all events missing (end of 5 years)
-            // TODO Replace by saveEventIfNotExistsFromContactWithBirthday
-            saveEventsIfNotExistsFromAllContactWithBirthday(context);
+            // If next event do not exists, create events missing of contact (end of 5 years)
+            Log.d(TAG, "Next event not found, create events missing of contact " + contact);
+            saveEventsFromContactWithBirthday(context, contact, null);
             return getNextEventFromContact(context, contact);
         }
     }
 
-    public synchronized static List<CalendarEvent> getEventsSavedOrCreateNewsForEachYearAfterNextEvent(Context context, Contact contact) throws EventException {
+    public static List<CalendarEvent> getEventsSavedOrCreateNewsForEachYearAfterNextEvent(Context context, Contact contact) throws EventException {
         Log.d(TAG, "Retrieve events saved for each year after next event or create them");
         List<CalendarEvent> eventsSaved = new ArrayList<>();
-        CalendarEvent eventToUpdate = getNextEventOrCreateNewFromContact(context, contact);
-        // Update events for each year
-        EventWithoutYear eventWithoutYear = new EventWithoutYear(eventToUpdate);
+        EventWithoutYear eventWithoutYear;
+        List<CalendarEvent> eventsAfterSaved;
+        getEventLock(context).lockContact(contact.getLookUpKey());
+        try {
+            CalendarEvent eventToUpdate = getNextEventOrCreateNew(context, contact);
+            // Update events for each year
+            eventWithoutYear = new EventWithoutYear(eventToUpdate);
+            eventsAfterSaved = getEventsFromContactWithYears(
+                    context, contact, eventWithoutYear.getListOfYearsForEventsAfterThisYear());
+        } finally {
+            getEventLock(context).unlockContact(contact.getLookUpKey());
+        }
         List<CalendarEvent> eventsAfterNeeded = eventWithoutYear.getEventsAfterThisYear();
-        List<CalendarEvent> eventsAfterSaved = getEventsFromContactWithYears(
-                context, contact, eventWithoutYear.getListOfYearsForEventsAfterThisYear());
 
         for (CalendarEvent event : eventsAfterNeeded) {
             if (eventsAfterSaved.contains(event)) {
@@ -197,31 +203,29 @@ public class EventLoader {
         return eventsSaved;
     }
 
-    public synchronized static void updateEvent(Context context, Contact contact, DateUnknownYear newBirthday) throws EventException {
+    public static void updateEvent(Context context, Contact contact, DateUnknownYear newBirthday) throws EventException {
         // TODO UNIFORMISE
-        for (CalendarEvent event : getEventsSavedOrCreateNewsForEachYear(context, contact)) {
-            // Construct each anniversary of new birthday
-            int year = new DateTime(event.getDate()).getYear();
-            Date newBirthdayDate = DateUnknownYear.getDateWithYear(newBirthday.getDate(), year);
-            event.setDateStart(newBirthdayDate);
-            event.setAllDay(true);
-            ArrayList<ContentProviderOperation> operations = new ArrayList<>();
-            ContentProviderOperation contentProviderOperation = EventProvider.update(event);
-            operations.add(contentProviderOperation);
-            try {
-                ContentProviderResult[] contentProviderResults =
-                        context.getContentResolver().applyBatch(CalendarContract.AUTHORITY, operations);
-                for(ContentProviderResult contentProviderResult : contentProviderResults) {
-                    if (contentProviderResult.count != 0)
-                        Log.d(TAG, "Update event : " + event.toString());
-                }
-            } catch (RemoteException|OperationApplicationException e) {
-                Log.e(TAG, "Unable to update event : " + e.getMessage());
+        getEventLock(context).lockContact(contact.getLookUpKey());
+        try {
+            List<CalendarEvent> eventsToUpdate = getEventsSavedOrCreateNewsForEachYear(context, contact);
+            List<EventOperation> eventOperations = new ArrayList<>();
+            for (CalendarEvent event : eventsToUpdate) {
+                // Construct each anniversary of new birthday
+                int year = new DateTime(event.getDate()).getYear();
+                Date newBirthdayDate = DateUnknownYear.getDateWithYear(newBirthday.getDate(), year);
+                event.setDateStart(newBirthdayDate);
+                event.setAllDay(true);
+                eventOperations.add(EventOperation.newUpdate(event));
             }
+            CalendarStore calendarStore = getCalendarStore(context);
+            if (!calendarStore.applyBatch(calendarStore.getOrCreateCalendar(), eventOperations, null))
+                Log.e(TAG, "Unable to update events of contact " + contact);
+        } finally {
+            getEventLock(context).unlockContact(contact.getLookUpKey());
         }
     }
 
-    private synchronized static List<CalendarEvent> getEventsSavedForEachYear(Context context, Contact contact) throws EventException {
+    private static List<CalendarEvent> getEventsSavedForEachYear(Context context, Contact contact) throws EventException {
         Log.d(TAG, "Retrieve events saved for each year");
         List<CalendarEvent> eventsSaved = new ArrayList<>();
 
@@ -243,139 +247,396 @@ public class EventLoader {
         return eventsSaved;
     }
 
-    private synchronized static List<CalendarEvent> getEventsSavedOrCreateNewsForEachYear(Context context, Contact contact) throws EventException {
-        Log.d(TAG, "Retrieve events saved for each year");
-        List<CalendarEvent> eventsSaved = new ArrayList<>();
-
-        CalendarEvent eventToUpdate = getNextEventFromContact(context, contact);
-
-        // Update events for each year
-        EventWithoutYear eventWithoutYear = new EventWithoutYear(eventToUpdate);
-        List<CalendarEvent> eventsAroundNeeded = eventWithoutYear.getEventsAroundAndForThisYear();
-        List<CalendarEvent> eventsAroundSaved = getEventsFromContactWithYears(
-                context, contact, eventWithoutYear.getListOfYearsForEachEvent());
-
-        for (CalendarEvent event : eventsAroundNeeded) {
-            if (eventsAroundSaved.contains(event)) {
-                // For getAutoSmsById id
-                event = eventsAroundSaved.get(eventsAroundSaved.indexOf(event));
-                eventsSaved.add(event);
-            } else {
-                // TODO Replace by saveEventIfNotExistsFromContactWithBirthday
-                saveEventsIfNotExistsFromAllContactWithBirthday(context);
-                // TODO getAutoSmsById all news
-            }
+    /**
+     * Get the events saved for each year, the events missing are created before,
+     * the contact must be locked
+     */
+    private static List<CalendarEvent> getEventsSavedOrCreateNewsForEachYear(Context context, Contact contact) throws EventException {
+        Log.d(TAG, "Retrieve events saved for each year or create them");
+        CalendarEvent nextEvent = getNextEventOrCreateNew(context, contact);
+        int numberOfEventsNeeded = new EventWithoutYear(nextEvent).getListOfYearsForEachEvent().size();
+
+        List<CalendarEvent> eventsSaved = getEventsSavedForEachYear(context, contact);
+        if (eventsSaved.size() < numberOfEventsNeeded) {
+            saveEventsFromContactWithBirthday(context, contact, null);
+            eventsSaved = getEventsSavedForEachYear(context, contact);
         }
         return eventsSaved;
     }
 
-    public synchronized static void deleteEventsFromContact(Context context, Contact contact) {
-        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+    public static void deleteEventsFromContact(Context context, Contact contact) {
+        getEventLock(context).lockContact(contact.getLookUpKey());
         try {
+            List<EventOperation> eventOperations = new ArrayList<>();
             for (CalendarEvent event : getEventsSavedForEachYear(context, contact)) {
-                operations.add(ReminderProvider.deleteAll(context, event.getId()));
-                operations.add(EventProvider.delete(event));
+                eventOperations.add(EventOperation.newDelete(event));
             }
-            ContentProviderResult[] contentProviderResults =
-                    context.getContentResolver().applyBatch(CalendarContract.AUTHORITY, operations);
-            for(ContentProviderResult contentProviderResult : contentProviderResults) {
-                Log.d(TAG, contentProviderResult.toString());
-                if (contentProviderResult.uri != null)
-                    Log.d(TAG, contentProviderResult.uri.toString());
+            CalendarStore calendarStore = getCalendarStore(context);
+            if (!calendarStore.applyBatch(calendarStore.getOrCreateCalendar(), eventOperations, null))
+                Log.e(TAG, "Unable to deleteById events of contact " + contact);
+            // Remove links of events deleted
+            EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+            for (EventOperation eventOperation : eventOperations) {
+                if (eventOperation.isApplied())
+                    eventLinkDbHelper.deleteEventLink(eventOperation.getEventId());
             }
-        } catch (RemoteException |OperationApplicationException |EventException e) {
+        } catch (EventException e) {
             Log.e(TAG, "Unable to deleteById events : " + e.getMessage());
+        } finally {
+            getEventLock(context).unlockContact(contact.getLookUpKey());
         }
     }
 
-    public synchronized static void saveEventIfNotExistsFromContactWithBirthday(Context context, Contact contact) {
-        //TODO
-    }
-
     /**
-     * Save all events and default reminders from contacts with birthday
+     * Save the events and default reminders of one contact with a small batch. <br />
+     * Events missing in the window of years are created, events modified are repaired,
+     * events saved twice are removed. If the contact has no birthday, all its events are removed.
      * @param context Context to call
+     * @param contact Contact to synchronize
      */
-    public synchronized static void saveEventsIfNotExistsFromAllContactWithBirthday(Context context) {
-        ContentResolver contentResolver = context.getContentResolver();
-
-        if (contentResolver == null) {
-            Log.e(TAG, "Unable to getAutoSmsById content resolver!");
-            return;
-        }
+    public static void saveEventIfNotExistsFromContactWithBirthday(Context context, Contact contact) {
+        saveEventIfNotExistsFromContact(context, contact, null);
+    }
 
-        long calendarId = CalendarLoader.getCalendar(context);
+    /**
+     * Save the events of one contact, the contact must be locked
+     * @param syncStats Statistics of the synchronization who contains the contact, or null
+     * @return true if all operations are applied
+     */
+    private static boolean saveEventsFromContactWithBirthday(Context context, Contact contact,
+                                                             @Nullable SyncStats syncStats) {
+        CalendarStore calendarStore = getCalendarStore(context);
+        long calendarId = calendarStore.getOrCreateCalendar();
         if (calendarId == -1) {
             Log.e(TAG, "Unable to create calendar");
-            return;
+            return false;
         }
 
-        // Sync flow:
-        // 1. Clear events table for this account completely
-        //CalendarLoader.cleanTables(context, calendarId);
-        // 2. Get birthdays from contacts
-        // 3. Create events and reminders for each birthday
+        CalendarSynchronizer calendarSynchronizer = getCalendarSynchronizer(context, calendarStore);
+        calendarSynchronizer.setSyncStats(syncStats);
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeContact(calendarId, contact);
+        Log.d(TAG, "Synchronization of contact " + contact + " : " + result);
 
-        //List<ContactEventOperation> contactEventOperationList = new ArrayList<>();
-        ArrayList<ContentProviderOperation> allOperationList = new ArrayList<>();
+        if(contact.getLookUpKey() != null) {
+            EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+            eventLinkDbHelper.replaceEventLinksOfContact(contact.getLookUpKey(),
+                    result.getEventIdsOfContact(contact.getLookUpKey()));
+        }
+        return result.isSuccessful();
+    }
 
-        // iterate through all Contact
-        List<Contact> contactList = ContactLoader.getAllContacts(context);
+    /**
+     * Determines whether a delta synchronization can start from the token,
+     * contacts deleted are only kept {@link ContactsContract.DeletedContacts#DAYS_KEPT_MILLISECONDS}
+     * @param syncToken Time of the last synchronization
+     * @return true if the token is valid
+     */
+    private static boolean isSyncTokenValid(long syncToken) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2)
+            return false;
+        long now = System.currentTimeMillis();
+        return syncToken > 0
+                && syncToken <= now
+                && now - syncToken < ContactsContract.DeletedContacts.DAYS_KEPT_MILLISECONDS;
+    }
 
-        int backRef = 0;
-        for (Contact contact : contactList) {
+    /**
+     * Save the events and default reminders of contacts modified since the last synchronization,
+     * remove the events of contacts deleted or without birthday. <br />
+     * A full synchronization is done if no valid token of the last synchronization exists.
+     * Once a day, the windows of years of contacts whose birthday has passed are moved with the links of events.
+     * @param context Context to call
+     * @return Statistics of the synchronization
+     * @throws IllegalStateException If a contact is locked by the current thread
+     */
+    public static SyncStats saveEventsIfNotExistsFromContactsChangedWithBirthday(Context context) {
+        return saveEventsIfNotExistsFromContactsChangedWithBirthday(context, null, null);
+    }
 
-            // TODO Ids
-            Log.d(TAG, "BackRef is " + backRef);
+    /**
+     * Same as {@link #saveEventsIfNotExistsFromContactsChangedWithBirthday(Context)},
+     * with the phases of synchronization sent to the listener
+     * @param context Context to call
+     * @param syncStatsListener Listener of phases, or null
+     * @param cancellation Cancellation checked between contacts and chunks, or null
+     * @return Statistics of the synchronization
+     */
+    public static SyncStats saveEventsIfNotExistsFromContactsChangedWithBirthday(Context context,
+                                                                                @Nullable SyncStats.Listener syncStatsListener,
+                                                                                @Nullable SyncCancellation cancellation) {
+        EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+        long syncToken = eventLinkDbHelper.getSyncToken();
+        if (!isSyncTokenValid(syncToken)) {
+            Log.d(TAG, "Sync token " + syncToken + " invalid, start full synchronization");
+            return saveEventsIfNotExistsFromAllContactWithBirthday(context, syncStatsListener, cancellation);
+        }
+        SyncStats syncStats = new SyncStats(SyncStats.TYPE_DELTA);
+        syncStats.setListener(syncStatsListener);
+        getEventLock(context).lockFullSync();
+        try {
+            // Modifications during the synchronization are retrieved by the next one
+            long newSyncToken = System.currentTimeMillis();
+            boolean successful = saveEventsFromContactsChangedSince(context, syncToken, syncStats, cancellation);
+            if (successful)
+                eventLinkDbHelper.setSyncToken(newSyncToken);
+            // Windows of years move each day for contacts whose birthday has passed
+            long eventWindowsTime = eventLinkDbHelper.getEventWindowsTime();
+            if (!syncStats.isCanceled()
+                    && !isTimeOfToday(eventWindowsTime)
+                    && saveEventWindowsOfContactsPassed(context, eventWindowsTime, syncStats, cancellation))
+                eventLinkDbHelper.setEventWindowsTime(newSyncToken);
+            saveSyncStats(context, syncStats, successful);
+        } finally {
+            getEventLock(context).unlockFullSync();
+        }
+        return syncStats;
+    }
 
-            // If next event in calendar is empty, add new event
-            CalendarEvent eventToAdd = CalendarEvent.buildDefaultEventFromContactToSave(context, contact);
+    /**
+     * Determines whether a time is in the current day,
+     * used for the windows of years of events and for the checkpoint of synchronization
+     * @param time Time in milliseconds
+     * @return true if the time is today
+     */
+    private static boolean isTimeOfToday(long time) {
+        return time > 0
+                && time <= System.currentTimeMillis()
+                && new LocalDate(time).equals(new LocalDate());
+    }
 
-            // TODO ENCAPSULATE
-            EventWithoutYear eventWithoutYear = new EventWithoutYear(eventToAdd);
-            List<CalendarEvent> eventsAroundNeeded = eventWithoutYear.getEventsAroundAndForThisYear();
-            List<CalendarEvent> eventsAroundSaved = getEventsFromContactWithYears(
-                    context, contact, eventWithoutYear.getListOfYearsForEachEvent());
+    private static boolean isCanceled(@Nullable SyncCancellation cancellation) {
+        return cancellation != null && cancellation.isCanceled();
+    }
 
-            for (CalendarEvent event : eventsAroundNeeded) {
-                if (!eventsAroundSaved.contains(event)) {
+    /**
+     * Move the windows of years of contacts already synchronized, with only the links of events.
+     * Only the contacts whose birthday has passed since the last move are read,
+     * the others keep the same windows. Must be called during a synchronization.
+     * @param eventWindowsTime Time of the last move of windows, or 0 to read all contacts
+     * @return true if all operations are applied
+     */
+    private static boolean saveEventWindowsOfContactsPassed(Context context, long eventWindowsTime,
+                                                            SyncStats syncStats,
+                                                            @Nullable SyncCancellation cancellation) {
+        CalendarStore calendarStore = getCalendarStore(context);
+        long calendarId = calendarStore.getOrCreateCalendar();
+        if (calendarId == -1) {
+            Log.e(TAG, "Unable to create calendar");
+            return false;
+        }
 
-                    // Add event operation in list of contact manager
-                    allOperationList.add(EventProvider.insert(context, calendarId, event, contact));
+        final EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+        CalendarSynchronizer calendarSynchronizer = getCalendarSynchronizer(context, calendarStore);
+        calendarSynchronizer.setSyncStats(syncStats);
+        calendarSynchronizer.setCancellation(cancellation);
+        calendarSynchronizer.setEventLock(getEventLock(context), getContactReader(context));
+        calendarSynchronizer.setCheckpointListener(new CalendarSynchronizer.CheckpointListener() {
+            @Override
+            public void onChunkApplied(CalendarSynchronizer.Result chunkResult,
+                                       @Nullable String lookupKeyOfCheckpoint) {
+                // Contacts of the chunk are locked, links of chunks applied before a cancellation are also kept
+                eventLinkDbHelper.replaceEventLinksOfContacts(chunkResult.getEventIdsByContact());
+            }
+        });
+        List<Contact> contacts;
+        if (eventWindowsTime > 0 && eventWindowsTime <= System.currentTimeMillis()) {
+            // The birthday of the day of the last move may not be passed at this time
+            long startTime = System.nanoTime();
+            Set<String> lookupKeysPassed = calendarStore.queryLookupKeysOfEventsBetween(calendarId,
+                    new LocalDate(eventWindowsTime), new LocalDate());
+            syncStats.record(SyncStats.Phase.EVENT_QUERY, System.nanoTime() - startTime,
+                    lookupKeysPassed.size(), SyncStats.UNKNOWN);
+            contacts = ContactLoader.getContactsWithBirthday(context, lookupKeysPassed, syncStats);
+        } else {
+            contacts = ContactLoader.getAllContacts(context, syncStats);
+            if (contacts == null)
+                return false;
+        }
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeEventWindows(calendarId,
+                contacts, eventLinkDbHelper.getEventLinks());
+        Log.d(TAG, "Windows of years moved for " + result.getEventIdsByContact().size() + " contacts : " + result);
+        if (result.isCanceled())
+            syncStats.setCanceled(true);
+        return result.isSuccessful();
+    }
 
-                    int noOfReminderOperations = 0;
-                    for (Reminder reminder : eventToAdd.getReminders()) {
-                        allOperationList.add(ReminderProvider.insert(context, reminder, backRef));
-                        noOfReminderOperations += 1;
-                    }
-                    // back references for the next reminders, 1 is for the event
-                    backRef += 1 + noOfReminderOperations;
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static boolean saveEventsFromContactsChangedSince(Context context, long syncToken, SyncStats syncStats,
+                                                              @Nullable SyncCancellation cancellation) {
+        // Only the first birthday of each contact is managed
+        Map<String, Contact> contactsWithBirthday = new LinkedHashMap<>();
+        for (Contact contact : ContactLoader.getContactsWithBirthdayChangedSince(context, syncToken, syncStats)) {
+            if (contact.getLookUpKey() != null && !contactsWithBirthday.containsKey(contact.getLookUpKey()))
+                contactsWithBirthday.put(contact.getLookUpKey(), contact);
+        }
 
-                }
+        // Contacts linked to events but modified without birthday, or deleted
+        Set<String> lookupKeysLinked = EventLinkDbHelper.getDbHelper(context).getLookupKeys();
+        Set<String> lookupKeysWithoutBirthday = ContactLoader.getLookupKeysChangedSince(context, syncToken);
+        if (ContactLoader.hasContactsDeletedSince(context, syncToken)) {
+            // Deleted contacts have no lookup key, compare links with current contacts
+            Set<String> lookupKeysWithBirthday = ContactLoader.getLookupKeysWithBirthday(context);
+            if (lookupKeysWithBirthday == null) {
+                Log.e(TAG, "Delta synchronization aborted, contacts unavailable");
+                return false;
             }
+            Set<String> lookupKeysOrphaned = new HashSet<>(lookupKeysLinked);
+            lookupKeysOrphaned.removeAll(lookupKeysWithBirthday);
+            lookupKeysWithoutBirthday.addAll(lookupKeysOrphaned);
+        }
+        lookupKeysWithoutBirthday.removeAll(contactsWithBirthday.keySet());
+        lookupKeysWithoutBirthday.retainAll(lookupKeysLinked);
+        Log.d(TAG, "Delta synchronization since " + syncToken + " : "
+                + contactsWithBirthday.size() + " contacts modified, "
+                + lookupKeysWithoutBirthday.size() + " contacts to clean");
+
+        // Each contact is saved with its links, the token is kept if the synchronization is canceled
+        List<Contact> contactsToSave = new ArrayList<>(contactsWithBirthday.values());
+        for (String lookupKey : lookupKeysWithoutBirthday) {
+            contactsToSave.add(new Contact(Contact.ID_UNDEFINED, lookupKey, ""));
+        }
+        boolean successful = true;
+        for (Contact contact : contactsToSave) {
+            if (isCanceled(cancellation)) {
+                Log.d(TAG, "Delta synchronization canceled");
+                syncStats.setCanceled(true);
+                return false;
+            }
+            successful &= saveEventIfNotExistsFromContact(context, contact, syncStats);
+        }
+        return successful;
+    }
+
+    /**
+     * Lock the contact and save its events
+     * @return true if all operations are applied
+     */
+    private static boolean saveEventIfNotExistsFromContact(Context context, Contact contact,
+                                                           @Nullable SyncStats syncStats) {
+        getEventLock(context).lockContact(contact.getLookUpKey());
+        try {
+            return saveEventsFromContactWithBirthday(context, contact, syncStats);
+        } finally {
+            getEventLock(context).unlockContact(contact.getLookUpKey());
         }
+    }
+
+    /**
+     * Reader of the contacts modified during a synchronization
+     */
+    private static CalendarSynchronizer.ContactReader getContactReader(final Context context) {
+        return new CalendarSynchronizer.ContactReader() {
+            @Nullable
+            @Override
+            public Contact readContact(String lookupKey) {
+                return ContactLoader.getContactWithBirthday(context, lookupKey);
+            }
+        };
+    }
+
+    /**
+     * Save all events and default reminders from contacts with birthday. <br />
+     * Only one full synchronization runs at a time, the contacts stay available during the synchronization:
+     * it works on a snapshot of the calendar, each chunk is written with its contacts locked
+     * and a contact saved by another thread since the start is read again before.
+     * @param context Context to call
+     * @return Statistics of the synchronization
+     * @throws IllegalStateException If a contact is locked by the current thread
+     */
+    public static SyncStats saveEventsIfNotExistsFromAllContactWithBirthday(Context context) {
+        return saveEventsIfNotExistsFromAllContactWithBirthday(context, null, null);
+    }
 
-        /* Create events with reminders and linkEventContract
-         * intermediate commit - otherwise the binder transaction fails on large
-         * operationList
-         * TODO for large list > 200, make multiple apply
-         */
+    /**
+     * Same as {@link #saveEventsIfNotExistsFromAllContactWithBirthday(Context)},
+     * with the phases of synchronization sent to the listener. <br />
+     * A checkpoint is saved with the links of each chunk applied, a synchronization interrupted today
+     * (canceled, failed or process killed) is resumed after the last contact of the checkpoint.
+     * @param context Context to call
+     * @param syncStatsListener Listener of phases, or null
+     * @param cancellation Cancellation checked between contacts and chunks, or null
+     * @return Statistics of the synchronization
+     */
+    public static SyncStats saveEventsIfNotExistsFromAllContactWithBirthday(Context context,
+                                                                            @Nullable SyncStats.Listener syncStatsListener,
+                                                                            @Nullable SyncCancellation cancellation) {
+        SyncStats syncStats = new SyncStats(SyncStats.TYPE_FULL);
+        syncStats.setListener(syncStatsListener);
+        // Bytes of batches only for the phases sent during the development
+        syncStats.setBytesMeasured(BuildConfig.DEBUG && syncStatsListener != null);
+        getEventLock(context).lockFullSync();
         try {
-            Log.d(TAG, "Start applying the batch...");
-
-            /*
-             * Apply all Reminder Operations
-             */
-            ContentProviderResult[] contentProviderResults =
-                    contentResolver.applyBatch(CalendarContract.AUTHORITY, allOperationList);
-            for(ContentProviderResult contentProviderResult : contentProviderResults) {
-                Log.d(TAG, "ReminderOperation apply : " + contentProviderResult.toString());
+            // Modifications during the synchronization are retrieved by the next one
+            long newSyncToken = System.currentTimeMillis();
+            String lookupKeyOfCheckpoint = null;
+            EventLinkDbHelper eventLinkDbHelper = EventLinkDbHelper.getDbHelper(context);
+            long checkpointTime = eventLinkDbHelper.getSyncCheckpointTime();
+            if (isTimeOfToday(checkpointTime)) {
+                // Contacts skipped are retrieved since the start of the interrupted synchronization
+                lookupKeyOfCheckpoint = eventLinkDbHelper.getSyncCheckpoint();
+                newSyncToken = checkpointTime;
+                Log.d(TAG, "Resume synchronization after contact " + lookupKeyOfCheckpoint);
             }
+            boolean successful = saveEventsFromAllContactWithBirthday(context, syncStats, cancellation,
+                    newSyncToken, lookupKeyOfCheckpoint);
+            if (successful)
+                eventLinkDbHelper.setFullSyncFinished(newSyncToken);
+            saveSyncStats(context, syncStats, successful);
+        } finally {
+            getEventLock(context).unlockFullSync();
+        }
+        return syncStats;
+    }
+
+    /**
+     * Finish the statistics and save them in the history
+     */
+    private static void saveSyncStats(Context context, SyncStats syncStats, boolean successful) {
+        syncStats.finish(successful);
+        Log.d(TAG, syncStats.toString());
+        Log.d(TAG, StartDateCache.getInstance().toString());
+        SyncStatsDbHelper.getDbHelper(context).insertSyncStats(syncStats);
+    }
+
+    /**
+     * @param syncTime Start time of the synchronization, saved with the checkpoints
+     * @param lookupKeyOfCheckpoint Last contact of the interrupted synchronization, or null
+     * @return true if all operations are applied
+     */
+    private static boolean saveEventsFromAllContactWithBirthday(Context context, SyncStats syncStats,
+                                                                @Nullable SyncCancellation cancellation,
+                                                                long syncTime,
+                                                                @Nullable String lookupKeyOfCheckpoint) {
+        CalendarStore calendarStore = getCalendarStore(context);
+        long calendarId = calendarStore.getOrCreateCalendar();
+        if (calendarId == -1) {
+            Log.e(TAG, "Unable to create calendar");
+            return false;
+        }
 
-            Log.d(TAG, "Applying the batch was successful!");
-        } catch (RemoteException |OperationApplicationException e) {
-            Log.e(TAG, "Applying batch error!", e);
+        List<Contact> contactList = ContactLoader.getAllContacts(context, syncStats);
+        if (contactList == null) {
+            Log.e(TAG, "Synchronization aborted, contacts unavailable");
+            return false;
         }
+        // Create, update and delete events with reminders in multiple batches,
+        // otherwise the binder transaction fails on large list of operations
+        Log.d(TAG, "Start synchronization of " + contactList.size() + " contacts...");
+        CalendarSynchronizer calendarSynchronizer = getCalendarSynchronizer(context, calendarStore);
+        calendarSynchronizer.setSyncStats(syncStats);
+        calendarSynchronizer.setCancellation(cancellation);
+        FullSynchronization fullSynchronization = new FullSynchronization(getEventLock(context), getContactReader(context),
+                EventLinkDbHelper.getDbHelper(context));
+        CalendarSynchronizer.Result result = fullSynchronization.synchronizeAllContacts(calendarSynchronizer,
+                calendarId, contactList, syncTime, lookupKeyOfCheckpoint);
+        if (result.isSuccessful())
+            Log.d(TAG, "Synchronization was successful! " + result);
+        else
+            Log.e(TAG, "Synchronization error! " + result);
+
+        if (result.isCanceled())
+            syncStats.setCanceled(true);
+        return result.isSuccessful();
     }
 
     /**
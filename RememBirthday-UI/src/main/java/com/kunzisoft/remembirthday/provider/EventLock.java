@@ -0,0 +1,241 @@
+package com.kunzisoft.remembirthday.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Locks of the events of the birthday calendar. <br />
+ * <ul>
+ *     <li>Operations on the events of one contact lock the contact,
+ *     contacts are spread on stripes by lookup key, so two contacts rarely wait for each other</li>
+ *     <li>Operations on the whole calendar (ex: reconcile all links) lock the calendar,
+ *     no contact can be locked at the same time</li>
+ *     <li>Full synchronizations are serialized with a separate lock,
+ *     they don't block the contacts while they read the calendar,
+ *     each chunk of operations locks the contacts it writes</li>
+ * </ul>
+ * Contacts unlocked by other threads during a full synchronization are remembered,
+ * the synchronization reads them again before writing their events.
+ * A full synchronization must never be started while a contact is locked by the same thread,
+ * otherwise two threads can wait for each other. <br />
+ * These locks only exclude the threads of one process, the processes of the application (ex: sync adapter
+ * in the process :calendar) are excluded by a {@link ProcessLock} held with each of them.
+ * A process waits for the whole full synchronization of another one, even to lock a contact.
+ */
+public class EventLock {
+
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 32;
+
+    private final ReentrantReadWriteLock calendarLock;
+    private final ReentrantLock fullSyncLock;
+    private final ReentrantLock[] contactLocks;
+    // Null if the calendar is only written by one process
+    private final ProcessLock processLock;
+    // Lookup keys of contacts modified by other threads since the start of the full synchronization
+    private final Set<String> contactsChangedDuringFullSync;
+
+    public EventLock() {
+        this(DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * @param numberOfStripes Number of locks shared by the contacts, rounded up to a power of two
+     */
+    public EventLock(int numberOfStripes) {
+        this(numberOfStripes, null);
+    }
+
+    /**
+     * @param numberOfStripes Number of locks shared by the contacts, rounded up to a power of two
+     * @param processLock Lock shared with the other processes, or null
+     */
+    public EventLock(int numberOfStripes, ProcessLock processLock) {
+        if(numberOfStripes < 1)
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        int size = Integer.highestOneBit(numberOfStripes);
+        if(size < numberOfStripes)
+            size <<= 1;
+        this.calendarLock = new ReentrantReadWriteLock();
+        this.fullSyncLock = new ReentrantLock();
+        this.contactLocks = new ReentrantLock[size];
+        for(int i = 0; i < size; i++)
+            contactLocks[i] = new ReentrantLock();
+        this.processLock = processLock;
+        this.contactsChangedDuringFullSync =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    }
+
+    /**
+     * Lock the other processes, taken after the locks of the current process
+     */
+    private void lockProcess() {
+        if(processLock != null)
+            processLock.lock();
+    }
+
+    private void unlockProcess() {
+        if(processLock != null)
+            processLock.unlock();
+    }
+
+    /**
+     * Get the index of the stripe of a contact
+     * @param lookupKey Lookup key of contact, may be null
+     * @return Index of stripe
+     */
+    int getStripeIndex(String lookupKey) {
+        if(lookupKey == null)
+            return 0;
+        int hash = lookupKey.hashCode();
+        // Spread the high bits like HashMap
+        hash ^= (hash >>> 16);
+        return hash & (contactLocks.length - 1);
+    }
+
+    public int getNumberOfStripes() {
+        return contactLocks.length;
+    }
+
+    /**
+     * Lock the events of a contact, wait if the calendar is locked
+     * @param lookupKey Lookup key of contact, may be null
+     */
+    public void lockContact(String lookupKey) {
+        ReentrantLock contactLock = contactLocks[getStripeIndex(lookupKey)];
+        boolean contactLocked = false;
+        calendarLock.readLock().lock();
+        try {
+            contactLock.lock();
+            contactLocked = true;
+            lockProcess();
+        } catch (RuntimeException e) {
+            if(contactLocked)
+                contactLock.unlock();
+            calendarLock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    public void unlockContact(String lookupKey) {
+        // Recorded at the end of the modification, so a contact locked before the start is also seen
+        if(lookupKey != null && fullSyncLock.isLocked() && !fullSyncLock.isHeldByCurrentThread())
+            contactsChangedDuringFullSync.add(lookupKey);
+        unlockProcess();
+        contactLocks[getStripeIndex(lookupKey)].unlock();
+        calendarLock.readLock().unlock();
+    }
+
+    /**
+     * Get the stripes of contacts in ascending order, the order of locking avoids deadlocks
+     */
+    private Set<Integer> getStripeIndexes(Collection<String> lookupKeys) {
+        Set<Integer> stripeIndexes = new TreeSet<>();
+        for(String lookupKey : lookupKeys)
+            stripeIndexes.add(getStripeIndex(lookupKey));
+        return stripeIndexes;
+    }
+
+    /**
+     * Lock the events of several contacts, used to write a chunk of a synchronization.
+     * Wait if the calendar is locked
+     * @param lookupKeys Lookup keys of contacts
+     */
+    public void lockContacts(Collection<String> lookupKeys) {
+        calendarLock.readLock().lock();
+        List<ReentrantLock> locksTaken = new ArrayList<>();
+        try {
+            for(int stripeIndex : getStripeIndexes(lookupKeys)) {
+                contactLocks[stripeIndex].lock();
+                locksTaken.add(contactLocks[stripeIndex]);
+            }
+            lockProcess();
+        } catch (RuntimeException e) {
+            for(ReentrantLock lock : locksTaken)
+                lock.unlock();
+            calendarLock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    public void unlockContacts(Collection<String> lookupKeys) {
+        unlockProcess();
+        for(int stripeIndex : getStripeIndexes(lookupKeys))
+            contactLocks[stripeIndex].unlock();
+        calendarLock.readLock().unlock();
+    }
+
+    /**
+     * Determines whether a contact was modified by another thread since the start
+     * of the full synchronization held by the current thread
+     * @param lookupKey Lookup key of contact
+     * @return true if the events of the contact may have changed
+     */
+    public boolean isContactChangedDuringFullSync(String lookupKey) {
+        return lookupKey != null && contactsChangedDuringFullSync.contains(lookupKey);
+    }
+
+    /**
+     * @return Lookup keys of contacts modified by other threads since the start of the full synchronization
+     */
+    public Set<String> getContactsChangedDuringFullSync() {
+        return new HashSet<>(contactsChangedDuringFullSync);
+    }
+
+    /**
+     * Lock the whole calendar, wait until no contact is locked
+     * @throws IllegalStateException If a contact is locked by the current thread
+     */
+    public void lockCalendar() {
+        if(calendarLock.getReadHoldCount() > 0)
+            throw new IllegalStateException("Unable to lock the calendar when a contact is locked");
+        calendarLock.writeLock().lock();
+        try {
+            lockProcess();
+        } catch (RuntimeException e) {
+            calendarLock.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    public void unlockCalendar() {
+        unlockProcess();
+        calendarLock.writeLock().unlock();
+    }
+
+    /**
+     * Lock for a full synchronization, wait the end of the current one, in any process
+     * @throws IllegalStateException If a contact is locked by the current thread
+     */
+    public void lockFullSync() {
+        if(calendarLock.getReadHoldCount() > 0)
+            throw new IllegalStateException("Unable to start a full synchronization when a contact is locked");
+        fullSyncLock.lock();
+        try {
+            lockProcess();
+        } catch (RuntimeException e) {
+            fullSyncLock.unlock();
+            throw e;
+        }
+        contactsChangedDuringFullSync.clear();
+    }
+
+    public void unlockFullSync() {
+        unlockProcess();
+        fullSyncLock.unlock();
+    }
+
+    /**
+     * @return true if a full synchronization is running
+     */
+    public boolean isFullSyncLocked() {
+        return fullSyncLock.isLocked();
+    }
+}
@@ -0,0 +1,122 @@
+package com.kunzisoft.remembirthday.provider;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operation on an event and its reminders, applied by a {@link CalendarStore}
+ */
+public class EventOperation {
+
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private Type type;
+    private CalendarEvent event;
+    private String lookupKey;
+
+    private boolean applied;
+    private long eventId;
+    private List<Long> reminderIds;
+
+    private EventOperation(Type type, CalendarEvent event, String lookupKey) {
+        this.type = type;
+        this.event = event;
+        this.lookupKey = lookupKey;
+        this.applied = false;
+        this.eventId = CalendarEvent.ID_UNDEFINED;
+        this.reminderIds = new ArrayList<>();
+    }
+
+    /**
+     * Insert an event with its reminders
+     * @param event Event to insert
+     * @param lookupKey Lookup key of the contact linked to event, or null
+     */
+    public static EventOperation newInsert(CalendarEvent event, String lookupKey) {
+        return new EventOperation(Type.INSERT, event, lookupKey);
+    }
+
+    /**
+     * Update the dates and the title of an event, id must be specified
+     */
+    public static EventOperation newUpdate(CalendarEvent event) {
+        return new EventOperation(Type.UPDATE, event, null);
+    }
+
+    /**
+     * Delete an event with all its reminders, id must be specified
+     */
+    public static EventOperation newDelete(CalendarEvent event) {
+        return new EventOperation(Type.DELETE, event, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public CalendarEvent getEvent() {
+        return event;
+    }
+
+    public String getLookupKey() {
+        return lookupKey;
+    }
+
+    /**
+     * @return Number of operations of the calendar provider, the event with its reminders
+     */
+    public int getNumberOfProviderOperations() {
+        switch (type) {
+            case INSERT:
+                return 1 + event.getReminders().size();
+            case DELETE:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Assign the result of operation, called by the store
+     * @param eventId Id of event (new id for an insertion)
+     * @param reminderIds Ids of reminders inserted
+     */
+    public void setApplied(long eventId, List<Long> reminderIds) {
+        this.applied = true;
+        this.eventId = eventId;
+        this.reminderIds = reminderIds;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * @return Id of event after the operation, {@link CalendarEvent#ID_UNDEFINED} if not applied
+     */
+    public long getEventId() {
+        return eventId;
+    }
+
+    /**
+     * @return Ids of reminders inserted with the event
+     */
+    public List<Long> getReminderIds() {
+        return reminderIds;
+    }
+
+    @Override
+    public String toString() {
+        return "EventOperation{" +
+                "type=" + type +
+                ", event=" + event +
+                ", applied=" + applied +
+                '}';
+    }
+}
@@ -26,11 +26,36 @@ public class EventProvider {
 
     private static final String TAG = "EventProvider";
 
+    /**
+     * Get the uri who links an event to a contact
+     * @param lookupKey Lookup key of contact
+     * @return Value of {@link CalendarContract.Events#CUSTOM_APP_URI}
+     */
+    public static String getCustomAppUri(String lookupKey) {
+        return Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_LOOKUP_URI, lookupKey).toString();
+    }
+
     /**
      * Get a new ContentProviderOperation to insert an event
      */
     public static ContentProviderOperation insert(Context context, long calendarId,
                                                   CalendarEvent event, @Nullable Contact contact) {
+        return newInsert(context, calendarId, event, contact).build();
+    }
+
+    /**
+     * Get a new ContentProviderOperation.Builder to insert an event
+     */
+    public static ContentProviderOperation.Builder newInsert(Context context, long calendarId,
+                                                             CalendarEvent event, @Nullable Contact contact) {
+        return newInsert(context, calendarId, event, contact != null ? contact.getLookUpKey() : null);
+    }
+
+    /**
+     * Get a new ContentProviderOperation.Builder to insert an event linked to a contact by its lookup key
+     */
+    public static ContentProviderOperation.Builder newInsert(Context context, long calendarId,
+                                                             CalendarEvent event, @Nullable String lookupKey) {
         ContentProviderOperation.Builder builder;
 
         builder = ContentProviderOperation.newInsert(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Events.CONTENT_URI));
@@ -55,14 +80,12 @@ public class EventProvider {
         }
 
         // add button to open contact
-        if (Build.VERSION.SDK_INT >= 16 && contact != null && contact.getLookUpKey() != null) {
+        if (Build.VERSION.SDK_INT >= 16 && lookupKey != null) {
             builder.withValue(CalendarContract.Events.CUSTOM_APP_PACKAGE, context.getPackageName());
-            Uri contactLookupUri = Uri.withAppendedPath(
-                    ContactsContract.Contacts.CONTENT_LOOKUP_URI, contact.getLookUpKey());
-            builder.withValue(CalendarContract.Events.CUSTOM_APP_URI, contactLookupUri.toString());
+            builder.withValue(CalendarContract.Events.CUSTOM_APP_URI, getCustomAppUri(lookupKey));
         }
         Log.d(TAG, "Build insert event : " + event);
-        return builder.build();
+        return builder;
     }
 
     /**
@@ -71,6 +94,18 @@ public class EventProvider {
      * @return ContentProviderOperation to apply or null if no id
      */
     public static ContentProviderOperation update(CalendarEvent event) {
+        ContentProviderOperation.Builder builder = newUpdate(event);
+        if(builder != null)
+            return builder.build();
+        return null;
+    }
+
+    /**
+     * Update the specific event, id must be specified
+     * @param event Event to update
+     * @return ContentProviderOperation.Builder to apply or null if no id
+     */
+    public static ContentProviderOperation.Builder newUpdate(CalendarEvent event) {
         if(event.hasId()) {
             ContentProviderOperation.Builder builder;
             builder = ContentProviderOperation.newUpdate(
@@ -78,7 +113,7 @@ public class EventProvider {
             // Push values
             assignValuesInBuilder(builder, event);
             Log.d(TAG, "Build update event : " + event);
-            return builder.build();
+            return builder;
         } else {
             Log.e(TAG, "Can't update the event, there is no id");
             return null;
@@ -113,12 +148,24 @@ public class EventProvider {
      * @return ContentProviderOperation to apply or null if no id
      */
     public static ContentProviderOperation delete(CalendarEvent event) {
+        ContentProviderOperation.Builder builder = newDelete(event);
+        if(builder != null)
+            return builder.build();
+        return null;
+    }
+
+    /**
+     * Delete the specific event, id must be specified
+     * @param event Event to deleteById
+     * @return ContentProviderOperation.Builder to apply or null if no id
+     */
+    public static ContentProviderOperation.Builder newDelete(CalendarEvent event) {
         if(event.hasId()) {
             ContentProviderOperation.Builder builder;
             builder = ContentProviderOperation.newDelete(
                     ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, event.getId()));
             Log.d(TAG, "Build deleteById event : " + event);
-            return builder.build();
+            return builder;
         } else {
             Log.e(TAG, "Can't deleteById the event, there is no id");
             return null;
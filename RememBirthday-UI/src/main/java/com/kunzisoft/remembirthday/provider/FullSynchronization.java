@@ -0,0 +1,78 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.support.annotation.Nullable;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Full synchronization of the birthday calendar with its links of events. <br />
+ * The links of each chunk are replaced with the contacts of the chunk locked.
+ * At the end, the links of contacts deleted or without birthday are removed with the calendar locked,
+ * contacts saved by other threads during the synchronization have their own links and are kept.
+ * The full synchronization of the {@link EventLock} must be held by the current thread.
+ */
+class FullSynchronization {
+
+    private EventLock eventLock;
+    private CalendarSynchronizer.ContactReader contactReader;
+    private EventLinkStore eventLinkStore;
+
+    /**
+     * @param eventLock Lock of events
+     * @param contactReader Reader of the contacts modified during the synchronization
+     * @param eventLinkStore Links of events to update
+     */
+    FullSynchronization(EventLock eventLock, CalendarSynchronizer.ContactReader contactReader,
+                        EventLinkStore eventLinkStore) {
+        this.eventLock = eventLock;
+        this.contactReader = contactReader;
+        this.eventLinkStore = eventLinkStore;
+    }
+
+    /**
+     * Synchronize all contacts and update the links of events
+     * @param calendarSynchronizer Synchronizer, its lock and its checkpoint listener are replaced
+     * @param calendarId Id of the birthday calendar
+     * @param contacts All contacts with birthday
+     * @param syncTime Start time of the synchronization, saved with the checkpoints
+     * @param lookupKeyOfCheckpoint Checkpoint of an interrupted synchronization, or null
+     * @return Result of synchronization
+     */
+    CalendarSynchronizer.Result synchronizeAllContacts(CalendarSynchronizer calendarSynchronizer,
+                                                       long calendarId,
+                                                       List<Contact> contacts,
+                                                       final long syncTime,
+                                                       @Nullable String lookupKeyOfCheckpoint) {
+        calendarSynchronizer.setEventLock(eventLock, contactReader);
+        calendarSynchronizer.setCheckpointListener(new CalendarSynchronizer.CheckpointListener() {
+            @Override
+            public void onChunkApplied(CalendarSynchronizer.Result chunkResult,
+                                       @Nullable String lookupKeyOfCheckpoint) {
+                // Links with the checkpoint, contacts skipped at the next start must be linked.
+                // Contacts of the chunk are locked
+                eventLinkStore.replaceEventLinksOfContacts(chunkResult.getEventIdsByContact(),
+                        syncTime, lookupKeyOfCheckpoint);
+            }
+        });
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeAllContacts(calendarId,
+                contacts, lookupKeyOfCheckpoint);
+
+        if (!result.isCanceled()) {
+            // Links of contacts deleted or without birthday,
+            // contacts saved by other threads during the synchronization have their own links
+            eventLock.lockCalendar();
+            try {
+                Set<String> lookupKeysToKeep = new HashSet<>(result.getLookupKeysWithBirthday());
+                lookupKeysToKeep.addAll(eventLock.getContactsChangedDuringFullSync());
+                eventLinkStore.retainEventLinksOfContacts(lookupKeysToKeep);
+            } finally {
+                eventLock.unlockCalendar();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,227 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.support.annotation.Nullable;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.Reminder;
+
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Store of the birthday calendar in memory, thread-safe. <br />
+ * Used to measure and test the synchronization without the calendar provider.
+ * Events are copied at each read and write, like rows of a database.
+ */
+public class InMemoryCalendarStore implements CalendarStore {
+
+    private long calendarId;
+    private long nextId;
+    // Id of event -> Event saved
+    private Map<Long, StoredEvent> events;
+    // Lookup key -> Ids of events
+    private Map<String, Set<Long>> eventIdsByLookupKey;
+
+    private int numberOfBatches;
+    private long numberOfOperations;
+
+    public InMemoryCalendarStore() {
+        this.calendarId = -1;
+        this.nextId = 1;
+        this.events = new LinkedHashMap<>();
+        this.eventIdsByLookupKey = new HashMap<>();
+        this.numberOfBatches = 0;
+        this.numberOfOperations = 0;
+    }
+
+    private static CalendarEvent copyEvent(long id, CalendarEvent event) {
+        CalendarEvent copy = new CalendarEvent(event.getTitle(), event.getDateStart(), event.getDateStop());
+        copy.setAllDay(event.isAllDay());
+        copy.setDescription(event.getDescription());
+        copy.setId(id);
+        return copy;
+    }
+
+    @Override
+    public synchronized long getOrCreateCalendar() {
+        if(calendarId == -1)
+            calendarId = nextId++;
+        return calendarId;
+    }
+
+    @Override
+    public synchronized CalendarEventIndex queryEvents(long calendarId) {
+        CalendarEventIndex calendarEventIndex = new CalendarEventIndex();
+        for(StoredEvent storedEvent : events.values()) {
+            if(storedEvent.calendarId == calendarId)
+                calendarEventIndex.put(storedEvent.lookupKey, copyEvent(storedEvent.id, storedEvent.event));
+        }
+        return calendarEventIndex;
+    }
+
+    @Override
+    public synchronized CalendarEventIndex queryEventsOfContact(long calendarId, Contact contact) {
+        CalendarEventIndex calendarEventIndex = new CalendarEventIndex();
+        if(contact.getLookUpKey() == null)
+            return calendarEventIndex;
+        Set<Long> eventIds = eventIdsByLookupKey.get(contact.getLookUpKey());
+        if(eventIds != null) {
+            for(long eventId : eventIds) {
+                StoredEvent storedEvent = events.get(eventId);
+                if(storedEvent.calendarId == calendarId)
+                    calendarEventIndex.put(storedEvent.lookupKey, copyEvent(storedEvent.id, storedEvent.event));
+            }
+        }
+        return calendarEventIndex;
+    }
+
+    @Override
+    public synchronized Set<String> queryLookupKeysOfEventsBetween(long calendarId,
+                                                                   LocalDate firstDay, LocalDate lastDay) {
+        Set<String> lookupKeys = new HashSet<>();
+        for(StoredEvent storedEvent : events.values()) {
+            LocalDate day = new LocalDate(storedEvent.event.getDate());
+            if(storedEvent.calendarId == calendarId && storedEvent.lookupKey != null
+                    && !day.isBefore(firstDay) && !day.isAfter(lastDay))
+                lookupKeys.add(storedEvent.lookupKey);
+        }
+        return lookupKeys;
+    }
+
+    @Override
+    public synchronized List<CalendarEvent> queryEventsById(Collection<Long> eventIds) {
+        List<CalendarEvent> calendarEvents = new ArrayList<>();
+        for(long eventId : eventIds) {
+            StoredEvent storedEvent = events.get(eventId);
+            if(storedEvent != null)
+                calendarEvents.add(copyEvent(storedEvent.id, storedEvent.event));
+        }
+        return calendarEvents;
+    }
+
+    @Override
+    public synchronized List<Reminder> queryReminders(CalendarEvent event) {
+        List<Reminder> reminders = new ArrayList<>();
+        StoredEvent storedEvent = events.get(event.getId());
+        if(storedEvent != null) {
+            for(Map.Entry<Long, Integer> reminderEntry : storedEvent.minutesByReminderId.entrySet()) {
+                Reminder reminder = new Reminder(storedEvent.event.getDate(), reminderEntry.getValue());
+                reminder.setId(reminderEntry.getKey());
+                reminders.add(reminder);
+            }
+        }
+        return reminders;
+    }
+
+    /**
+     * Apply each operation immediately, an update or a delete of an unknown event is ignored
+     * like a selection without row in the calendar provider
+     */
+    @Override
+    public synchronized boolean applyBatch(long calendarId, List<EventOperation> eventOperations,
+                                           @Nullable SyncStats syncStats) {
+        long startTime = System.nanoTime();
+        long numberOfOperationsBefore = numberOfOperations;
+        numberOfBatches++;
+        for(EventOperation eventOperation : eventOperations) {
+            CalendarEvent event = eventOperation.getEvent();
+            switch (eventOperation.getType()) {
+                case INSERT:
+                    StoredEvent storedEvent = new StoredEvent(nextId++, calendarId,
+                            eventOperation.getLookupKey(), copyEvent(CalendarEvent.ID_UNDEFINED, event));
+                    List<Long> reminderIds = new ArrayList<>();
+                    for(Reminder reminder : event.getReminders()) {
+                        long reminderId = nextId++;
+                        storedEvent.minutesByReminderId.put(reminderId, reminder.getMinutesBeforeEvent());
+                        reminderIds.add(reminderId);
+                    }
+                    events.put(storedEvent.id, storedEvent);
+                    if(storedEvent.lookupKey != null) {
+                        Set<Long> eventIds = eventIdsByLookupKey.get(storedEvent.lookupKey);
+                        if(eventIds == null) {
+                            eventIds = new HashSet<>();
+                            eventIdsByLookupKey.put(storedEvent.lookupKey, eventIds);
+                        }
+                        eventIds.add(storedEvent.id);
+                    }
+                    numberOfOperations += 1 + reminderIds.size();
+                    eventOperation.setApplied(storedEvent.id, reminderIds);
+                    break;
+                case UPDATE:
+                    StoredEvent storedEventToUpdate = events.get(event.getId());
+                    if(storedEventToUpdate != null)
+                        storedEventToUpdate.event = copyEvent(CalendarEvent.ID_UNDEFINED, event);
+                    numberOfOperations++;
+                    eventOperation.setApplied(event.getId(), new ArrayList<Long>());
+                    break;
+                case DELETE:
+                    StoredEvent storedEventToDelete = events.remove(event.getId());
+                    if(storedEventToDelete != null && storedEventToDelete.lookupKey != null) {
+                        Set<Long> eventIds = eventIdsByLookupKey.get(storedEventToDelete.lookupKey);
+                        eventIds.remove(storedEventToDelete.id);
+                        if(eventIds.isEmpty())
+                            eventIdsByLookupKey.remove(storedEventToDelete.lookupKey);
+                    }
+                    // Reminders and event
+                    numberOfOperations += 2;
+                    eventOperation.setApplied(event.getId(), new ArrayList<Long>());
+                    break;
+            }
+        }
+        if(syncStats != null)
+            syncStats.record(SyncStats.Phase.APPLY_BATCH, System.nanoTime() - startTime,
+                    numberOfOperations - numberOfOperationsBefore, SyncStats.UNKNOWN);
+        return true;
+    }
+
+    /**
+     * @return Number of events saved
+     */
+    public synchronized int getNumberOfEvents() {
+        return events.size();
+    }
+
+    /**
+     * @return Number of calls of {@link #applyBatch(long, List, SyncStats)}
+     */
+    public synchronized int getNumberOfBatches() {
+        return numberOfBatches;
+    }
+
+    /**
+     * @return Number of operations applied, counted like the operations of the calendar provider
+     */
+    public synchronized long getNumberOfOperations() {
+        return numberOfOperations;
+    }
+
+    /**
+     * Event saved with its link and its reminders
+     */
+    private static class StoredEvent {
+
+        private long id;
+        private long calendarId;
+        private String lookupKey;
+        private CalendarEvent event;
+        // Id of reminder -> Minutes before event
+        private Map<Long, Integer> minutesByReminderId;
+
+        private StoredEvent(long id, long calendarId, String lookupKey, CalendarEvent event) {
+            this.id = id;
+            this.calendarId = calendarId;
+            this.lookupKey = lookupKey;
+            this.event = event;
+            this.minutesByReminderId = new LinkedHashMap<>();
+        }
+    }
+}
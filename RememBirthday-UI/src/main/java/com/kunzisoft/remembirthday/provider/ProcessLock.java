@@ -0,0 +1,86 @@
+package com.kunzisoft.remembirthday.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Lock shared by the processes of the application on a file (ex: sync adapter in the process :calendar). <br />
+ * The lock of the file is held by the process while at least one of its threads holds this lock,
+ * the threads of the same process are not excluded from each other and must use their own locks.
+ * Only one instance by file must exist in a process.
+ */
+public class ProcessLock {
+
+    private final File file;
+    private int holdCount;
+    private RandomAccessFile randomAccessFile;
+    private FileLock fileLock;
+
+    /**
+     * @param file File to lock, created if it doesn't exist
+     */
+    public ProcessLock(File file) {
+        this.file = file;
+        this.holdCount = 0;
+    }
+
+    /**
+     * Hold the lock for the current thread, wait if another process holds it
+     * @throws IllegalStateException If the file can't be locked
+     */
+    public synchronized void lock() {
+        if (holdCount == 0) {
+            // A new channel by lock, an interruption closes the channel
+            RandomAccessFile newFile = null;
+            try {
+                newFile = new RandomAccessFile(file, "rw");
+                FileChannel channel = newFile.getChannel();
+                fileLock = channel.lock();
+                randomAccessFile = newFile;
+            } catch (IOException e) {
+                closeQuietly(newFile);
+                throw new IllegalStateException("Unable to lock " + file, e);
+            }
+        }
+        holdCount++;
+    }
+
+    /**
+     * Release the lock held by the current thread, the file is unlocked by the last one
+     */
+    public synchronized void unlock() {
+        if (holdCount == 0)
+            throw new IllegalStateException("Lock of " + file + " not held");
+        holdCount--;
+        if (holdCount == 0) {
+            try {
+                fileLock.release();
+            } catch (IOException ignored) {
+                // Released by closing the channel
+            } finally {
+                fileLock = null;
+                closeQuietly(randomAccessFile);
+                randomAccessFile = null;
+            }
+        }
+    }
+
+    /**
+     * @return true if a thread of the current process holds the lock
+     */
+    public synchronized boolean isLocked() {
+        return holdCount > 0;
+    }
+
+    private static void closeQuietly(RandomAccessFile randomAccessFile) {
+        if (randomAccessFile == null)
+            return;
+        try {
+            randomAccessFile.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -15,40 +15,55 @@ public class ReminderProvider {
     private static final String TAG = "ReminderProvider";
 
     public static ContentProviderOperation insert(Context context, long eventId, Reminder reminder) {
+        return newInsert(context, eventId, reminder).build();
+    }
+
+    public static ContentProviderOperation.Builder newInsert(Context context, long eventId, Reminder reminder) {
         ContentProviderOperation.Builder builder = ContentProviderOperation
                 .newInsert(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI));
         builder.withValue(CalendarContract.Reminders.EVENT_ID, eventId);
         return insert(builder, reminder);
     }
 
-
     public static ContentProviderOperation insert(Context context, Reminder reminder, int backref) {
-        ContentProviderOperation.Builder builder = ContentProviderOperation
-                .newInsert(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI));
+        ContentProviderOperation.Builder builder = newInsert(context, reminder);
         /*
          * add reminder to last added event identified by backRef
          * see http://stackoverflow.com/questions/4655291/semantics-of-
          * withvaluebackreference
          */
         builder.withValueBackReference(CalendarContract.Reminders.EVENT_ID, backref);
+        return builder.build();
+    }
+
+    /**
+     * Get a builder to insert a reminder without event id,
+     * the event id must be added with a back reference (see {@link BatchExecutor.OperationGroup#addWithBackReference})
+     */
+    public static ContentProviderOperation.Builder newInsert(Context context, Reminder reminder) {
+        ContentProviderOperation.Builder builder = ContentProviderOperation
+                .newInsert(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI));
         return insert(builder, reminder);
     }
 
-    private static ContentProviderOperation insert(ContentProviderOperation.Builder builder, Reminder reminder) {
+    private static ContentProviderOperation.Builder insert(ContentProviderOperation.Builder builder, Reminder reminder) {
         builder.withValue(CalendarContract.Reminders.MINUTES, reminder.getMinutesBeforeEvent());
         builder.withValue(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT);
-        return builder.build();
+        return builder;
     }
 
     public static ContentProviderOperation update(Context context, long eventId, Reminder reminder) {
-        ContentProviderOperation.Builder builder = ContentProviderOperation
+        return newUpdate(context, eventId, reminder).build();
+    }
+
+    public static ContentProviderOperation.Builder newUpdate(Context context, long eventId, Reminder reminder) {
+        return ContentProviderOperation
                 .newUpdate(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI))
             .withSelection(CalendarContract.Reminders._ID + " =?"
                     + " AND " + CalendarContract.Reminders.EVENT_ID + " =?"
                 , new String[]{String.valueOf(reminder.getId()),
                     String.valueOf(eventId)})
             .withValue(CalendarContract.Reminders.MINUTES, reminder.getMinutesBeforeEvent());
-        return  builder.build();
     }
 
     public static ContentProviderOperation updateWithUnknownId(Context context, long eventId, Reminder reminder, int newMinutes) {
@@ -64,31 +79,40 @@ public class ReminderProvider {
     }
 
     public static ContentProviderOperation delete(Context context, long eventId, Reminder reminder) {
-        ContentProviderOperation.Builder builder = ContentProviderOperation
+        return newDelete(context, eventId, reminder).build();
+    }
+
+    public static ContentProviderOperation.Builder newDelete(Context context, long eventId, Reminder reminder) {
+        return ContentProviderOperation
                 .newDelete(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI))
                 .withSelection(CalendarContract.Reminders._ID + " =?"
                                 + " AND " + CalendarContract.Reminders.EVENT_ID + " =?"
                         , new String[]{String.valueOf(reminder.getId()),
                                 String.valueOf(eventId)});
-        return  builder.build();
     }
 
     public static ContentProviderOperation deleteWithUnknownId(Context context, long eventId, Reminder reminder) {
+        return newDeleteWithUnknownId(context, eventId, reminder).build();
+    }
+
+    public static ContentProviderOperation.Builder newDeleteWithUnknownId(Context context, long eventId, Reminder reminder) {
         // TODO delete
-        ContentProviderOperation.Builder builder = ContentProviderOperation
+        return ContentProviderOperation
                 .newDelete(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI))
                 .withSelection(CalendarContract.Reminders.EVENT_ID + " =?"
                                 + " AND " + CalendarContract.Reminders.MINUTES + " =?"
                         , new String[]{String.valueOf(eventId),
                                 String.valueOf(reminder.getMinutesBeforeEvent())});
-        return  builder.build();
     }
 
     public static ContentProviderOperation deleteAll(Context context, long eventId) {
-        ContentProviderOperation.Builder builder = ContentProviderOperation
+        return newDeleteAll(context, eventId).build();
+    }
+
+    public static ContentProviderOperation.Builder newDeleteAll(Context context, long eventId) {
+        return ContentProviderOperation
                 .newDelete(CalendarLoader.getBirthdayAdapterUri(context, CalendarContract.Reminders.CONTENT_URI))
                 .withSelection(CalendarContract.Reminders.EVENT_ID + " =?"
                         , new String[]{String.valueOf(eventId)});
-        return  builder.build();
     }
 }
@@ -0,0 +1,26 @@
+package com.kunzisoft.remembirthday.provider;
+
+/**
+ * Request to stop a synchronization, can be called from any thread. <br />
+ * The synchronization checks it between contacts and between chunks of operations,
+ * the chunks already applied are kept and the next synchronization resumes after them.
+ */
+public class SyncCancellation {
+
+    private volatile boolean canceled;
+
+    public SyncCancellation() {
+        this.canceled = false;
+    }
+
+    /**
+     * Stop the synchronization at the next check
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+}
@@ -0,0 +1,333 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timings of the phases of a synchronization, with the number of elements and bytes processed. <br />
+ * Each phase recorded is sent to the listener, so the progress can be streamed during the synchronization.
+ * A phase can be recorded multiple times (ex: one record for each batch applied).
+ * The operations applied are counted to fill the result of the sync adapter.
+ */
+public class SyncStats {
+
+    public static final String TYPE_FULL = "full";
+    public static final String TYPE_DELTA = "delta";
+
+    /**
+     * Value of count or bytes when not measured
+     */
+    public static final long UNKNOWN = -1;
+
+    public enum Phase {
+        CONTACT_QUERY,
+        DATE_PARSING,
+        EVENT_QUERY,
+        EVENT_DIFF,
+        OPERATION_BUILD,
+        APPLY_BATCH
+    }
+
+    private long id;
+    private String type;
+    private long startTime;
+    private long durationMillis;
+    private boolean successful;
+    private boolean canceled;
+    private int numberOfInserts;
+    private int numberOfUpdates;
+    private int numberOfDeletes;
+    private int numberOfSkippedEntries;
+    private List<PhaseRecord> phaseRecords;
+    private Listener listener;
+    private boolean bytesMeasured;
+
+    /**
+     * Start the statistics of a new synchronization
+     * @param type Type of synchronization, {@link #TYPE_FULL} or {@link #TYPE_DELTA}
+     */
+    public SyncStats(String type) {
+        this(-1, type, System.currentTimeMillis());
+    }
+
+    /**
+     * Statistics of a synchronization already done
+     */
+    public SyncStats(long id, String type, long startTime) {
+        this.id = id;
+        this.type = type;
+        this.startTime = startTime;
+        this.durationMillis = 0;
+        this.successful = false;
+        this.canceled = false;
+        this.numberOfInserts = 0;
+        this.numberOfUpdates = 0;
+        this.numberOfDeletes = 0;
+        this.numberOfSkippedEntries = 0;
+        this.phaseRecords = new ArrayList<>();
+        this.listener = null;
+        this.bytesMeasured = false;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Measure the number of bytes of each batch applied, only to debug:
+     * each batch is written in a parcel to be measured. Not measured by default
+     * @param bytesMeasured true to measure the bytes
+     */
+    public void setBytesMeasured(boolean bytesMeasured) {
+        this.bytesMeasured = bytesMeasured;
+    }
+
+    public boolean isBytesMeasured() {
+        return bytesMeasured;
+    }
+
+    /**
+     * Record a phase and send it to the listener
+     * @param phase Phase of synchronization
+     * @param durationNanos Time spent in the phase, from {@link System#nanoTime()}
+     * @param count Number of elements processed or {@link #UNKNOWN}
+     * @param bytes Number of bytes processed or {@link #UNKNOWN}
+     */
+    public void record(Phase phase, long durationNanos, long count, long bytes) {
+        PhaseRecord phaseRecord = new PhaseRecord(phase, durationNanos, count, bytes);
+        phaseRecords.add(phaseRecord);
+        if (listener != null)
+            listener.onPhaseRecorded(phaseRecord);
+    }
+
+    /**
+     * Add a phase retrieved from the history, the listener is not called
+     */
+    public void addPhaseRecord(PhaseRecord phaseRecord) {
+        phaseRecords.add(phaseRecord);
+    }
+
+    /**
+     * Count the operations of a batch
+     * @param inserts Number of events inserted
+     * @param updates Number of events updated
+     * @param deletes Number of events deleted
+     * @param skippedEntries Number of operations not applied, failed or canceled
+     */
+    public void addOperations(int inserts, int updates, int deletes, int skippedEntries) {
+        numberOfInserts += inserts;
+        numberOfUpdates += updates;
+        numberOfDeletes += deletes;
+        numberOfSkippedEntries += skippedEntries;
+    }
+
+    /**
+     * Stop the statistics at the end of synchronization
+     * @param successful true if all operations are applied
+     */
+    public void finish(boolean successful) {
+        this.successful = successful;
+        this.durationMillis = System.currentTimeMillis() - startTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public void setSuccessful(boolean successful) {
+        this.successful = successful;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    public void setCanceled(boolean canceled) {
+        this.canceled = canceled;
+    }
+
+    public int getNumberOfInserts() {
+        return numberOfInserts;
+    }
+
+    public int getNumberOfUpdates() {
+        return numberOfUpdates;
+    }
+
+    public int getNumberOfDeletes() {
+        return numberOfDeletes;
+    }
+
+    public int getNumberOfSkippedEntries() {
+        return numberOfSkippedEntries;
+    }
+
+    public List<PhaseRecord> getPhaseRecords() {
+        return Collections.unmodifiableList(phaseRecords);
+    }
+
+    /**
+     * Sum the records of each phase, the number of records is lost
+     * @return One record by phase, in the order of phases
+     */
+    public List<PhaseRecord> getPhaseTotals() {
+        Map<Phase, PhaseRecord> totals = new EnumMap<>(Phase.class);
+        for (PhaseRecord phaseRecord : phaseRecords) {
+            PhaseRecord total = totals.get(phaseRecord.phase);
+            if (total == null) {
+                totals.put(phaseRecord.phase, new PhaseRecord(phaseRecord.phase,
+                        phaseRecord.durationNanos, phaseRecord.count, phaseRecord.bytes));
+            } else {
+                total.durationNanos += phaseRecord.durationNanos;
+                total.count = addKnown(total.count, phaseRecord.count);
+                total.bytes = addKnown(total.bytes, phaseRecord.bytes);
+            }
+        }
+        return new ArrayList<>(totals.values());
+    }
+
+    private static long addKnown(long value, long other) {
+        if (value == UNKNOWN)
+            return other;
+        if (other == UNKNOWN)
+            return value;
+        return value + other;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("SyncStats{type=").append(type)
+                .append(", durationMillis=").append(durationMillis)
+                .append(", successful=").append(successful)
+                .append(", canceled=").append(canceled)
+                .append(", inserted=").append(numberOfInserts)
+                .append(", updated=").append(numberOfUpdates)
+                .append(", deleted=").append(numberOfDeletes)
+                .append(", skipped=").append(numberOfSkippedEntries);
+        for (PhaseRecord phaseRecord : getPhaseTotals()) {
+            stringBuilder.append(", ").append(phaseRecord);
+        }
+        return stringBuilder.append('}').toString();
+    }
+
+    /**
+     * Time, elements and bytes of one phase, the time is kept in nanoseconds so the short records
+     * of a phase are not lost in the total, it is only rounded to display it
+     */
+    public static class PhaseRecord {
+
+        private static final String KEY_PHASE = "phase";
+        private static final String KEY_DURATION = "durationNanos";
+        private static final String KEY_COUNT = "count";
+        private static final String KEY_BYTES = "bytes";
+
+        private Phase phase;
+        private long durationNanos;
+        private long count;
+        private long bytes;
+
+        /**
+         * @param phase Phase of synchronization
+         * @param durationNanos Time spent in the phase
+         * @param count Number of elements processed or {@link #UNKNOWN}
+         * @param bytes Number of bytes processed or {@link #UNKNOWN}
+         */
+        public PhaseRecord(Phase phase, long durationNanos, long count, long bytes) {
+            this.phase = phase;
+            this.durationNanos = durationNanos;
+            this.count = count;
+            this.bytes = bytes;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * @return Time spent in the phase, rounded to the millisecond
+         */
+        public long getDurationMillis() {
+            return Math.round(durationNanos / 1000000.0);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return Bundle to send the record in a message
+         */
+        public Bundle toBundle() {
+            Bundle bundle = new Bundle();
+            bundle.putString(KEY_PHASE, phase.name());
+            bundle.putLong(KEY_DURATION, durationNanos);
+            bundle.putLong(KEY_COUNT, count);
+            bundle.putLong(KEY_BYTES, bytes);
+            return bundle;
+        }
+
+        /**
+         * @param bundle Bundle built by {@link #toBundle()}
+         * @return Record or null if the bundle contains no record
+         */
+        public static PhaseRecord fromBundle(Bundle bundle) {
+            if (bundle == null || !bundle.containsKey(KEY_PHASE))
+                return null;
+            return new PhaseRecord(Phase.valueOf(bundle.getString(KEY_PHASE)),
+                    bundle.getLong(KEY_DURATION),
+                    bundle.getLong(KEY_COUNT, UNKNOWN),
+                    bundle.getLong(KEY_BYTES, UNKNOWN));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder stringBuilder = new StringBuilder(phase.name())
+                    .append('=').append(getDurationMillis()).append("ms");
+            if (count != UNKNOWN)
+                stringBuilder.append('/').append(count);
+            if (bytes != UNKNOWN)
+                stringBuilder.append('/').append(bytes).append('B');
+            return stringBuilder.toString();
+        }
+    }
+
+    /**
+     * Listener called after each phase recorded, in the thread of the synchronization
+     */
+    public interface Listener {
+        void onPhaseRecorded(PhaseRecord phaseRecord);
+    }
+}
@@ -0,0 +1,183 @@
+package com.kunzisoft.remembirthday.service;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.ContactsContract;
+import android.util.Log;
+
+import com.kunzisoft.remembirthday.account.CalendarAccount;
+import com.kunzisoft.remembirthday.database.EventLinkDbHelper;
+import com.kunzisoft.remembirthday.preference.PreferencesManager;
+import com.kunzisoft.remembirthday.provider.ContactLoader;
+import com.kunzisoft.remembirthday.utility.Utility;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Observer of the contacts data, who synchronizes the birthdays modified outside the application. <br />
+ * A burst of modifications (ex: import of an account) is coalesced in one delta synchronization,
+ * launched when no modification is received during {@link #DEBOUNCE_DELAY_MILLIS},
+ * or at most {@link #MAX_DELAY_MILLIS} after the first one. <br />
+ * The notifications do not contain the contacts modified, so the contacts are compared with the time
+ * of the last synchronization successful. A synchronization is only launched if a contact modified since
+ * has a birthday or is linked to events (its birthday may be removed), or if a contact is deleted.
+ * The time of modification is by contact, not by row of data: a modification of another field
+ * (ex: phone number) of a contact with birthday also launches a synchronization, without operation
+ * on the calendar, when a modification of a contact without birthday is ignored.
+ * A synchronization failed or canceled keeps this time, so the next notification tries again. <br />
+ * Registered only in the main process, the application is also created in the processes of the sync adapter
+ * and of the authenticator, which would each launch the same synchronizations. The synchronizations of the
+ * observer run one at a time, at most one waits after it, and are excluded from the synchronizations of the
+ * sync adapter by the lock of events. <br />
+ * Needs the time of modification of contacts (API 18), older versions are only synchronized
+ * by the sync adapter. Must be registered again when the permission of contacts is granted.
+ */
+public class BirthdayContentObserver extends ContentObserver {
+
+    private static final String TAG = "BirthdayContentObserver";
+
+    public static final long DEBOUNCE_DELAY_MILLIS = 3000;
+    public static final long MAX_DELAY_MILLIS = 30000;
+
+    private static BirthdayContentObserver birthdayContentObserver;
+
+    private Context context;
+    private Handler handler;
+    private ExecutorService syncExecutor;
+    // A synchronization waits in the executor
+    private AtomicBoolean syncPending;
+    // Time of the first modification not yet synchronized, 0 if none
+    private long firstChangeTime;
+
+    private Runnable launchSyncRunnable = new Runnable() {
+        @Override
+        public void run() {
+            firstChangeTime = 0;
+            launchSync();
+        }
+    };
+
+    private BirthdayContentObserver(Context context, Handler handler) {
+        super(handler);
+        this.context = context;
+        this.handler = handler;
+        this.syncExecutor = Executors.newSingleThreadExecutor();
+        this.syncPending = new AtomicBoolean(false);
+        this.firstChangeTime = 0;
+    }
+
+    /**
+     * Register the observer of contacts data, only once and only in the main process.
+     * Does nothing without the permission of contacts, can be called again after the permission is granted
+     * @param context Context to call
+     */
+    public static synchronized void register(Context context) {
+        if (birthdayContentObserver != null
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2)
+            return;
+        Context applicationContext = context.getApplicationContext();
+        if (!Utility.isMainProcess(applicationContext)) {
+            Log.d(TAG, "Observer of contacts not registered outside the main process");
+            return;
+        }
+        BirthdayContentObserver observer = new BirthdayContentObserver(
+                applicationContext, new Handler(Looper.getMainLooper()));
+        try {
+            applicationContext.getContentResolver().registerContentObserver(
+                    ContactsContract.Data.CONTENT_URI, true, observer);
+            birthdayContentObserver = observer;
+            Log.d(TAG, "Observer of contacts registered");
+        } catch (SecurityException e) {
+            Log.w(TAG, "Unable to observe contacts, permission not granted", e);
+        }
+    }
+
+    /**
+     * Unregister the observer of contacts data
+     * @param context Context to call
+     */
+    public static synchronized void unregister(Context context) {
+        if (birthdayContentObserver == null)
+            return;
+        context.getApplicationContext().getContentResolver()
+                .unregisterContentObserver(birthdayContentObserver);
+        birthdayContentObserver.handler.removeCallbacks(birthdayContentObserver.launchSyncRunnable);
+        birthdayContentObserver.syncExecutor.shutdown();
+        birthdayContentObserver = null;
+    }
+
+    @Override
+    public void onChange(boolean selfChange) {
+        onChange(selfChange, null);
+    }
+
+    @Override
+    public void onChange(boolean selfChange, Uri uri) {
+        // Called on the main thread by the handler
+        long now = SystemClock.elapsedRealtime();
+        if (firstChangeTime == 0)
+            firstChangeTime = now;
+        handler.removeCallbacks(launchSyncRunnable);
+        long delay = Math.min(DEBOUNCE_DELAY_MILLIS, firstChangeTime + MAX_DELAY_MILLIS - now);
+        handler.postDelayed(launchSyncRunnable, Math.max(0, delay));
+    }
+
+    /**
+     * Determines whether the birthdays may have changed since a time, only the contacts modified with
+     * a birthday or with links of events, and the contacts deleted, are synchronized by the delta synchronization
+     * @param timestamp Time in milliseconds
+     * @return true if a delta synchronization is needed
+     */
+    private boolean hasBirthdaysChangedSince(long timestamp) {
+        if (ContactLoader.hasContactsDeletedSince(context, timestamp))
+            return true;
+        Set<String> lookupKeysChanged = ContactLoader.getLookupKeysChangedSince(context, timestamp);
+        if (lookupKeysChanged.isEmpty())
+            return false;
+        if (!ContactLoader.getContactsWithBirthdayChangedSince(context, timestamp).isEmpty())
+            return true;
+        // Birthday removed from a contact linked to events
+        lookupKeysChanged.retainAll(EventLinkDbHelper.getDbHelper(context).getLookupKeys());
+        return !lookupKeysChanged.isEmpty();
+    }
+
+    /**
+     * Queue a delta synchronization if none is already waiting
+     */
+    private void launchSync() {
+        if (!syncPending.compareAndSet(false, true)) {
+            Log.d(TAG, "Synchronization already waiting");
+            return;
+        }
+        syncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Modifications received from now need a new synchronization
+                syncPending.set(false);
+                if (!PreferencesManager.isCustomCalendarActive(context)
+                        || !CalendarAccount.isAccountActivated(context))
+                    return;
+                try {
+                    // Token saved by the last synchronization successful
+                    long syncToken = EventLinkDbHelper.getDbHelper(context).getSyncToken();
+                    if (syncToken > 0 && !hasBirthdaysChangedSince(syncToken)) {
+                        Log.d(TAG, "Birthdays not modified since " + syncToken);
+                        return;
+                    }
+                    if (!CalendarSyncAdapterService.performDeltaSync(context))
+                        Log.w(TAG, "Delta synchronization not finished, retried at the next modification");
+                } catch (SecurityException e) {
+                    Log.e(TAG, "Unable to synchronize birthdays, permission not granted", e);
+                }
+            }
+        });
+    }
+}
@@ -16,6 +16,8 @@ import android.util.Log;
 import com.kunzisoft.remembirthday.account.AccountResolver;
 import com.kunzisoft.remembirthday.account.CalendarAccount;
 import com.kunzisoft.remembirthday.provider.EventLoader;
+import com.kunzisoft.remembirthday.provider.SyncCancellation;
+import com.kunzisoft.remembirthday.provider.SyncStats;
 
 @SuppressLint("NewApi")
 public class CalendarSyncAdapterService extends Service {
@@ -31,20 +33,62 @@ public class CalendarSyncAdapterService extends Service {
         return new CalendarSyncAdapter().getSyncAdapterBinder();
     }
 
+    /**
+     * Synchronize the contacts modified for the sync manager, the operations are counted in the sync result
+     * so the sync manager can back off after an error
+     * @throws OperationCanceledException If the sync manager canceled the synchronization,
+     * the next one resumes after the last chunk applied
+     */
     private static void performSync(Context context, Account account, Bundle extras,
-                                    String authority, ContentProviderClient provider, SyncResult syncResult)
+                                    String authority, ContentProviderClient provider, SyncResult syncResult,
+                                    SyncCancellation cancellation)
             throws OperationCanceledException {
-        performSync(context);
+        Log.d(TAG, "Starting delta sync of " + account.name + "...");
+        SyncStats syncStats = EventLoader.saveEventsIfNotExistsFromContactsChangedWithBirthday(context,
+                null, cancellation);
+        syncResult.stats.numInserts += syncStats.getNumberOfInserts();
+        syncResult.stats.numUpdates += syncStats.getNumberOfUpdates();
+        syncResult.stats.numDeletes += syncStats.getNumberOfDeletes();
+        syncResult.stats.numSkippedEntries += syncStats.getNumberOfSkippedEntries();
+        if (syncStats.isCanceled())
+            throw new OperationCanceledException("Synchronization canceled " + syncStats);
+        // Soft error, the sync manager retries later with a back-off
+        if (!syncStats.isSuccessful())
+            syncResult.stats.numIoExceptions++;
     }
 
+    /**
+     * Synchronize all contacts with the calendar
+     */
     public static void performSync(Context context) {
+        performSync(context, null);
+    }
+
+    /**
+     * Synchronize all contacts with the calendar
+     * @param syncStatsListener Listener of each phase of the synchronization, or null
+     */
+    public static void performSync(Context context, SyncStats.Listener syncStatsListener) {
         Log.d(TAG, "Starting sync...");
-        EventLoader.saveEventsIfNotExistsFromAllContactWithBirthday(context);
+        EventLoader.saveEventsIfNotExistsFromAllContactWithBirthday(context, syncStatsListener, null);
+    }
+
+    /**
+     * Synchronize only the contacts modified since the last synchronization
+     * @return true if the synchronization is finished and all operations are applied
+     */
+    public static boolean performDeltaSync(Context context) {
+        Log.d(TAG, "Starting delta sync...");
+        SyncStats syncStats = EventLoader.saveEventsIfNotExistsFromContactsChangedWithBirthday(context);
+        return syncStats.isSuccessful() && !syncStats.isCanceled();
     }
 
 
     private class CalendarSyncAdapter extends AbstractThreadedSyncAdapter {
 
+        // Cancellation of the current synchronization, only one at a time
+        private volatile SyncCancellation cancellation;
+
         CalendarSyncAdapter() {
             super(CalendarSyncAdapterService.this, true);
         }
@@ -52,14 +96,25 @@ public class CalendarSyncAdapterService extends Service {
         @Override
         public void onPerformSync(Account account, Bundle extras, String authority,
                                   ContentProviderClient provider, SyncResult syncResult) {
+            cancellation = new SyncCancellation();
             try {
                 CalendarSyncAdapterService.performSync(CalendarSyncAdapterService.this, account, extras, authority,
-                        provider, syncResult);
+                        provider, syncResult, cancellation);
             } catch (OperationCanceledException e) {
-                Log.e(getClass().getSimpleName(), "OperationCanceledException", e);
+                Log.w(getClass().getSimpleName(), "OperationCanceledException", e);
+            } finally {
+                cancellation = null;
             }
         }
 
+        @Override
+        public void onSyncCanceled() {
+            SyncCancellation currentCancellation = cancellation;
+            if (currentCancellation != null)
+                currentCancellation.cancel();
+            super.onSyncCanceled();
+        }
+
         @Override
         public void onSecurityException(Account account, Bundle extras, String authority, SyncResult syncResult) {
             super.onSecurityException(account, extras, authority, syncResult);
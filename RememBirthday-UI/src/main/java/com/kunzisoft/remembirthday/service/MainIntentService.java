@@ -14,6 +14,7 @@ import com.kunzisoft.remembirthday.account.BackgroundStatusHandler;
 import com.kunzisoft.remembirthday.account.CalendarAccount;
 import com.kunzisoft.remembirthday.preference.PreferencesManager;
 import com.kunzisoft.remembirthday.provider.CalendarLoader;
+import com.kunzisoft.remembirthday.provider.SyncStats;
 
 /**
  * An IntentServices queues incoming Intents and works them one by one.
@@ -88,8 +89,13 @@ public class MainIntentService extends IntentService {
                     }
                     break;
                 case ACTION_MANUAL_COMPLETE_SYNC:
-                    // perform blocking sync
-                    CalendarSyncAdapterService.performSync(this);
+                    // perform blocking sync, each phase is sent to the handler
+                    CalendarSyncAdapterService.performSync(this, new SyncStats.Listener() {
+                        @Override
+                        public void onPhaseRecorded(SyncStats.PhaseRecord phaseRecord) {
+                            sendSyncPhaseWithHandler(phaseRecord);
+                        }
+                    });
                     break;
             }
             setProgressCircleWithHandler(false);
@@ -105,6 +111,17 @@ public class MainIntentService extends IntentService {
             msg.what = BackgroundStatusHandler.BACKGROUND_STATUS_HANDLER_DISABLE;
         }
 
+        sendMessageWithHandler(msg);
+    }
+
+    private void sendSyncPhaseWithHandler(SyncStats.PhaseRecord phaseRecord) {
+        Message msg = Message.obtain();
+        msg.what = BackgroundStatusHandler.BACKGROUND_STATUS_HANDLER_SYNC_PHASE;
+        msg.setData(phaseRecord.toBundle());
+        sendMessageWithHandler(msg);
+    }
+
+    private void sendMessageWithHandler(Message msg) {
         if (mMessenger != null) {
             try {
                 mMessenger.send(msg);
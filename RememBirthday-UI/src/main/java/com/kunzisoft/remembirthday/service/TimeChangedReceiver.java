@@ -0,0 +1,43 @@
+package com.kunzisoft.remembirthday.service;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+
+import com.kunzisoft.remembirthday.element.DateFormatterPool;
+import com.kunzisoft.remembirthday.element.PackedDate;
+
+/**
+ * Receiver of the changes of time and of time zone, who refreshes the caches of dates of the process. <br />
+ * Registered in each process of the application, each one has its own caches.
+ */
+public class TimeChangedReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "TimeChangedReceiver";
+
+    private static TimeChangedReceiver timeChangedReceiver;
+
+    /**
+     * Register the receiver for the current process, only once
+     * @param context Context to call
+     */
+    public static synchronized void register(Context context) {
+        if (timeChangedReceiver != null)
+            return;
+        timeChangedReceiver = new TimeChangedReceiver();
+        IntentFilter intentFilter = new IntentFilter();
+        intentFilter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        intentFilter.addAction(Intent.ACTION_TIME_CHANGED);
+        context.getApplicationContext().registerReceiver(timeChangedReceiver, intentFilter);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Log.d(TAG, "Time changed : " + intent.getAction());
+        if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction()))
+            DateFormatterPool.refreshTimeZone();
+        PackedDate.clearToday();
+    }
+}
@@ -1,11 +1,13 @@
 package com.kunzisoft.remembirthday.utility;
 
 import android.app.Activity;
+import android.app.ActivityManager;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.database.Cursor;
 import android.graphics.drawable.Drawable;
+import android.os.Process;
 import android.provider.ContactsContract;
 import android.util.Log;
 import android.view.View;
@@ -17,6 +19,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
@@ -60,6 +63,25 @@ public class Utility {
         return !ranBefore;
     }
 
+    /**
+     * Determines whether the current process is the main process of the application,
+     * the application is also created in the processes of its services (ex: sync adapter)
+     * @param context Context to call
+     * @return true if the name of the process is the package name
+     */
+    public static boolean isMainProcess(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        List<ActivityManager.RunningAppProcessInfo> processes = activityManager.getRunningAppProcesses();
+        if (processes == null)
+            return false;
+        int pid = Process.myPid();
+        for (ActivityManager.RunningAppProcessInfo processInfo : processes) {
+            if (processInfo.pid == pid)
+                return context.getPackageName().equals(processInfo.processName);
+        }
+        return false;
+    }
+
     /**
      * Assign custom phrase in TextView to describe the number of days remaining until the birthday
      * @param textView View used to display text
@@ -0,0 +1,188 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Contacts kept by position for a generation of data, and prefetched by runs of rows in background
+ */
+public class ContactCacheTest {
+
+    private static Contact contact(int position) {
+        return new Contact(position, "lookup" + position, "Contact " + position);
+    }
+
+    @Test
+    public void put_sameGeneration() throws Exception {
+        ContactCache contactCache = new ContactCache(10);
+        int generation = contactCache.getGeneration();
+        contactCache.put(generation, 3, contact(3));
+        assertEquals(contact(3), contactCache.get(3));
+        assertNull(contactCache.get(4));
+
+        contactCache.invalidate();
+        assertNull(contactCache.get(3));
+        // Built for the previous data
+        contactCache.put(generation, 3, contact(3));
+        assertNull(contactCache.get(3));
+
+        // Bounded
+        for (int i = 0; i < 20; i++) {
+            contactCache.put(contactCache.getGeneration(), i, contact(i));
+        }
+        assertNull(contactCache.get(0));
+        assertEquals(contact(19), contactCache.get(19));
+    }
+
+    private static Contact[] contacts(int start, int end) {
+        Contact[] contacts = new Contact[end - start];
+        for (int i = 0; i < contacts.length; i++) {
+            contacts[i] = contact(start + i);
+        }
+        return contacts;
+    }
+
+    @Test
+    public void prefetchAround_rowsAroundByRuns() throws Exception {
+        final ContactCache contactCache = new ContactCache(ContactCache.DEFAULT_MAX_SIZE);
+        final List<String> runs = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch endOfPrefetch = new CountDownLatch(1);
+        final int itemCount = 100;
+        // Rows already in the cache are not built again
+        contactCache.put(contactCache.getGeneration(), 50, contact(50));
+        contactCache.prefetchAround(45, itemCount, new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                runs.add(start + "-" + end);
+                return contacts(start, end);
+            }
+        });
+        // Prefetches are done in order, the end of this one is after the end of the previous one
+        contactCache.prefetchAround(5, itemCount, new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                endOfPrefetch.countDown();
+                return new Contact[end - start];
+            }
+        });
+        assertTrue(endOfPrefetch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("25-50", "51-66"), runs);
+        for (int position = 25; position < 66; position++) {
+            assertEquals(contact(position), contactCache.get(position));
+        }
+        assertNull(contactCache.get(24));
+        assertNull(contactCache.get(5));
+    }
+
+    @Test
+    public void prefetchAround_keptForGeneration() throws Exception {
+        final ContactCache contactCache = new ContactCache(ContactCache.DEFAULT_MAX_SIZE);
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        final CountDownLatch endOfPrefetch = new CountDownLatch(1);
+        contactCache.prefetchAround(0, 100, new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                try {
+                    assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return contacts(start, end);
+            }
+        });
+        // Data changed during the prefetch
+        contactCache.invalidate();
+        invalidated.countDown();
+        contactCache.prefetchAround(60, 100, new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                endOfPrefetch.countDown();
+                return contacts(start, end);
+            }
+        });
+        assertTrue(endOfPrefetch.await(5, TimeUnit.SECONDS));
+        // Only the contacts of the last prefetch are kept, the put is done after the build
+        for (int i = 0; i < 100 && contactCache.get(60) == null; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(contact(60), contactCache.get(60));
+        assertEquals(contact(40), contactCache.get(40));
+        assertNull(contactCache.get(0));
+    }
+
+    @Test
+    public void load_onlyMissingRows() throws Exception {
+        final ContactCache contactCache = new ContactCache(ContactCache.DEFAULT_MAX_SIZE);
+        final List<String> runs = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch loaded = new CountDownLatch(1);
+        final int[] generationLoaded = {-1};
+        contactCache.put(contactCache.getGeneration(), 25, contact(25));
+        contactCache.load(20, 40, new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                runs.add(start + "-" + end);
+                return contacts(start, end);
+            }
+        }, new ContactCache.OnContactsLoadedListener() {
+            @Override
+            public void onContactsLoaded(int generation) {
+                generationLoaded[0] = generation;
+                loaded.countDown();
+            }
+        });
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        assertEquals(contactCache.getGeneration(), generationLoaded[0]);
+        assertEquals(Arrays.asList("20-25", "26-40"), runs);
+        for (int position = 20; position < 40; position++) {
+            assertEquals(contact(position), contactCache.get(position));
+        }
+    }
+
+    @Test
+    public void load_notCalledForPreviousGeneration() throws Exception {
+        final ContactCache contactCache = new ContactCache(ContactCache.DEFAULT_MAX_SIZE);
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        final CountDownLatch endOfPrefetch = new CountDownLatch(1);
+        final List<Integer> generationsLoaded = Collections.synchronizedList(new ArrayList<Integer>());
+        contactCache.load(0, 20, new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                try {
+                    assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return contacts(start, end);
+            }
+        }, new ContactCache.OnContactsLoadedListener() {
+            @Override
+            public void onContactsLoaded(int generation) {
+                generationsLoaded.add(generation);
+            }
+        });
+        // Data changed during the load
+        contactCache.invalidate();
+        invalidated.countDown();
+        // Loads and prefetches are done in order
+        contactCache.prefetchAround(60, 100, new ContactCache.ContactBuilder() {
+            @Override
+            public Contact[] buildContacts(int start, int end) {
+                endOfPrefetch.countDown();
+                return new Contact[end - start];
+            }
+        });
+        assertTrue(endOfPrefetch.await(5, TimeUnit.SECONDS));
+        assertTrue(generationsLoaded.isEmpty());
+        assertNull(contactCache.get(0));
+    }
+}
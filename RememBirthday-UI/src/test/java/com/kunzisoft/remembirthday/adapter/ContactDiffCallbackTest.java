@@ -0,0 +1,72 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Items and contents compared between two indexes of rows of contacts
+ */
+public class ContactDiffCallbackTest {
+
+    private static ContactRowIndex rows(long[] rowIds, String[]... columns) {
+        String[] lookupKeys = new String[rowIds.length];
+        long[] contentHashes = new long[rowIds.length];
+        for (int i = 0; i < rowIds.length; i++) {
+            lookupKeys[i] = "lookup" + rowIds[i];
+            contentHashes[i] = ContactRowIndex.hashColumns(columns[i]);
+        }
+        return new ContactRowIndex(rowIds, lookupKeys, contentHashes);
+    }
+
+    @Test
+    public void sameContacts() throws Exception {
+        ContactRowIndex oldRows = rows(new long[]{1, 2},
+                new String[]{"Alice", null, "1990-05-17"},
+                new String[]{"Bob", "content://thumbnail/2", "--01-02"});
+        ContactRowIndex newRows = rows(new long[]{2, 1},
+                new String[]{"Bob", "content://thumbnail/2", "--01-02"},
+                new String[]{"Alice", null, "1990-05-17"});
+        ContactDiffCallback callback = new ContactDiffCallback(oldRows, newRows, true);
+        assertEquals(2, callback.getOldListSize());
+        assertEquals(2, callback.getNewListSize());
+        assertTrue(callback.areItemsTheSame(0, 1));
+        assertTrue(callback.areContentsTheSame(0, 1));
+        assertFalse(callback.areItemsTheSame(0, 0));
+
+        // Days left computed another day
+        assertFalse(new ContactDiffCallback(oldRows, newRows, false).areContentsTheSame(0, 1));
+    }
+
+    @Test
+    public void contentsChanged() throws Exception {
+        ContactRowIndex oldRows = rows(new long[]{1, 2, 3},
+                new String[]{"Alice", null, "1990-05-17"},
+                new String[]{"Bob", null, "1985-01-02"},
+                new String[]{"Carol", null, "1970-03-04"});
+        ContactRowIndex newRows = rows(new long[]{1, 2, 3},
+                new String[]{"Alice Martin", null, "1990-05-17"},
+                new String[]{"Bob", null, "1985-01-03"},
+                new String[]{"Carol", "content://thumbnail/3", "1970-03-04"});
+        ContactDiffCallback callback = new ContactDiffCallback(oldRows, newRows, true);
+        for (int i = 0; i < oldRows.size(); i++) {
+            assertTrue(callback.areItemsTheSame(i, i));
+            assertFalse(callback.areContentsTheSame(i, i));
+        }
+    }
+
+    @Test
+    public void contentsChanged_sameHashOf32Bits() throws Exception {
+        // "Aa" and "BB" have the same String.hashCode
+        ContactRowIndex oldRows = rows(new long[]{1, 2},
+                new String[]{"Aa", null, "1990-05-17"},
+                new String[]{"ab", null, "1985-01-02"});
+        ContactRowIndex newRows = rows(new long[]{1, 2},
+                new String[]{"BB", null, "1990-05-17"},
+                new String[]{"a", "b", "1985-01-02"});
+        ContactDiffCallback callback = new ContactDiffCallback(oldRows, newRows, true);
+        assertFalse(callback.areContentsTheSame(0, 0));
+        // Columns moved between two columns
+        assertFalse(callback.areContentsTheSame(1, 1));
+    }
+}
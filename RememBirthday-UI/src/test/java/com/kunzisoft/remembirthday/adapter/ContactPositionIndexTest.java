@@ -0,0 +1,41 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Positions of the index compared with the search in the list
+ */
+public class ContactPositionIndexTest {
+
+    @Test
+    public void getPosition_sameAsIndexOf() throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // A contact with two birthdays each 10 contacts
+            long id = i % 10 == 9 ? i - 1 : i;
+            contacts.add(new Contact(id, "lookup" + id, "Contact " + id));
+        }
+        ContactPositionIndex contactPositionIndex = ContactPositionIndex.fromContacts(contacts);
+        for (Contact contact : contacts) {
+            assertEquals(contacts.indexOf(contact), contactPositionIndex.getPositionById(contact.getId()));
+            assertEquals(contacts.indexOf(contact),
+                    contactPositionIndex.getPositionByLookupKey(contact.getLookUpKey()));
+        }
+        assertEquals(ContactAdapter.POSITION_UNDEFINED, contactPositionIndex.getPositionById(5000));
+        assertEquals(ContactAdapter.POSITION_UNDEFINED, contactPositionIndex.getPositionByLookupKey("unknown"));
+    }
+
+    @Test
+    public void put_idUndefined() throws Exception {
+        ContactPositionIndex contactPositionIndex = new ContactPositionIndex(1);
+        contactPositionIndex.put(Contact.ID_UNDEFINED, null, 0);
+        assertEquals(ContactAdapter.POSITION_UNDEFINED, contactPositionIndex.getPositionById(Contact.ID_UNDEFINED));
+    }
+}
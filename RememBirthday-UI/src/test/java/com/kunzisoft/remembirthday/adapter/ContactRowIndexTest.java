@@ -0,0 +1,37 @@
+package com.kunzisoft.remembirthday.adapter;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keys of the rows kept in the index and in the index reordered
+ */
+public class ContactRowIndexTest {
+
+    @Test
+    public void reorder_sameRows() throws Exception {
+        ContactRowIndex rows = new ContactRowIndex(
+                new long[]{10, 20, 30},
+                new String[]{"lookup10", "lookup20", null},
+                new long[]{ContactRowIndex.hashColumns("Alice"), ContactRowIndex.hashColumns("Bob"),
+                        ContactRowIndex.hashColumns("Carol", null)});
+        ContactRowIndex sortedRows = rows.reorder(new int[]{2, 0, 1});
+        assertEquals(3, sortedRows.size());
+        assertEquals(30, sortedRows.getRowId(0));
+        assertNull(sortedRows.getLookupKey(0));
+        assertEquals(ContactRowIndex.hashColumns("Carol", null), sortedRows.getContentHash(0));
+        assertEquals(10, sortedRows.getRowId(1));
+        assertEquals("lookup20", sortedRows.getLookupKey(2));
+        assertArrayEquals(new long[]{10, 20}, sortedRows.getRowIds(1, 3));
+        // The index reordered is a copy
+        assertEquals(10, rows.getRowId(0));
+
+        ContactPositionIndex positionIndex = sortedRows.toPositionIndex();
+        assertEquals(1, positionIndex.getPositionById(10));
+        assertEquals(2, positionIndex.getPositionByLookupKey("lookup20"));
+        assertEquals(new Contact(20, "lookup20", "Bob"), sortedRows.getKeyContact(2));
+    }
+}
@@ -0,0 +1,149 @@
+package com.kunzisoft.remembirthday.element;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Next birthdays of the index compared with a scan of all contacts
+ */
+public class BirthdayIndexTest {
+
+    private static Contact buildContact(long id, String lookupKey, int year, int month, int day) {
+        Contact contact = new Contact("Contact " + lookupKey,
+                new DateUnknownYear(new GregorianCalendar(year, month - 1, day).getTime()));
+        contact.setId(id);
+        contact.setLookUpKey(lookupKey);
+        return contact;
+    }
+
+    /**
+     * Scan all the contacts
+     */
+    private static List<String> scanUpcomingContacts(List<Contact> contacts, int packedToday, int numberOfDays) {
+        List<String> lookupKeys = new ArrayList<>();
+        for (int days = 0; days < numberOfDays; days++) {
+            for (Contact contact : contacts) {
+                if (PackedDate.getDaysUntilNextAnniversary(contact.getBirthday().getPackedDate(), packedToday) == days)
+                    lookupKeys.add(contact.getLookUpKey());
+            }
+        }
+        return lookupKeys;
+    }
+
+    private static List<String> getLookupKeys(List<Contact> contacts) {
+        List<String> lookupKeys = new ArrayList<>();
+        for (Contact contact : contacts) {
+            lookupKeys.add(contact.getLookUpKey());
+        }
+        return lookupKeys;
+    }
+
+    @Test
+    public void getUpcomingContacts_sameAsScan() throws Exception {
+        Random random = new Random(3);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(PackedDate.getDaysInMonth(2000, month));
+            contacts.add(buildContact(i, String.valueOf(i), 1950 + random.nextInt(60), month, day));
+        }
+        contacts.add(buildContact(1000, "leap", 1988, 2, 29));
+        contacts.add(buildContact(1001, "before leap", 1990, 2, 28));
+        BirthdayIndex birthdayIndex = new BirthdayIndex(contacts);
+        assertEquals(contacts.size(), birthdayIndex.size());
+
+        int[] todays = {
+                PackedDate.pack(2023, 1, 1), PackedDate.pack(2023, 2, 28), PackedDate.pack(2023, 3, 1),
+                PackedDate.pack(2024, 2, 28), PackedDate.pack(2024, 2, 29), PackedDate.pack(2023, 12, 20),
+                PackedDate.pack(2023, 12, 31), PackedDate.pack(2027, 3, 1)
+        };
+        int[] numbersOfDays = {0, 1, 7, 30, 45, 365, 366, 1000};
+        for (int today : todays) {
+            for (int numberOfDays : numbersOfDays) {
+                String message = PackedDate.getYear(today) + "-" + PackedDate.getMonth(today) + "-"
+                        + PackedDate.getDay(today) + " + " + numberOfDays;
+                List<Contact> upcomingContacts = birthdayIndex.getUpcomingContacts(today, numberOfDays);
+                // Order of contacts the same day is not defined
+                List<String> lookupKeys = getLookupKeys(upcomingContacts);
+                List<String> expectedLookupKeys = scanUpcomingContacts(contacts, today, numberOfDays);
+                Collections.sort(lookupKeys);
+                Collections.sort(expectedLookupKeys);
+                assertEquals(message, expectedLookupKeys, lookupKeys);
+                int previousDays = 0;
+                for (Contact contact : upcomingContacts) {
+                    int days = PackedDate.getDaysUntilNextAnniversary(contact.getBirthday().getPackedDate(), today);
+                    assertTrue(message, days >= previousDays);
+                    previousDays = days;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void put_updateBirthday() throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        contacts.add(buildContact(1, "a", 1990, 1, 5));
+        contacts.add(buildContact(2, "b", 1990, 12, 30));
+        BirthdayIndex birthdayIndex = new BirthdayIndex(contacts);
+        int today = PackedDate.pack(2023, 12, 29);
+        assertEquals(2, birthdayIndex.getUpcomingContacts(today, 10).size());
+
+        // Birthday moved outside of the period
+        birthdayIndex.put(buildContact(1, "a", 1990, 2, 5));
+        assertEquals(2, birthdayIndex.size());
+        assertEquals(Arrays.asList("b"), getLookupKeys(birthdayIndex.getUpcomingContacts(today, 10)));
+
+        // Birthday deleted
+        Contact contactWithoutBirthday = new Contact("b");
+        contactWithoutBirthday.setId(2);
+        contactWithoutBirthday.setLookUpKey("b");
+        birthdayIndex.put(contactWithoutBirthday);
+        assertEquals(1, birthdayIndex.size());
+        assertTrue(birthdayIndex.getUpcomingContacts(today, 10).isEmpty());
+
+        assertTrue(birthdayIndex.remove(1));
+        assertFalse(birthdayIndex.remove(1));
+        assertEquals(0, birthdayIndex.size());
+    }
+
+    @Test
+    public void put_contactsWithoutLookupKey() throws Exception {
+        BirthdayIndex birthdayIndex = new BirthdayIndex();
+        birthdayIndex.put(buildContact(1, null, 1990, 3, 1));
+        birthdayIndex.put(buildContact(2, null, 1991, 3, 1));
+        // Without id, can't be updated
+        birthdayIndex.put(buildContact(Contact.ID_UNDEFINED, "c", 1992, 3, 1));
+        assertEquals(2, birthdayIndex.size());
+
+        assertTrue(birthdayIndex.remove(2));
+        List<Contact> upcomingContacts = birthdayIndex.getUpcomingContacts(PackedDate.pack(2023, 3, 1), 1);
+        assertEquals(1, upcomingContacts.size());
+        assertEquals(1, upcomingContacts.get(0).getId());
+    }
+
+    @Test
+    public void getNextContacts_firstDayWithBirthday() throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        contacts.add(buildContact(1, "a", 1990, 1, 5));
+        contacts.add(buildContact(2, "b", 1985, 1, 5));
+        contacts.add(buildContact(3, "c", 1990, 12, 30));
+        contacts.add(buildContact(4, "leap", 1988, 2, 29));
+        BirthdayIndex birthdayIndex = new BirthdayIndex(contacts);
+
+        List<String> lookupKeys = getLookupKeys(birthdayIndex.getNextContacts(PackedDate.pack(2023, 12, 31)));
+        Collections.sort(lookupKeys);
+        assertEquals(Arrays.asList("a", "b"), lookupKeys);
+        assertEquals(Arrays.asList("c"), getLookupKeys(birthdayIndex.getNextContacts(PackedDate.pack(2023, 12, 30))));
+        // February 29 on February 28 in common years
+        assertEquals(Arrays.asList("leap"), getLookupKeys(birthdayIndex.getNextContacts(PackedDate.pack(2023, 1, 6))));
+        assertTrue(new BirthdayIndex().getNextContacts(PackedDate.pack(2023, 1, 6)).isEmpty());
+    }
+}
@@ -0,0 +1,147 @@
+package com.kunzisoft.remembirthday.element;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Strings of dates with the formatters of the pool compared with new formatters
+ */
+public class DateFormatterPoolTest {
+
+    private Locale defaultLocale;
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void saveLocale() {
+        defaultLocale = Locale.getDefault();
+        defaultTimeZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+        TimeZone.setDefault(defaultTimeZone);
+        DateFormatterPool.refreshTimeZone();
+    }
+
+    /**
+     * Month and day with a new formatter, like before the pool
+     */
+    private static String formatMonthAndDay(Date date, int style) {
+        SimpleDateFormat sdf = (SimpleDateFormat) DateFormat.getDateInstance(style, Locale.getDefault());
+        sdf.applyPattern(sdf.toPattern().replaceAll(
+                "([^\\p{Alpha}']|('[\\p{Alpha}]+'))*y+([^\\p{Alpha}']|('[\\p{Alpha}]+'))*",
+                ""));
+        return sdf.format(date);
+    }
+
+    @Test
+    public void toString_sameAsNewFormatters() throws Exception {
+        Date date = new GregorianCalendar(1990, 4, 17).getTime();
+        DateUnknownYear withYear = new DateUnknownYear(date, true);
+        DateUnknownYear withoutYear = new DateUnknownYear(date, false);
+        Locale[] locales = {Locale.US, Locale.FRANCE, Locale.GERMANY, Locale.JAPAN, new Locale("ru", "RU")};
+        for (Locale locale : locales) {
+            Locale.setDefault(locale);
+            // Twice to read the formatters kept
+            for (int i = 0; i < 2; i++) {
+                assertEquals(DateFormat.getDateInstance(DateFormat.MEDIUM, locale).format(date), withYear.toString());
+                assertEquals(formatMonthAndDay(date, DateFormat.MEDIUM), withoutYear.toString());
+                assertEquals(formatMonthAndDay(date, DateFormat.LONG), withYear.toStringMonthAndDay(DateFormat.LONG));
+                assertEquals(new SimpleDateFormat("yyyy", locale).format(date), withYear.toStringYear());
+                assertEquals("1990-05-17", withYear.toBackupString());
+                assertEquals("--05-17", withoutYear.toBackupString());
+            }
+        }
+    }
+
+    @Test
+    public void getDateFormat_keptByThread() throws Exception {
+        Locale.setDefault(Locale.US);
+        assertSame(DateFormatterPool.getDateFormat("yyyy"), DateFormatterPool.getDateFormat("yyyy"));
+        assertSame(DateFormatterPool.getMonthAndDayInstance(DateFormat.SHORT),
+                DateFormatterPool.getMonthAndDayInstance(DateFormat.SHORT));
+
+        final DateFormat[] otherThreadDateFormat = new DateFormat[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                otherThreadDateFormat[0] = DateFormatterPool.getDateFormat("yyyy");
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(DateFormatterPool.getDateFormat("yyyy"), otherThreadDateFormat[0]);
+    }
+
+    @Test
+    public void getMonthAndDayInstance_localeChanged() throws Exception {
+        Date date = new GregorianCalendar(1990, 4, 17).getTime();
+        Locale.setDefault(Locale.US);
+        DateFormat usDateFormat = DateFormatterPool.getMonthAndDayInstance(DateFormat.LONG);
+        assertEquals("May 17", usDateFormat.format(date));
+        Locale.setDefault(Locale.FRANCE);
+        DateFormat frenchDateFormat = DateFormatterPool.getMonthAndDayInstance(DateFormat.LONG);
+        assertNotSame(usDateFormat, frenchDateFormat);
+        assertEquals("17 mai", frenchDateFormat.format(date));
+        assertEquals("d MMMM", DateFormatterPool.getMonthAndDayPattern(Locale.FRANCE, DateFormat.LONG));
+    }
+
+    @Test
+    public void getDateFormat_timeZoneChanged() throws Exception {
+        Locale.setDefault(Locale.US);
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+        DateFormatterPool.refreshTimeZone();
+        Date date = new GregorianCalendar(1990, 4, 17).getTime();
+        DateFormat parisDateFormat = DateFormatterPool.getDateFormat("yyyy-MM-dd");
+        assertEquals("1990-05-17", parisDateFormat.format(date));
+        // Same instant, formatted in the new default time zone
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        DateFormatterPool.refreshTimeZone();
+        DateFormat newYorkDateFormat = DateFormatterPool.getDateFormat("yyyy-MM-dd");
+        assertNotSame(parisDateFormat, newYorkDateFormat);
+        assertEquals("1990-05-16", newYorkDateFormat.format(date));
+    }
+
+    @Test
+    public void toString_concurrentThreads() throws Exception {
+        Locale.setDefault(Locale.US);
+        final AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int year = 1980 + t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int day = 1; day <= 28; day++) {
+                        DateUnknownYear date = new DateUnknownYear(new GregorianCalendar(year, 0, day).getTime());
+                        for (int i = 0; i < 50; i++) {
+                            String expected = year + "-01-" + (day < 10 ? "0" : "") + day;
+                            if (!expected.equals(date.toBackupString()))
+                                errors.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+    }
+}
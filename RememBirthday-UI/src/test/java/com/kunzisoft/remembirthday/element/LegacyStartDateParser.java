@@ -0,0 +1,80 @@
+package com.kunzisoft.remembirthday.element;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Previous implementation of {@link DateUnknownYear#stringToDate(String)} with a cascade of SimpleDateFormat,
+ * kept as reference of {@link StartDateParser} for the unit tests and the benchmarks. Logs are removed.
+ */
+public class LegacyStartDateParser {
+
+    private static DateUnknownYear parseStringWithSimpleDateFormat(String input, String format,
+                                                                   boolean withYear) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(format, Locale.getDefault());
+        dateFormat.setTimeZone(TimeZone.getDefault());
+        try {
+            DateUnknownYear dateUnknownYear = DateUnknownYear.getDefault();
+            Date parsedDate = dateFormat.parse(input);
+            dateUnknownYear.setContainsYear(withYear);
+            dateUnknownYear.setDate(parsedDate);
+            return dateUnknownYear;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    public static DateUnknownYear stringToDate(String eventDateString) {
+        DateUnknownYear date;
+        if (eventDateString != null) {
+            // yyyy-MM-dd, Most used format!
+            date = parseStringWithSimpleDateFormat(eventDateString, "yy-MM-dd", true);
+            if (date == null) {
+                date = parseStringWithSimpleDateFormat(eventDateString, "yyyy-MM-dd", false);
+            }
+            // --MM-dd, Most used format without year!
+            if (date == null) {
+                date = parseStringWithSimpleDateFormat(eventDateString, "--MM-dd", false);
+            }
+            if (date == null) {
+                date = parseStringWithSimpleDateFormat(eventDateString, "MM-dd", false);
+            }
+            // yyyyMMdd, HTC Desire
+            if (date == null) {
+                if (eventDateString.length() == 8) {
+                    date = parseStringWithSimpleDateFormat(eventDateString, "yyyyMMdd", true);
+                }
+            }
+            // Unix timestamp, Some Motorola devices
+            if (date == null) {
+                try {
+                    Date rawDate = new Date(Long.parseLong(eventDateString));
+                } catch (NumberFormatException e) {
+                    // Parsing failed
+                }
+            }
+            // dd.MM.yyyy
+            if (date == null) {
+                date = parseStringWithSimpleDateFormat(eventDateString, "dd.MM.yyyy", true);
+            }
+            // yyyy.MM.dd
+            if (date == null) {
+                date = parseStringWithSimpleDateFormat(eventDateString, "yyyy.MM.dd", true);
+            }
+            // MM/dd/yyyy, Used by Facebook
+            if (date == null) {
+                date = parseStringWithSimpleDateFormat(eventDateString, "MM/dd/yyyy", true);
+            }
+            //MM/dd, Used by Facebook
+            if (date == null) {
+                date = parseStringWithSimpleDateFormat(eventDateString, "MM/dd", false);
+            }
+            return date;
+        } else {
+            return null;
+        }
+    }
+}
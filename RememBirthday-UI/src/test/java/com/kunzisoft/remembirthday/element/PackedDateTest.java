@@ -0,0 +1,85 @@
+package com.kunzisoft.remembirthday.element;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.joda.time.Years;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Arithmetic of packed dates compared with Joda time
+ */
+public class PackedDateTest {
+
+    private static int pack(LocalDate localDate) {
+        return PackedDate.pack(localDate.getYear(), localDate.getMonthOfYear(), localDate.getDayOfMonth());
+    }
+
+    @Test
+    public void toEpochDay_sameAsJoda() throws Exception {
+        LocalDate epoch = new LocalDate(1970, 1, 1);
+        for (LocalDate day = new LocalDate(1600, 1, 1); day.getYear() < 2500; day = day.plusDays(7)) {
+            assertEquals(day.toString(), Days.daysBetween(epoch, day).getDays(), PackedDate.toEpochDay(pack(day)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pack_yearNotPositive() throws Exception {
+        PackedDate.pack(0, 5, 17);
+    }
+
+    @Test
+    public void anniversaries_sameAsJoda() throws Exception {
+        LocalDate[] births = {
+                new LocalDate(1988, 2, 29),
+                new LocalDate(1990, 2, 28),
+                new LocalDate(1990, 3, 1),
+                new LocalDate(1975, 1, 1),
+                new LocalDate(1982, 12, 31),
+                new LocalDate(2030, 7, 14)
+        };
+        for (LocalDate birth : births) {
+            int packedBirth = pack(birth);
+            for (LocalDate today = new LocalDate(2023, 1, 1); today.getYear() < 2030; today = today.plusDays(1)) {
+                int packedToday = pack(today);
+                // Joda clamps February 29 to February 28 in common years
+                LocalDate nextAnniversary = birth.withYear(today.getYear());
+                if (nextAnniversary.isBefore(today))
+                    nextAnniversary = birth.withYear(today.getYear() + 1);
+                String message = birth + " at " + today;
+                assertEquals(message, pack(nextAnniversary), PackedDate.getNextAnniversary(packedBirth, packedToday));
+                assertEquals(message, Days.daysBetween(today, nextAnniversary).getDays(),
+                        PackedDate.getDaysUntilNextAnniversary(packedBirth, packedToday));
+                assertEquals(message, Years.yearsBetween(birth, today).getYears(),
+                        PackedDate.getYearsBetween(packedBirth, packedToday));
+                assertEquals(message, Years.yearsBetween(today, birth).getYears(),
+                        PackedDate.getYearsBetween(packedToday, packedBirth));
+            }
+        }
+    }
+
+    @Test
+    public void today_sameAsJoda() throws Exception {
+        assertEquals(pack(new LocalDate()), PackedDate.today());
+    }
+
+    @Test
+    public void today_timeZoneChanged() throws Exception {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            // Days apart most of the time
+            for (String timeZoneId : new String[]{"Pacific/Kiritimati", "Pacific/Pago_Pago"}) {
+                TimeZone.setDefault(TimeZone.getTimeZone(timeZoneId));
+                PackedDate.clearToday();
+                assertEquals(PackedDate.fromCalendar(Calendar.getInstance()), PackedDate.today());
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+            PackedDate.clearToday();
+        }
+    }
+}
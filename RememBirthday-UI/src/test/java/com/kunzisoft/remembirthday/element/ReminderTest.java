@@ -0,0 +1,115 @@
+package com.kunzisoft.remembirthday.element;
+
+import org.joda.time.DateTime;
+import org.joda.time.Minutes;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time of reminders kept after computation, compared with the computation of Joda time
+ */
+public class ReminderTest {
+
+    private static Date getDateWithJoda(Date dateEvent, int hourOfDay, int minuteOfHour, int daysBefore) {
+        return new DateTime(dateEvent)
+                .withMinuteOfHour(minuteOfHour)
+                .withHourOfDay(hourOfDay)
+                .minusDays(daysBefore)
+                .toDate();
+    }
+
+    private static int getMinutesBeforeEventWithJoda(Date dateEvent, int hourOfDay, int minuteOfHour, int daysBefore) {
+        return Minutes.minutesBetween(
+                new DateTime(getDateWithJoda(dateEvent, hourOfDay, minuteOfHour, daysBefore)),
+                new DateTime(dateEvent)).getMinutes();
+    }
+
+    @Test
+    public void getDate_sameAsJoda() throws Exception {
+        int[] hours = {0, 8, 12, 23};
+        int[] minutes = {0, 1, 30, 59};
+        int[] daysBefore = {0, 1, 7, 45, -1};
+        for (Date dateEvent = new GregorianCalendar(2023, 0, 1).getTime();
+             dateEvent.before(new GregorianCalendar(2024, 0, 1).getTime());
+             dateEvent = new DateTime(dateEvent).plusDays(5).toDate()) {
+            for (int hour : hours) {
+                for (int minute : minutes) {
+                    for (int days : daysBefore) {
+                        Reminder reminder = new Reminder(dateEvent, hour, minute, days);
+                        String message = dateEvent + " " + hour + ":" + minute + " -" + days;
+                        assertEquals(message, getDateWithJoda(dateEvent, hour, minute, days), reminder.getDate());
+                        assertEquals(message, getMinutesBeforeEventWithJoda(dateEvent, hour, minute, days),
+                                reminder.getMinutesBeforeEvent());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void setters_computeAgain() throws Exception {
+        Date dateEvent = new GregorianCalendar(2023, 4, 17).getTime();
+        Reminder reminder = new Reminder(dateEvent, 10, 0, 1);
+        assertEquals(14 * 60, reminder.getMinutesBeforeEvent());
+
+        reminder.setHourOfDay(20);
+        assertEquals(4 * 60, reminder.getMinutesBeforeEvent());
+        reminder.setMinuteOfHour(30);
+        assertEquals(3 * 60 + 30, reminder.getMinutesBeforeEvent());
+        reminder.setDeltaDay(0);
+        assertEquals(-(20 * 60 + 30), reminder.getMinutesBeforeEvent());
+        assertEquals(new GregorianCalendar(2023, 4, 17, 20, 30).getTime(), reminder.getDate());
+
+        Date newDateEvent = new GregorianCalendar(2024, 4, 17).getTime();
+        reminder.setDateEvent(newDateEvent);
+        assertEquals(new GregorianCalendar(2024, 4, 17, 20, 30).getTime(), reminder.getDate());
+        assertEquals(new GregorianCalendar(2024, 4, 17, 20, 30).getTimeInMillis(), reminder.getTimeInMillis());
+
+        // The date returned can be modified
+        reminder.getDate().setTime(0);
+        assertEquals(new GregorianCalendar(2024, 4, 17, 20, 30).getTime(), reminder.getDate());
+
+        Reminder copy = new Reminder(reminder);
+        assertEquals(reminder.getDate(), copy.getDate());
+        copy.setHourOfDay(8);
+        assertEquals(new GregorianCalendar(2024, 4, 17, 20, 30).getTime(), reminder.getDate());
+        assertEquals(new GregorianCalendar(2024, 4, 17, 8, 30).getTime(), copy.getDate());
+    }
+
+    @Test
+    public void getDate_timeZoneChanged() throws Exception {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+            Date dateEvent = new GregorianCalendar(2023, 4, 17).getTime();
+            Reminder reminder = new Reminder(dateEvent, 10, 0, 1);
+            assertEquals(new GregorianCalendar(2023, 4, 16, 10, 0).getTime(), reminder.getDate());
+            // Same date of event, the hour of reminder is in the new time zone
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            Calendar expected = Calendar.getInstance();
+            expected.setTime(dateEvent);
+            expected.set(Calendar.HOUR_OF_DAY, 10);
+            expected.set(Calendar.MINUTE, 0);
+            expected.add(Calendar.DAY_OF_MONTH, -1);
+            assertEquals(expected.getTime(), reminder.getDate());
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void minutesConstructor_sameFields() throws Exception {
+        Date dateEvent = new GregorianCalendar(2023, 4, 17).getTime();
+        Reminder reminder = new Reminder(dateEvent, 60);
+        assertEquals(23, reminder.getHourOfDay());
+        assertEquals(0, reminder.getMinuteOfHour());
+        assertEquals(1, reminder.getDeltaDay());
+        assertEquals(60, reminder.getMinutesBeforeEvent());
+    }
+}
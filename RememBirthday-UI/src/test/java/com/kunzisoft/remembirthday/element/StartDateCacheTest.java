@@ -0,0 +1,123 @@
+package com.kunzisoft.remembirthday.element;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hits, misses and eviction of the cache of parsed start dates
+ */
+public class StartDateCacheTest {
+
+    @Test
+    public void getDate_parsedOnce() throws Exception {
+        StartDateCache cache = new StartDateCache(16);
+        DateUnknownYear first = cache.getDate("1990-05-17");
+        DateUnknownYear second = cache.getDate("1990-05-17");
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        // Same value, but not the same instance who can be modified
+        assertNotSame(first, second);
+        assertNotSame(first.getDate(), second.getDate());
+        assertEquals(first.getDate(), second.getDate());
+        assertEquals(first.getPackedDate(), second.getPackedDate());
+        assertEquals(StartDateParser.parse("1990-05-17").getDate(), second.getDate());
+
+        first.getDate().setTime(0);
+        assertEquals(StartDateParser.parse("1990-05-17").getDate(), cache.getDate("1990-05-17").getDate());
+    }
+
+    @Test
+    public void getDate_timeZoneChanged() throws Exception {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+            StartDateCache cache = new StartDateCache(16);
+            cache.getDate("1990-05-17");
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            DateUnknownYear date = cache.getDate("1990-05-17");
+            assertEquals(1, cache.getHitCount());
+            // Midnight of the same day in the new time zone
+            assertEquals(new GregorianCalendar(1990, 4, 17).getTime(), date.getDate());
+            assertEquals(PackedDate.pack(1990, 5, 17), date.getPackedDate());
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void getDate_failureCached() throws Exception {
+        StartDateCache cache = new StartDateCache(16);
+        assertNull(cache.getDate("not a date"));
+        assertNull(cache.getDate("not a date"));
+        assertFalse(cache.getParsedDate("not a date").isValid());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+
+        assertFalse(cache.getParsedDate("--05-17").containsYear());
+        assertFalse(cache.getDate("--05-17").containsYear());
+    }
+
+    @Test
+    public void getDate_leastRecentlyUsedEvicted() throws Exception {
+        StartDateCache cache = new StartDateCache(2);
+        cache.getDate("1990-05-17");
+        cache.getDate("1991-05-17");
+        cache.getDate("1990-05-17");
+        cache.getDate("1992-05-17");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.getDate("1990-05-17");
+        assertEquals(2, cache.getHitCount());
+        cache.getDate("1991-05-17");
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void getDate_sharedByThreads() throws Exception {
+        final StartDateCache cache = new StartDateCache(64);
+        final List<String> startDates = new ArrayList<>();
+        for (int i = 1; i <= 28; i++) {
+            startDates.add("1990-05-" + (i < 10 ? "0" : "") + i);
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 1000; i++) {
+                            String startDate = startDates.get(i % startDates.size());
+                            DateUnknownYear date = cache.getDate(startDate);
+                            if (PackedDate.getDay(date.getPackedDate()) != (i % startDates.size()) + 1)
+                                errors.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertEquals(startDates.size(), cache.size());
+        assertEquals(4000, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -0,0 +1,103 @@
+package com.kunzisoft.remembirthday.element;
+
+import org.junit.Test;
+
+import java.util.GregorianCalendar;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Start dates parsed by {@link StartDateParser} compared with the cascade of SimpleDateFormat
+ * of {@link LegacyStartDateParser}, on the supported forms and on random texts
+ */
+public class StartDateParserTest {
+
+    private static final String[] SEPARATORS = {"-", ".", "/", "--", " ", "\t", ""};
+    // 'E' and letters of NaN or infinity are read as numbers by DecimalFormat, they are not supported
+    private static final String RANDOM_CHARACTERS = "0123456789012345-./ \tTZ:a+";
+
+    private static void assertSameAsLegacy(String text) {
+        DateUnknownYear expected = LegacyStartDateParser.stringToDate(text);
+        DateUnknownYear actual = StartDateParser.parse(text);
+        if (expected == null) {
+            assertNull("'" + text + "' parsed as " + (actual == null ? null : actual.getDate()), actual);
+            return;
+        }
+        assertNotNull("'" + text + "' not parsed, expected " + expected.getDate(), actual);
+        assertEquals("'" + text + "'", expected.getDate(), actual.getDate());
+        assertEquals("'" + text + "'", expected.containsYear(), actual.containsYear());
+        assertEquals("'" + text + "'", expected.getPackedDate(), actual.getPackedDate());
+    }
+
+    private static String randomNumber(Random random) {
+        StringBuilder number = new StringBuilder();
+        if (random.nextInt(20) == 0)
+            number.append('-');
+        if (random.nextInt(20) == 0)
+            number.append(' ');
+        int numberOfDigits = random.nextInt(10) == 0 ? random.nextInt(12) : 1 + random.nextInt(4);
+        for (int i = 0; i < numberOfDigits; i++) {
+            number.append((char) ('0' + random.nextInt(10)));
+        }
+        return number.toString();
+    }
+
+    /**
+     * @return Text close to a supported form, with random numbers and separators
+     */
+    private static String randomForm(Random random) {
+        StringBuilder text = new StringBuilder();
+        if (random.nextInt(4) == 0)
+            text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        int numberOfFields = 1 + random.nextInt(3);
+        String separator = SEPARATORS[random.nextInt(SEPARATORS.length)];
+        for (int i = 0; i < numberOfFields; i++) {
+            if (i > 0)
+                text.append(random.nextInt(8) == 0 ? SEPARATORS[random.nextInt(SEPARATORS.length)] : separator);
+            text.append(randomNumber(random));
+        }
+        if (random.nextInt(6) == 0)
+            text.append(random.nextBoolean() ? "T00:00:00Z" : SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        return text.toString();
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(13);
+        for (int i = 0; i < length; i++) {
+            text.append(RANDOM_CHARACTERS.charAt(random.nextInt(RANDOM_CHARACTERS.length())));
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void supportedForms() throws Exception {
+        String[] texts = {
+                "1990-05-17", "90-05-17", "05-05-17", "2000-02-29", "2001-02-29", "1700-05-17",
+                "--05-17", "--02-29", "05-17", "19900517", "16990517", "17000517",
+                "631152000000", "-631152000000", "17.05.1990", "1990.05.17", "05/17/1990", "05/17",
+                "1990-13-45", "1990-00-00", "1990-5-7", " 1990-05-17", "1990-05-17T00:00:00Z",
+                "", "-", "--", "abc", "1990", "315", "1990-", "1990-05", "1990/05", "17.05", "17.05.",
+                "1990--05-17", "--05--17", "\u0661\u0669\u0669\u0660-05-17", "99999999999999999999-01-01"
+        };
+        for (String text : texts) {
+            assertSameAsLegacy(text);
+        }
+        DateUnknownYear date = StartDateParser.parse("1990-05-17");
+        assertTrue(date.containsYear());
+        assertEquals(new GregorianCalendar(1990, 4, 17).getTime(), date.getDate());
+        assertFalse(StartDateParser.parse("--05-17").containsYear());
+        assertFalse(StartDateParser.parse("1700-05-17").containsYear());
+        assertNull(StartDateParser.parse(null));
+    }
+
+    @Test
+    public void randomTexts_sameAsLegacy() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            assertSameAsLegacy(randomForm(random));
+            assertSameAsLegacy(randomText(random));
+        }
+    }
+}
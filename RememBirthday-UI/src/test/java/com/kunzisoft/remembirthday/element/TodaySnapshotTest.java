@@ -0,0 +1,69 @@
+package com.kunzisoft.remembirthday.element;
+
+import org.junit.Test;
+
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.*;
+
+/**
+ * Birthdays computed against a snapshot of today compared with the packed dates
+ */
+public class TodaySnapshotTest {
+
+    private static int nextDay(int packedDate) {
+        int year = PackedDate.getYear(packedDate);
+        int month = PackedDate.getMonth(packedDate);
+        int day = PackedDate.getDay(packedDate);
+        if (day < PackedDate.getDaysInMonth(year, month))
+            return PackedDate.pack(year, month, day + 1);
+        if (month < 12)
+            return PackedDate.pack(year, month + 1, 1);
+        return PackedDate.pack(year + 1, 1, 1);
+    }
+
+    @Test
+    public void getDaysUntilNextAnniversary_sameAsPackedDate() throws Exception {
+        int[] births = {
+                PackedDate.pack(1988, 2, 29), PackedDate.pack(1990, 2, 28), PackedDate.pack(1990, 3, 1),
+                PackedDate.pack(1975, 1, 1), PackedDate.pack(1982, 12, 31), PackedDate.pack(1999, 7, 14)
+        };
+        for (int today = PackedDate.pack(2022, 1, 1); today < PackedDate.pack(2030, 1, 1); today = nextDay(today)) {
+            TodaySnapshot todaySnapshot = TodaySnapshot.of(today);
+            for (int birth : births) {
+                assertEquals(PackedDate.getDaysUntilNextAnniversary(birth, today),
+                        todaySnapshot.getDaysUntilNextAnniversary(birth));
+                assertEquals(PackedDate.getNextAnniversary(birth, today), todaySnapshot.getNextAnniversary(birth));
+                assertEquals(PackedDate.getYearsBetween(today, birth), todaySnapshot.getYearsUntil(birth));
+            }
+        }
+    }
+
+    @Test
+    public void dayOfYear() throws Exception {
+        assertEquals(0, TodaySnapshot.of(PackedDate.pack(2023, 1, 1)).getDayOfYear());
+        assertEquals(59, TodaySnapshot.of(PackedDate.pack(2023, 3, 1)).getDayOfYear());
+        assertEquals(60, TodaySnapshot.of(PackedDate.pack(2024, 3, 1)).getDayOfYear());
+        assertEquals(365, TodaySnapshot.of(PackedDate.pack(2024, 12, 31)).getDayOfYear());
+        assertTrue(TodaySnapshot.of(PackedDate.pack(2024, 5, 1)).isLeapYear());
+        assertFalse(TodaySnapshot.of(PackedDate.pack(2100, 5, 1)).isLeapYear());
+    }
+
+    @Test
+    public void contact_sameDayForAllComputations() throws Exception {
+        Contact contact = new Contact("Contact",
+                new DateUnknownYear(new GregorianCalendar(1990, 4, 17).getTime()));
+        TodaySnapshot dayBefore = TodaySnapshot.of(PackedDate.pack(2023, 5, 16));
+        assertEquals(1, contact.getBirthdayDaysRemaining(dayBefore));
+        assertEquals(32, contact.getAge(dayBefore));
+        assertEquals(33, contact.getAgeToNextBirthday(dayBefore));
+        assertEquals(new GregorianCalendar(2023, 4, 17).getTime(), contact.getNextBirthday(dayBefore));
+
+        TodaySnapshot birthday = TodaySnapshot.of(PackedDate.pack(2023, 5, 17));
+        assertEquals(0, contact.getBirthdayDaysRemaining(birthday));
+        assertEquals(33, contact.getAge(birthday));
+        assertEquals(33, contact.getAgeToNextBirthday(birthday));
+
+        assertEquals(contact.getBirthdayDaysRemaining(), contact.getBirthdayDaysRemaining(TodaySnapshot.now()));
+    }
+}
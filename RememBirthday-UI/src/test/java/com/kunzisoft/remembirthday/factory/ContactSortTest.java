@@ -0,0 +1,118 @@
+package com.kunzisoft.remembirthday.factory;
+
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.DateUnknownYear;
+import com.kunzisoft.remembirthday.element.PackedDate;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Contacts sorted by keys compared with the sort of the comparators of days left
+ */
+public class ContactSortTest {
+
+    private static List<Contact> randomContacts(int size) {
+        Random random = new Random(42);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            // Many contacts the same day, to check the order of the same keys
+            GregorianCalendar calendar = new GregorianCalendar(1930 + random.nextInt(90), 0, 1);
+            calendar.add(GregorianCalendar.DAY_OF_YEAR, random.nextInt(366));
+            contacts.add(new Contact(i, "lookup" + i, i, "Contact " + i,
+                    new DateUnknownYear(calendar.getTime(), random.nextBoolean())));
+        }
+        return contacts;
+    }
+
+    /**
+     * Comparator of days left like before the keys
+     */
+    private static Comparator<Contact> daysLeftComparator(final TodaySnapshot today, final boolean descending) {
+        return new Comparator<Contact>() {
+            @Override
+            public int compare(Contact contactA, Contact contactB) {
+                int daysA = contactA.getBirthdayDaysRemaining(today);
+                int daysB = contactB.getBirthdayDaysRemaining(today);
+                int compare = daysA < daysB ? -1 : (daysA == daysB ? 0 : 1);
+                return descending ? -compare : compare;
+            }
+        };
+    }
+
+    /**
+     * Contacts in the order of the positions sorted
+     */
+    private static List<Contact> sortContacts(ContactSort contactSort, List<Contact> contacts, TodaySnapshot today) {
+        List<Contact> sortedContacts = new ArrayList<>(contacts.size());
+        for (int position : contactSort.sortPositions(contacts, today)) {
+            sortedContacts.add(contacts.get(position));
+        }
+        return sortedContacts;
+    }
+
+    @Test
+    public void sortPositions_sameAsComparator() throws Exception {
+        List<Contact> contacts = randomContacts(5000);
+        List<Contact> copy = new ArrayList<>(contacts);
+        int[] days = {PackedDate.pack(2023, 1, 1), PackedDate.pack(2023, 6, 15),
+                PackedDate.pack(2024, 2, 29), PackedDate.pack(2024, 12, 31)};
+        for (int day : days) {
+            TodaySnapshot today = TodaySnapshot.of(day);
+
+            List<Contact> expected = new ArrayList<>(contacts);
+            Collections.sort(expected, daysLeftComparator(today, false));
+            assertEquals(expected, sortContacts(ContactSort.CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT, contacts, today));
+            List<Contact> withComparator = new ArrayList<>(contacts);
+            Collections.sort(withComparator,
+                    ContactSort.CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT.getContactComparator(today));
+            assertEquals(expected, withComparator);
+
+            expected = new ArrayList<>(contacts);
+            Collections.sort(expected, daysLeftComparator(today, true));
+            assertEquals(expected, sortContacts(ContactSort.CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT_DESC, contacts, today));
+        }
+        // The list in parameter is not modified
+        assertEquals(copy, contacts);
+    }
+
+    @Test
+    public void sortPositions_ofBirthdays() throws Exception {
+        List<Contact> contacts = randomContacts(1000);
+        int[] packedBirthdays = new int[contacts.size() + 1];
+        for (int i = 0; i < contacts.size(); i++) {
+            packedBirthdays[i] = contacts.get(i).getBirthday().getPackedDate();
+        }
+        TodaySnapshot today = TodaySnapshot.of(PackedDate.pack(2024, 2, 29));
+        for (ContactSort contactSort : new ContactSort[]{ContactSort.CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT,
+                ContactSort.CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT_DESC}) {
+            int[] expected = contactSort.sortPositions(contacts, today);
+            int[] positions = contactSort.sortPositions(packedBirthdays, today);
+            assertArrayEquals(expected, Arrays.copyOf(positions, contacts.size()));
+            // Without birthday at the end
+            assertEquals(contacts.size(), positions[contacts.size()]);
+        }
+        assertNull(ContactSort.CONTACT_SORT_BY_NAME.sortPositions(packedBirthdays, today));
+    }
+
+    @Test
+    public void sortPositions_sortInQuery() throws Exception {
+        TodaySnapshot today = TodaySnapshot.now();
+        assertFalse(ContactSort.CONTACT_SORT_BY_NAME.isSortedInMemory());
+        assertNull(ContactSort.CONTACT_SORT_BY_NAME.sortPositions(randomContacts(10), today));
+        assertNull(ContactSort.CONTACT_SORT_BY_ANNIVERSARY.getContactComparator(today));
+        assertTrue(ContactSort.CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT.isSortedInMemory());
+        assertEquals(0, ContactSort.CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT.sortPositions(
+                new ArrayList<Contact>(), today).length);
+    }
+}
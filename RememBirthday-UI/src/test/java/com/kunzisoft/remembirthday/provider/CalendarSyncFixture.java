@@ -0,0 +1,70 @@
+package com.kunzisoft.remembirthday.provider;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.DateUnknownYear;
+import com.kunzisoft.remembirthday.element.EventWithoutYear;
+import com.kunzisoft.remembirthday.element.Reminder;
+
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Events and synthetic contacts shared by the synchronizations with an in-memory calendar
+ */
+public class CalendarSyncFixture {
+
+    public static final int EVENTS_BY_CONTACT = EventWithoutYear.X_YEAR + EventWithoutYear.Y_YEAR + 1;
+
+    /**
+     * Default event of the application without preferences, with one reminder
+     */
+    public static final CalendarSynchronizer.EventFactory EVENT_FACTORY = new CalendarSynchronizer.EventFactory() {
+        @Override
+        public CalendarEvent buildDefaultEvent(Contact contact) {
+            CalendarEvent event = new CalendarEvent(contact.getName(), contact.getNextBirthday(), true);
+            event.addReminder(new Reminder(event.getDate(), 10, 0));
+            return event;
+        }
+    };
+
+    /**
+     * Build a contact with a birthday in 1980
+     * @param index Id of contact
+     * @param lookupKey Lookup key of contact
+     * @param dayOfYear Day of birthday from January 1
+     * @return Contact
+     */
+    public static Contact buildContact(int index, String lookupKey, int dayOfYear) {
+        Contact contact = new Contact(index, lookupKey, "Contact " + index);
+        DateTime birthday = new DateTime(1980, 1, 1, 0, 0).plusDays(dayOfYear);
+        contact.setBirthday(new DateUnknownYear(birthday.toDate(), true));
+        return contact;
+    }
+
+    public static List<Contact> buildContacts(int numberOfContacts) {
+        return buildContacts(numberOfContacts, true);
+    }
+
+    /**
+     * Build contacts with random birthdays, the same for the same number of contacts
+     * @param numberOfContacts Number of contacts
+     * @param containsYear true if birthdays have a year
+     * @return Contacts
+     */
+    public static List<Contact> buildContacts(int numberOfContacts, boolean containsYear) {
+        Random random = new Random(numberOfContacts);
+        List<Contact> contacts = new ArrayList<>(numberOfContacts);
+        for (int i = 0; i < numberOfContacts; i++) {
+            Contact contact = new Contact(i, "lookup" + i, "Contact " + i);
+            DateTime birthday = new DateTime(1950 + random.nextInt(60), 1, 1, 0, 0)
+                    .plusDays(random.nextInt(365));
+            contact.setBirthday(new DateUnknownYear(birthday.toDate(), containsYear));
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+}
@@ -0,0 +1,271 @@
+package com.kunzisoft.remembirthday.provider;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.EventWithoutYear;
+
+import org.joda.time.LocalDate;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.kunzisoft.remembirthday.provider.CalendarSyncFixture.EVENTS_BY_CONTACT;
+import static com.kunzisoft.remembirthday.provider.CalendarSyncFixture.EVENT_FACTORY;
+import static com.kunzisoft.remembirthday.provider.CalendarSyncFixture.buildContacts;
+import static org.junit.Assert.*;
+
+/**
+ * Synchronization of the birthday calendar with an in-memory store. <br />
+ * Large lists of contacts are only synchronized with <code>-Dremembirthday.largeLists=true</code>,
+ * the times and allocations are measured by the CalendarSyncBenchmark of the benchmark module
+ */
+public class CalendarSynchronizerTest {
+
+    private static final String LARGE_LISTS_PROPERTY = "remembirthday.largeLists";
+
+    private static void synchronizeTwice(int numberOfContacts) {
+        List<Contact> contacts = buildContacts(numberOfContacts);
+        InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        long calendarId = calendarStore.getOrCreateCalendar();
+
+        CalendarSynchronizer.Result firstResult = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+
+        SyncStats syncStats = new SyncStats(SyncStats.TYPE_FULL);
+        calendarSynchronizer.setSyncStats(syncStats);
+        CalendarSynchronizer.Result secondResult = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+        syncStats.finish(secondResult.isSuccessful());
+
+        assertTrue(firstResult.isSuccessful());
+        assertEquals(numberOfContacts * EVENTS_BY_CONTACT,
+                firstResult.getNumberOfOperationsApplied(EventOperation.Type.INSERT));
+        assertEquals(numberOfContacts * EVENTS_BY_CONTACT, calendarStore.getNumberOfEvents());
+        assertEquals(numberOfContacts, firstResult.getEventIdsByContact().size());
+
+        assertTrue(secondResult.isSuccessful());
+        assertEquals(0, secondResult.getNumberOfOperations());
+        assertEquals(numberOfContacts, secondResult.getEventIdsByContact().size());
+        // No batch applied without operation
+        assertEquals(3, syncStats.getPhaseTotals().size());
+        assertEquals(numberOfContacts * EVENTS_BY_CONTACT, syncStats.getPhaseTotals().get(0).getCount());
+    }
+
+    @Test
+    public void synchronizeAllContacts_isIdempotent() throws Exception {
+        synchronizeTwice(1000);
+    }
+
+    @Test
+    public void synchronizeContact_removesEventsWithoutBirthday() throws Exception {
+        InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        long calendarId = calendarStore.getOrCreateCalendar();
+        Contact contact = buildContacts(1).get(0);
+
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeContact(calendarId, contact);
+        assertEquals(EVENTS_BY_CONTACT, result.getEventIdsOfContact(contact.getLookUpKey()).size());
+        assertEquals(EVENTS_BY_CONTACT, result.getNumberOfOperationsApplied(EventOperation.Type.INSERT));
+
+        contact.setBirthday(null);
+        result = calendarSynchronizer.synchronizeContact(calendarId, contact);
+        assertEquals(EVENTS_BY_CONTACT, result.getNumberOfOperationsApplied(EventOperation.Type.DELETE));
+        assertTrue(result.getEventIdsOfContact(contact.getLookUpKey()).isEmpty());
+        assertEquals(0, calendarStore.getNumberOfEvents());
+    }
+
+    /**
+     * Move back the window of each contact by one year, like before the last birthday
+     * @return Links of events after the move
+     */
+    private static Map<String, Map<Integer, Long>> moveBackWindows(InMemoryCalendarStore calendarStore,
+                                                                   long calendarId,
+                                                                   List<Contact> contacts,
+                                                                   Map<String, Map<Integer, Long>> eventIdsByContact) {
+        List<EventOperation> eventOperations = new ArrayList<>();
+        Map<String, Integer> lastYears = new HashMap<>();
+        for (Contact contact : contacts) {
+            TreeMap<Integer, Long> eventIdsByYear = new TreeMap<>(eventIdsByContact.get(contact.getLookUpKey()));
+            EventWithoutYear eventWithoutYear = new EventWithoutYear(EVENT_FACTORY.buildDefaultEvent(contact));
+            CalendarEvent lastEvent = eventWithoutYear.getEventForYear(eventIdsByYear.lastKey());
+            lastEvent.setId(eventIdsByYear.lastEntry().getValue());
+            eventOperations.add(EventOperation.newDelete(lastEvent));
+            eventOperations.add(EventOperation.newInsert(
+                    eventWithoutYear.getEventForYear(eventIdsByYear.firstKey() - 1), contact.getLookUpKey()));
+            lastYears.put(contact.getLookUpKey(), eventIdsByYear.lastKey());
+        }
+        assertTrue(calendarStore.applyBatch(calendarId, eventOperations, null));
+
+        Map<String, Map<Integer, Long>> eventIdsMoved = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Long>> contactEntry : eventIdsByContact.entrySet()) {
+            Map<Integer, Long> eventIdsByYear = new HashMap<>(contactEntry.getValue());
+            eventIdsByYear.remove(lastYears.get(contactEntry.getKey()));
+            eventIdsMoved.put(contactEntry.getKey(), eventIdsByYear);
+        }
+        for (EventOperation eventOperation : eventOperations) {
+            if (eventOperation.getType() == EventOperation.Type.INSERT)
+                eventIdsMoved.get(eventOperation.getLookupKey())
+                        .put(eventOperation.getEvent().getYear(), eventOperation.getEventId());
+        }
+        return eventIdsMoved;
+    }
+
+    private static void runEventWindows(boolean containsYear) {
+        int numberOfContacts = 1000;
+        List<Contact> contacts = buildContacts(numberOfContacts, containsYear);
+        InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        long calendarId = calendarStore.getOrCreateCalendar();
+        CalendarSynchronizer.Result fullResult = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+        Map<String, Map<Integer, Long>> eventIdsByContact =
+                moveBackWindows(calendarStore, calendarId, contacts, fullResult.getEventIdsByContact());
+
+        CalendarSynchronizer.Result result =
+                calendarSynchronizer.synchronizeEventWindows(calendarId, contacts, eventIdsByContact);
+        assertTrue(result.isSuccessful());
+        assertEquals(numberOfContacts, result.getNumberOfOperationsApplied(EventOperation.Type.INSERT));
+        assertEquals(numberOfContacts, result.getNumberOfOperationsApplied(EventOperation.Type.DELETE));
+        // Age in title of the other years
+        assertEquals(containsYear ? numberOfContacts * (EVENTS_BY_CONTACT - 1) : 0,
+                result.getNumberOfOperationsApplied(EventOperation.Type.UPDATE));
+        assertEquals(numberOfContacts * EVENTS_BY_CONTACT, calendarStore.getNumberOfEvents());
+        for (Map<Integer, Long> eventIdsByYear : result.getEventIdsByContact().values()) {
+            assertEquals(EVENTS_BY_CONTACT, eventIdsByYear.size());
+        }
+
+        // Windows up to date, nothing to do
+        eventIdsByContact.putAll(result.getEventIdsByContact());
+        result = calendarSynchronizer.synchronizeEventWindows(calendarId, contacts, eventIdsByContact);
+        assertEquals(0, result.getNumberOfOperations());
+        // Same calendar as a full synchronization
+        result = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+        assertEquals(0, result.getNumberOfOperations());
+        assertEquals(eventIdsByContact, result.getEventIdsByContact());
+    }
+
+    @Test
+    public void synchronizeEventWindows_movesOnlyExpiredYears() throws Exception {
+        runEventWindows(false);
+        runEventWindows(true);
+    }
+
+    @Test
+    public void queryLookupKeysOfEventsBetween_findsBirthdaysPassed() throws Exception {
+        InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        long calendarId = calendarStore.getOrCreateCalendar();
+        List<Contact> contacts = buildContacts(1000);
+        calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+
+        // One week of the next year, an event exists for each year of the window
+        LocalDate firstDay = new LocalDate().plusYears(1).withDayOfMonth(1);
+        LocalDate lastDay = firstDay.plusDays(6);
+        Set<String> lookupKeysExpected = new HashSet<>();
+        for (Contact contact : contacts) {
+            LocalDate birthday = new LocalDate(contact.getBirthday().getDateWithYear(firstDay.getYear()));
+            if (!birthday.isBefore(firstDay) && !birthday.isAfter(lastDay))
+                lookupKeysExpected.add(contact.getLookUpKey());
+        }
+        assertFalse(lookupKeysExpected.isEmpty());
+        assertEquals(lookupKeysExpected, calendarStore.queryLookupKeysOfEventsBetween(calendarId, firstDay, lastDay));
+        assertEquals(contacts.size(), calendarStore.queryLookupKeysOfEventsBetween(calendarId,
+                firstDay, firstDay.plusYears(1).minusDays(1)).size());
+    }
+
+    @Test
+    public void synchronizeAllContacts_removesExpiredYears() throws Exception {
+        InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        long calendarId = calendarStore.getOrCreateCalendar();
+        List<Contact> contacts = buildContacts(10);
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+        moveBackWindows(calendarStore, calendarId, contacts, result.getEventIdsByContact());
+
+        result = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+        assertEquals(10, result.getNumberOfOperationsApplied(EventOperation.Type.INSERT));
+        assertEquals(10, result.getNumberOfOperationsApplied(EventOperation.Type.DELETE));
+        assertEquals(10 * EVENTS_BY_CONTACT, calendarStore.getNumberOfEvents());
+        for (Map<Integer, Long> eventIdsByYear : result.getEventIdsByContact().values()) {
+            assertEquals(EVENTS_BY_CONTACT, eventIdsByYear.size());
+        }
+    }
+
+    @Test
+    public void synchronizeAllContacts_keepsEventsWithoutContacts() throws Exception {
+        InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        long calendarId = calendarStore.getOrCreateCalendar();
+        List<Contact> contacts = buildContacts(10);
+        calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+
+        // Contacts provider unavailable, the calendar is not emptied
+        CalendarSynchronizer.Result result =
+                calendarSynchronizer.synchronizeAllContacts(calendarId, new ArrayList<Contact>());
+        assertTrue(result.isSuccessful());
+        assertEquals(0, result.getNumberOfOperations());
+        assertEquals(10 * EVENTS_BY_CONTACT, calendarStore.getNumberOfEvents());
+
+        // Events of a contact without birthday are still removed when other contacts are read
+        result = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts.subList(1, contacts.size()));
+        assertEquals(EVENTS_BY_CONTACT, result.getNumberOfOperationsApplied(EventOperation.Type.DELETE));
+        assertEquals(9 * EVENTS_BY_CONTACT, calendarStore.getNumberOfEvents());
+    }
+
+    @Test
+    public void synchronizeAllContacts_resumesAfterCheckpoint() throws Exception {
+        int numberOfContacts = 100;
+        List<Contact> contacts = buildContacts(numberOfContacts);
+        InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        long calendarId = calendarStore.getOrCreateCalendar();
+        final SyncCancellation cancellation = new SyncCancellation();
+        final List<String> checkpoints = new ArrayList<>();
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        calendarSynchronizer.setCancellation(cancellation);
+        calendarSynchronizer.setCheckpointListener(new CalendarSynchronizer.CheckpointListener() {
+            @Override
+            public void onChunkApplied(CalendarSynchronizer.Result chunkResult, String lookupKeyOfCheckpoint) {
+                checkpoints.add(lookupKeyOfCheckpoint);
+                if (checkpoints.size() == 3)
+                    cancellation.cancel();
+            }
+        });
+
+        // Interrupted after three chunks of one batch
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+        assertTrue(result.isCanceled());
+        assertFalse(result.isSuccessful());
+        assertEquals(3, calendarStore.getNumberOfBatches());
+        int numberOfEventsInserted = result.getNumberOfOperationsApplied(EventOperation.Type.INSERT);
+        assertEquals(numberOfEventsInserted, calendarStore.getNumberOfEvents());
+        assertTrue(numberOfEventsInserted < numberOfContacts * EVENTS_BY_CONTACT);
+        assertTrue(calendarStore.getNumberOfOperations() <= 3 * BatchExecutor.DEFAULT_CHUNK_SIZE);
+        assertEquals(numberOfEventsInserted / EVENTS_BY_CONTACT, result.getEventIdsByContact().size());
+
+        // Resumed without the contacts of the checkpoint
+        String lookupKeyOfCheckpoint = checkpoints.get(checkpoints.size() - 1);
+        calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        result = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts, lookupKeyOfCheckpoint);
+        assertTrue(result.isSuccessful());
+        assertEquals(numberOfEventsInserted / EVENTS_BY_CONTACT, result.getNumberOfContactsSkipped());
+        assertEquals(numberOfContacts * EVENTS_BY_CONTACT - numberOfEventsInserted,
+                result.getNumberOfOperationsApplied(EventOperation.Type.INSERT));
+        assertEquals(numberOfContacts * EVENTS_BY_CONTACT, calendarStore.getNumberOfEvents());
+
+        result = calendarSynchronizer.synchronizeAllContacts(calendarId, contacts);
+        assertEquals(0, result.getNumberOfOperations());
+        assertEquals(numberOfContacts, result.getEventIdsByContact().size());
+    }
+
+    @Test
+    public void synchronizeAllContacts_largeLists() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean(LARGE_LISTS_PROPERTY));
+        synchronizeTwice(10000);
+        synchronizeTwice(50000);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kunzisoft.remembirthday.provider;
+
+import android.database.Cursor;
+import android.provider.ContactsContract;
+
+import com.kunzisoft.remembirthday.element.BirthdayIndex;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.PackedDate;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Contacts built from a cursor of birthdays and indexed by day of birthday
+ */
+public class ContactLoaderTest {
+
+    // Columns of the data uri, the column _ID is the id of the row of the birthday
+    private static final String[] COLUMNS = {
+            ContactsContract.Contacts._ID,
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Contacts.LOOKUP_KEY,
+            ContactsContract.Contacts.DISPLAY_NAME_PRIMARY,
+            ContactsContract.CommonDataKinds.Event.START_DATE
+    };
+
+    /**
+     * Cursor of the rows in parameter, only for the methods read by the loader
+     */
+    private static Cursor buildCursor(final Object[]... rows) {
+        final List<String> columns = Arrays.asList(COLUMNS);
+        return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(), new Class<?>[]{Cursor.class},
+                new InvocationHandler() {
+                    private int position = -1;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        switch (method.getName()) {
+                            case "moveToNext":
+                                position++;
+                                return position < rows.length;
+                            case "getColumnIndex":
+                                return columns.indexOf(args[0]);
+                            case "getString":
+                                Object value = rows[position][(Integer) args[0]];
+                                return value == null ? null : value.toString();
+                            case "getLong":
+                                return ((Number) rows[position][(Integer) args[0]]).longValue();
+                            case "close":
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }
+                });
+    }
+
+    @Test
+    public void getContactsFromCursor_contactIds() throws Exception {
+        List<Contact> contacts = ContactLoader.getContactsFromCursor(buildCursor(
+                new Object[]{101L, 1L, "a", "Contact a", "1990-01-05"},
+                new Object[]{102L, 2L, "b", "Contact b", "--12-30"}));
+        assertEquals(2, contacts.size());
+        assertEquals(1, contacts.get(0).getId());
+        assertEquals("a", contacts.get(0).getLookUpKey());
+        assertEquals(2, contacts.get(1).getId());
+    }
+
+    @Test
+    public void getBirthdayIndex_contactsOfLoader() throws Exception {
+        List<Contact> contacts = ContactLoader.getContactsFromCursor(buildCursor(
+                new Object[]{101L, 1L, "a", "Contact a", "1990-01-05"},
+                new Object[]{102L, 2L, "b", "Contact b", "1985-01-05"},
+                new Object[]{103L, 3L, "c", "Contact c", "--12-30"},
+                // Second birthday of the same contact replaces the first one
+                new Object[]{104L, 3L, "c", "Contact c", "1990-03-01"}));
+        BirthdayIndex birthdayIndex = new BirthdayIndex(contacts);
+        assertEquals(3, birthdayIndex.size());
+
+        List<Contact> nextContacts = birthdayIndex.getNextContacts(PackedDate.pack(2023, 1, 2));
+        assertEquals(2, nextContacts.size());
+        assertEquals("c", birthdayIndex.getNextContacts(PackedDate.pack(2023, 2, 1)).get(0).getLookUpKey());
+        // Next alarm after the birthdays of a day
+        assertEquals(3, birthdayIndex.getNextContacts(PackedDate.pack(2023, 1, 6)).get(0).getId());
+    }
+}
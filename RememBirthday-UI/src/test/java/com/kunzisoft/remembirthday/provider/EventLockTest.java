@@ -0,0 +1,256 @@
+package com.kunzisoft.remembirthday.provider;
+
+import com.kunzisoft.remembirthday.element.Contact;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.kunzisoft.remembirthday.provider.CalendarSyncFixture.EVENTS_BY_CONTACT;
+import static com.kunzisoft.remembirthday.provider.CalendarSyncFixture.EVENT_FACTORY;
+import static com.kunzisoft.remembirthday.provider.CalendarSyncFixture.buildContact;
+import static org.junit.Assert.*;
+
+/**
+ * Concurrency tests of the locks of events, a full synchronization runs with edits of contacts
+ * in an in-memory calendar
+ */
+public class EventLockTest {
+
+    private static final int NUMBER_OF_CONTACTS = 200;
+    private static final int NUMBER_OF_EDITORS = 4;
+    private static final int MIN_EDITS_BY_EDITOR = 500;
+    private static final int NUMBER_OF_SYNCS = 20;
+    // Small chunks, so the edits happen between the chunks of a synchronization
+    private static final int CHUNK_SIZE = 100;
+
+    @Test
+    public void numberOfStripes_isPowerOfTwo() throws Exception {
+        assertEquals(1, new EventLock(1).getNumberOfStripes());
+        assertEquals(8, new EventLock(5).getNumberOfStripes());
+        assertEquals(32, new EventLock(32).getNumberOfStripes());
+        EventLock eventLock = new EventLock(16);
+        for (int i = 0; i < NUMBER_OF_CONTACTS; i++) {
+            int index = eventLock.getStripeIndex("lookup" + i);
+            assertTrue(index >= 0 && index < 16);
+        }
+        assertEquals(0, eventLock.getStripeIndex(null));
+    }
+
+    @Test
+    public void fullSync_doesNotBlockContacts() throws Exception {
+        final EventLock eventLock = new EventLock();
+        eventLock.lockFullSync();
+        try {
+            ExecutorService executorService = Executors.newSingleThreadExecutor();
+            Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    eventLock.lockContact("contact");
+                    eventLock.unlockContact("contact");
+                    return true;
+                }
+            });
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+            executorService.shutdownNow();
+        } finally {
+            eventLock.unlockFullSync();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fullSync_refusedWhenContactLocked() throws Exception {
+        EventLock eventLock = new EventLock();
+        eventLock.lockContact("contact");
+        try {
+            eventLock.lockFullSync();
+        } finally {
+            eventLock.unlockContact("contact");
+        }
+    }
+
+    @Test
+    public void processLock_heldWhileAThreadHoldsALock() throws Exception {
+        File lockFile = File.createTempFile("calendar", ".lock");
+        lockFile.deleteOnExit();
+        ProcessLock processLock = new ProcessLock(lockFile);
+        EventLock eventLock = new EventLock(8, processLock);
+        eventLock.lockFullSync();
+        eventLock.lockContacts(Arrays.asList("a", "b"));
+        eventLock.unlockFullSync();
+        assertTrue(processLock.isLocked());
+        eventLock.unlockContacts(Arrays.asList("a", "b"));
+        assertFalse(processLock.isLocked());
+
+        // File released for the other processes
+        RandomAccessFile randomAccessFile = new RandomAccessFile(lockFile, "rw");
+        try {
+            FileLock fileLock = randomAccessFile.getChannel().tryLock();
+            assertNotNull(fileLock);
+            fileLock.release();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Save the events of one contact like the path of a contact modified in the application,
+     * the contact must be locked
+     */
+    private static void saveContact(InMemoryCalendarStore calendarStore, long calendarId, Contact contact,
+                                    Map<String, Map<Integer, Long>> eventLinks) {
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeContact(calendarId, contact);
+        assertTrue(result.isSuccessful());
+        eventLinks.put(contact.getLookUpKey(), result.getEventIdsOfContact(contact.getLookUpKey()));
+    }
+
+    /**
+     * Full synchronization of the snapshot of contacts like the synchronization of the application,
+     * links are replaced by chunk
+     */
+    private static void synchronizeAll(EventLock eventLock, InMemoryCalendarStore calendarStore, long calendarId,
+                                       final Map<String, Contact> contactsSaved,
+                                       final Map<String, Map<Integer, Long>> eventLinks) {
+        eventLock.lockFullSync();
+        try {
+            List<Contact> contactsSnapshot = new ArrayList<>(contactsSaved.values());
+            CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+            calendarSynchronizer.setChunkSize(CHUNK_SIZE);
+            FullSynchronization fullSynchronization = new FullSynchronization(eventLock,
+                    new CalendarSynchronizer.ContactReader() {
+                        @Override
+                        public Contact readContact(String lookupKey) {
+                            return contactsSaved.get(lookupKey);
+                        }
+                    },
+                    new EventLinkStore() {
+                        @Override
+                        public void replaceEventLinksOfContacts(Map<String, Map<Integer, Long>> eventIdsByContact) {
+                            eventLinks.putAll(eventIdsByContact);
+                        }
+
+                        @Override
+                        public void replaceEventLinksOfContacts(Map<String, Map<Integer, Long>> eventIdsByContact,
+                                                                long checkpointTime, String lookupKeyOfCheckpoint) {
+                            eventLinks.putAll(eventIdsByContact);
+                        }
+
+                        @Override
+                        public void retainEventLinksOfContacts(Set<String> lookupKeys) {
+                            eventLinks.keySet().retainAll(lookupKeys);
+                        }
+                    });
+            CalendarSynchronizer.Result result = fullSynchronization.synchronizeAllContacts(calendarSynchronizer,
+                    calendarId, contactsSnapshot, 0, null);
+            assertTrue(result.isSuccessful());
+        } finally {
+            eventLock.unlockFullSync();
+        }
+    }
+
+    @Test
+    public void fullSync_withConcurrentEdits() throws Exception {
+        final EventLock eventLock = new EventLock(8);
+        final InMemoryCalendarStore calendarStore = new InMemoryCalendarStore();
+        final long calendarId = calendarStore.getOrCreateCalendar();
+        // Contacts with birthday, like the contacts provider
+        final Map<String, Contact> contactsSaved = new ConcurrentHashMap<>();
+        final Map<String, Map<Integer, Long>> eventLinks = new ConcurrentHashMap<>();
+        final List<String> lookupKeys = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_CONTACTS; i++) {
+            String lookupKey = "lookup" + i;
+            lookupKeys.add(lookupKey);
+            contactsSaved.put(lookupKey, buildContact(i, lookupKey, i % 365));
+        }
+        final AtomicBoolean syncsRunning = new AtomicBoolean(true);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_EDITORS + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(executorService.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                startLatch.await();
+                try {
+                    for (int n = 0; n < NUMBER_OF_SYNCS; n++) {
+                        synchronizeAll(eventLock, calendarStore, calendarId, contactsSaved, eventLinks);
+                    }
+                } finally {
+                    syncsRunning.set(false);
+                }
+                return null;
+            }
+        }));
+
+        // Editors of birthdays, a birthday is sometimes removed
+        for (int e = 0; e < NUMBER_OF_EDITORS; e++) {
+            final int editor = e;
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    startLatch.await();
+                    for (int n = 0; n < MIN_EDITS_BY_EDITOR || syncsRunning.get(); n++) {
+                        int index = (editor * 31 + n * 7) % NUMBER_OF_CONTACTS;
+                        String lookupKey = lookupKeys.get(index);
+                        Contact contact;
+                        if (n % 5 == 4) {
+                            contact = new Contact(index, lookupKey, "Contact " + index);
+                        } else {
+                            contact = buildContact(index, lookupKey, (editor + n) % 365);
+                        }
+                        eventLock.lockContact(lookupKey);
+                        try {
+                            if (contact.hasBirthday())
+                                contactsSaved.put(lookupKey, contact);
+                            else
+                                contactsSaved.remove(lookupKey);
+                            saveContact(calendarStore, calendarId, contact, eventLinks);
+                        } finally {
+                            eventLock.unlockContact(lookupKey);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        startLatch.countDown();
+        // A deadlock fails with a timeout
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdownNow();
+
+        // No event saved twice and no edit lost, nothing left to synchronize
+        assertTrue(calendarStore.queryEvents(calendarId).getDuplicateEvents().isEmpty());
+        CalendarSynchronizer calendarSynchronizer = new CalendarSynchronizer(calendarStore, EVENT_FACTORY);
+        CalendarSynchronizer.Result result = calendarSynchronizer.synchronizeAllContacts(calendarId,
+                new ArrayList<>(contactsSaved.values()));
+        assertEquals(0, result.getNumberOfOperations());
+        assertEquals(contactsSaved.size() * EVENTS_BY_CONTACT, calendarStore.getNumberOfEvents());
+        // Links are the events of the calendar
+        Map<String, Map<Integer, Long>> eventLinksNotEmpty = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Long>> contactEntry : eventLinks.entrySet()) {
+            if (!contactEntry.getValue().isEmpty())
+                eventLinksNotEmpty.put(contactEntry.getKey(), contactEntry.getValue());
+        }
+        assertEquals(result.getEventIdsByContact(), eventLinksNotEmpty);
+    }
+}
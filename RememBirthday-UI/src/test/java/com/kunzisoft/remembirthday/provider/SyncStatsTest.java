@@ -0,0 +1,35 @@
+package com.kunzisoft.remembirthday.provider;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Totals of the phases of a synchronization
+ */
+public class SyncStatsTest {
+
+    @Test
+    public void phaseTotals_keepShortRecords() throws Exception {
+        SyncStats syncStats = new SyncStats(SyncStats.TYPE_DELTA);
+        // Batches shorter than one millisecond
+        for (int i = 0; i < 1000; i++) {
+            syncStats.record(SyncStats.Phase.APPLY_BATCH, 600000, 2, SyncStats.UNKNOWN);
+        }
+        syncStats.record(SyncStats.Phase.EVENT_QUERY, 1500000, SyncStats.UNKNOWN, SyncStats.UNKNOWN);
+
+        List<SyncStats.PhaseRecord> phaseTotals = syncStats.getPhaseTotals();
+        assertEquals(2, phaseTotals.size());
+        assertEquals(SyncStats.Phase.EVENT_QUERY, phaseTotals.get(0).getPhase());
+        assertEquals(2, phaseTotals.get(0).getDurationMillis());
+        assertEquals(SyncStats.UNKNOWN, phaseTotals.get(0).getCount());
+        assertEquals(SyncStats.Phase.APPLY_BATCH, phaseTotals.get(1).getPhase());
+        assertEquals(600000000L, phaseTotals.get(1).getDurationNanos());
+        assertEquals(600, phaseTotals.get(1).getDurationMillis());
+        assertEquals(2000, phaseTotals.get(1).getCount());
+        // Records are not modified by the totals
+        assertEquals(600000, syncStats.getPhaseRecords().get(0).getDurationNanos());
+    }
+}
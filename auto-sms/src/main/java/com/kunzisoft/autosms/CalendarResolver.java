@@ -2,11 +2,21 @@ package com.kunzisoft.autosms;
 
 import android.util.Log;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 
+/**
+ * Compute the dates of a recurring message. <br />
+ * The next occurrence is computed from the first date in one step, the day of month is clamped
+ * to the end of month (January 31 gives February 28 or 29, then March 31) and February 29 to February 28
+ * in common years.
+ */
 public class CalendarResolver {
 
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000;
+
     public static final String RECURRING_NO = "RECURRING_NO";
     public static final String RECURRING_DAILY = "RECURRING_DAILY";
     public static final String RECURRING_WEEKLY = "RECURRING_WEEKLY";
@@ -33,9 +43,10 @@ public class CalendarResolver {
             return this;
         }
         calendar.set(Calendar.DAY_OF_MONTH, Calendar.getInstance().get(Calendar.DAY_OF_MONTH));
-        while (past() || calendar.get(Calendar.DAY_OF_WEEK) != day) {
-            calendar.add(Calendar.DATE, 1);
-        }
+        // First day of week, then the first week not passed
+        calendar.add(Calendar.DATE, (day - calendar.get(Calendar.DAY_OF_WEEK) + 7) % 7);
+        calendar = getOccurrence(calendar, Calendar.DATE, 7,
+                getFirstOccurrenceNotPassed(calendar, Calendar.DATE, 7, System.currentTimeMillis()));
         return this;
     }
 
@@ -62,37 +73,112 @@ public class CalendarResolver {
         return this;
     }
 
+    /**
+     * @return Calendar with the date computed
+     */
+    public Calendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Move the date to the first occurrence not passed, without stepping each period
+     */
     public CalendarResolver advance() {
-        while (past()) {
+        if (past()) {
             try {
-                step();
+                int field = getField();
+                int amount = getAmount();
+                calendar = getOccurrence(calendar, field, amount,
+                        getFirstOccurrenceNotPassed(calendar, field, amount, System.currentTimeMillis()));
             } catch (IllegalArgumentException e) {
                 Log.w(getClass().getName(), e.getMessage());
-                break;
             }
         }
         return this;
     }
 
-    private void step() {
+    /**
+     * Get the next occurrences of the date, from the first not passed
+     * @param numberOfOccurrences Number of dates
+     * @return Dates of the occurrences, or only the date if it's not recurring
+     */
+    public List<Date> getNextOccurrences(int numberOfOccurrences) {
+        List<Date> occurrences = new ArrayList<>();
+        int field;
+        int amount;
+        try {
+            field = getField();
+            amount = getAmount();
+        } catch (IllegalArgumentException e) {
+            Log.w(getClass().getName(), e.getMessage());
+            occurrences.add(calendar.getTime());
+            return occurrences;
+        }
+        int first = getFirstOccurrenceNotPassed(calendar, field, amount, System.currentTimeMillis());
+        for (int i = 0; i < numberOfOccurrences; i++) {
+            occurrences.add(getOccurrence(calendar, field, amount, first + i).getTime());
+        }
+        return occurrences;
+    }
+
+    private int getField() {
         switch (recurringMode) {
             case RECURRING_DAILY:
-                calendar.add(Calendar.DATE, 1);
-                break;
             case RECURRING_WEEKLY:
-                calendar.add(Calendar.DATE, 7);
-                break;
+                return Calendar.DATE;
             case RECURRING_MONTHLY:
-                calendar.add(Calendar.MONTH, 1);
-                break;
+                return Calendar.MONTH;
             case RECURRING_YEARLY:
-                calendar.add(Calendar.YEAR, 1);
-                break;
+                return Calendar.YEAR;
             default:
                 throw new IllegalArgumentException("Unsupported recurring mode: " + recurringMode);
         }
     }
 
+    private int getAmount() {
+        if (RECURRING_WEEKLY.equals(recurringMode))
+            return 7;
+        return 1;
+    }
+
+    /**
+     * Get an occurrence from the first date, the day of month is clamped by the calendar
+     * @param first First date
+     * @param field Field of period
+     * @param amount Amount of field in a period
+     * @param index Number of periods after the first date
+     * @return New calendar
+     */
+    private static Calendar getOccurrence(Calendar first, int field, int amount, int index) {
+        Calendar occurrence = (Calendar) first.clone();
+        occurrence.add(field, amount * index);
+        return occurrence;
+    }
+
+    /**
+     * Get the number of periods after the first date to reach a time. <br />
+     * The estimation is always before the time, only a few periods are checked after it.
+     * @return Number of periods of the first occurrence at or after the time
+     */
+    private static int getFirstOccurrenceNotPassed(Calendar first, int field, int amount, long timeInMillis) {
+        long estimation;
+        if (field == Calendar.DATE) {
+            // A day lasts 23 or 25 hours with a daylight saving time change
+            estimation = (timeInMillis - first.getTimeInMillis()) / (DAY_MILLIS * amount) - 1;
+        } else {
+            Calendar time = (Calendar) first.clone();
+            time.setTimeInMillis(timeInMillis);
+            long months = (time.get(Calendar.YEAR) - first.get(Calendar.YEAR)) * 12L
+                    + time.get(Calendar.MONTH) - first.get(Calendar.MONTH);
+            estimation = (field == Calendar.MONTH ? months : months / 12) / amount - 1;
+        }
+        int index = (int) Math.max(0, Math.min(estimation, Integer.MAX_VALUE / amount - 1));
+        while (getOccurrence(first, field, amount, index).getTimeInMillis() < timeInMillis) {
+            index++;
+        }
+        return index;
+    }
+
     private boolean past() {
         return Calendar.getInstance().getTimeInMillis() > calendar.getTimeInMillis();
     }
@@ -88,7 +88,11 @@ public class SmsSenderService extends SmsIntentService {
     }
 
     private void scheduleNextSms(AutoSms sms) {
-        new CalendarResolver().initCalendar(sms.getDateScheduled()).setRecurringMode(sms.getRecurringMode()).advance();
+        CalendarResolver calendarResolver = new CalendarResolver()
+                .initCalendar(sms.getDateScheduled())
+                .setRecurringMode(sms.getRecurringMode())
+                .advance();
+        sms.setDateScheduled(calendarResolver.getCalendar().getTime());
         AutoSmsDbHelper.getDbHelper(this).insert(sms);
         new Scheduler(getApplicationContext()).schedule(sms, true);
     }
@@ -0,0 +1,130 @@
+package com.kunzisoft.autosms;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Occurrences of recurring messages, dates in the future give the same occurrences at each run
+ */
+public class CalendarResolverTest {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private static Date date(int year, int month, int day) {
+        return new GregorianCalendar(year, month - 1, day, 12, 0).getTime();
+    }
+
+    private static List<Date> getNextOccurrences(Date first, String recurringMode, int numberOfOccurrences) {
+        return new CalendarResolver()
+                .initCalendar(first)
+                .setRecurringMode(recurringMode)
+                .getNextOccurrences(numberOfOccurrences);
+    }
+
+    @Test
+    public void monthly_clampsEndOfMonth() throws Exception {
+        List<Date> occurrences = getNextOccurrences(date(2101, 1, 31), CalendarResolver.RECURRING_MONTHLY, 5);
+        assertEquals(date(2101, 1, 31), occurrences.get(0));
+        assertEquals(date(2101, 2, 28), occurrences.get(1));
+        // Day of the first date, not of the previous occurrence
+        assertEquals(date(2101, 3, 31), occurrences.get(2));
+        assertEquals(date(2101, 4, 30), occurrences.get(3));
+        assertEquals(date(2101, 5, 31), occurrences.get(4));
+    }
+
+    @Test
+    public void yearly_february29() throws Exception {
+        List<Date> occurrences = getNextOccurrences(date(2096, 2, 29), CalendarResolver.RECURRING_YEARLY, 9);
+        assertEquals(date(2096, 2, 29), occurrences.get(0));
+        assertEquals(date(2097, 2, 28), occurrences.get(1));
+        // 2100 is not a leap year
+        assertEquals(date(2100, 2, 28), occurrences.get(4));
+        assertEquals(date(2104, 2, 29), occurrences.get(8));
+    }
+
+    @Test
+    public void monthly_fromPastDate() throws Exception {
+        long now = System.currentTimeMillis();
+        int year = Calendar.getInstance().get(Calendar.YEAR) - 3;
+        List<Date> occurrences = getNextOccurrences(date(year, 1, 31), CalendarResolver.RECURRING_MONTHLY, 24);
+        assertEquals(24, occurrences.size());
+        Calendar previous = null;
+        for (Date occurrence : occurrences) {
+            assertTrue(occurrence.getTime() >= now);
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(occurrence);
+            assertEquals(Math.min(31, calendar.getActualMaximum(Calendar.DAY_OF_MONTH)),
+                    calendar.get(Calendar.DAY_OF_MONTH));
+            assertEquals(12, calendar.get(Calendar.HOUR_OF_DAY));
+            if (previous != null) {
+                previous.add(Calendar.MONTH, 1);
+                assertEquals(previous.get(Calendar.YEAR), calendar.get(Calendar.YEAR));
+                assertEquals(previous.get(Calendar.MONTH), calendar.get(Calendar.MONTH));
+            }
+            previous = calendar;
+        }
+        // The month before the first occurrence is passed
+        assertTrue(occurrences.get(0).getTime() - 32 * DAY_MILLIS < now);
+    }
+
+    @Test
+    public void daily_afterYearsOfGap() throws Exception {
+        long now = System.currentTimeMillis();
+        Calendar first = Calendar.getInstance();
+        first.add(Calendar.YEAR, -5);
+        first.add(Calendar.HOUR_OF_DAY, 1);
+        List<Date> occurrences = getNextOccurrences(first.getTime(), CalendarResolver.RECURRING_DAILY, 3);
+        assertEquals(3, occurrences.size());
+        // Next hour, or the next day with a daylight saving time change
+        assertTrue(occurrences.get(0).getTime() >= now);
+        assertTrue(occurrences.get(0).getTime() <= now + DAY_MILLIS + HOUR_MILLIS);
+        for (int i = 1; i < occurrences.size(); i++) {
+            long difference = occurrences.get(i).getTime() - occurrences.get(i - 1).getTime();
+            assertTrue(Math.abs(difference - DAY_MILLIS) <= HOUR_MILLIS);
+        }
+    }
+
+    @Test
+    public void notRecurring_givesOnlyTheDate() throws Exception {
+        Date date = date(2101, 1, 31);
+        List<Date> occurrences = getNextOccurrences(date, CalendarResolver.RECURRING_NO, 5);
+        assertEquals(1, occurrences.size());
+        assertEquals(date, occurrences.get(0));
+    }
+
+    @Test
+    public void setWeekDay_firstDayNotPassed() throws Exception {
+        for (int day = 1; day <= 7; day++) {
+            long now = System.currentTimeMillis();
+            Calendar calendar = new CalendarResolver()
+                    .initCalendar(new Date(now + 60 * 1000))
+                    .setRecurringMode(CalendarResolver.RECURRING_WEEKLY)
+                    .setWeekDay(day)
+                    .getCalendar();
+            assertEquals(day, calendar.get(Calendar.DAY_OF_WEEK));
+            assertTrue(calendar.getTimeInMillis() >= now);
+            assertTrue(calendar.getTimeInMillis() <= now + 7 * DAY_MILLIS + HOUR_MILLIS);
+        }
+    }
+
+    @Test
+    public void advance_fromPastDate() throws Exception {
+        long now = System.currentTimeMillis();
+        int year = Calendar.getInstance().get(Calendar.YEAR) - 10;
+        Calendar calendar = new CalendarResolver()
+                .initCalendar(date(year, 2, 28))
+                .setRecurringMode(CalendarResolver.RECURRING_YEARLY)
+                .advance()
+                .getCalendar();
+        assertTrue(calendar.getTimeInMillis() >= now);
+        assertTrue(calendar.getTimeInMillis() - 366 * DAY_MILLIS < now);
+        assertEquals(Calendar.FEBRUARY, calendar.get(Calendar.MONTH));
+    }
+}
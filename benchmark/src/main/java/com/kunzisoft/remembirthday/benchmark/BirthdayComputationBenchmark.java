@@ -0,0 +1,88 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Days left and age of contacts, by contact. <br />
+ * Each contact reads today or all the contacts use the same snapshot of today, like the lists.
+ * The allocations are measured with <code>-prof gc</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BirthdayComputationBenchmark {
+
+    private static final int NUMBER_OF_CONTACTS = 10000;
+
+    private List<Contact> contacts;
+
+    @Setup
+    public void setup() {
+        contacts = new BirthdayData().nextContacts(NUMBER_OF_CONTACTS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_CONTACTS)
+    public void daysLeft(Blackhole blackhole) {
+        for (Contact contact : contacts) {
+            blackhole.consume(contact.getBirthdayDaysRemaining());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_CONTACTS)
+    public void daysLeftWithTodaySnapshot(Blackhole blackhole) {
+        TodaySnapshot today = TodaySnapshot.now();
+        for (Contact contact : contacts) {
+            blackhole.consume(contact.getBirthdayDaysRemaining(today));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_CONTACTS)
+    public void age(Blackhole blackhole) {
+        for (Contact contact : contacts) {
+            blackhole.consume(contact.getAge());
+            blackhole.consume(contact.getAgeToNextBirthday());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_CONTACTS)
+    public void ageWithTodaySnapshot(Blackhole blackhole) {
+        TodaySnapshot today = TodaySnapshot.now();
+        for (Contact contact : contacts) {
+            blackhole.consume(contact.getAge(today));
+            blackhole.consume(contact.getAgeToNextBirthday(today));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_CONTACTS)
+    public void nextBirthday(Blackhole blackhole) {
+        TodaySnapshot today = TodaySnapshot.now();
+        for (Contact contact : contacts) {
+            blackhole.consume(contact.getNextBirthday(today));
+        }
+    }
+}
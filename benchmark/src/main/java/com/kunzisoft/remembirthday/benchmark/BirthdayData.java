@@ -0,0 +1,132 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.DateUnknownYear;
+import com.kunzisoft.remembirthday.element.Reminder;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Synthetic data like the contacts of a phone, always the same for a seed. <br />
+ * Birthdays are spread over the year and the ages between 1 and 90 years,
+ * the start dates use the forms of the contact providers in the proportions seen on devices
+ * (mostly yyyy-MM-dd and --MM-dd, some forms of HTC, Motorola and Facebook).
+ */
+public final class BirthdayData {
+
+    public static final long SEED = 42;
+
+    private static final String[] FIRST_NAMES = {
+            "Alice", "Bob", "Chloe", "David", "Emma", "Francois", "Gabriel", "Hugo", "Ines", "Jules",
+            "Karim", "Lea", "Manon", "Nathan", "Oceane", "Paul", "Quentin", "Rose", "Sarah", "Thomas"
+    };
+    private static final String[] LAST_NAMES = {
+            "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit", "Durand", "Leroy", "Moreau",
+            "Simon", "Laurent", "Lefebvre", "Michel", "Garcia", "David", "Bertrand", "Roux", "Vincent", "Fournier"
+    };
+
+    private final Random random;
+    private final int currentYear;
+
+    public BirthdayData() {
+        this(SEED);
+    }
+
+    public BirthdayData(long seed) {
+        this.random = new Random(seed);
+        this.currentYear = new GregorianCalendar().get(GregorianCalendar.YEAR);
+    }
+
+    private int randomYear() {
+        return currentYear - 1 - random.nextInt(90);
+    }
+
+    private int randomMonth() {
+        return 1 + random.nextInt(12);
+    }
+
+    private int randomDay(int year, int month) {
+        return 1 + random.nextInt(new GregorianCalendar(year, month - 1, 1)
+                .getActualMaximum(GregorianCalendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * @return Start date of a contact event, in one of the forms of the contact providers
+     */
+    public String nextStartDate() {
+        int year = randomYear();
+        int month = randomMonth();
+        int day = randomDay(year, month);
+        int form = random.nextInt(100);
+        if (form < 70)
+            return String.format(Locale.US, "%04d-%02d-%02d", year, month, day);
+        if (form < 85)
+            return String.format(Locale.US, "--%02d-%02d", month, day);
+        if (form < 88)
+            return String.format(Locale.US, "%02d-%02d", month, day);
+        if (form < 91)
+            return String.format(Locale.US, "%04d%02d%02d", year, month, day);
+        if (form < 93)
+            return String.valueOf(new GregorianCalendar(year, month - 1, day).getTimeInMillis());
+        if (form < 96)
+            return String.format(Locale.US, "%02d.%02d.%04d", day, month, year);
+        if (form < 99)
+            return String.format(Locale.US, "%02d/%02d/%04d", month, day, year);
+        return String.format(Locale.US, "%02d/%02d", month, day);
+    }
+
+    /**
+     * @param size Number of start dates
+     * @return Start dates, with the duplicates of a real list (contacts of the same day)
+     */
+    public String[] nextStartDates(int size) {
+        String[] startDates = new String[size];
+        for (int i = 0; i < size; i++) {
+            startDates[i] = nextStartDate();
+        }
+        return startDates;
+    }
+
+    /**
+     * @return Birthday with a year 8 times out of 10
+     */
+    public DateUnknownYear nextBirthday() {
+        int year = randomYear();
+        int month = randomMonth();
+        return new DateUnknownYear(
+                new GregorianCalendar(year, month - 1, randomDay(year, month)).getTime(),
+                random.nextInt(10) < 8);
+    }
+
+    /**
+     * @param size Number of contacts
+     * @return Contacts with a name, a lookup key and a birthday
+     */
+    public List<Contact> nextContacts(int size) {
+        List<Contact> contacts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]
+                    + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            contacts.add(new Contact(i, "lookup" + i, i, name, nextBirthday()));
+        }
+        return contacts;
+    }
+
+    /**
+     * @return All day event of a birthday of this year, with the reminders of the default preferences
+     * (the day at 10:00 and the day before at 18:00)
+     */
+    public CalendarEvent nextBirthdayEvent() {
+        int month = randomMonth();
+        CalendarEvent event = new CalendarEvent("Birthday",
+                new GregorianCalendar(currentYear, month - 1, randomDay(currentYear, month)).getTime(), true);
+        event.addReminder(new Reminder(event.getDate(), 10, 0, 0));
+        event.addReminder(new Reminder(event.getDate(), 18, 0, 1));
+        return event;
+    }
+}
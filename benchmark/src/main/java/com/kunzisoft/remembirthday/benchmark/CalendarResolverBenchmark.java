@@ -0,0 +1,67 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.autosms.CalendarResolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next occurrence of a recurring message scheduled years ago, like a message rescheduled after its sending.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalendarResolverBenchmark {
+
+    @Param({CalendarResolver.RECURRING_DAILY, CalendarResolver.RECURRING_WEEKLY,
+            CalendarResolver.RECURRING_MONTHLY, CalendarResolver.RECURRING_YEARLY})
+    public String recurringMode;
+
+    @Param({"1", "10"})
+    public int yearsAgo;
+
+    private Date firstDate;
+
+    @Setup
+    public void setup() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.YEAR, -yearsAgo);
+        calendar.set(Calendar.DAY_OF_MONTH, 31);
+        calendar.set(Calendar.HOUR_OF_DAY, 10);
+        firstDate = calendar.getTime();
+    }
+
+    @Benchmark
+    public Calendar advance() {
+        return new CalendarResolver()
+                .initCalendar(firstDate)
+                .setRecurringMode(recurringMode)
+                .advance()
+                .getCalendar();
+    }
+
+    @Benchmark
+    public List<Date> nextOccurrences() {
+        return new CalendarResolver()
+                .initCalendar(firstDate)
+                .setRecurringMode(recurringMode)
+                .getNextOccurrences(10);
+    }
+}
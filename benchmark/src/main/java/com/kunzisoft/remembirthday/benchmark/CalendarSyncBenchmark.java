@@ -0,0 +1,80 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.provider.CalendarSyncFixture;
+import com.kunzisoft.remembirthday.provider.CalendarSynchronizer;
+import com.kunzisoft.remembirthday.provider.InMemoryCalendarStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full synchronizations of synthetic contacts with the calendar in memory, by synchronization.
+ * The allocations are measured with <code>-prof gc</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CalendarSyncBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int numberOfContacts;
+
+    private List<Contact> contacts;
+    // Calendar already synchronized with the contacts
+    private InMemoryCalendarStore syncedCalendarStore;
+    private long syncedCalendarId;
+    // Empty calendar, built again before each first synchronization
+    private InMemoryCalendarStore emptyCalendarStore;
+    private long emptyCalendarId;
+
+    @Setup
+    public void setup() {
+        contacts = CalendarSyncFixture.buildContacts(numberOfContacts);
+        syncedCalendarStore = new InMemoryCalendarStore();
+        syncedCalendarId = syncedCalendarStore.getOrCreateCalendar();
+        new CalendarSynchronizer(syncedCalendarStore, CalendarSyncFixture.EVENT_FACTORY)
+                .synchronizeAllContacts(syncedCalendarId, contacts);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupEmptyCalendar() {
+        // Each invocation lasts more than a millisecond, the setup by invocation does not disturb the measure
+        emptyCalendarStore = new InMemoryCalendarStore();
+        emptyCalendarId = emptyCalendarStore.getOrCreateCalendar();
+    }
+
+    /**
+     * First synchronization, all events and reminders are created
+     */
+    @Benchmark
+    public CalendarSynchronizer.Result firstSync() {
+        return new CalendarSynchronizer(emptyCalendarStore, CalendarSyncFixture.EVENT_FACTORY)
+                .synchronizeAllContacts(emptyCalendarId, contacts);
+    }
+
+    /**
+     * Synchronization of a calendar up to date, the events are read and compared without operation
+     */
+    @Benchmark
+    public CalendarSynchronizer.Result upToDateSync() {
+        return new CalendarSynchronizer(syncedCalendarStore, CalendarSyncFixture.EVENT_FACTORY)
+                .synchronizeAllContacts(syncedCalendarId, contacts);
+    }
+}
@@ -0,0 +1,78 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.remembirthday.element.Contact;
+import com.kunzisoft.remembirthday.element.TodaySnapshot;
+import com.kunzisoft.remembirthday.factory.ContactSort;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sort of a list of contacts with {@link ContactSort}, like the lists of contacts.
+ * The list is copied before each sort with a comparator to sort the same order each time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContactSortBenchmark {
+
+    @Param({"1000", "10000"})
+    public int numberOfContacts;
+
+    @Param({"CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT", "CONTACT_SORT_BY_ANNIVERSARY_DAYS_LEFT_DESC"})
+    public ContactSort contactSort;
+
+    private List<Contact> contacts;
+    private int[] packedBirthdays;
+
+    @Setup
+    public void setup() {
+        contacts = new BirthdayData().nextContacts(numberOfContacts);
+        packedBirthdays = new int[contacts.size()];
+        for (int i = 0; i < packedBirthdays.length; i++) {
+            packedBirthdays[i] = contacts.get(i).getBirthday().getPackedDate();
+        }
+    }
+
+    @Benchmark
+    public List<Contact> sort() {
+        List<Contact> sortedContacts = new ArrayList<>(contacts);
+        Collections.sort(sortedContacts, contactSort.getContactComparator(TodaySnapshot.now()));
+        return sortedContacts;
+    }
+
+    @Benchmark
+    public int[] sortPositions() {
+        return contactSort.sortPositions(contacts, TodaySnapshot.now());
+    }
+
+    /**
+     * Sort of the birthdays read from the cursor of keys, like the lists of contacts
+     */
+    @Benchmark
+    public int[] sortBirthdays() {
+        return contactSort.sortPositions(packedBirthdays, TodaySnapshot.now());
+    }
+
+    @Benchmark
+    public List<Contact> copyWithoutSort() {
+        return new ArrayList<>(contacts);
+    }
+}
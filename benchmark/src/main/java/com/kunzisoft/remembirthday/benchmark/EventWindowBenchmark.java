@@ -0,0 +1,60 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.EventWithoutYear;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events of the window of years around a birthday, by birthday, like the synchronization of the calendar.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventWindowBenchmark {
+
+    private static final int NUMBER_OF_EVENTS = 1000;
+
+    private CalendarEvent[] baseEvents;
+
+    @Setup
+    public void setup() {
+        BirthdayData birthdayData = new BirthdayData();
+        baseEvents = new CalendarEvent[NUMBER_OF_EVENTS];
+        for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+            baseEvents[i] = birthdayData.nextBirthdayEvent();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_EVENTS)
+    public void eventsAroundAndForThisYear(Blackhole blackhole) {
+        for (CalendarEvent baseEvent : baseEvents) {
+            blackhole.consume(new EventWithoutYear(baseEvent).getEventsAroundAndForThisYear());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_EVENTS)
+    public void eventsAfterThisYear(Blackhole blackhole) {
+        for (CalendarEvent baseEvent : baseEvents) {
+            blackhole.consume(new EventWithoutYear(baseEvent).getEventsAfterThisYear());
+        }
+    }
+}
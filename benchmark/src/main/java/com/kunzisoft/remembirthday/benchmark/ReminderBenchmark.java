@@ -0,0 +1,91 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.remembirthday.element.CalendarEvent;
+import com.kunzisoft.remembirthday.element.Reminder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of the reminders of birthday events, by reminder. <br />
+ * A new reminder computes its time, a reminder already read gives the time kept,
+ * a reminder modified computes its time again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReminderBenchmark {
+
+    private static final int NUMBER_OF_EVENTS = 1000;
+    // Default reminders of each event
+    private static final int NUMBER_OF_REMINDERS = 2 * NUMBER_OF_EVENTS;
+
+    private Date[] datesEvent;
+    private List<Reminder> reminders;
+
+    @Setup
+    public void setup() {
+        BirthdayData birthdayData = new BirthdayData();
+        datesEvent = new Date[NUMBER_OF_EVENTS];
+        reminders = new ArrayList<>(NUMBER_OF_REMINDERS);
+        for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+            CalendarEvent event = birthdayData.nextBirthdayEvent();
+            datesEvent[i] = event.getDate();
+            reminders.addAll(event.getReminders());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_REMINDERS)
+    public void newReminders(Blackhole blackhole) {
+        for (Date dateEvent : datesEvent) {
+            blackhole.consume(new Reminder(dateEvent, 10, 0, 0).getMinutesBeforeEvent());
+            blackhole.consume(new Reminder(dateEvent, 18, 0, 1).getDate());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_REMINDERS)
+    public void remindersAlreadyComputed(Blackhole blackhole) {
+        for (Reminder reminder : reminders) {
+            blackhole.consume(reminder.getMinutesBeforeEvent());
+            blackhole.consume(reminder.getTimeInMillis());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_REMINDERS)
+    public void remindersModified(Blackhole blackhole) {
+        for (Reminder reminder : reminders) {
+            reminder.setMinuteOfHour(reminder.getMinuteOfHour() == 0 ? 30 : 0);
+            blackhole.consume(reminder.getMinutesBeforeEvent());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_REMINDERS)
+    public void remindersFromMinutes(Blackhole blackhole) {
+        for (Date dateEvent : datesEvent) {
+            blackhole.consume(new Reminder(dateEvent, 14 * 60).getDate());
+            blackhole.consume(new Reminder(dateEvent, 6 * 60).getDate());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.kunzisoft.remembirthday.benchmark;
+
+import com.kunzisoft.remembirthday.element.DateUnknownYear;
+import com.kunzisoft.remembirthday.element.LegacyStartDateParser;
+import com.kunzisoft.remembirthday.element.StartDateCache;
+import com.kunzisoft.remembirthday.element.StartDateParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse of the start dates of contact events, by date. <br />
+ * Compared with the cascade of SimpleDateFormat of the previous parser ({@link LegacyStartDateParser}),
+ * {@link #stringToDate(Blackhole)} reads the dates kept by {@link StartDateCache} like a second load of the contacts.
+ * The allocations are measured with <code>-prof gc</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartDateBenchmark {
+
+    private static final int NUMBER_OF_DATES = 10000;
+
+    private String[] startDates;
+
+    @Setup
+    public void setup() {
+        startDates = new BirthdayData().nextStartDates(NUMBER_OF_DATES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_DATES)
+    public void parse(Blackhole blackhole) {
+        for (String startDate : startDates) {
+            blackhole.consume(StartDateParser.parse(startDate));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_DATES)
+    public void parseWithSimpleDateFormat(Blackhole blackhole) {
+        for (String startDate : startDates) {
+            blackhole.consume(LegacyStartDateParser.stringToDate(startDate));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_DATES)
+    public void stringToDate(Blackhole blackhole) {
+        for (String startDate : startDates) {
+            blackhole.consume(DateUnknownYear.stringToDate(startDate));
+        }
+    }
+}